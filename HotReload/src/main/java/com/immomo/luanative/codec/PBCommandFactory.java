@@ -18,10 +18,14 @@ import com.immomo.luanative.codec.protobuf.PBDeviceCommand;
 import com.immomo.luanative.codec.protobuf.PBEntryFileCommand;
 import com.immomo.luanative.codec.protobuf.PBErrorCommand;
 import com.immomo.luanative.codec.protobuf.PBLogCommand;
+import com.immomo.luanative.codec.protobuf.PBManifestCommand;
 import com.immomo.luanative.codec.protobuf.PBPingCommand;
 import com.immomo.luanative.codec.protobuf.PBPongCommand;
 import com.immomo.luanative.codec.protobuf.PBReloadCommand;
 import com.immomo.luanative.codec.protobuf.PBUpdateCommand;
+import com.immomo.luanative.hotreload.sync.FileManifest;
+
+import java.util.Map;
 
 public class PBCommandFactory {
     public static String Serial = Build.UNKNOWN;
@@ -77,6 +81,18 @@ public class PBCommandFactory {
         return builder.build();
     }
 
+    public static Object getManifestCommand(FileManifest manifest) {
+        PBManifestCommand.pbmanifestcommand.Builder builder = PBManifestCommand.pbmanifestcommand.newBuilder();
+        builder.setBasecommand(getBaseCommand(PackageConst.TYPE_MANIFEST));
+        for (Map.Entry<String, FileManifest.Entry> e : manifest.snapshot().entrySet()) {
+            builder.addEntries(PBManifestCommand.pbmanifestentry.newBuilder()
+                    .setRelativeFilePath(e.getKey())
+                    .setHash(e.getValue().hash)
+                    .setSize(e.getValue().size));
+        }
+        return builder.build();
+    }
+
     public static Object getPingCommand(String ip, int port) {
         PBPingCommand.pbpingcommand.Builder builder = PBPingCommand.pbpingcommand.newBuilder();
         builder.setIp(1111);
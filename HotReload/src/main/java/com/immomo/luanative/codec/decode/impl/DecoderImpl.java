@@ -14,17 +14,36 @@ import com.immomo.luanative.codec.decode.AbstractDecoder;
 import com.immomo.luanative.codec.decode.iDecodingListener;
 import com.immomo.luanative.codec.proto.PackageConst;
 import com.immomo.luanative.codec.protobuf.PBMessageFactory;
-import com.immomo.luanative.util.LuaNativeUtil;
 
+import java.nio.ByteBuffer;
+
+/**
+ * 收到的数据写入可复用的缓存中，循环解析缓存中所有完整的包
+ * 包体不拷贝，以{@link ByteBuffer}切片交给{@link PBMessageFactory}解析
+ *
+ * 缓存中[readIndex, writeIndex)为未解析的数据，
+ * 写入空间不足时先将未解析的数据移动到头部，仍不足时扩容
+ * 已知包长度时，一次扩容到能放下整个包
+ */
 public class DecoderImpl extends AbstractDecoder {
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
 
-    private byte[] rawData;
+    private byte[] buffer = new byte[DEFAULT_CAPACITY];
+    private int readIndex;
+    private int writeIndex;
     private iDecodingListener listener;
 
     @Override
     public void push(byte[] data) {
+        push(data, 0, data.length);
+    }
+
+    /**
+     * 写入data中[offset, offset + length)的数据，并解析
+     */
+    public void push(byte[] data, int offset, int length) {
         try {
-            decode(data);
+            decode(data, offset, length);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -36,82 +55,127 @@ public class DecoderImpl extends AbstractDecoder {
     }
 
     public void decode(byte[] data) throws Exception {
-        if (rawData != null) {
-            rawData = LuaNativeUtil.mergeBytes(rawData, data);
-        } else {
-            rawData = data;
-        }
+        decode(data, 0, data.length);
+    }
 
-        rawData = decodeMessage(rawData);
+    public void decode(byte[] data, int offset, int length) throws Exception {
+        ensureWritable(length);
+        System.arraycopy(data, offset, buffer, writeIndex, length);
+        writeIndex += length;
+        decodeMessages();
     }
 
-    private byte[] decodeMessage(byte[] data) throws Exception {
-        byte pkgType = unpackType(data);
-        int headerLength = unpackHeaderLength(pkgType);
-        int bodyType = unpackBodyType(data, pkgType);
-        int bodyLength = unpackBodyLength(data, pkgType);
-        int completedLength = headerLength + bodyLength + 1;
-        if (data.length > completedLength) {
-            // 多余一个包
-            int remainLength = data.length - completedLength;
-            byte[] remainData = LuaNativeUtil.getBytes(data, completedLength, remainLength);
-            byte[] completedData = LuaNativeUtil.getBytes(data, headerLength, bodyLength);
-            Object obj = PBMessageFactory.getInstance(bodyType, completedData);
-            if (listener != null) {
-                listener.onDecoding(obj);
+    /**
+     * 未解析的数据长度
+     */
+    public int remaining() {
+        return writeIndex - readIndex;
+    }
+
+    private void decodeMessages() throws Exception {
+        while (true) {
+            int available = writeIndex - readIndex;
+            if (available <= PackageConst.INDEX_MAGIC)
+                break;
+            byte pkgType = buffer[readIndex + PackageConst.INDEX_MAGIC];
+            int headerLength = unpackHeaderLength(pkgType);
+            if (headerLength < 0) {
+                /// 无法识别的包，丢弃所有数据，等待下一个包
+                readIndex = writeIndex = 0;
+                throw new RuntimeException("UNKNOWN_PACKAGE_TYPE: " + pkgType);
+            }
+            if (available < headerLength)
+                break;
+            int bodyLength = unpackBodyLength(pkgType);
+            if (bodyLength < 0) {
+                readIndex = writeIndex = 0;
+                throw new RuntimeException("PACK_LENGTH_ERROR");
+            }
+            int completedLength = headerLength + bodyLength + 1;
+            if (available < completedLength) {
+                ensureWritable(completedLength - available);
+                break;
+            }
+            int start = readIndex;
+            readIndex += completedLength;
+            if (pkgType != PackageConst.MAGIC_MESSAGE) {
+                /// 心跳包没有包体
+                continue;
+            }
+            int bodyType = unpackInt(buffer, start + PackageConst.INDEX_MESSAGE_BODY_TYPE_START);
+            Object obj;
+            try {
+                obj = parseMessage(bodyType, ByteBuffer.wrap(buffer, start + headerLength, bodyLength).slice());
+            } catch (Exception e) {
+                /// 单个包解析失败时丢弃该包，不影响后续包
+                continue;
             }
-            return decodeMessage(remainData);
-        } else if(data.length == completedLength) {
-            // 一个完整的包
-            byte[] packageData = LuaNativeUtil.getBytes(data, headerLength, bodyLength);
-            Object obj = PBMessageFactory.getInstance(bodyType, packageData);
             if (listener != null) {
                 listener.onDecoding(obj);
             }
-            return null;
         }
-        return data;
+        if (readIndex == writeIndex) {
+            readIndex = writeIndex = 0;
+        }
     }
 
-    private byte unpackType(byte[] data) throws Exception {
-        if (data.length > PackageConst.INDEX_MAGIC) {
-            return data[PackageConst.INDEX_MAGIC];
-        }
-        return -1;
+    /**
+     * 解析包体，body只在此方法中有效
+     */
+    protected Object parseMessage(int bodyType, ByteBuffer body) throws Exception {
+        return PBMessageFactory.getInstance(bodyType, body);
     }
 
-    private int unpackHeaderLength(int pkgType) throws Exception {
-        switch (pkgType) {
-            case PackageConst.MAGIC_PING:
-                return PackageConst.HEADER_LENGTH_PING;
-            case PackageConst.MAGIC_PONG:
-                return PackageConst.HEADER_LENGTH_PONG;
-            case PackageConst.MAGIC_MESSAGE:
-                return PackageConst.HEADER_LENGTH_MESSAGE;
-                default:
-                    return -1;
+    /**
+     * 保证能再写入length字节
+     */
+    private void ensureWritable(int length) {
+        if (buffer.length - writeIndex >= length)
+            return;
+        int unread = writeIndex - readIndex;
+        int need = unread + length;
+        if (need <= buffer.length) {
+            System.arraycopy(buffer, readIndex, buffer, 0, unread);
+        } else {
+            int cap = buffer.length;
+            while (cap < need) {
+                cap <<= 1;
+            }
+            byte[] n = new byte[cap];
+            System.arraycopy(buffer, readIndex, n, 0, unread);
+            buffer = n;
         }
+        readIndex = 0;
+        writeIndex = unread;
     }
 
-
-    private int unpackBodyType(byte[] data, int pkgType) throws Exception {
+    private int unpackHeaderLength(int pkgType) {
         switch (pkgType) {
             case PackageConst.MAGIC_PING:
                 return PackageConst.HEADER_LENGTH_PING;
             case PackageConst.MAGIC_PONG:
                 return PackageConst.HEADER_LENGTH_PONG;
+            case PackageConst.MAGIC_MESSAGE:
+                return PackageConst.HEADER_LENGTH_MESSAGE;
             default:
-                return unpackInt(data, PackageConst.INDEX_MESSAGE_BODY_TYPE_START, PackageConst.INDEX_MESSAGE_BODY_TYPE_END);
+                return -1;
         }
     }
 
-    private int unpackBodyLength(byte[] data, int pkgType) throws Exception {
+    private int unpackBodyLength(int pkgType) {
         switch (pkgType) {
             case PackageConst.MAGIC_PING:
             case PackageConst.MAGIC_PONG:
                 return 0;
             default:
-                return unpackInt(data, PackageConst.INDEX_MESSAGE_BODY_LENGTH_START, PackageConst.INDEX_MESSAGE_BODY_LENGTH_END);
+                return unpackInt(buffer, readIndex + PackageConst.INDEX_MESSAGE_BODY_LENGTH_START);
         }
     }
-}
\ No newline at end of file
+
+    private static int unpackInt(byte[] data, int start) {
+        return ((data[start] & 0xFF) << 24)
+                | ((data[start + 1] & 0xFF) << 16)
+                | ((data[start + 2] & 0xFF) << 8)
+                | (data[start + 3] & 0xFF);
+    }
+}
@@ -114,6 +114,14 @@ public class PackageConst {
     public static final int TYPE_PONG = PBBaseCommand.pbbasecommand.InstructionType.PONG_VALUE;
 
     public static final int TYPE_IPADDRESS = PBBaseCommand.pbbasecommand.InstructionType.IPADDRESS_VALUE;
+    /**
+     * 设备文件摘要，连接成功后由设备发送
+     */
+    public static final int TYPE_MANIFEST = PBBaseCommand.pbbasecommand.InstructionType.MANIFEST_VALUE;
+    /**
+     * 文件差量更新
+     */
+    public static final int TYPE_PATCH = PBBaseCommand.pbbasecommand.InstructionType.PATCH_VALUE;
 
     /**
      * The constant INDEX_MAGIC.
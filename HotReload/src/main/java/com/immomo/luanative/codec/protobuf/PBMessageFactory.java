@@ -9,6 +9,8 @@ package com.immomo.luanative.codec.protobuf;
 
 import com.immomo.luanative.codec.proto.PackageConst;
 
+import java.nio.ByteBuffer;
+
 public class PBMessageFactory {
 
     public static Object getInstance(int type, byte[] data) throws Exception {
@@ -49,6 +51,59 @@ public class PBMessageFactory {
             case PackageConst.TYPE_IPADDRESS: {
                 return PBIPAddressCommand.pbipaddresscommand.parseFrom(data);
             }
+            case PackageConst.TYPE_PATCH: {
+                return PBPatchCommand.pbpatchcommand.parseFrom(data);
+            }
+            default: {
+                throw new Exception("未知类型的消息");
+            }
+        }
+    }
+
+    /**
+     * 直接从切片中解析，不需要先拷贝成byte[]
+     */
+    public static Object getInstance(int type, ByteBuffer data) throws Exception {
+        switch (type) {
+            case PackageConst.TYPE_DEVICE: {
+                return PBDeviceCommand.pbdevicecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_ENTRY_FILE: {
+                return PBEntryFileCommand.pbentryfilecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_UPDATE: {
+                return PBUpdateCommand.pbupdatecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_RELOAD: {
+                return PBReloadCommand.pbreloadcommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_CLOSE: {
+                return PBCloseCommand.pbclosecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_LOG: {
+                return PBLogCommand.pblogcommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_ERROR: {
+                return PBErrorCommand.pberrorcommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_CREATE: {
+                return PBCreateCommand.pbcreatecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_RENAME: {
+                return PBRenameCommand.pbrenamecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_MOVE: {
+                return PBMoveCommand.pbmovecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_REMOVE: {
+                return PBRemoveCommand.pbremovecommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_IPADDRESS: {
+                return PBIPAddressCommand.pbipaddresscommand.parseFrom(data);
+            }
+            case PackageConst.TYPE_PATCH: {
+                return PBPatchCommand.pbpatchcommand.parseFrom(data);
+            }
             default: {
                 throw new Exception("未知类型的消息");
             }
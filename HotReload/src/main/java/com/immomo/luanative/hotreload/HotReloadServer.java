@@ -16,6 +16,7 @@ import com.immomo.luanative.codec.protobuf.PBCreateCommand;
 import com.immomo.luanative.codec.protobuf.PBEntryFileCommand;
 import com.immomo.luanative.codec.protobuf.PBIPAddressCommand;
 import com.immomo.luanative.codec.protobuf.PBMoveCommand;
+import com.immomo.luanative.codec.protobuf.PBPatchCommand;
 import com.immomo.luanative.codec.protobuf.PBReloadCommand;
 import com.immomo.luanative.codec.protobuf.PBRemoveCommand;
 import com.immomo.luanative.codec.protobuf.PBRenameCommand;
@@ -24,12 +25,19 @@ import com.immomo.luanative.hotreload.client.ClientFactory;
 import com.immomo.luanative.hotreload.client.iClient;
 import com.immomo.luanative.hotreload.client.iClientListener;
 import com.immomo.luanative.hotreload.io.iMessageListener;
+import com.immomo.luanative.hotreload.sync.DeltaPatch;
+import com.immomo.luanative.hotreload.sync.FileManifest;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -49,6 +57,21 @@ public class HotReloadServer implements IHotReloadServer {
     private String entryFilePath;
     private String relativeEntryFilePath;
     private String params;
+    /**
+     * 设备上热重载文件根目录
+     */
+    private volatile File syncRoot;
+    private final FileManifest manifest = new FileManifest();
+    /**
+     * 上次刷新时入口文件依赖闭包的hash
+     */
+    private String lastReloadHash;
+    private boolean skipUnchangedReload = false;
+    /**
+     * 扫描目录、发送摘要的线程，不占用连接线程，空闲时退出
+     */
+    private final ExecutorService syncExecutor = new ThreadPoolExecutor(0, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 
     //
     //    ---------- 单例
@@ -248,6 +271,74 @@ public class HotReloadServer implements IHotReloadServer {
         return PBCommandFactory.Serial;
     }
 
+    @Override
+    public void setSyncRoot(File root) {
+        this.syncRoot = root;
+    }
+
+    /**
+     * 入口文件及其依赖未变化时，是否跳过刷新，默认不跳过
+     */
+    public void setSkipUnchangedReload(boolean skip) {
+        this.skipUnchangedReload = skip;
+    }
+
+    /**
+     * 在{@link #syncExecutor}中扫描根目录，并发送文件摘要
+     * 连接线程中调用，不等待扫描完成
+     */
+    private void sendManifest(final iClient client) {
+        final File root = syncRoot;
+        if (root == null)
+            return;
+        syncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                manifest.scan(root);
+                client.writeData(encoder.encode(PBCommandFactory.getManifestCommand(manifest)));
+            }
+        });
+    }
+
+    /**
+     * 差量更新，原文件与patch不匹配时，重新发送摘要，由插件端发送完整文件
+     */
+    private void applyPatch(PBPatchCommand.pbpatchcommand cmd) {
+        String rel = cmd.getRelativeFilePath();
+        byte[] base = manifest.content(syncRoot, rel);
+        byte[] result = null;
+        if (base != null && FileManifest.sha1(base).equals(cmd.getBaseHash())) {
+            try {
+                result = DeltaPatch.apply(base, cmd.getPatchData().toByteArray());
+            } catch (IllegalArgumentException ignore) {
+            }
+        }
+        if (result == null || !FileManifest.sha1(result).equals(cmd.getTargetHash())) {
+            error("差量更新失败: " + rel);
+            if (currentClient != null)
+                sendManifest(currentClient);
+            return;
+        }
+        if (manifest.update(rel, result)) {
+            listener.onFileUpdate(cmd.getFilePath(), rel, new ByteArrayInputStream(result));
+        }
+    }
+
+    /**
+     * @return true: 入口文件及其依赖未变化，不需要刷新
+     */
+    private boolean isReloadUnchanged(String relativeEntryFilePath) {
+        if (!skipUnchangedReload || relativeEntryFilePath == null)
+            return false;
+        String hash = manifest.closureHash(relativeEntryFilePath);
+        synchronized (this) {
+            if (hash != null && hash.equals(lastReloadHash))
+                return true;
+            lastReloadHash = hash;
+        }
+        return false;
+    }
+
     private static class GetCodeCallback{
         private byte[] code;
     }
@@ -304,7 +395,14 @@ public class HotReloadServer implements IHotReloadServer {
         if (msg instanceof PBUpdateCommand.pbupdatecommand) {
             // 文件更新
             PBUpdateCommand.pbupdatecommand cmd = (PBUpdateCommand.pbupdatecommand) msg;
-            listener.onFileUpdate(cmd.getFilePath(), cmd.getRelativeFilePath(), cmd.getFileData().newInput());
+            byte[] data = cmd.getFileData().toByteArray();
+            // 内容未变化，不需要重新写入
+            if (manifest.update(cmd.getRelativeFilePath(), data)) {
+                listener.onFileUpdate(cmd.getFilePath(), cmd.getRelativeFilePath(), new ByteArrayInputStream(data));
+            }
+        } else if (msg instanceof PBPatchCommand.pbpatchcommand) {
+            // 文件差量更新
+            applyPatch((PBPatchCommand.pbpatchcommand) msg);
         } else if (msg instanceof PBEntryFileCommand.pbentryfilecommand) {
             // 入口文件
             PBEntryFileCommand.pbentryfilecommand cmd = (PBEntryFileCommand.pbentryfilecommand) msg;
@@ -312,22 +410,31 @@ public class HotReloadServer implements IHotReloadServer {
         } else if (msg instanceof PBCreateCommand.pbcreatecommand) {
             // 创建文件
             PBCreateCommand.pbcreatecommand cmd = (PBCreateCommand.pbcreatecommand) msg;
-            listener.onFileCreate(cmd.getFilePath(), cmd.getRelativeFilePath(), cmd.getFileData().newInput());
+            byte[] data = cmd.getFileData().toByteArray();
+            manifest.update(cmd.getRelativeFilePath(), data);
+            listener.onFileCreate(cmd.getFilePath(), cmd.getRelativeFilePath(), new ByteArrayInputStream(data));
         } else if (msg instanceof PBRemoveCommand.pbremovecommand) {
             // 删除文件
             PBRemoveCommand.pbremovecommand cmd = (PBRemoveCommand.pbremovecommand) msg;
+            manifest.remove(cmd.getRelativeFilePath());
             listener.onFileDelete(cmd.getFilePath(), cmd.getRelativeFilePath());
         } else if (msg instanceof PBRenameCommand.pbrenamecommand) {
             // 重命名文件 或 文件夹
             PBRenameCommand.pbrenamecommand cmd = (PBRenameCommand.pbrenamecommand) msg;
+            manifest.rename(cmd.getOldRelativeFilePath(), cmd.getNewRelativeFilePath());
             listener.onFileRename(cmd.getOldFilePath(), cmd.getOldRelativeFilePath(), cmd.getNewFilePath(), cmd.getNewRelativeFilePath());
         } else if (msg instanceof PBMoveCommand.pbmovecommand) {
             // 移动文件 或 文件夹
             PBMoveCommand.pbmovecommand cmd = (PBMoveCommand.pbmovecommand) msg;
+            manifest.rename(cmd.getOldRelativeFilePath(), cmd.getNewRelativeFilePath());
             listener.onFileMove(cmd.getOldFilePath(), cmd.getOldRelativeFilePath(), cmd.getNewFilePath(), cmd.getNewRelativeFilePath());
         } else if (msg instanceof PBReloadCommand.pbreloadcommand) {
             // 刷新
             PBReloadCommand.pbreloadcommand cmd = (PBReloadCommand.pbreloadcommand) msg;
+            if (isReloadUnchanged(getRelativeEntryFilePath())) {
+                log("文件未变化，跳过刷新");
+                return;
+            }
             listener.onReload(getEntryFilePath(), getRelativeEntryFilePath(), getParams() + "&hotReload_SerialNum=" + cmd.getSerialNum());
         } else if (msg instanceof PBIPAddressCommand.pbipaddresscommand) {
             PBIPAddressCommand.pbipaddresscommand cmd = (PBIPAddressCommand.pbipaddresscommand) msg;
@@ -341,6 +448,7 @@ public class HotReloadServer implements IHotReloadServer {
             this.entryFilePath = entryFilePath;
             this.relativeEntryFilePath = relativeEntryFilePath;
             this.params = params;
+            this.lastReloadHash = null;
         }
     }
 
@@ -377,6 +485,7 @@ public class HotReloadServer implements IHotReloadServer {
 
         @Override
         public void clientOnConnected(iClient client) {
+            sendManifest(client);
             if (HotReloadServer.this.listener != null) {
                 HotReloadServer.this.listener.onConnected(connectionType, ip, port);
             }
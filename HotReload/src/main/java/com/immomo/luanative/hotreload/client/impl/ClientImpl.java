@@ -67,21 +67,31 @@ public class ClientImpl implements iClient {
     @Override
     public void writeData(byte[] data) {
         writer.writeData(data);
+        notifySendData();
     }
 
     @Override
     public void writeLog(String log, String entryFilePath) {
         writer.writeLog(log, entryFilePath);
+        notifySendData();
     }
 
     @Override
     public void writeError(String error, String entryFilePath) {
         writer.writeError(error, entryFilePath);
+        notifySendData();
     }
 
     @Override
     public void writeDevice() {
         writer.writeDevice();
+        notifySendData();
+    }
+
+    private void notifySendData() {
+        if (this.transporter != null) {
+            this.transporter.onSendDataAvailable();
+        }
     }
 
     @Override
@@ -89,6 +99,11 @@ public class ClientImpl implements iClient {
         return writer.popData();
     }
 
+    @Override
+    public byte[] pollData() {
+        return writer.pollData();
+    }
+
     @Override
     public void onConnected() {
         if (listener != null) {
@@ -101,6 +116,11 @@ public class ClientImpl implements iClient {
         return writer.popData();
     }
 
+    @Override
+    public byte[] pollSendData() {
+        return writer.pollData();
+    }
+
     @Override
     public void didReceiveData(byte[] data) {
         reader.read(data);
@@ -14,4 +14,11 @@ public interface iWriter {
     public void writeDevice();
 
     public byte[] popData();
+
+    /**
+     * 非阻塞获取待发送数据
+     *
+     * @return 没有数据时返回null
+     */
+    public byte[] pollData();
 }
\ No newline at end of file
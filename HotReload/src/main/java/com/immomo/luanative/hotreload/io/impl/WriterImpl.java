@@ -15,42 +15,73 @@ import com.immomo.luanative.codec.protobuf.PBDeviceCommand;
 import com.immomo.luanative.codec.protobuf.PBErrorCommand;
 import com.immomo.luanative.codec.protobuf.PBLogCommand;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.ArrayDeque;
 
 public class WriterImpl implements iWriter {
 
+    /**
+     * 待发送日志上限，满时丢弃最早的日志
+     */
+    private static final int MAX_PENDING_LOGS = 1024;
+
     private iEncoder encoder = EncoderFactory.getInstance();
-    private BlockingQueue<byte[]> msgQueue = new LinkedBlockingDeque<>();
+    /**
+     * 控制包（设备信息、文件清单等），不限长度，从不丢弃
+     * 写入可能在传输线程中，不能阻塞
+     */
+    private final ArrayDeque<byte[]> dataQueue = new ArrayDeque<>();
+    /**
+     * 日志、错误信息，可能在主线程写入
+     */
+    private final ArrayDeque<byte[]> logQueue = new ArrayDeque<>();
 
     private byte[] popMsg() {
-        try {
-            return msgQueue.take();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        synchronized (this) {
+            try {
+                while (dataQueue.isEmpty() && logQueue.isEmpty()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                return null;
+            }
+            return pollMsg();
         }
-        return null;
+    }
+
+    /**
+     * 控制包优先发送
+     */
+    private synchronized byte[] pollMsg() {
+        byte[] data = dataQueue.poll();
+        return data != null ? data : logQueue.poll();
     }
 
     @Override
-    public void writeData(byte[] data) {
-        try {
-            msgQueue.put(data);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    public synchronized void writeData(byte[] data) {
+        dataQueue.offer(data);
+        notifyAll();
+    }
+
+    /**
+     * 队列满时丢弃最早的日志，不阻塞
+     */
+    private synchronized void offerLog(byte[] data) {
+        if (logQueue.size() >= MAX_PENDING_LOGS)
+            logQueue.poll();
+        logQueue.offer(data);
+        notifyAll();
     }
 
     @Override
     public void writeLog(String log, String entryFilePath) {
         PBLogCommand.pblogcommand cmd = (PBLogCommand.pblogcommand) PBCommandFactory.getLogCommand(log, entryFilePath);
-        writeData(encoder.encode(cmd));
+        offerLog(encoder.encode(cmd));
     }
 
     @Override
     public void writeError(String error, String entryFilePath) {
         PBErrorCommand.pberrorcommand cmd = (PBErrorCommand.pberrorcommand) PBCommandFactory.getErrorCommand(error, entryFilePath);
-        writeData(encoder.encode(cmd));
+        offerLog(encoder.encode(cmd));
     }
 
     @Override
@@ -63,4 +94,9 @@ public class WriterImpl implements iWriter {
     public byte[] popData() {
         return popMsg();
     }
+
+    @Override
+    public byte[] pollData() {
+        return pollMsg();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+/**
+ * 文件差量格式，用于PATCH指令
+ *
+ * | targetLength (varint) | op | op | ...|
+ * op:
+ * | OP_COPY (1 byte) | offset (varint) | length (varint) |     从原文件拷贝
+ * | OP_INSERT (1 byte) | length (varint) | data (length byte) | 插入新数据
+ *
+ * {@link #create}为插件端的参考实现：按{@link #BLOCK_SIZE}切分原文件，
+ * 通过滚动hash在新文件中查找相同的块
+ */
+public final class DeltaPatch {
+    public static final byte OP_COPY = 1;
+    public static final byte OP_INSERT = 2;
+
+    static final int BLOCK_SIZE = 64;
+    private static final int MOD = 1 << 16;
+    /**
+     * 目标文件最大长度，防止错误的patch申请过大内存
+     */
+    static final int MAX_TARGET_LENGTH = 64 * 1024 * 1024;
+
+    private DeltaPatch() {
+    }
+
+    /**
+     * 将patch应用到base上
+     *
+     * @throws IllegalArgumentException patch格式错误，或与base不匹配
+     */
+    public static byte[] apply(byte[] base, byte[] patch) {
+        int[] pos = {0};
+        int targetLength = readVarint(patch, pos);
+        if (targetLength < 0 || targetLength > MAX_TARGET_LENGTH)
+            throw new IllegalArgumentException("PATCH_LENGTH_ERROR: " + targetLength);
+        byte[] out = new byte[targetLength];
+        int w = 0;
+        while (pos[0] < patch.length) {
+            byte op = patch[pos[0]++];
+            if (op == OP_COPY) {
+                int offset = readVarint(patch, pos);
+                int len = readVarint(patch, pos);
+                /// 用减法比较，避免int溢出
+                if (offset < 0 || len < 0 || offset > base.length || len > base.length - offset || len > targetLength - w)
+                    throw new IllegalArgumentException("PATCH_COPY_OUT_OF_RANGE");
+                System.arraycopy(base, offset, out, w, len);
+                w += len;
+            } else if (op == OP_INSERT) {
+                int len = readVarint(patch, pos);
+                if (len < 0 || len > patch.length - pos[0] || len > targetLength - w)
+                    throw new IllegalArgumentException("PATCH_INSERT_OUT_OF_RANGE");
+                System.arraycopy(patch, pos[0], out, w, len);
+                pos[0] += len;
+                w += len;
+            } else {
+                throw new IllegalArgumentException("PATCH_UNKNOWN_OP: " + op);
+            }
+        }
+        if (w != targetLength)
+            throw new IllegalArgumentException("PATCH_LENGTH_ERROR");
+        return out;
+    }
+
+    /**
+     * 生成从base到target的patch
+     */
+    public static byte[] create(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK_SIZE <= base.length; i += BLOCK_SIZE) {
+            int h = weakHash(base, i);
+            if (!blocks.containsKey(h))
+                blocks.put(h, i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, target.length / 8));
+        writeVarint(out, target.length);
+        int insertStart = 0;
+        int i = 0;
+        int a = 0, b = 0;
+        boolean rolling = false;
+        while (i + BLOCK_SIZE <= target.length) {
+            if (!rolling) {
+                a = 0;
+                b = 0;
+                for (int k = 0; k < BLOCK_SIZE; k++) {
+                    a += target[i + k] & 0xFF;
+                    b += (BLOCK_SIZE - k) * (target[i + k] & 0xFF);
+                }
+                a %= MOD;
+                b %= MOD;
+                rolling = true;
+            }
+            Integer match = blocks.get(a | (b << 16));
+            if (match != null && equals(base, match, target, i, BLOCK_SIZE)) {
+                int off = match;
+                int len = BLOCK_SIZE;
+                while (i + len < target.length && off + len < base.length && base[off + len] == target[i + len]) {
+                    len++;
+                }
+                writeInsert(out, target, insertStart, i);
+                out.write(OP_COPY);
+                writeVarint(out, off);
+                writeVarint(out, len);
+                i += len;
+                insertStart = i;
+                rolling = false;
+                continue;
+            }
+            if (i + BLOCK_SIZE >= target.length) {
+                i++;
+                break;
+            }
+            int outByte = target[i] & 0xFF;
+            int inByte = target[i + BLOCK_SIZE] & 0xFF;
+            a = ((a - outByte + inByte) % MOD + MOD) % MOD;
+            b = ((b - BLOCK_SIZE * outByte + a) % MOD + MOD) % MOD;
+            i++;
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    private static int weakHash(byte[] data, int start) {
+        int a = 0, b = 0;
+        for (int k = 0; k < BLOCK_SIZE; k++) {
+            a += data[start + k] & 0xFF;
+            b += (BLOCK_SIZE - k) * (data[start + k] & 0xFF);
+        }
+        return (a % MOD) | ((b % MOD) << 16);
+    }
+
+    private static boolean equals(byte[] x, int xs, byte[] y, int ys, int len) {
+        for (int k = 0; k < len; k++) {
+            if (x[xs + k] != y[ys + k])
+                return false;
+        }
+        return true;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int start, int end) {
+        if (end <= start)
+            return;
+        out.write(OP_INSERT);
+        writeVarint(out, end - start);
+        out.write(data, start, end - start);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= data.length)
+                throw new IllegalArgumentException("PATCH_VARINT_ERROR");
+            byte b = data[pos[0]++];
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IllegalArgumentException("PATCH_VARINT_ERROR");
+    }
+}
@@ -0,0 +1,350 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 设备上热重载文件的摘要
+ * 相对路径 -> sha1、大小、require的模块
+ *
+ * 1、连接成功后发送给插件端，插件端只发送有变化的文件
+ * 2、收到的文件内容与摘要相同时，不需要重新写入
+ * 3、最近收到的文件内容保存在内存中，作为差量更新的原文件，避免文件还未写入时读取到旧内容
+ * 4、计算入口文件依赖闭包的hash，未变化时不需要刷新
+ *
+ * 线程安全
+ */
+public class FileManifest {
+    private static final String LUA_SUFFIX = ".lua";
+    private static final String MISSING = "-";
+    /**
+     * 最近收到的文件内容缓存上限
+     */
+    private static final int MAX_RECENT_BYTES = 4 * 1024 * 1024;
+    /**
+     * require("a.b") / require 'a/b' 中的模块名
+     * 与mlnservice中{@code Constants.REQUIRE_REGEX}相同（HotReload不依赖mlnservice），修改时需同步
+     */
+    public static final String REQUIRE_REGEX = "require\\s*\\(?\\s*[\"']([\\w./-]+)[\"']";
+    private static final Pattern REQUIRE = Pattern.compile(REQUIRE_REGEX);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 单个文件摘要
+     */
+    public static final class Entry {
+        public final String hash;
+        public final long size;
+        /**
+         * require的文件相对路径，非lua文件为空
+         */
+        final String[] requires;
+
+        Entry(String hash, long size, String[] requires) {
+            this.hash = hash;
+            this.size = size;
+            this.requires = requires;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final LinkedHashMap<String, byte[]> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private int recentBytes;
+
+    /**
+     * 重新扫描目录下所有文件
+     */
+    public synchronized void scan(File root) {
+        entries.clear();
+        recent.clear();
+        recentBytes = 0;
+        if (root == null || !root.isDirectory())
+            return;
+        scanDir(root, "");
+    }
+
+    private void scanDir(File dir, String prefix) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            String rel = prefix + f.getName();
+            if (f.isDirectory()) {
+                scanDir(f, rel + "/");
+            } else {
+                byte[] data = readFile(f);
+                if (data != null)
+                    entries.put(rel, newEntry(rel, data));
+            }
+        }
+    }
+
+    /**
+     * 收到文件内容后更新摘要
+     *
+     * @return false: 内容与摘要相同
+     */
+    public synchronized boolean update(String relativePath, byte[] data) {
+        relativePath = normalize(relativePath);
+        Entry old = entries.get(relativePath);
+        String hash = sha1(data);
+        if (old != null && old.hash.equals(hash))
+            return false;
+        entries.put(relativePath, newEntry(relativePath, data, hash));
+        putRecent(relativePath, data);
+        return true;
+    }
+
+    /**
+     * 删除文件或文件夹
+     */
+    public synchronized void remove(String relativePath) {
+        relativePath = normalize(relativePath);
+        String dir = relativePath + "/";
+        removeKeys(entries, relativePath, dir);
+        Iterator<Map.Entry<String, byte[]>> it = recent.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, byte[]> e = it.next();
+            if (e.getKey().equals(relativePath) || e.getKey().startsWith(dir)) {
+                recentBytes -= e.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 重命名或移动文件、文件夹
+     */
+    public synchronized void rename(String oldPath, String newPath) {
+        oldPath = normalize(oldPath);
+        newPath = normalize(newPath);
+        String dir = oldPath + "/";
+        Map<String, Entry> moved = new HashMap<>();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            String k = e.getKey();
+            if (k.equals(oldPath)) {
+                moved.put(newPath, e.getValue());
+                it.remove();
+            } else if (k.startsWith(dir)) {
+                moved.put(newPath + "/" + k.substring(dir.length()), e.getValue());
+                it.remove();
+            }
+        }
+        entries.putAll(moved);
+        Map<String, byte[]> movedRecent = new HashMap<>();
+        Iterator<Map.Entry<String, byte[]>> rit = recent.entrySet().iterator();
+        while (rit.hasNext()) {
+            Map.Entry<String, byte[]> e = rit.next();
+            String k = e.getKey();
+            if (k.equals(oldPath)) {
+                movedRecent.put(newPath, e.getValue());
+                rit.remove();
+            } else if (k.startsWith(dir)) {
+                movedRecent.put(newPath + "/" + k.substring(dir.length()), e.getValue());
+                rit.remove();
+            }
+        }
+        recent.putAll(movedRecent);
+    }
+
+    /**
+     * 文件sha1，不存在时返回null
+     */
+    public synchronized String hash(String relativePath) {
+        Entry e = entries.get(normalize(relativePath));
+        return e != null ? e.hash : null;
+    }
+
+    /**
+     * 获取文件内容，优先使用最近收到的内容，否则从root中读取
+     */
+    public byte[] content(File root, String relativePath) {
+        relativePath = normalize(relativePath);
+        synchronized (this) {
+            byte[] data = recent.get(relativePath);
+            if (data != null)
+                return data;
+        }
+        if (root == null)
+            return null;
+        return readFile(new File(root, relativePath));
+    }
+
+    /**
+     * 所有文件摘要，按路径排序
+     */
+    public synchronized Map<String, Entry> snapshot() {
+        return new TreeMap<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 计算入口文件依赖闭包的hash
+     * 包括入口文件通过require直接或间接依赖的lua文件，以及所有非lua文件（图片等资源无法分析依赖）
+     *
+     * @return 入口文件不在摘要中时返回null
+     */
+    public synchronized String closureHash(String entryRelativePath) {
+        entryRelativePath = normalize(entryRelativePath);
+        if (!entries.containsKey(entryRelativePath))
+            return null;
+        TreeMap<String, String> closure = new TreeMap<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        HashSet<String> visited = new HashSet<>();
+        queue.add(entryRelativePath);
+        visited.add(entryRelativePath);
+        while (!queue.isEmpty()) {
+            String p = queue.poll();
+            Entry e = entries.get(p);
+            if (e == null) {
+                closure.put(p, MISSING);
+                continue;
+            }
+            closure.put(p, e.hash);
+            for (String r : e.requires) {
+                if (visited.add(r))
+                    queue.add(r);
+            }
+        }
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (!e.getKey().endsWith(LUA_SUFFIX))
+                closure.put(e.getKey(), e.getValue().hash);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : closure.entrySet()) {
+            sb.append(e.getKey()).append('\0').append(e.getValue()).append('\n');
+        }
+        return sha1(sb.toString().getBytes(Charset.forName("UTF-8")));
+    }
+
+    //<editor-fold desc="private">
+
+    private Entry newEntry(String rel, byte[] data) {
+        return newEntry(rel, data, sha1(data));
+    }
+
+    private static Entry newEntry(String rel, byte[] data, String hash) {
+        String[] requires = rel.endsWith(LUA_SUFFIX) ? parseRequires(data) : new String[0];
+        return new Entry(hash, data.length, requires);
+    }
+
+    private void putRecent(String rel, byte[] data) {
+        if (data.length > MAX_RECENT_BYTES)
+            return;
+        byte[] old = recent.put(rel, data);
+        if (old != null)
+            recentBytes -= old.length;
+        recentBytes += data.length;
+        Iterator<byte[]> it = recent.values().iterator();
+        while (recentBytes > MAX_RECENT_BYTES && it.hasNext()) {
+            recentBytes -= it.next().length;
+            it.remove();
+        }
+    }
+
+    private static void removeKeys(Map<String, ?> map, String path, String dir) {
+        Iterator<String> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            String k = it.next();
+            if (k.equals(path) || k.startsWith(dir))
+                it.remove();
+        }
+    }
+
+    private static String normalize(String rel) {
+        if (rel == null)
+            return "";
+        rel = rel.replace('\\', '/');
+        while (rel.startsWith("/"))
+            rel = rel.substring(1);
+        return rel;
+    }
+
+    /**
+     * 解析 require("a.b") 为 a/b.lua
+     */
+    static String[] parseRequires(byte[] data) {
+        Matcher m = REQUIRE.matcher(new String(data, Charset.forName("UTF-8")));
+        List<String> list = null;
+        while (m.find()) {
+            if (list == null)
+                list = new ArrayList<>();
+            String module = m.group(1);
+            if (module.endsWith(LUA_SUFFIX))
+                module = module.substring(0, module.length() - LUA_SUFFIX.length());
+            list.add(module.replace('.', '/') + LUA_SUFFIX);
+        }
+        if (list == null)
+            return new String[0];
+        Collections.sort(list);
+        return list.toArray(new String[list.size()]);
+    }
+
+    public static String sha1(byte[] data) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-1").digest(data);
+            char[] cs = new char[d.length << 1];
+            for (int i = 0; i < d.length; i++) {
+                cs[i << 1] = HEX[(d[i] >> 4) & 0xF];
+                cs[(i << 1) + 1] = HEX[d[i] & 0xF];
+            }
+            return new String(cs);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] readFile(File file) {
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(16, file.length()));
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException ignore) {
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -8,15 +8,22 @@
 package com.immomo.luanative.hotreload.transport;
 
 import com.immomo.luanative.hotreload.transport.impl.NetTransporter;
+import com.immomo.luanative.hotreload.transport.impl.SelectorNetTransporter;
 import com.immomo.luanative.hotreload.transport.impl.USBTransporter;
 
 public class TransporterFactory {
+    /**
+     * 网络连接是否使用{@link SelectorNetTransporter}，否则使用{@link NetTransporter}
+     */
+    public static boolean useSelector = true;
 
     public static iTransporter getInstance(int port) {
         return new USBTransporter(port);
     };
 
     public static iTransporter getInstance(String ip, int port) {
+        if (useSelector)
+            return new SelectorNetTransporter(ip, port);
         return new NetTransporter(ip, port);
     };
 }
\ No newline at end of file
@@ -10,4 +10,9 @@ package com.immomo.luanative.hotreload.transport;
 public interface iTransporter {
     public void start(iTransporterListener listener);
     public void stop();
+
+    /**
+     * 发送队列中有新数据，不需要轮询发送队列的实现可忽略
+     */
+    public void onSendDataAvailable();
 }
\ No newline at end of file
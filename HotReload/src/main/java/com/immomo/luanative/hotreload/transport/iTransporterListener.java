@@ -11,6 +11,12 @@ public interface iTransporterListener {
 
     public void onConnected();
     public byte[] popSendData();
+    /**
+     * 非阻塞获取待发送数据
+     *
+     * @return 没有数据时返回null
+     */
+    public byte[] pollSendData();
     public void didReceiveData(byte[] data);
     public void disconnecte(String error);
 }
\ No newline at end of file
@@ -58,6 +58,11 @@ public class NetTransporter implements iTransporter, Runnable {
         }
     }
 
+    @Override
+    public void onSendDataAvailable() {
+        // 写线程阻塞读取发送队列，不需要通知
+    }
+
     @Override
     public void run() {
         try {
@@ -132,7 +137,6 @@ public class NetTransporter implements iTransporter, Runnable {
                                     return;
                                 }
                             }
-                            System.out.println("+++ 总共" + data.length + " 发送了："+len);
                         }
                         bf.clear();
                     } catch (IOException e) {
@@ -0,0 +1,286 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.transport.impl;
+
+import com.immomo.luanative.codec.PBCommandFactory;
+import com.immomo.luanative.codec.encode.EncoderFactory;
+import com.immomo.luanative.codec.protobuf.PBDeviceCommand;
+import com.immomo.luanative.hotreload.transport.iTransporter;
+import com.immomo.luanative.hotreload.transport.iTransporterListener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * 基于{@link Selector}的非阻塞网络连接，一个连接只使用一个线程
+ *
+ * 读：可读时读入缓存，拷贝后交给{@link iTransporterListener#didReceiveData(byte[])}
+ * 写：收到{@link #onSendDataAvailable()}后注册可写事件，
+ *    可写时通过{@link iTransporterListener#pollSendData()}一次取出多个包，合并成一次gathering write；
+ *    写不完时保留剩余数据，等待下次可写，期间不再取新的包
+ * 没有数据可写时只等待select，不占用CPU
+ *
+ * @see NetTransporter
+ */
+public class SelectorNetTransporter implements iTransporter, Runnable {
+    /**
+     * 一次合并写入的最大包数
+     */
+    private static final int MAX_GATHER_FRAMES = 64;
+    /**
+     * 一次合并写入的最大字节数，超过后不再取新的包
+     */
+    private static final int MAX_GATHER_BYTES = 256 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final String ip;
+    private final int port;
+    private volatile iTransporterListener listener;
+    private volatile boolean isStopped = true;
+    private volatile Selector selector;
+    private volatile Thread thread;
+
+    public SelectorNetTransporter(String ip, int port) {
+        this.ip = ip;
+        this.port = port;
+    }
+
+    @Override
+    public void start(iTransporterListener listener) {
+        this.listener = listener;
+        synchronized (this) {
+            if (!isStopped)
+                return;
+            isStopped = false;
+            thread = new Thread(this, "HotReload-Net");
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (isStopped)
+                return;
+            isStopped = true;
+        }
+        Selector s = selector;
+        if (s != null)
+            s.wakeup();
+    }
+
+    @Override
+    public void onSendDataAvailable() {
+        Selector s = selector;
+        if (s != null)
+            s.wakeup();
+    }
+
+    /**
+     * stop后立即重新start时，旧线程不再继续运行
+     */
+    private boolean isRunning() {
+        return !isStopped && thread == Thread.currentThread();
+    }
+
+    @Override
+    public void run() {
+        SocketChannel channel = null;
+        Selector selector = null;
+        /// 每个线程使用自己的发送缓存，重新start时不与旧线程共享
+        Pending pending = new Pending();
+        String error = null;
+        try {
+            selector = Selector.open();
+            synchronized (this) {
+                if (thread == Thread.currentThread())
+                    this.selector = selector;
+            }
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key;
+            if (channel.connect(new InetSocketAddress(ip, port))) {
+                key = channel.register(selector, 0);
+                onConnected(key, pending);
+            } else {
+                key = channel.register(selector, SelectionKey.OP_CONNECT);
+            }
+            ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (isRunning()) {
+                if (key.isValid() && (key.interestOps() & SelectionKey.OP_CONNECT) == 0) {
+                    updateInterest(key, pending);
+                }
+                selector.select();
+                if (!isRunning())
+                    break;
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey k = it.next();
+                    it.remove();
+                    if (!k.isValid())
+                        continue;
+                    if (k.isConnectable()) {
+                        channel.finishConnect();
+                        onConnected(k, pending);
+                        continue;
+                    }
+                    if (k.isReadable() && !read(channel, readBuffer)) {
+                        return;
+                    }
+                    if (k.isValid() && k.isWritable()) {
+                        flush(channel, pending);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+        } finally {
+            synchronized (this) {
+                /// 已重新start时不修改状态，selector也已属于新线程
+                if (thread == Thread.currentThread()) {
+                    isStopped = true;
+                    if (this.selector == selector)
+                        this.selector = null;
+                }
+            }
+            pending.clear();
+            close(channel);
+            close(selector);
+            iTransporterListener l = listener;
+            if (l != null) {
+                l.disconnecte(error);
+            }
+        }
+    }
+
+    private void onConnected(SelectionKey key, Pending pending) {
+        // 发送设备信息通过验证，需要最先发送
+        pending.clear();
+        pending.buffers[0] = ByteBuffer.wrap(handshakeData());
+        pending.count = 1;
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        iTransporterListener l = listener;
+        if (l != null) {
+            l.onConnected();
+        }
+    }
+
+    /**
+     * 连接成功后第一个发送的包
+     */
+    protected byte[] handshakeData() {
+        PBDeviceCommand.pbdevicecommand cmd = (PBDeviceCommand.pbdevicecommand) PBCommandFactory.getDeviceCommand();
+        return EncoderFactory.getInstance().encode(cmd);
+    }
+
+    /**
+     * 有剩余数据或队列中有数据时，关注可写事件
+     */
+    private void updateInterest(SelectionKey key, Pending pending) {
+        if (pending.count == 0)
+            fillPending(pending);
+        int ops = SelectionKey.OP_READ;
+        if (pending.count > 0)
+            ops |= SelectionKey.OP_WRITE;
+        if (key.interestOps() != ops)
+            key.interestOps(ops);
+    }
+
+    /**
+     * 从发送队列中取出多个包，直到达到{@link #MAX_GATHER_FRAMES}或{@link #MAX_GATHER_BYTES}
+     */
+    private void fillPending(Pending pending) {
+        iTransporterListener l = listener;
+        if (l == null)
+            return;
+        pending.start = 0;
+        int bytes = 0;
+        while (pending.count < MAX_GATHER_FRAMES && bytes < MAX_GATHER_BYTES) {
+            byte[] data = l.pollSendData();
+            if (data == null)
+                break;
+            pending.buffers[pending.count++] = ByteBuffer.wrap(data);
+            bytes += data.length;
+        }
+    }
+
+    /**
+     * 合并写入，写不完时保留剩余数据
+     */
+    private void flush(SocketChannel channel, Pending pending) throws IOException {
+        while (true) {
+            if (pending.count == 0) {
+                fillPending(pending);
+                if (pending.count == 0)
+                    return;
+            }
+            channel.write(pending.buffers, pending.start, pending.count);
+            while (pending.count > 0 && !pending.buffers[pending.start].hasRemaining()) {
+                pending.buffers[pending.start++] = null;
+                pending.count--;
+            }
+            if (pending.count > 0) {
+                /// socket缓冲区已满，等待下次可写
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false 连接已断开
+     */
+    private boolean read(SocketChannel channel, ByteBuffer bf) throws IOException {
+        while (true) {
+            int readSize = channel.read(bf);
+            if (readSize < 0)
+                return false;
+            if (readSize == 0)
+                return true;
+            byte[] data = new byte[readSize];
+            bf.flip();
+            bf.get(data);
+            bf.clear();
+            iTransporterListener l = listener;
+            if (l != null) {
+                l.didReceiveData(data);
+            }
+        }
+    }
+
+    /**
+     * 已取出但未写完的包
+     */
+    private static final class Pending {
+        final ByteBuffer[] buffers = new ByteBuffer[MAX_GATHER_FRAMES];
+        int start;
+        int count;
+
+        void clear() {
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = null;
+            }
+            start = 0;
+            count = 0;
+        }
+    }
+
+    private static void close(java.io.Closeable c) {
+        if (c == null)
+            return;
+        try {
+            c.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -58,6 +58,11 @@ public class USBTransporter implements iTransporter, Runnable {
         }
     }
 
+    @Override
+    public void onSendDataAvailable() {
+        // 写线程阻塞读取发送队列，不需要通知
+    }
+
     @Override
     public void run() {
         try {
@@ -0,0 +1,39 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.codec.decode;
+
+import com.immomo.luanative.codec.decode.impl.DecoderImpl;
+
+import java.util.Random;
+
+/**
+ * {@link DecoderImpl} 吞吐，不随单元测试执行，直接运行main
+ * 50MB的数据流随机切分后依次写入
+ */
+public class DecoderImplBenchmark {
+    private static final int STREAM_SIZE = 50 * 1024 * 1024;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        DecoderImplTest.Stream stream = DecoderImplTest.randomStream(random, STREAM_SIZE);
+        /// 预热
+        DecoderImplTest.pushRandomChunks(new DecoderImplTest.CountingDecoder(), stream.data, random);
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            DecoderImplTest.CountingDecoder decoder = new DecoderImplTest.CountingDecoder();
+            long start = System.nanoTime();
+            DecoderImplTest.pushRandomChunks(decoder, stream.data, random);
+            total += System.nanoTime() - start;
+            if (decoder.count != stream.packages)
+                throw new IllegalStateException("decoded " + decoder.count + " of " + stream.packages + " packages");
+        }
+        System.out.println("decode " + stream.data.length + " bytes, " + stream.packages + " packages in "
+                + total / ROUNDS / 1000000 + "ms");
+    }
+}
@@ -0,0 +1,157 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.codec.decode;
+
+import com.immomo.luanative.codec.decode.impl.DecoderImpl;
+import com.immomo.luanative.codec.proto.PackageConst;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DecoderImpl} 测试
+ * 构造数据流，随机切分后依次写入，校验包个数及包体内容
+ *
+ * @see DecoderImplBenchmark
+ */
+public class DecoderImplTest {
+    private static final int STREAM_SIZE = 4 * 1024 * 1024;
+    static final int MAX_BODY = 256 * 1024;
+    static final int MAX_CHUNK = 64 * 1024;
+
+    @Test
+    public void decodeRandomSplitStream() {
+        Random random = new Random(7);
+        Stream stream = randomStream(random, STREAM_SIZE);
+        CountingDecoder decoder = new CountingDecoder();
+        pushRandomChunks(decoder, stream.data, random);
+
+        assertEquals(stream.packages, decoder.count);
+        assertEquals(stream.sum, decoder.sum);
+        assertEquals(0, decoder.remaining());
+    }
+
+    @Test
+    public void badPackageSkipped() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeMessage(out, PackageConst.TYPE_LOG, new byte[]{1});
+        writeMessage(out, PackageConst.TYPE_LOG, new byte[]{2});
+        writeMessage(out, PackageConst.TYPE_LOG, new byte[]{3});
+        CountingDecoder decoder = new CountingDecoder() {
+            @Override
+            protected Object parseMessage(int bodyType, ByteBuffer body) {
+                if (body.get(body.position()) == 2)
+                    throw new IllegalStateException("bad package");
+                return super.parseMessage(bodyType, body);
+            }
+        };
+        decoder.push(out.toByteArray());
+        assertEquals(2, decoder.count);
+        assertEquals(0, decoder.remaining());
+    }
+
+    @Test
+    public void decodeByteByByte() {
+        byte[] body = {1, 2, 3, 4, 5};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeMessage(out, PackageConst.TYPE_LOG, body);
+        writePing(out);
+        writeMessage(out, PackageConst.TYPE_LOG, new byte[0]);
+        byte[] stream = out.toByteArray();
+
+        CountingDecoder decoder = new CountingDecoder();
+        for (byte b : stream) {
+            decoder.push(new byte[]{b});
+        }
+        assertEquals(2, decoder.count);
+        assertEquals(checksum(ByteBuffer.wrap(body)), decoder.sum);
+        assertEquals(0, decoder.remaining());
+    }
+
+    static final class Stream {
+        byte[] data;
+        int packages;
+        long sum;
+    }
+
+    /**
+     * 构造至少size字节的数据流，随机穿插心跳包
+     */
+    static Stream randomStream(Random random, int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + MAX_BODY);
+        Stream stream = new Stream();
+        while (out.size() < size) {
+            if (random.nextInt(16) == 0) {
+                writePing(out);
+                continue;
+            }
+            byte[] body = new byte[random.nextInt(MAX_BODY)];
+            random.nextBytes(body);
+            stream.sum += checksum(ByteBuffer.wrap(body));
+            writeMessage(out, PackageConst.TYPE_UPDATE, body);
+            stream.packages++;
+        }
+        stream.data = out.toByteArray();
+        return stream;
+    }
+
+    static void pushRandomChunks(DecoderImpl decoder, byte[] stream, Random random) {
+        int offset = 0;
+        while (offset < stream.length) {
+            int len = Math.min(1 + random.nextInt(MAX_CHUNK), stream.length - offset);
+            decoder.push(stream, offset, len);
+            offset += len;
+        }
+    }
+
+    private static void writeMessage(ByteArrayOutputStream out, int type, byte[] body) {
+        out.write(PackageConst.MAGIC_MESSAGE);
+        writeInt(out, type);
+        writeInt(out, body.length);
+        out.write(body, 0, body.length);
+        out.write(PackageConst.MAGIC_END);
+    }
+
+    private static void writePing(ByteArrayOutputStream out) {
+        out.write(PackageConst.MAGIC_PING);
+        out.write(new byte[PackageConst.HEADER_LENGTH_PING - 1], 0, PackageConst.HEADER_LENGTH_PING - 1);
+        out.write(PackageConst.MAGIC_END);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static long checksum(ByteBuffer body) {
+        long s = body.remaining();
+        while (body.hasRemaining()) {
+            s = s * 31 + body.get();
+        }
+        return s;
+    }
+
+    static class CountingDecoder extends DecoderImpl {
+        int count;
+        long sum;
+
+        @Override
+        protected Object parseMessage(int bodyType, ByteBuffer body) {
+            count++;
+            sum += checksum(body);
+            return null;
+        }
+    }
+}
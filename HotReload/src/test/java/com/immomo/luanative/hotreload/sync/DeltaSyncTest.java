@@ -0,0 +1,129 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.sync;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DeltaPatch} 及 {@link FileManifest} 测试
+ */
+public class DeltaSyncTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void patchSmallEditOfLargeFile() {
+        Random random = new Random(3);
+        byte[] base = new byte[1024 * 1024];
+        random.nextBytes(base);
+        byte[] target = Arrays.copyOf(base, base.length + 10);
+        /// 中间修改一段，末尾追加
+        for (int i = 500000; i < 500100; i++) {
+            target[i] = (byte) random.nextInt();
+        }
+        for (int i = base.length; i < target.length; i++) {
+            target[i] = (byte) i;
+        }
+        byte[] patch = DeltaPatch.create(base, target);
+        assertTrue(patch.length < 1024);
+        assertArrayEquals(target, DeltaPatch.apply(base, patch));
+    }
+
+    @Test
+    public void patchUnrelatedFiles() {
+        byte[] base = "local a = 1".getBytes(UTF8);
+        byte[] target = "print('hello world')".getBytes(UTF8);
+        assertArrayEquals(target, DeltaPatch.apply(base, DeltaPatch.create(base, target)));
+        assertArrayEquals(new byte[0], DeltaPatch.apply(base, DeltaPatch.create(base, new byte[0])));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void patchWrongBase() {
+        byte[] base = new byte[4096];
+        byte[] target = Arrays.copyOf(base, 5000);
+        byte[] patch = DeltaPatch.create(base, target);
+        DeltaPatch.apply(new byte[10], patch);
+    }
+
+    /**
+     * 长度、偏移越界或溢出的patch都抛出{@link IllegalArgumentException}
+     */
+    @Test
+    public void patchOutOfRange() {
+        byte[] base = new byte[100];
+        byte[][] patches = {
+                /// targetLength为负数
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F},
+                /// targetLength超过上限
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07},
+                /// copy offset越界
+                {10, DeltaPatch.OP_COPY, (byte) 200, 1, 5},
+                /// copy offset + len溢出
+                {10, DeltaPatch.OP_COPY, 50, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07},
+                /// copy len超过targetLength
+                {10, DeltaPatch.OP_COPY, 0, 20},
+                /// insert len超过patch长度
+                {10, DeltaPatch.OP_INSERT, 10, 1, 2},
+                /// insert len溢出
+                {10, DeltaPatch.OP_INSERT, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07},
+                /// 长度不足targetLength
+                {10, DeltaPatch.OP_COPY, 0, 5},
+        };
+        for (int i = 0; i < patches.length; i++) {
+            try {
+                DeltaPatch.apply(base, patches[i]);
+                fail("patch " + i);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void manifestSkipsUnchangedContent() {
+        FileManifest m = new FileManifest();
+        byte[] data = "return 1".getBytes(UTF8);
+        assertTrue(m.update("a.lua", data));
+        assertFalse(m.update("a.lua", data.clone()));
+        assertTrue(m.update("a.lua", "return 2".getBytes(UTF8)));
+        assertArrayEquals("return 2".getBytes(UTF8), m.content(null, "a.lua"));
+    }
+
+    @Test
+    public void closureHashFollowsRequires() {
+        FileManifest m = new FileManifest();
+        m.update("main.lua", "local v = require(\"view.cell\")".getBytes(UTF8));
+        m.update("view/cell.lua", "return {}".getBytes(UTF8));
+        m.update("other.lua", "return 1".getBytes(UTF8));
+        String h = m.closureHash("main.lua");
+        assertNotNull(h);
+
+        /// 不在依赖中的lua文件变化，hash不变
+        m.update("other.lua", "return 2".getBytes(UTF8));
+        assertEquals(h, m.closureHash("main.lua"));
+
+        /// 依赖变化
+        m.update("view/cell.lua", "return { a = 1 }".getBytes(UTF8));
+        String h2 = m.closureHash("main.lua");
+        assertNotEquals(h, h2);
+
+        /// 资源文件变化
+        m.update("img/a.png", new byte[]{1, 2});
+        assertNotEquals(h2, m.closureHash("main.lua"));
+
+        /// 移动后依赖缺失
+        String h3 = m.closureHash("main.lua");
+        m.rename("view", "views");
+        assertNotEquals(h3, m.closureHash("main.lua"));
+        assertNull(m.closureHash("none.lua"));
+    }
+}
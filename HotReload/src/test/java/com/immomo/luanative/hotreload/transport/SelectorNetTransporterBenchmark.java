@@ -0,0 +1,33 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.transport;
+
+import com.immomo.luanative.hotreload.transport.impl.SelectorNetTransporter;
+
+/**
+ * {@link SelectorNetTransporter} 本地回环发送耗时
+ * 不作为单元测试运行，直接执行main
+ */
+public class SelectorNetTransporterBenchmark {
+    private static final int FRAMES = 100000;
+    private static final int FRAME_SIZE = 512;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        /// 预热
+        SelectorNetTransporterTest.echo(FRAMES, FRAME_SIZE);
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            total += SelectorNetTransporterTest.echo(FRAMES, FRAME_SIZE);
+        }
+        long bytes = (long) FRAMES * FRAME_SIZE;
+        double ms = total / 1e6 / ROUNDS;
+        System.out.println(String.format("echo %d frames, %d bytes: %.2fms, %.1fMB/s",
+                FRAMES, bytes, ms, bytes / 1024.0 / 1024.0 / (ms / 1000)));
+    }
+}
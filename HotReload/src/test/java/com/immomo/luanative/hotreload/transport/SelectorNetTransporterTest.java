@@ -0,0 +1,139 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.luanative.hotreload.transport;
+
+import com.immomo.luanative.hotreload.transport.impl.SelectorNetTransporter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SelectorNetTransporter} 本地回环测试
+ * 发送大量小包，检查回显字节数，以及空闲时传输线程不占用CPU
+ * 耗时统计见{@link SelectorNetTransporterBenchmark}
+ */
+public class SelectorNetTransporterTest {
+    private static final byte[] HANDSHAKE = {1, 2, 3};
+    private static final int FRAMES = 20000;
+    private static final int FRAME_SIZE = 512;
+
+    @Test
+    public void echoThroughput() throws Exception {
+        echo(FRAMES, FRAME_SIZE);
+    }
+
+    /**
+     * @return 发送到全部回显完成的耗时，纳秒
+     */
+    static long echo(int frames, int frameSize) throws Exception {
+        final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread echo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (Socket s = server.accept()) {
+                    InputStream in = s.getInputStream();
+                    OutputStream out = s.getOutputStream();
+                    byte[] buf = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buf)) > 0) {
+                        out.write(buf, 0, n);
+                    }
+                } catch (IOException ignore) {
+                }
+            }
+        });
+        echo.start();
+
+        final long expectBytes = HANDSHAKE.length + (long) frames * frameSize;
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch connected = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        iTransporterListener listener = new iTransporterListener() {
+            @Override
+            public void onConnected() {
+                connected.countDown();
+            }
+
+            @Override
+            public byte[] popSendData() {
+                return queue.poll();
+            }
+
+            @Override
+            public byte[] pollSendData() {
+                return queue.poll();
+            }
+
+            @Override
+            public void didReceiveData(byte[] data) {
+                if (received.addAndGet(data.length) >= expectBytes)
+                    done.countDown();
+            }
+
+            @Override
+            public void disconnecte(String error) {
+            }
+        };
+        SelectorNetTransporter transporter = new SelectorNetTransporter("127.0.0.1", server.getLocalPort()) {
+            @Override
+            protected byte[] handshakeData() {
+                return HANDSHAKE;
+            }
+        };
+        transporter.start(listener);
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        byte[] frame = new byte[frameSize];
+        for (int i = 0; i < frames; i++) {
+            queue.offer(frame);
+            transporter.onSendDataAvailable();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        long cost = System.nanoTime() - start;
+        assertEquals(expectBytes, received.get());
+
+        /// 空闲时不应占用CPU
+        Thread worker = findThread("HotReload-Net");
+        assertNotNull(worker);
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long cpuBefore = mx.getThreadCpuTime(worker.getId());
+        Thread.sleep(500);
+        long idleCpu = (mx.getThreadCpuTime(worker.getId()) - cpuBefore) / 1000000;
+        assertTrue(idleCpu < 50);
+
+        transporter.stop();
+        worker.join(5000);
+        assertFalse(worker.isAlive());
+        server.close();
+        return cost;
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(t.getName()))
+                return t;
+        }
+        return null;
+    }
+}
@@ -22,6 +22,7 @@ import com.immomo.luanative.codec.protobuf.PBRemoveCommand;
 import com.immomo.luanative.codec.protobuf.PBRenameCommand;
 import com.immomo.luanative.codec.protobuf.PBUpdateCommand;
 
+import java.io.File;
 import java.util.concurrent.atomic.AtomicReference;
 
 
@@ -144,6 +145,10 @@ public class HotReloadServer implements IHotReloadServer {
         return PBCommandFactory.Serial;
     }
 
+    @Override
+    public void setSyncRoot(File root) {
+    }
+
 
 
     private void updateEntryFile(String entryFilePath, String relativeEntryFilePath, String params) {
@@ -7,6 +7,8 @@
   */
 package com.immomo.luanative.hotreload;
 
+import java.io.File;
+
 public class HotReloadServer implements IHotReloadServer {
 
     //
@@ -64,4 +66,8 @@ public class HotReloadServer implements IHotReloadServer {
         return null;
     }
 
+    @Override
+    public void setSyncRoot(File root) {
+    }
+
 }
\ No newline at end of file
@@ -7,6 +7,8 @@
   */
 package com.immomo.luanative.hotreload;
 
+import java.io.File;
+
 /**
  * Created by Xiong.Fangyu on 2019-07-30
  */
@@ -44,4 +46,10 @@ public interface IHotReloadServer {
 
     String getSerial();
 
+    /**
+     * 设置设备上热重载文件的根目录
+     * 连接成功后会发送目录下文件摘要，插件端只同步有变化的文件
+     */
+    void setSyncRoot(File root);
+
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.autolua.mln_lite;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.immomo.mls.MLSBuilder;
+import com.immomo.mls.MLSEngine;
+import com.immomo.mls.wrapper.Register;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link Register#preInstall()} 耗时对比，使用demo中注册的所有bridge
+ * 逐个类预注册 和 通过快照一次native调用预注册
+ * <p>
+ * App启动时已预注册过相同的类，两种方式都在native缓存已有的情况下比较
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreInstallBenchmark {
+    private static final String TAG = "PreInstallBenchmark";
+    private static final int ROUNDS = 20;
+
+    @After
+    public void reset() {
+        Register.BulkPreInstall = true;
+    }
+
+    @Test
+    public void bulkVsPerClass() {
+        assertTrue(MLSEngine.isInit());
+        /// 预热
+        run(true, 2);
+        long perClass = run(false, ROUNDS);
+        long bulk = run(true, ROUNDS);
+        Log.d(TAG, String.format("%d userdata, per class: %.3fms, bulk: %.3fms",
+                newDemoRegister().udCount(), perClass / 1e6, bulk / 1e6));
+    }
+
+    @Test
+    public void onlyNewClassesPreInstalled() {
+        Register register = newDemoRegister();
+        register.preInstall();
+        assertTrue(register.isPreInstall());
+        int all = register.getPreInstallCount();
+        assertTrue(all >= register.udCount());
+        /// 允许重复注册，再次注册的bridge作为新增的类
+        register.registerStaticBridge(MLSEngine.registerStaticClass()[0]);
+        assertFalse(register.isPreInstall());
+        register.preInstall();
+        assertTrue(register.isPreInstall());
+        assertEquals(1, register.getPreInstallCount());
+    }
+
+    private static long run(boolean bulk, int rounds) {
+        Register.BulkPreInstall = bulk;
+        long total = 0;
+        for (int i = 0; i < rounds; i++) {
+            Register register = newDemoRegister();
+            register.preInstall();
+            assertTrue(register.isPreInstall());
+            total += register.getPreInstallTime();
+        }
+        return total / rounds;
+    }
+
+    /**
+     * 与{@link com.immomo.demo.App}中{@link MLSEngine#init}注册相同的bridge
+     */
+    private static Register newDemoRegister() {
+        Register register = new Register();
+        for (Register.UDHolder h : MLSEngine.registerLuaView()) {
+            register.registerUserdata(h);
+        }
+        for (Register.UDHolder h : MLSEngine.registerTools()) {
+            register.registerUserdata(h);
+        }
+        for (Register.SHolder h : MLSEngine.registerStaticClass()) {
+            register.registerStaticBridge(h);
+        }
+        for (MLSBuilder.SIHolder h : MLSEngine.registerSingleInstance()) {
+            register.registerSingleInstance(h.luaClassName, h.clz);
+        }
+        return register;
+    }
+}
@@ -0,0 +1,149 @@
+package com.autolua.mln_lite;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.immomo.mls.fun.weight.newui.BaseRowColumn;
+import com.immomo.mls.fun.weight.newui.HStack;
+import com.immomo.mls.fun.weight.newui.VStack;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 5层嵌套HStack/VStack的测量耗时和叶子View测量次数
+ * 模拟列表cell：每次绑定数据后所有叶子View requestLayout，先AT_MOST再EXACTLY测量两次后布局
+ * 对比开启、关闭{@link BaseRowColumn#MeasureCacheEnable}，两者布局结果需一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class StackMeasureBenchmark {
+    private static final String TAG = "StackMeasureBenchmark";
+    private static final int DEPTH = 5;
+    private static final int ROUNDS = 50;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    @After
+    public void reset() {
+        BaseRowColumn.MeasureCacheEnable = true;
+    }
+
+    @Test
+    public void cacheVsNoCache() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                /// 预热
+                run(context, false, 2, null);
+                List<Integer> noCacheFrames = new ArrayList<>();
+                List<Integer> cacheFrames = new ArrayList<>();
+                long[] noCache = run(context, false, ROUNDS, noCacheFrames);
+                long[] cache = run(context, true, ROUNDS, cacheFrames);
+                assertEquals(noCacheFrames, cacheFrames);
+                assertTrue(cache[1] <= noCache[1]);
+                Log.d(TAG, String.format("no cache: %.3fms, %d leaf measures; cache: %.3fms, %d leaf measures",
+                        noCache[0] / 1e6, noCache[1], cache[0] / 1e6, cache[1]));
+            }
+        });
+    }
+
+    /**
+     * @return {平均耗时ns, 平均叶子View测量次数}
+     */
+    private static long[] run(Context context, boolean cache, int rounds, List<Integer> frames) {
+        BaseRowColumn.MeasureCacheEnable = cache;
+        List<CountView> leaves = new ArrayList<>();
+        View root = newStack(context, 0, leaves);
+        long time = 0;
+        long measures = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (CountView v : leaves) {
+                v.measureCount = 0;
+                v.requestLayout();
+            }
+            long start = System.nanoTime();
+            root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.AT_MOST),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+            root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(root.getMeasuredHeight(), View.MeasureSpec.EXACTLY));
+            root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+            time += System.nanoTime() - start;
+            for (CountView v : leaves) {
+                measures += v.measureCount;
+            }
+        }
+        if (frames != null)
+            collectFrames(root, frames);
+        return new long[]{time / rounds, measures / rounds};
+    }
+
+    /**
+     * 每层：wrap叶子、weight子Stack（方向交替）、固定尺寸叶子、weight叶子
+     */
+    private static View newStack(Context context, int level, List<CountView> leaves) {
+        BaseRowColumn stack = level % 2 == 0 ? new VStack(context) : new HStack(context);
+        stack.setPadding(2, 2, 2, 2);
+        final boolean vertical = stack.getOrientation() == BaseRowColumn.VERTICAL;
+
+        stack.addView(newLeaf(context, leaves), new BaseRowColumn.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        if (level < DEPTH - 1) {
+            BaseRowColumn.LayoutParams lp = new BaseRowColumn.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+            lp.weight = 2;
+            stack.addView(newStack(context, level + 1, leaves), lp);
+        }
+        stack.addView(newLeaf(context, leaves), new BaseRowColumn.LayoutParams(40, 40));
+        BaseRowColumn.LayoutParams lp = new BaseRowColumn.LayoutParams(
+                vertical ? ViewGroup.LayoutParams.MATCH_PARENT : ViewGroup.LayoutParams.WRAP_CONTENT,
+                vertical ? ViewGroup.LayoutParams.WRAP_CONTENT : ViewGroup.LayoutParams.MATCH_PARENT);
+        lp.weight = 1;
+        stack.addView(newLeaf(context, leaves), lp);
+        return stack;
+    }
+
+    private static View newLeaf(Context context, List<CountView> leaves) {
+        CountView v = new CountView(context);
+        leaves.add(v);
+        return v;
+    }
+
+    private static void collectFrames(View v, List<Integer> out) {
+        out.add(v.getLeft());
+        out.add(v.getTop());
+        out.add(v.getRight());
+        out.add(v.getBottom());
+        if (v instanceof ViewGroup) {
+            ViewGroup vg = (ViewGroup) v;
+            for (int i = 0, l = vg.getChildCount(); i < l; i++) {
+                collectFrames(vg.getChildAt(i), out);
+            }
+        }
+    }
+
+    private static final class CountView extends View {
+        int measureCount;
+
+        CountView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measureCount++;
+            setMeasuredDimension(resolveSize(100, widthMeasureSpec), resolveSize(30, heightMeasureSpec));
+        }
+    }
+}
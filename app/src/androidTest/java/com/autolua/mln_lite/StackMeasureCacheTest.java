@@ -0,0 +1,86 @@
+package com.autolua.mln_lite;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.immomo.mls.fun.weight.newui.BaseRowColumn;
+import com.immomo.mls.fun.weight.newui.HStack;
+import com.immomo.mls.fun.weight.newui.VStack;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BaseRowColumn}测量缓存正确性
+ * 只测量不布局后，子View变化时requestLayout不会传递到Stack，再次用相同spec测量需得到新的尺寸
+ */
+@RunWith(AndroidJUnit4.class)
+public class StackMeasureCacheTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    @Test
+    public void childChangeAfterMeasureWithoutLayout() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                VStack root = new VStack(context);
+                HStack inner = new HStack(context);
+                SizeView leaf = new SizeView(context, 100, 30);
+                inner.addView(leaf, new BaseRowColumn.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+                root.addView(inner, new BaseRowColumn.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+                measure(root);
+                assertEquals(100, root.getMeasuredWidth());
+                assertEquals(30, root.getMeasuredHeight());
+                assertTrue(root.isLayoutRequested());
+
+                leaf.setSize(200, 50);
+                measure(root);
+                assertEquals(200, root.getMeasuredWidth());
+                assertEquals(50, root.getMeasuredHeight());
+                assertEquals(200, inner.getMeasuredWidth());
+
+                root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+                assertEquals(200, leaf.getWidth());
+                assertEquals(50, leaf.getHeight());
+            }
+        });
+    }
+
+    private static void measure(View v) {
+        v.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+    }
+
+    private static final class SizeView extends View {
+        private int width;
+        private int height;
+
+        SizeView(Context context, int width, int height) {
+            super(context);
+            this.width = width;
+            this.height = height;
+        }
+
+        void setSize(int width, int height) {
+            this.width = width;
+            this.height = height;
+            requestLayout();
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link InvokeFrame}配合{@link LuaFunction#invokeForDouble(InvokeFrame)}等方法的native调用
+ * 参数个数超过native分段读取的长度，及超过Lua栈上限时抛出{@link InvokeError}
+ */
+@RunWith(AndroidJUnit4.class)
+public class InvokeFrameNativeTest {
+    /// 大于native分段读取的长度
+    private static final int MANY = 100;
+    /// 大于LUAI_MAXSTACK
+    private static final int TOO_MANY = 1000001;
+
+    private static Globals globals;
+
+    @BeforeClass
+    public static void setUp() {
+        System.loadLibrary("luajapi");
+        globals = Globals.createLState(false);
+        assertTrue(globals.loadString("frame",
+                "function sum(...) local s = 0 for _, v in ipairs({...}) do s = s + v end return s end\n" +
+                "function last(...) local n = select('#', ...) return (select(n, ...)) end\n" +
+                "function count(...) return select('#', ...) end\n" +
+                "called = 0\n" +
+                "function touch(...) called = select('#', ...) end\n"));
+        assertTrue(globals.callLoadedData());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        globals.destroy();
+    }
+
+    private static LuaFunction fun(String name) {
+        return globals.get(name).toLuaFunction();
+    }
+
+    @Test
+    public void invokeForDouble() {
+        InvokeFrame frame = globals.obtainInvokeFrame();
+        double expect = 0;
+        for (int i = 0; i < MANY; i++) {
+            frame.push(i);
+            expect += i;
+        }
+        assertEquals(expect, fun("sum").invokeForDouble(frame), 0);
+        assertEquals(0, frame.size());
+    }
+
+    @Test
+    public void invokeForBoolean() {
+        InvokeFrame frame = globals.obtainInvokeFrame();
+        for (int i = 0; i < MANY; i++) {
+            frame.push(false);
+        }
+        frame.push(true);
+        assertTrue(fun("last").invokeForBoolean(frame));
+        for (int i = 0; i < MANY; i++) {
+            frame.push(true);
+        }
+        frame.push(false);
+        assertFalse(fun("last").invokeForBoolean(frame));
+    }
+
+    @Test
+    public void invokeForString() {
+        InvokeFrame frame = globals.obtainInvokeFrame();
+        for (int i = 0; i < MANY; i++) {
+            frame.push("s" + i);
+            frame.push((LuaValue) null);
+        }
+        frame.push("end");
+        assertEquals("end", fun("last").invokeForString(frame));
+    }
+
+    @Test
+    public void fastInvoke() {
+        InvokeFrame frame = globals.obtainInvokeFrame();
+        for (int i = 0; i < MANY; i++) {
+            frame.push(i).push("s").push(globals);
+        }
+        fun("touch").fastInvoke(frame);
+        assertEquals(MANY * 3, globals.get("called").toInt());
+    }
+
+    /**
+     * 超过Lua栈上限时抛出异常，清空参数，虚拟机可继续使用
+     */
+    @Test
+    public void stackOverflow() {
+        InvokeFrame frame = globals.obtainInvokeFrame();
+        for (int i = 0; i < TOO_MANY; i++) {
+            frame.push((LuaValue) null);
+        }
+        try {
+            fun("count").invokeForDouble(frame);
+            fail();
+        } catch (InvokeError e) {
+            assertNotNull(e.getMessage());
+        }
+        assertEquals(0, frame.size());
+
+        frame = globals.obtainInvokeFrame();
+        frame.push(1).push(2);
+        assertEquals(2, fun("count").invokeForDouble(frame), 0);
+    }
+}
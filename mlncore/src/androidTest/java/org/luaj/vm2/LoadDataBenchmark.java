@@ -0,0 +1,105 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 入口脚本读取+编译耗时对比，约2MB源码
+ * 读入byte[]后{@link Globals#preloadData(String, byte[])}，
+ * 只读映射后{@link Globals#preloadData(String, java.nio.ByteBuffer)}，
+ * 以及native按路径读取的{@link Globals#preloadFile(String, String)}（require及预加载使用的方式）
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoadDataBenchmark {
+    private static final String TAG = "LoadDataBenchmark";
+    private static final int SOURCE_SIZE = 2 * 1024 * 1024;
+    private static final int ROUNDS = 10;
+
+    private static Globals globals;
+    private static File file;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        System.loadLibrary("luajapi");
+        globals = Globals.createLState(false);
+        file = File.createTempFile("bench", ".lua");
+        StringBuilder sb = new StringBuilder(SOURCE_SIZE + 64);
+        for (int i = 0; sb.length() < SOURCE_SIZE; i++) {
+            sb.append("t[").append(i).append("] = function(a) return a + ").append(i).append(" end\n");
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(("local t = {}\n" + sb + "return t\n").getBytes(Charset.forName("UTF-8")));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        globals.destroy();
+        file.delete();
+    }
+
+    @Test
+    public void bytesVsMappedVsPath() throws Exception {
+        /// 预热
+        runBytes();
+        runMapped();
+        runPath();
+        long bytes = 0, mapped = 0, path = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes += runBytes();
+            mapped += runMapped();
+            path += runPath();
+        }
+        Log.d(TAG, String.format("%dKB source, read+compile ms, byte[]: %.2f (+%dKB java heap), mapped: %.2f, path: %.2f",
+                file.length() / 1024, bytes / 1e6 / ROUNDS, file.length() / 1024,
+                mapped / 1e6 / ROUNDS, path / 1e6 / ROUNDS));
+    }
+
+    private static long runBytes() throws IOException {
+        long start = System.nanoTime();
+        byte[] data;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            data = new byte[(int) raf.length()];
+            raf.readFully(data);
+        }
+        globals.preloadData("bench", data);
+        return System.nanoTime() - start;
+    }
+
+    private static long runMapped() throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        globals.preloadData("bench", buffer);
+        return System.nanoTime() - start;
+    }
+
+    private static long runPath() {
+        long start = System.nanoTime();
+        globals.preloadFile("bench", file.getAbsolutePath());
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.SoftReference;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UserdataIdMap} 与 {@link LongSparseArray}（{@link UserdataCache}原有结构）put/get/remove耗时对比
+ * 1k、10k、100k个userdata，删除按随机顺序，删除的userdata放入removed缓存
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserdataIdMapBenchmark {
+    private static final String TAG = "UserdataIdMapBenchmark";
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int ROUNDS = 5;
+
+    private static Globals globals;
+    private static LuaUserdata[] userdata;
+
+    @BeforeClass
+    public static void setUp() {
+        System.loadLibrary("luajapi");
+        globals = Globals.createLState(false);
+        userdata = new LuaUserdata[SIZES[SIZES.length - 1]];
+        for (int i = 0; i < userdata.length; i++) {
+            userdata[i] = new LuaUserdata(globals, null);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        userdata = null;
+        globals.destroy();
+    }
+
+    @Test
+    public void putGetRemove() {
+        for (int n : SIZES) {
+            long[] ids = new long[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i + 1;
+            }
+            long[] removeOrder = ids.clone();
+            shuffle(removeOrder, new Random(n));
+            /// 预热
+            runIdMap(ids, removeOrder);
+            runSparseArray(ids, removeOrder);
+            long[] map = new long[3];
+            long[] sparse = new long[3];
+            for (int r = 0; r < ROUNDS; r++) {
+                add(map, runIdMap(ids, removeOrder));
+                add(sparse, runSparseArray(ids, removeOrder));
+            }
+            Log.d(TAG, String.format("%d entries, put/get/remove ms, UserdataIdMap: %.2f/%.2f/%.2f, LongSparseArray: %.2f/%.2f/%.2f",
+                    n, map[0] / 1e6 / ROUNDS, map[1] / 1e6 / ROUNDS, map[2] / 1e6 / ROUNDS,
+                    sparse[0] / 1e6 / ROUNDS, sparse[1] / 1e6 / ROUNDS, sparse[2] / 1e6 / ROUNDS));
+        }
+    }
+
+    private static long[] runIdMap(long[] ids, long[] removeOrder) {
+        UserdataIdMap map = new UserdataIdMap(128);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ids.length; i++) {
+            map.put(ids[i], userdata[i]);
+        }
+        long t1 = System.nanoTime();
+        for (long id : ids) {
+            assertNotNull(map.get(id));
+        }
+        long t2 = System.nanoTime();
+        for (long id : removeOrder) {
+            map.moveToRemoved(id);
+        }
+        long t3 = System.nanoTime();
+        assertEquals(0, map.size());
+        return new long[]{t1 - t0, t2 - t1, t3 - t2};
+    }
+
+    private static long[] runSparseArray(long[] ids, long[] removeOrder) {
+        LongSparseArray<LuaUserdata> cache = new LongSparseArray<>(100);
+        LongSparseArray<SoftReference<LuaUserdata>> removed = new LongSparseArray<>();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ids.length; i++) {
+            cache.put(ids[i], userdata[i]);
+        }
+        long t1 = System.nanoTime();
+        for (long id : ids) {
+            assertNotNull(cache.get(id));
+        }
+        long t2 = System.nanoTime();
+        for (long id : removeOrder) {
+            LuaUserdata ud = cache.get(id);
+            cache.remove(id);
+            removed.put(id, new SoftReference<>(ud));
+        }
+        long t3 = System.nanoTime();
+        assertEquals(0, cache.size());
+        return new long[]{t1 - t0, t2 - t1, t3 - t2};
+    }
+
+    private static void add(long[] total, long[] t) {
+        for (int i = 0; i < total.length; i++) {
+            total[i] += t[i];
+        }
+    }
+
+    private static void shuffle(long[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
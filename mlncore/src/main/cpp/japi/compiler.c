@@ -97,6 +97,8 @@ static int compile_assets(lua_State *L, const char *file, const char *chunkname)
 
 static int j_compile_buffer(JNIEnv *env, lua_State *L, jstring name, jbyteArray data);
 
+static int j_compile_direct(JNIEnv *env, lua_State *L, jstring name, jobject buffer, jint offset, jint len);
+
 static int j_compile_file(JNIEnv *env, lua_State *L, jstring path, jstring chunkname);
 
 #ifdef ANDROID
@@ -134,6 +136,15 @@ jint jni_loadData(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring name
     return r;
 }
 
+jint jni_loadDirectData(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring name, jobject buffer,
+                       jint offset, jint len) {
+    lua_State *L = (lua_State *) L_state_pointer;
+    lua_lock(L);
+    jint r = (jint) j_compile_direct(env, L, name, buffer, offset, len);
+    lua_unlock(L);
+    return r;
+}
+
 jint
 jni_loadFile(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring path, jstring chunkname) {
     lua_State *L = (lua_State *) L_state_pointer;
@@ -211,6 +222,15 @@ void jni_preloadData(JNIEnv *env, jobject jobj, jlong LS, jstring name, jbyteArr
     lua_unlock(L);
 }
 
+void jni_preloadDirectData(JNIEnv *env, jobject jobj, jlong LS, jstring name, jobject buffer, jint offset,
+                           jint len) {
+    lua_State *L = (lua_State *) LS;
+    lua_lock(L);
+    int ret = j_compile_direct(env, L, name, buffer, offset, len);
+    _set_to_preload(env, L, name, ret);
+    lua_unlock(L);
+}
+
 void jni_preloadFile(JNIEnv *env, jobject jobj, jlong LS, jstring name, jstring path) {
     lua_State *L = (lua_State *) LS;
     lua_lock(L);
@@ -300,6 +320,24 @@ jint jni_dumpFunction(JNIEnv *env, jobject jobj, jlong LS, jlong fun, jstring pa
     return ret;
 }
 
+jint jni_dumpLoadedData(JNIEnv *env, jobject jobj, jlong LS, jstring path) {
+    lua_State *L = (lua_State *) LS;
+    lua_lock(L);
+    /// 栈顶为loadData/loadFile编译出的函数，保存后不出栈，之后仍可执行
+    if (!lua_isfunction(L, -1) || lua_iscfunction(L, -1)) {
+        lua_unlock(L);
+        return -1;
+    }
+    /// 保存过程中压入栈的值需全部出栈，栈顶仍为编译出的函数
+    int top = lua_gettop(L);
+    const char *file = GetString(env, path);
+    int ret = saveProto(L, file);
+    ReleaseChar(env, path, file);
+    lua_settop(L, top);
+    lua_unlock(L);
+    return ret;
+}
+
 extern jclass LuaValue;
 
 jobjectArray jni_doLoadedDataAndGetResult(JNIEnv *env, jobject jobj, jlong LS) {
@@ -576,6 +614,35 @@ static int j_compile_buffer(JNIEnv *env, lua_State *L, jstring name, jbyteArray
     return ret;
 }
 
+/**
+ * 直接使用DirectByteBuffer（如mmap映射的文件）中的数据编译，不复制到java堆
+ */
+static int j_compile_direct(JNIEnv *env, lua_State *L, jstring name, jobject buffer, jint offset, jint len) {
+    char *addr = (char *) (*env)->GetDirectBufferAddress(env, buffer);
+    jlong cap = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!addr || offset < 0 || len < 0 || (jlong) offset + len > cap) {
+        throwUndumpError(env, "not a direct buffer or out of bounds");
+        return LUA_ERRERR;
+    }
+    const char *cn = GetString(env, name);
+
+    lua_lock(L);
+    int ret = compile_buffer(L, addr + offset, (size_t) len, cn);
+    if (name)
+        ReleaseChar(env, name, cn);
+    if (ret) {
+        const char *errmsg;
+        if (lua_isstring(L, -1))
+            errmsg = lua_tostring(L, -1);
+        else
+            errmsg = "unkonw error";
+        lua_pop(L, 1);
+        throwUndumpError(env, errmsg);
+    }
+    lua_unlock(L);
+    return ret;
+}
+
 static int j_compile_file(JNIEnv *env, lua_State *L, jstring path, jstring chunkname) {
     const char *p = GetString(env, path);
     const char *cn = GetString(env, chunkname);
@@ -664,8 +731,10 @@ static int saveProto(lua_State *L, const char *file) {
     }
     const Proto *p = getproto(L->top - 1);
     int ret = luaU_dump(L, p, writer, F, 0);
-    if (ferror(F))
+    if (ferror(F)) {
+        fclose(F);
         return WRITE_FILE_ERROR;
+    }
     /// 开启加密的情况，最后获取到文件总长度时，再覆盖写入头部信息
     if (opensaes) {
         SIZE size = (SIZE) ftell(F) - HEADER_LEN - SOURCE_LEN;
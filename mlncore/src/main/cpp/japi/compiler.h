@@ -21,12 +21,14 @@ void jni_setNativeFileConfigs(JNIEnv *env, jobject jobj, jint configs);
 jint jni_getNativeFileConfigs(JNIEnv *env, jobject jobj);
 // --------------------------compile --------------------------
 jint jni_loadData(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring name, jbyteArray data);
+jint jni_loadDirectData(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring name, jobject buffer, jint offset, jint len);
 jint jni_loadFile(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring path, jstring chunkname);
 #ifdef ANDROID
 jint jni_loadAssetsFile(JNIEnv *env, jobject jobj, jlong L_state_pointer, jstring path, jstring chunkname);
 #endif
 jboolean jni_setMainEntryFromPreload(JNIEnv *env, jobject jobj, jlong L, jstring name);
 void jni_preloadData(JNIEnv *env, jobject jobj, jlong L, jstring name, jbyteArray data);
+void jni_preloadDirectData(JNIEnv *env, jobject jobj, jlong L, jstring name, jobject buffer, jint offset, jint len);
 void jni_preloadFile(JNIEnv *env, jobject jobj, jlong L, jstring name, jstring path);
 #ifdef ANDROID
 void jni_preloadAssets(JNIEnv *env, jobject jobj, jlong LS, jstring name, jstring path);
@@ -37,6 +39,7 @@ jint jni_doLoadedData(JNIEnv *env, jobject jobj, jlong L_state_pointer);
 jobjectArray jni_doLoadedDataAndGetResult(JNIEnv *env, jobject jobj, jlong LS);
 jint jni_startDebug(JNIEnv *env, jobject jobj, jlong LS, jbyteArray data, jstring ip, jint port);
 jint jni_dumpFunction(JNIEnv *env, jobject jobj, jlong LS, jlong fun, jstring path);
+jint jni_dumpLoadedData(JNIEnv *env, jobject jobj, jlong LS, jstring path);
 #ifdef LOAD_TOKEN
 jint jni_loadToken(JNIEnv *env, jobject jobj, jlong L, jstring cn, jbyteArray data, jobject listener);
 #endif
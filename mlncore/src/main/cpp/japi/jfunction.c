@@ -268,4 +268,124 @@ Void_Call LuaFunctionMethod(nativeInvokeUDUD)(Pre4Params, jobject u1, jobject u2
         pushUserdataFromJUD(env, L, u2);
     })
 }
+
+/**
+ * 每次从java数组中读取的参数个数，避免按count在栈上分配数组
+ */
+#define FRAME_CHUNK 32
+
+/**
+ * 将InvokeFrame中的参数压栈
+ * number和boolean从numbers中读取，string从objects中读取，其他类型为LuaValue
+ * count超过数组长度或lua栈空间不足时，抛出InvokeError，不压栈
+ * @return 参数个数，失败返回-1
+ */
+static int push_frame(JNIEnv *env, lua_State *L, jint count, jintArray types, jdoubleArray numbers, jobjectArray objects) {
+    if (count <= 0)
+        return 0;
+    if (!types || !numbers || !objects
+        || (*env)->GetArrayLength(env, types) < count
+        || (*env)->GetArrayLength(env, numbers) < count
+        || (*env)->GetArrayLength(env, objects) < count) {
+        throwInvokeError(env, "invalid invoke frame.");
+        return -1;
+    }
+    if (!lua_checkstack(L, count)) {
+        throwInvokeError(env, "too many arguments, stack overflow.");
+        return -1;
+    }
+    jint ts[FRAME_CHUNK];
+    jdouble ns[FRAME_CHUNK];
+    int start, i, n;
+    jobject jo;
+    for (start = 0; start < count; start += n) {
+        n = count - start < FRAME_CHUNK ? count - start : FRAME_CHUNK;
+        (*env)->GetIntArrayRegion(env, types, start, n, ts);
+        (*env)->GetDoubleArrayRegion(env, numbers, start, n, ns);
+        for (i = 0; i < n; i++) {
+            switch (ts[i]) {
+                case LUA_TNIL:
+                    lua_pushnil(L);
+                    break;
+                case LUA_TNUMBER:
+                    push_number(L, ns[i]);
+                    break;
+                case LUA_TBOOLEAN:
+                    lua_pushboolean(L, ns[i] != 0);
+                    break;
+                case LUA_TSTRING:
+                    jo = (*env)->GetObjectArrayElement(env, objects, start + i);
+                    pushJavaString(env, L, (jstring) jo);
+                    FREE(env, jo);
+                    break;
+                default:
+                    jo = (*env)->GetObjectArrayElement(env, objects, start + i);
+                    pushJavaValue(env, L, jo);
+                    FREE(env, jo);
+                    break;
+            }
+        }
+    }
+    return count;
+}
+
+#define PreFrameParams Pre4Params, jint count, jintArray types, jdoubleArray numbers, jobjectArray objects
+
+Void_Call LuaFunctionMethod(nativeInvokeFrame)(PreFrameParams) {
+    lua_State *L = (lua_State *) Ls;
+    check_and_call_method(L, count, {
+        if (push_frame(env, L, count, types, numbers, objects) < 0) {
+            lua_settop(L, oldTop);
+            lua_unlock(L);
+            return;
+        }
+    })
+}
+
+JNIEXPORT jdouble JNICALL LuaFunctionMethod(nativeInvokeFrameForDouble)(PreFrameParams) {
+    lua_State *L = (lua_State *) Ls;
+    jdouble result = 0;
+    call_method_return(L, count, 1, {
+        if (push_frame(env, L, count, types, numbers, objects) < 0) {
+            lua_settop(L, oldTop);
+            lua_unlock(L);
+            return 0;
+        }
+    }, {
+        if (lua_isnumber(L, -1))
+            result = (jdouble) lua_tonumber(L, -1);
+    }, return 0)
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL LuaFunctionMethod(nativeInvokeFrameForBoolean)(PreFrameParams) {
+    lua_State *L = (lua_State *) Ls;
+    jboolean result = JNI_FALSE;
+    call_method_return(L, count, 1, {
+        if (push_frame(env, L, count, types, numbers, objects) < 0) {
+            lua_settop(L, oldTop);
+            lua_unlock(L);
+            return JNI_FALSE;
+        }
+    }, {
+        result = (jboolean) lua_toboolean(L, -1);
+    }, return JNI_FALSE)
+    return result;
+}
+
+JNIEXPORT jstring JNICALL LuaFunctionMethod(nativeInvokeFrameForString)(PreFrameParams) {
+    lua_State *L = (lua_State *) Ls;
+    jstring result = NULL;
+    call_method_return(L, count, 1, {
+        if (push_frame(env, L, count, types, numbers, objects) < 0) {
+            lua_settop(L, oldTop);
+            lua_unlock(L);
+            return NULL;
+        }
+    }, {
+        if (lua_isstring(L, -1))
+            result = newJString(env, lua_tostring(L, -1));
+    }, return NULL)
+    return result;
+}
 //</editor-fold>
\ No newline at end of file
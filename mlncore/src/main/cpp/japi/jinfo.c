@@ -700,17 +700,17 @@ void traverseAllMethods(jclass clz, map_look_fun fun, void *ud) {
     jm_traverse_all_method(clz, fun, ud);
 }
 
-void jni_preRegisterUD(JNIEnv *env, jobject jobj, jstring className, jstring lcnStr,
-                       jstring luaParentString, jint classType,
-                       jobjectArray methods) {
-
-    const char *cname = GetString(env, className);
+/**
+ * 预注册userdata，methods中[from, to)为此类的方法
+ * @return 0: 成功; 1: 有未处理的java异常
+ */
+static int preRegisterUD(JNIEnv *env, const char *cname, const char *luaClassName,
+                         const char *luaParentName, int classType,
+                         jobjectArray methods, jsize from, jsize to) {
     //1.获取java class
     jclass clz = getClassByName(env, cname);
 
     //2.存储luaname-->javaclass映射
-    const char *luaClassName = GetString(env, lcnStr);
-    const char *luaParentName = GetString(env, luaParentString);
     if (classType == 1) {
         //字符串最后一位\0
         //lua 中的key 非单例时key=luaClassName 单例时 key= luaClassName去除头两个下划线字符
@@ -722,14 +722,9 @@ void jni_preRegisterUD(JNIEnv *env, jobject jobj, jstring className, jstring lcn
     } else {
         l2j_put(luaClassName, luaClassName, clz, luaParentName, classType);
     }
-    ReleaseChar(env, luaParentString, luaParentName);
-    FREE(env, luaParentString);
-    ReleaseChar(env, lcnStr, luaClassName);
-    FREE(env, lcnStr);
 
     if (!clz) {
-        ReleaseChar(env, className, cname);
-        return;
+        return (*env)->ExceptionCheck(env) ? 1 : 0;
     }
 
     if (!getConstructor(env, clz)) {
@@ -739,71 +734,136 @@ void jni_preRegisterUD(JNIEnv *env, jobject jobj, jstring className, jstring lcn
                 if (thr) {
                     (*env)->ExceptionClear(env);
                     (*env)->Throw(env, thr);
+                    return 1;
                 }
             }
         } else {
             //线上模式 清除异常
             (*env)->ExceptionClear(env);
         }
-
-        ReleaseChar(env, className, cname);
-        return;
+        return 0;
     }
 
-    jsize len = (*env)->GetArrayLength(env, methods);
-    jsize i = 0;
+    jsize i;
     jstring jname;
     const char *name;
-    for (i = 0; i < len; ++i) {
+    for (i = from; i < to; ++i) {
         jname = (jstring) (*env)->GetObjectArrayElement(env, methods, i);
         name = GetString(env, jname);
         if (!name) {
             throwRuntimeError(env, cname);
-            ReleaseChar(env, className, cname);
             FREE(env, jname);
-            return;
+            return 1;
         }
         getMethodByName(env, clz, name);
         ReleaseChar(env, jname, name);
         FREE(env, jname);
     }
-    ReleaseChar(env, className, cname);
 
     for (i = METHOD_TOSTRING; i <= METHOD_GC; ++i) {
         getSpecialMethod(env, clz, i);
     }
-
+    return 0;
 }
 
-void jni_preRegisterStatic(JNIEnv *env, jobject jobj, jstring className, jstring lcnStr,
-                           jstring luaParentString, jobjectArray methods) {
-    const char *cname = GetString(env, className);
+/**
+ * 预注册静态bridge，methods中[from, to)为此类的方法
+ * @return 0: 成功; 1: 有未处理的java异常
+ */
+static int preRegisterStatic(JNIEnv *env, const char *cname, const char *luaClassName,
+                             const char *luaParentName,
+                             jobjectArray methods, jsize from, jsize to) {
     jclass clz = getClassByName(env, cname);
     //2.存储luaname-->javaclass映射
-    const char *luaClassName = GetString(env, lcnStr);
-    const char *luaParentName = GetString(env, luaParentString);
     l2j_put(luaClassName, luaClassName, clz, luaParentName, 2);
-    ReleaseChar(env, className, cname);
-    FREE(env, className);
-    ReleaseChar(env, luaParentString, luaParentName);
-    FREE(env, luaParentString);
-    ReleaseChar(env, lcnStr, luaClassName);
-    FREE(env, lcnStr);
     if (!clz) {
-        return;
+        return (*env)->ExceptionCheck(env) ? 1 : 0;
     }
 
-    jsize len = (*env)->GetArrayLength(env, methods);
-    jsize i = 0;
+    jsize i;
     jstring jname;
     const char *name;
-    for (i = 0; i < len; ++i) {
+    for (i = from; i < to; ++i) {
         jname = (jstring) (*env)->GetObjectArrayElement(env, methods, i);
         name = GetString(env, jname);
+        if (!name) {
+            throwRuntimeError(env, cname);
+            FREE(env, jname);
+            return 1;
+        }
         getStaticMethodByName(env, clz, name);
         ReleaseChar(env, jname, name);
         FREE(env, jname);
     }
+    return 0;
+}
+
+void jni_preRegisterUD(JNIEnv *env, jobject jobj, jstring className, jstring lcnStr,
+                       jstring luaParentString, jint classType,
+                       jobjectArray methods) {
+
+    const char *cname = GetString(env, className);
+    const char *luaClassName = GetString(env, lcnStr);
+    const char *luaParentName = GetString(env, luaParentString);
+    preRegisterUD(env, cname, luaClassName, luaParentName, classType,
+                  methods, 0, (*env)->GetArrayLength(env, methods));
+    ReleaseChar(env, luaParentString, luaParentName);
+    FREE(env, luaParentString);
+    ReleaseChar(env, lcnStr, luaClassName);
+    FREE(env, lcnStr);
+    ReleaseChar(env, className, cname);
+}
+
+void jni_preRegisterStatic(JNIEnv *env, jobject jobj, jstring className, jstring lcnStr,
+                           jstring luaParentString, jobjectArray methods) {
+    const char *cname = GetString(env, className);
+    const char *luaClassName = GetString(env, lcnStr);
+    const char *luaParentName = GetString(env, luaParentString);
+    preRegisterStatic(env, cname, luaClassName, luaParentName,
+                      methods, 0, (*env)->GetArrayLength(env, methods));
+    ReleaseChar(env, className, cname);
+    FREE(env, className);
+    ReleaseChar(env, luaParentString, luaParentName);
+    FREE(env, luaParentString);
+    ReleaseChar(env, lcnStr, luaClassName);
+    FREE(env, lcnStr);
+}
+
+void jni_preRegisterAll(JNIEnv *env, jobject jobj, jobjectArray jcns, jobjectArray lcns,
+                        jobjectArray lpcns, jintArray types, jintArray methodCounts,
+                        jobjectArray methods) {
+    jsize len = (*env)->GetArrayLength(env, jcns);
+    if (len <= 0)
+        return;
+    jint *ts = (*env)->GetIntArrayElements(env, types, NULL);
+    jint *mc = (*env)->GetIntArrayElements(env, methodCounts, NULL);
+    jsize i, use = 0;
+    int error = 0;
+    for (i = 0; i < len && !error; ++i) {
+        jstring jcn = (jstring) (*env)->GetObjectArrayElement(env, jcns, i);
+        jstring lcn = (jstring) (*env)->GetObjectArrayElement(env, lcns, i);
+        jstring lpcn = (jstring) (*env)->GetObjectArrayElement(env, lpcns, i);
+        const char *cname = GetString(env, jcn);
+        const char *luaClassName = GetString(env, lcn);
+        const char *luaParentName = GetString(env, lpcn);
+        if (ts[i] == 2) {
+            error = preRegisterStatic(env, cname, luaClassName, luaParentName, methods, use, use + mc[i]);
+        } else {
+            error = preRegisterUD(env, cname, luaClassName, luaParentName, ts[i], methods, use, use + mc[i]);
+        }
+        /// 任何一个类失败且有未处理的异常时，释放后停止，由java层抛出
+        if (!error && (*env)->ExceptionCheck(env))
+            error = 1;
+        use += mc[i];
+        ReleaseChar(env, lpcn, luaParentName);
+        FREE(env, lpcn);
+        ReleaseChar(env, lcn, luaClassName);
+        FREE(env, lcn);
+        ReleaseChar(env, jcn, cname);
+        FREE(env, jcn);
+    }
+    (*env)->ReleaseIntArrayElements(env, types, ts, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, methodCounts, mc, JNI_ABORT);
 }
 
 void jni_setCallbackEmptyMethod(JNIEnv *env, jobject jobj, jboolean open) {
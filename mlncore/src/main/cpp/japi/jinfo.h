@@ -39,6 +39,14 @@ void jni_preRegisterUD(JNIEnv *env, jobject jobj, jstring className, jstring lcn
 void jni_preRegisterStatic(JNIEnv *env, jobject jobj, jstring className, jstring lcnStr,
                            jstring luaParentString, jobjectArray methods);
 
+/**
+ * 一次预注册多个类，types为2时是静态bridge
+ * methods为所有类的方法，每个类的方法个数在methodCounts中
+ */
+void jni_preRegisterAll(JNIEnv *env, jobject jobj, jobjectArray jcns, jobjectArray lcns,
+                        jobjectArray lpcns, jintArray types, jintArray methodCounts,
+                        jobjectArray methods);
+
 void jni_setCallbackEmptyMethod(JNIEnv *env, jobject jobj, jboolean open);
 
 void jni_setProtectNewJString(JNIEnv *env, jobject jobj, jboolean open);
@@ -327,6 +327,132 @@ void jni_setTableSMethod(JNIEnv *env, jobject jobj, jlong L, jlong table, jstrin
     )
 }
 
+/// -----------------------------------------------------------------------------------------
+/// ---------------------------------------batch set-----------------------------------------
+/// -----------------------------------------------------------------------------------------
+
+/**
+ * 将table压栈，若table已销毁，返回0，栈不变
+ */
+static int pushBatchTable(lua_State *L, jlong table) {
+    if (isGlobal(table)) {
+        lua_pushglobaltable(L);
+        return 1;
+    }
+    getValueFromGNV(L, (ptrdiff_t) table, LUA_TTABLE);
+    if (lua_istable(L, -1))
+        return 1;
+    lua_pop(L, 1);
+    return 0;
+}
+
+void jni_setTableNumbers(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jdoubleArray values, jint count) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (!pushBatchTable(LS, table)) {
+        lua_unlock(LS);
+        return;
+    }
+    jdouble *arr = (*env)->GetDoubleArrayElements(env, values, NULL);
+    jint i;
+    for (i = 0; i < count; i++) {
+        lua_pushnumber(LS, (lua_Number) arr[i]);
+        lua_rawseti(LS, -2, start + i);
+    }
+    (*env)->ReleaseDoubleArrayElements(env, values, arr, JNI_ABORT);
+    lua_pop(LS, 1);
+    lua_unlock(LS);
+}
+
+void jni_setTableBooleans(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jbooleanArray values, jint count) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (!pushBatchTable(LS, table)) {
+        lua_unlock(LS);
+        return;
+    }
+    jboolean *arr = (*env)->GetBooleanArrayElements(env, values, NULL);
+    jint i;
+    for (i = 0; i < count; i++) {
+        lua_pushboolean(LS, (int) arr[i]);
+        lua_rawseti(LS, -2, start + i);
+    }
+    (*env)->ReleaseBooleanArrayElements(env, values, arr, JNI_ABORT);
+    lua_pop(LS, 1);
+    lua_unlock(LS);
+}
+
+void jni_setTableStrings(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jobjectArray values, jint count) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (!pushBatchTable(LS, table)) {
+        lua_unlock(LS);
+        return;
+    }
+    jint i;
+    for (i = 0; i < count; i++) {
+        jstring v = (jstring) (*env)->GetObjectArrayElement(env, values, i);
+        pushJavaString(env, LS, v);
+        FREE(env, v);
+        lua_rawseti(LS, -2, start + i);
+    }
+    lua_pop(LS, 1);
+    lua_unlock(LS);
+}
+
+void jni_setTableBatch(JNIEnv *env, jobject jobj, jlong L, jlong table, jint count, jintArray indexKeys,
+                       jobjectArray stringKeys, jintArray types, jdoubleArray numbers, jobjectArray objects) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (!pushBatchTable(LS, table)) {
+        lua_unlock(LS);
+        return;
+    }
+    jint *iks = (*env)->GetIntArrayElements(env, indexKeys, NULL);
+    jint *ts = (*env)->GetIntArrayElements(env, types, NULL);
+    jdouble *ns = (*env)->GetDoubleArrayElements(env, numbers, NULL);
+    jint i;
+    jobject jo;
+    for (i = 0; i < count; i++) {
+        jstring sk = (jstring) (*env)->GetObjectArrayElement(env, stringKeys, i);
+        if (sk) {
+            const char *key = GetString(env, sk);
+            lua_pushstring(LS, key);
+            ReleaseChar(env, sk, key);
+            FREE(env, sk);
+        } else {
+            lua_pushinteger(LS, (lua_Integer) iks[i]);
+        }
+        switch (ts[i]) {
+            case LUA_TNIL:
+                lua_pushnil(LS);
+                break;
+            case LUA_TNUMBER:
+                lua_pushnumber(LS, (lua_Number) ns[i]);
+                break;
+            case LUA_TBOOLEAN:
+                lua_pushboolean(LS, ns[i] != 0);
+                break;
+            case LUA_TSTRING:
+                jo = (*env)->GetObjectArrayElement(env, objects, i);
+                pushJavaString(env, LS, (jstring) jo);
+                FREE(env, jo);
+                break;
+            default:
+                jo = (*env)->GetObjectArrayElement(env, objects, i);
+                pushJavaValue(env, LS, jo);
+                FREE(env, jo);
+                break;
+        }
+        lua_rawset(LS, -3);
+    }
+    (*env)->ReleaseIntArrayElements(env, indexKeys, iks, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, types, ts, JNI_ABORT);
+    (*env)->ReleaseDoubleArrayElements(env, numbers, ns, JNI_ABORT);
+    lua_pop(LS, 1);
+    lua_unlock(LS);
+}
+
 jobject jni_getTableValue(JNIEnv *env, jobject jobj, jlong L, jlong table, jint k) {
     lua_State *LS = (lua_State *) L;
     lua_lock(LS);
@@ -415,6 +541,149 @@ void jni_endTraverseTable(JNIEnv *env, jobject jobj, jlong L) {
     lua_pop((lua_State *) L, 2);
 }
 
+/// -----------------------------------------------------------------------------------------
+/// ---------------------------------------table reader--------------------------------------
+/// -----------------------------------------------------------------------------------------
+/// 每一层在栈上保存 table key 两个值，子table压栈后在其上继续保存 child nil
+/// 进入新一层前需确认栈空间，不足时子table按普通值返回，同超过最大深度
+/// see LuaTableReader
+
+/// 进入一层需要的栈空间：key(nil) 及 writeTableInfo中lua_next的key value
+#define READ_LEVEL_STACK    3
+
+#define READ_END_TABLE      0
+#define READ_ENTRY          1
+#define READ_BEGIN_TABLE    2
+
+#define READ_IDX_KEY        0
+#define READ_IDX_VALUE      1
+#define READ_IDX_SEQUENCE   2
+#define READ_IDX_LENGTH     3
+
+/**
+ * 计算idx位置table是否是从1开始的连续数组，并写入info
+ * 所有key都是[1, len]中的整数，且个数为len时才是数组
+ */
+static void writeTableInfo(JNIEnv *env, lua_State *L, int idx, jintArray info) {
+    idx = lua_absindex(L, idx);
+    jint len = (jint) lua_rawlen(L, idx);
+    jint count = 0;
+    jint seq = len > 0;
+    lua_pushnil(L);
+    while (seq && lua_next(L, idx)) {
+        lua_pop(L, 1);
+        lua_Number k;
+        if (lua_type(L, -1) != LUA_TNUMBER
+            || (k = lua_tonumber(L, -1)) != (lua_Number) (lua_Integer) k
+            || k < 1 || k > len
+            || ++count > len) {
+            lua_pop(L, 1);
+            seq = 0;
+        }
+    }
+    seq = seq && count == len;
+    (*env)->SetIntArrayRegion(env, info, READ_IDX_SEQUENCE, 1, &seq);
+    (*env)->SetIntArrayRegion(env, info, READ_IDX_LENGTH, 1, &len);
+}
+
+/**
+ * 将idx位置的值写入types[pos] nums[pos] strs[pos]
+ * 只有string及number有值，其他类型只写入类型
+ */
+static void writeReadValue(JNIEnv *env, lua_State *L, int idx, int pos, jintArray types,
+                           jdoubleArray nums, jobjectArray strs) {
+    jint type = (jint) lua_type(L, idx);
+    (*env)->SetIntArrayRegion(env, types, pos, 1, &type);
+    jdouble num;
+    jstring str;
+    switch (type) {
+        case LUA_TNUMBER:
+            num = (jdouble) lua_tonumber(L, idx);
+            (*env)->SetDoubleArrayRegion(env, nums, pos, 1, &num);
+            break;
+        case LUA_TBOOLEAN:
+            num = (jdouble) lua_toboolean(L, idx);
+            (*env)->SetDoubleArrayRegion(env, nums, pos, 1, &num);
+            break;
+        case LUA_TSTRING:
+            str = newJString(env, lua_tostring(L, idx));
+            (*env)->SetObjectArrayElement(env, strs, pos, str);
+            FREE(env, str);
+            break;
+        default:
+            break;
+    }
+}
+
+jboolean jni_startReadTable(JNIEnv *env, jobject jobj, jlong L, jlong table, jintArray info) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (isGlobal(table))
+        lua_pushglobaltable(LS);
+    else
+        getValueFromGNV(LS, (ptrdiff_t) table, LUA_TTABLE);
+    if (!lua_istable(LS, -1) || !lua_checkstack(LS, READ_LEVEL_STACK)) {
+        lua_pop(LS, 1);
+        lua_unlock(LS);
+        return (jboolean) 0;
+    }
+    writeTableInfo(env, LS, -1, info);
+    lua_pushnil(LS);
+    lua_unlock(LS);
+    return (jboolean) 1;
+}
+
+jint jni_readTableNext(JNIEnv *env, jobject jobj, jlong L, jboolean isGlobal, jboolean seq, jboolean descend,
+                       jintArray types, jdoubleArray nums, jobjectArray strs) {
+    lua_State *LS = (lua_State *) L;
+    lua_lock(LS);
+    if (seq) {
+        /// -1: index -2: table
+        lua_Integer i = lua_tointeger(LS, -1) + 1;
+        lua_pop(LS, 1);
+        if (i > (lua_Integer) lua_rawlen(LS, -1)) {
+            lua_pop(LS, 1);
+            lua_unlock(LS);
+            return READ_END_TABLE;
+        }
+        lua_pushinteger(LS, i);
+        lua_rawgeti(LS, -2, (int) i);
+    } else {
+        int has;
+        while ((has = lua_next(LS, -2))) {
+            if (isGlobal && !isValidKeyForGlobal(LS))
+                continue;
+            break;
+        }
+        if (!has) {
+            lua_pop(LS, 1);
+            lua_unlock(LS);
+            return READ_END_TABLE;
+        }
+    }
+    /// -1: value -2: key -3: table
+    writeReadValue(env, LS, -2, READ_IDX_KEY, types, nums, strs);
+    if (descend && lua_istable(LS, -1) && lua_checkstack(LS, READ_LEVEL_STACK)) {
+        writeTableInfo(env, LS, -1, types);
+        lua_pushnil(LS);
+        lua_unlock(LS);
+        return READ_BEGIN_TABLE;
+    }
+    writeReadValue(env, LS, -1, READ_IDX_VALUE, types, nums, strs);
+    lua_pop(LS, 1);
+    lua_unlock(LS);
+    return READ_ENTRY;
+}
+
+void jni_skipReadTable(JNIEnv *env, jobject jobj, jlong L) {
+    lua_pop((lua_State *) L, 2);
+}
+
+void jni_endReadTable(JNIEnv *env, jobject jobj, jlong L, jint depth) {
+    if (depth > 0)
+        lua_pop((lua_State *) L, depth * 2);
+}
+
 jobject jni_getTableEntry(JNIEnv *env, jobject jobj, jlong L, jlong table) {
     typedef struct JLink {
         jobject key;
@@ -51,9 +51,21 @@ void jni_setTableSChildN(JNIEnv *env, jobject jobj, jlong L, jlong table, jstrin
 void jni_setTableMethod(JNIEnv *env, jobject jobj, jlong L, jlong table, jint k, jstring clz, jstring methodName);
 void jni_setTableSMethod(JNIEnv *env, jobject jobj, jlong L, jlong table, jstring k, jstring clz, jstring methodName);
 
+void jni_setTableNumbers(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jdoubleArray values, jint count);
+void jni_setTableBooleans(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jbooleanArray values, jint count);
+void jni_setTableStrings(JNIEnv *env, jobject jobj, jlong L, jlong table, jint start, jobjectArray values, jint count);
+void jni_setTableBatch(JNIEnv *env, jobject jobj, jlong L, jlong table, jint count, jintArray indexKeys,
+                       jobjectArray stringKeys, jintArray types, jdoubleArray numbers, jobjectArray objects);
+
 jobject jni_getTableValue(JNIEnv *env, jobject jobj, jlong L, jlong table, jint k);
 jobject jni_getTableSValue(JNIEnv *env, jobject jobj, jlong L, jlong table, jstring k);
 
+jboolean jni_startReadTable(JNIEnv *env, jobject jobj, jlong L, jlong table, jintArray info);
+jint jni_readTableNext(JNIEnv *env, jobject jobj, jlong L, jboolean isGlobal, jboolean seq, jboolean descend,
+                       jintArray types, jdoubleArray nums, jobjectArray strs);
+void jni_skipReadTable(JNIEnv *env, jobject jobj, jlong L);
+void jni_endReadTable(JNIEnv *env, jobject jobj, jlong L, jint depth);
+
 jobject jni_getTableEntry(JNIEnv *env, jobject jobj, jlong L, jlong table);
 
 jboolean jni_startTraverseTable(JNIEnv *env, jobject jobj, jlong L, jlong table);
@@ -78,6 +78,7 @@ static JNINativeMethod jni_methods[] = {
     {"_setDatabasePath", "(" STRING_CLASS ")V", (void *)jni_setDatabasePath},
     {"_preRegisterUD", "(" STRING_CLASS "" STRING_CLASS "" STRING_CLASS "I" "[" STRING_CLASS ")V", (void *)jni_preRegisterUD},
     {"_preRegisterStatic", "(" STRING_CLASS "" STRING_CLASS "" STRING_CLASS "[" STRING_CLASS ")V", (void *)jni_preRegisterStatic},
+    {"_preRegisterAll", "([" STRING_CLASS "[" STRING_CLASS "[" STRING_CLASS "[I[I[" STRING_CLASS ")V", (void *)jni_preRegisterAll},
 #ifdef ANDROID
     {"_setAssetManager", "(Landroid/content/res/AssetManager;)V", (void *)jni_setAssetManager},
 #endif
@@ -95,6 +96,7 @@ static JNINativeMethod jni_methods[] = {
     {"_lgc", "(J)V", (void *)jni_lgc},
 
     {"_loadData", "(J" STRING_CLASS "[B)I", (void *)jni_loadData},
+    {"_loadDirectData", "(J" STRING_CLASS "Ljava/nio/ByteBuffer;II)I", (void *)jni_loadDirectData},
     {"_loadFile", "(J" STRING_CLASS "" STRING_CLASS ")I", (void *)jni_loadFile},
 #ifdef ANDROID
     {"_loadAssetsFile", "(J" STRING_CLASS "" STRING_CLASS ")I", (void *)jni_loadAssetsFile},
@@ -104,6 +106,7 @@ static JNINativeMethod jni_methods[] = {
     {"_startDebug", "(J[B" STRING_CLASS "I)I", (void *)jni_startDebug},
     {"_setMainEntryFromPreload", "(J" STRING_CLASS ")Z", (void *)jni_setMainEntryFromPreload},
     {"_preloadData", "(J" STRING_CLASS "[B)V", (void *)jni_preloadData},
+    {"_preloadDirectData", "(J" STRING_CLASS "Ljava/nio/ByteBuffer;II)V", (void *)jni_preloadDirectData},
     {"_preloadFile", "(J" STRING_CLASS "" STRING_CLASS ")V", (void *)jni_preloadFile},
 #ifdef ANDROID
     {"_preloadAssets", "(J" STRING_CLASS "" STRING_CLASS ")V", (void *)jni_preloadAssets},
@@ -111,6 +114,7 @@ static JNINativeMethod jni_methods[] = {
 #endif
     {"_require", "(J" STRING_CLASS ")I", (void *)jni_require},
     {"_dumpFunction", "(JJ" STRING_CLASS ")I", (void *)jni_dumpFunction},
+    {"_dumpLoadedData", "(J" STRING_CLASS ")I", (void *)jni_dumpLoadedData},
 
     {"_createTable", "(J)J", (void *)jni_createTable},
     {"_isEmpty", "(JJ)Z", (void *)jni_isEmpty},
@@ -137,6 +141,11 @@ static JNINativeMethod jni_methods[] = {
     {"_setTableChild", "(JJ" STRING_CLASS "JI)V", (void *)jni_setTableSChildN},
     {"_setTableMethod", "(JJ" STRING_CLASS "" STRING_CLASS "" STRING_CLASS ")V", (void *)jni_setTableSMethod},
 
+    {"_setTableNumbers", "(JJI[DI)V", (void *)jni_setTableNumbers},
+    {"_setTableBooleans", "(JJI[ZI)V", (void *)jni_setTableBooleans},
+    {"_setTableStrings", "(JJI[" STRING_CLASS "I)V", (void *)jni_setTableStrings},
+    {"_setTableBatch", "(JJI[I[" STRING_CLASS "[I[D[" OBJECT_CLASS ")V", (void *)jni_setTableBatch},
+
     {"_getTableValue", "(JJI)" OBJECT_CLASS, (void *)jni_getTableValue},
     {"_getTableValue", "(JJ" STRING_CLASS ")" OBJECT_CLASS, (void *)jni_getTableSValue},
 
@@ -144,6 +153,10 @@ static JNINativeMethod jni_methods[] = {
     {"_startTraverseTable", "(JJ)Z", (void *)jni_startTraverseTable},
     {"_nextEntry", "(JZ)[" LUAVALUE_CLASS, (void *)jni_nextEntry},
     {"_endTraverseTable", "(J)V", (void *)jni_endTraverseTable},
+    {"_startReadTable", "(JJ[I)Z", (void *)jni_startReadTable},
+    {"_readTableNext", "(JZZZ[I[D[" STRING_CLASS ")I", (void *)jni_readTableNext},
+    {"_skipReadTable", "(J)V", (void *)jni_skipReadTable},
+    {"_endReadTable", "(JI)V", (void *)jni_endReadTable},
 
     {"_invoke", "(JJ[" LUAVALUE_CLASS "I)[" LUAVALUE_CLASS, (void *)jni_invoke},
     {"_getFunctionSource", "(JJ)" STRING_CLASS, (void *)jni_getFunctionSource},
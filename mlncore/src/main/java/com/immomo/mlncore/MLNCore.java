@@ -29,6 +29,14 @@ public class MLNCore {
      * remove后保存到新的cache里
      */
     public static final byte TYPE_REMOVE_CACHE = 2;
+    /**
+     * userdata缓存使用LongSparseArray存储
+     */
+    public static final byte USERDATA_STORE_SPARSE_ARRAY = 0;
+    /**
+     * userdata缓存使用开放寻址哈希表存储，删除缓存与存活缓存共用一张表
+     */
+    public static final byte USERDATA_STORE_HASH = 1;
     /**
      * core debug控制
      */
@@ -38,6 +46,13 @@ public class MLNCore {
      * @see org.luaj.vm2.UserdataCache
      */
     public static byte UserdataCacheType = TYPE_REMOVE_CACHE;
+    /**
+     * userdata缓存存储结构，只对之后创建的虚拟机生效
+     * @see org.luaj.vm2.UserdataCache
+     * @see #USERDATA_STORE_SPARSE_ARRAY
+     * @see #USERDATA_STORE_HASH
+     */
+    public static byte UserdataStoreType = USERDATA_STORE_HASH;
     /**
      * 获取lua异常类型
      * @see Globals#getErrorType()
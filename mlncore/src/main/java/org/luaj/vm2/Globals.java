@@ -13,8 +13,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
-import androidx.collection.LongSparseArray;
-
 import com.immomo.mlncore.MLNCore;
 
 import org.luaj.vm2.exception.InvokeError;
@@ -23,11 +21,13 @@ import org.luaj.vm2.utils.IGlobalsUserdata;
 import org.luaj.vm2.utils.LuaApiUsed;
 import org.luaj.vm2.utils.NativeLog;
 import org.luaj.vm2.utils.OnEmptyMethodCalledListener;
+import org.luaj.vm2.utils.RequireIndex;
 import org.luaj.vm2.utils.ResourceFinder;
 import org.luaj.vm2.utils.SignatureUtils;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -182,6 +182,21 @@ public final class Globals extends LuaTable {
      * @see #onRequire(String)
      */
     private LinkedHashSet<ResourceFinder> resourceFinders;
+    /**
+     * require查找结果索引，finder位置：{@link #resourceFinder}为0，{@link #resourceFinders}依次为1、2...
+     *
+     * @see #setRequireIndex(RequireIndex)
+     * @see #onRequire(String)
+     */
+    private RequireIndex requireIndex;
+    /**
+     * 是否是通过{@link #setRequireIndex}设置的共用索引
+     */
+    private boolean sharedRequireIndex;
+    /**
+     * 各位置finder的类型，使用索引前检查，见{@link RequireIndex.Entry#matches(Class[])}
+     */
+    private Class<?>[] finderChain;
     /**
      * class -> luaClassName
      */
@@ -252,6 +267,12 @@ public final class Globals extends LuaTable {
      * 唯一标示符
      */
     private final String TAG;
+    /**
+     * 可复用的函数调用参数
+     *
+     * @see #obtainInvokeFrame()
+     */
+    private InvokeFrame invokeFrame;
 
     /**
      * 保存Native虚拟机指针和Java Globals表对应关系
@@ -259,11 +280,7 @@ public final class Globals extends LuaTable {
      * @see #createLState(boolean)
      * @see #getGlobalsByLState(long)
      */
-    private static LongSparseArray<Globals> cache = new LongSparseArray<>();
-    /**
-     * 全局虚拟机
-     */
-    private static LongSparseArray<Globals> g_cahce = new LongSparseArray<>();
+    private static final StateRegistry<Globals> cache = new StateRegistry<>();
     /**
      * 空方法回调
      */
@@ -405,9 +422,9 @@ public final class Globals extends LuaTable {
         if (num == 0) return;
 
         long now = System.currentTimeMillis();
-        for (int i = 0, l = cache.size(); i < l; i++) {
-            final Globals g = cache.valueAt(i);
-            if (g.canGc(now)) {
+        for (Object o : cache.values()) {
+            final Globals g = (Globals) o;
+            if (!g.isGlobal && g.canGc(now)) {
                 num--;
                 g.post(new Runnable() {
                     @Override
@@ -512,15 +529,25 @@ public final class Globals extends LuaTable {
         LuaCApi._preRegisterStatic(clz, luaClassName, parentName, methods);
     }
 
+    /**
+     * 一次提前加载多个userdata或static
+     *
+     * @param types        0: 普通userdata 1: 单例 2: static
+     * @param methodCounts 每个类的方法个数，methods中按顺序排列
+     * @throws RuntimeException 某个类找不到时停止预注册并抛出
+     * @see #preRegisterUserdata
+     * @see #preRegisterStatic
+     */
+    public static void preRegisterAll(String[] clz, String[] luaClassNames, String[] parentNames,
+                                      int[] types, int[] methodCounts, String[] methods) {
+        LuaCApi._preRegisterAll(clz, luaClassNames, parentNames, types, methodCounts, methods);
+    }
+
     /**
      * 缓存虚拟机
      */
     private static void saveGlobals(Globals g) {
-        if (g.isGlobal) {
-            g_cahce.put(g.L_State, g);
-        } else {
-            cache.put(g.L_State, g);
-        }
+        cache.put(g.L_State, g);
     }
 
     /**
@@ -560,18 +587,7 @@ public final class Globals extends LuaTable {
      */
     @LuaApiUsed
     static void __onGlobalsDestroyInNative(long vm) {
-        Globals globals = null;
-        int index = cache.indexOfKey(vm);
-        if (index >= 0) {
-            globals = cache.valueAt(index);
-            cache.removeAt(index);
-        } else {
-            index = g_cahce.indexOfKey(vm);
-            if (index > 0) {
-                globals = g_cahce.valueAt(index);
-                g_cahce.removeAt(index);
-            }
-        }
+        Globals globals = cache.remove(vm);
         if (globals != null) {
             globals.destroy();
         }
@@ -594,50 +610,47 @@ public final class Globals extends LuaTable {
     /**
      * 通过Native虚拟机指针获取Java Globals表
      * 必须通过{@link #createLState(boolean)}创建的虚拟机才能返回对应的表
+     * 不加锁，可在任意线程调用
      *
      * @param state Native lua_State指针
      * @return Globals表
      * @see #createLState(boolean)
      */
     public static Globals getGlobalsByLState(long state) {
-        Globals g = cache.get(state);
-        if (g == null) g = g_cahce.get(state);
-        return g;
+        return cache.get(state);
     }
 
     /**
      * 返回所有的虚拟机指针
      */
     public static String debugGlobalsPointers() {
-        int count = cache.size();
+        final Object[] values = cache.values();
         StringBuilder sb = new StringBuilder("normal globals pointers:[");
-        for (int i = 0; i < count; i++) {
-            long p = cache.keyAt(i);
-            if (i == 0) {
-                sb.append(Long.toHexString(p));
-            } else {
-                sb.append(',').append(Long.toHexString(p));
-            }
-        }
+        appendPointers(sb, values, false);
         sb.append(']')
                 .append("\nspecial globals pointers:[");
-        count = g_cahce.size();
-        for (int i = 0; i < count; i++) {
-            long p = g_cahce.keyAt(i);
-            if (i == 0) {
-                sb.append(Long.toHexString(p));
-            } else {
-                sb.append(',').append(Long.toHexString(p));
-            }
-        }
+        appendPointers(sb, values, true);
         return sb.append(']').toString();
     }
 
+    private static void appendPointers(StringBuilder sb, Object[] values, boolean isGlobal) {
+        boolean first = true;
+        for (Object o : values) {
+            Globals g = (Globals) o;
+            if (g.isGlobal != isGlobal)
+                continue;
+            if (!first)
+                sb.append(',');
+            sb.append(Long.toHexString(g.L_State));
+            first = false;
+        }
+    }
+
     /**
      * 获取正在运行中的lua虚拟机数量
      */
     public static int getLuaVmSize() {
-        return cache.size() + g_cahce.size();
+        return cache.size();
     }
 
     /**
@@ -821,6 +834,29 @@ public final class Globals extends LuaTable {
         return state == LUA_OK;
     }
 
+    /**
+     * 加载Lua源码或二进制码，数据直接从DirectByteBuffer中读取，不复制到java堆
+     * 读取范围为[position, limit)，不修改buffer的position
+     *
+     * @param chunkName 名称
+     * @param data      DirectByteBuffer，一般为{@link java.nio.MappedByteBuffer}
+     * @return 编译状态，true: 成功，可以通过{@link #callLoadedData()}执行
+     * false: 失败，可通过{@link #getState()}获取加载状态
+     * @throws IllegalArgumentException data不是DirectByteBuffer
+     */
+    public final boolean loadData(String chunkName, ByteBuffer data) {
+        checkDestroy();
+        checkDirect(data);
+        try {
+            state = LuaCApi._loadDirectData(L_State, chunkName, data, data.position(), data.remaining());
+        } catch (Throwable e) {
+            error = e;
+            errorMsg = e.getMessage();
+            state = LUA_ERRINJAVA;
+        }
+        return state == LUA_OK;
+    }
+
     /**
      * 加载Lua源码或二进制码
      * 其他机器编译出的二进制码不一定可用
@@ -861,6 +897,26 @@ public final class Globals extends LuaTable {
         return state == LUA_OK;
     }
 
+    /**
+     * 将已加载成功、还未执行的Lua代码以二进制码存储到savePath中
+     * 不影响之后通过{@link #callLoadedData()}执行
+     * 存储的二进制码可通过{@link #loadData}或{@link #preloadData}加载
+     *
+     * @param savePath 二进制码存储文件
+     * @return 0: 成功，-1: 没有已加载的Lua代码
+     * @see org.luaj.vm2.LuaValue.ErrorCode
+     */
+    public final @ErrorCode
+    int dumpLoadedData(String savePath) {
+        checkDestroy();
+        File parent = new File(savePath).getParentFile();
+        if (parent != null && !parent.exists()) {
+            if (!parent.mkdirs())
+                return ERR_CREATE_DIR;
+        }
+        return LuaCApi._dumpLoadedData(L_State, savePath);
+    }
+
     /**
      * 预加载Lua脚本
      *
@@ -873,6 +929,25 @@ public final class Globals extends LuaTable {
         LuaCApi._preloadData(L_State, chunkName, data);
     }
 
+    /**
+     * 预加载Lua脚本，数据直接从DirectByteBuffer中读取
+     *
+     * @param chunkName 脚本名称，Lua代码中require()时使用
+     * @param data      源码或二进制码，读取范围为[position, limit)
+     * @throws UndumpError 若编译出错，则抛出异常
+     * @throws IllegalArgumentException data不是DirectByteBuffer
+     */
+    public final void preloadData(String chunkName, ByteBuffer data) throws UndumpError {
+        checkDestroy();
+        checkDirect(data);
+        LuaCApi._preloadDirectData(L_State, chunkName, data, data.position(), data.remaining());
+    }
+
+    private static void checkDirect(ByteBuffer data) {
+        if (data == null || !data.isDirect())
+            throw new IllegalArgumentException("data must be a direct ByteBuffer");
+    }
+
     /**
      * 预加载Lua文件
      *
@@ -1146,8 +1221,9 @@ public final class Globals extends LuaTable {
      * 给全局虚拟机设置finder
      */
     private static void addAllPathRFFromGlobals(Globals gg) {
-        for (int i = 0, l = cache.size(); i < l; i++) {
-            Globals g = cache.valueAt(i);
+        for (Object o : cache.values()) {
+            Globals g = (Globals) o;
+            if (g.isGlobal) continue;
             Set<ResourceFinder> grfs = g.resourceFinders;
             if (grfs == null) continue;
             gg.resourceFinders.addAll(grfs);
@@ -1160,8 +1236,10 @@ public final class Globals extends LuaTable {
      * 给全局虚拟机设置finder
      */
     private static void addRFToGlobals(ResourceFinder rf) {
-        for (int i = 0, l = g_cahce.size(); i < l; i++) {
-            g_cahce.valueAt(i).resourceFinders.add(rf);
+        for (Object o : cache.values()) {
+            Globals g = (Globals) o;
+            if (g.isGlobal)
+                g.resourceFinders.add(rf);
         }
     }
 
@@ -1177,6 +1255,7 @@ public final class Globals extends LuaTable {
      */
     public void setResourceFinder(ResourceFinder rf) {
         resourceFinder = rf;
+        onResourceFinderChanged();
         if (!isGlobal) {
             addRFToGlobals(rf);
         }
@@ -1189,6 +1268,7 @@ public final class Globals extends LuaTable {
      */
     public void setResourceFinders(Collection<ResourceFinder> rfs) {
         resourceFinders = new LinkedHashSet<>(rfs);
+        onResourceFinderChanged();
     }
 
     /**
@@ -1206,6 +1286,7 @@ public final class Globals extends LuaTable {
             resourceFinders = new LinkedHashSet<>();
         }
         resourceFinders.add(rf);
+        onResourceFinderChanged();
         if (!isGlobal) {
             addRFToGlobals(rf);
         }
@@ -1217,6 +1298,57 @@ public final class Globals extends LuaTable {
     public void clearResourceFinder() {
         if (resourceFinders != null)
             resourceFinders.clear();
+        onResourceFinderChanged();
+    }
+
+    /**
+     * 设置require查找结果索引，同一脚本包的虚拟机可共用，见{@link RequireIndex#forBundle(String)}
+     * 共用索引的虚拟机，资源寻找器的设置顺序需相同
+     *
+     * @param index null: 使用虚拟机自己的索引
+     */
+    public void setRequireIndex(RequireIndex index) {
+        requireIndex = index;
+        sharedRequireIndex = index != null;
+    }
+
+    /**
+     * require查找结果索引，可获取命中率及各finder耗时
+     */
+    public RequireIndex getRequireIndex() {
+        if (requireIndex == null) {
+            requireIndex = new RequireIndex();
+            sharedRequireIndex = false;
+        }
+        return requireIndex;
+    }
+
+    /**
+     * 虚拟机自己的索引在资源寻找器变化后失效，共用的索引由设置者管理
+     */
+    private void onResourceFinderChanged() {
+        finderChain = null;
+        if (requireIndex != null && !sharedRequireIndex)
+            requireIndex.invalidate();
+    }
+
+    /**
+     * @return 位置i的finder类型，位置同{@link #finderAt(int)}
+     */
+    private Class<?>[] finderChain() {
+        if (finderChain == null) {
+            int size = resourceFinders != null ? resourceFinders.size() : 0;
+            Class<?>[] chain = new Class<?>[size + 1];
+            chain[0] = resourceFinder != null ? resourceFinder.getClass() : null;
+            if (size > 0) {
+                int i = 1;
+                for (ResourceFinder rf : resourceFinders) {
+                    chain[i++] = rf.getClass();
+                }
+            }
+            finderChain = chain;
+        }
+        return finderChain;
     }
     //</editor-fold>
 
@@ -1270,6 +1402,19 @@ public final class Globals extends LuaTable {
         return LuaCApi._traceback(L_State);
     }
 
+    /**
+     * 获取虚拟机中可复用的函数调用参数缓存，返回前会清空参数
+     * 只能在虚拟机线程中使用，参数压入后需立即调用
+     *
+     * @see InvokeFrame
+     * @see LuaFunction#invokeForDouble(InvokeFrame)
+     */
+    public final InvokeFrame obtainInvokeFrame() {
+        if (invokeFrame == null)
+            invokeFrame = new InvokeFrame();
+        return invokeFrame.reset();
+    }
+
     /**
      * 判断当前是否在lua函数调用过程中
      */
@@ -1337,7 +1482,6 @@ public final class Globals extends LuaTable {
         javaUserdata = null;
         NativeLog.release(pointer);
         cache.remove(pointer);
-        g_cahce.remove(pointer);
         luaClassNameMap.clear();
         resourceFinder = null;
         if (resourceFinders != null)
@@ -1690,13 +1834,41 @@ public final class Globals extends LuaTable {
             requireErrorMsg.append("\n\t\t没有设置resource finder，请调用Globals#addResourceFinder!");
             return null;
         }
-        Object ret = findResource(resourceFinder, name);
+        final RequireIndex index = getRequireIndex();
+        final Class<?>[] chain = finderChain();
+        RequireIndex.Entry e = index.get(name);
+        /// 共用索引时，记录结果的虚拟机finder可能不同（如有无依赖finder），不同时重新查找
+        if (e != null && e.matches(chain)) {
+            if (e.isNotFound()) {
+                requireErrorMsg.append(e.error);
+                return null;
+            }
+            if (e.path != null)
+                return e.path;
+            ResourceFinder rf = finderAt(e.finder);
+            if (rf != null) {
+                long start = System.nanoTime();
+                String n = rf.preCompress(name);
+                byte[] data = rf.getContent(n);
+                index.time(rf, start);
+                if (data != null) {
+                    rf.afterContentUse(n);
+                    return data;
+                }
+            }
+        }
+        if (e != null) {
+            /// finder已变化或数据已不存在，重新查找
+            index.remove(name);
+        }
+        Object ret = findResource(index, chain, resourceFinder, 0, name);
         if (ret != null)
             return ret;
         combineErrorMessage(resourceFinder);
         if (resourceFinders != null) {
+            int i = 1;
             for (ResourceFinder rf : resourceFinders) {
-                ret = findResource(rf, name);
+                ret = findResource(index, chain, rf, i++, name);
                 if (ret != null) {
                     return ret;
                 } else {
@@ -1704,6 +1876,22 @@ public final class Globals extends LuaTable {
                 }
             }
         }
+        index.putNotFound(name, chain, requireErrorMsg.toString());
+        return null;
+    }
+
+    /**
+     * @param i 位置，{@link #resourceFinder}为0，{@link #resourceFinders}依次为1、2...
+     */
+    private ResourceFinder finderAt(int i) {
+        if (i == 0)
+            return resourceFinder;
+        if (resourceFinders == null || i > resourceFinders.size())
+            return null;
+        for (ResourceFinder rf : resourceFinders) {
+            if (--i == 0)
+                return rf;
+        }
         return null;
     }
 
@@ -1747,16 +1935,27 @@ public final class Globals extends LuaTable {
         }
     }
 
-    private static Object findResource(ResourceFinder rf, String name) {
+    /**
+     * 通过finder查找，找到时记录到索引中
+     *
+     * @param chain {@link #finderChain()}
+     * @param i     finder位置
+     */
+    private static Object findResource(RequireIndex index, Class<?>[] chain, ResourceFinder rf, int i, String name) {
         if (rf != null) {
-            name = rf.preCompress(name);
-            String path = rf.findPath(name);
+            long start = System.nanoTime();
+            String n = rf.preCompress(name);
+            String path = rf.findPath(n);
             if (path != null) {
+                index.time(rf, start);
+                index.putFound(name, chain, i, path);
                 return path;
             }
-            byte[] data = rf.getContent(name);
+            byte[] data = rf.getContent(n);
+            index.time(rf, start);
             if (data != null) {
-                rf.afterContentUse(name);
+                rf.afterContentUse(n);
+                index.putFound(name, chain, i, null);
                 return data;
             }
         }
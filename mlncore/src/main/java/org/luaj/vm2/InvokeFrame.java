@@ -0,0 +1,168 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+/**
+ * 可复用的lua函数调用参数缓存
+ * 每个虚拟机持有一个，通过{@link Globals#obtainInvokeFrame()}获取
+ *
+ * 参数以基本类型数组保存，调用时native层直接读取数组，
+ * 配合{@link LuaFunction#invokeForDouble(InvokeFrame)}等方法，调用过程中Java层不产生新对象
+ *
+ * eg:
+ * <code>
+ *     double h = fun.invokeForDouble(globals.obtainInvokeFrame()
+ *                  .push(position)
+ *                  .push(width)
+ *                  .push(item));
+ * </code>
+ *
+ * 注意：
+ * 1、参数压入后需要立即调用，不可与其他调用交叉使用
+ * 2、只能在虚拟机线程中使用
+ *
+ * @see LuaFunction#fastInvoke(InvokeFrame)
+ * @see LuaFunction#invokeForDouble(InvokeFrame)
+ * @see LuaFunction#invokeForBoolean(InvokeFrame)
+ * @see LuaFunction#invokeForString(InvokeFrame)
+ */
+public final class InvokeFrame {
+    /**
+     * 默认参数个数
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * 参数类型
+     * @see LuaValue#LUA_TNUMBER
+     * @see LuaValue#LUA_TBOOLEAN
+     * @see LuaValue#LUA_TSTRING
+     * 其他类型通过{@link #objects}中的{@link LuaValue}压栈
+     */
+    int[] types;
+    /**
+     * number或boolean参数
+     */
+    double[] numbers;
+    /**
+     * String或LuaValue参数
+     */
+    Object[] objects;
+    /**
+     * 当前参数个数
+     */
+    int count;
+    /**
+     * 调用次数
+     */
+    private long invokeCount;
+    /**
+     * 参数数组分配次数，包括初始化
+     */
+    private long allocCount;
+
+    InvokeFrame() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(int cap) {
+        int[] nt = new int[cap];
+        double[] nn = new double[cap];
+        Object[] no = new Object[cap];
+        if (count > 0) {
+            System.arraycopy(types, 0, nt, 0, count);
+            System.arraycopy(numbers, 0, nn, 0, count);
+            System.arraycopy(objects, 0, no, 0, count);
+        }
+        types = nt;
+        numbers = nn;
+        objects = no;
+        allocCount++;
+    }
+
+    private int next() {
+        if (count == types.length)
+            allocate(count << 1);
+        return count++;
+    }
+
+    /**
+     * 清空参数
+     */
+    public InvokeFrame reset() {
+        for (int i = 0; i < count; i++) {
+            objects[i] = null;
+        }
+        count = 0;
+        return this;
+    }
+
+    public InvokeFrame push(double number) {
+        int i = next();
+        types[i] = LuaValue.LUA_TNUMBER;
+        numbers[i] = number;
+        return this;
+    }
+
+    public InvokeFrame push(boolean b) {
+        int i = next();
+        types[i] = LuaValue.LUA_TBOOLEAN;
+        numbers[i] = b ? 1 : 0;
+        return this;
+    }
+
+    /**
+     * @param s 为空时压入nil
+     */
+    public InvokeFrame push(String s) {
+        int i = next();
+        types[i] = s == null ? LuaValue.LUA_TNIL : LuaValue.LUA_TSTRING;
+        objects[i] = s;
+        return this;
+    }
+
+    /**
+     * @param v 为空时压入nil
+     */
+    public InvokeFrame push(LuaValue v) {
+        int i = next();
+        types[i] = v == null ? LuaValue.LUA_TNIL : LuaValue.LUA_TNONE;
+        objects[i] = v;
+        return this;
+    }
+
+    /**
+     * 当前参数个数
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 调用完成，清除引用
+     */
+    void onInvoked() {
+        invokeCount++;
+        reset();
+    }
+
+    /**
+     * 通过此参数缓存调用lua函数的次数
+     */
+    public long getInvokeCount() {
+        return invokeCount;
+    }
+
+    /**
+     * 参数数组分配次数，包括初始化的一次
+     * 若调用次数增加时此值不变，说明调用过程中没有分配参数数组
+     */
+    public long getAllocCount() {
+        return allocCount;
+    }
+}
@@ -11,6 +11,8 @@ import android.content.res.AssetManager;
 
 import org.luaj.vm2.utils.LuaApiUsed;
 
+import java.nio.ByteBuffer;
+
 /**
  * Created by Xiong.Fangyu on 2019/2/22
  * <p>
@@ -48,6 +50,8 @@ class LuaCApi {
     static native void _preRegisterUD(String className, String luaClassName, String luaParentClassName, int type, String[] methods);
 
     static native void _preRegisterStatic(String className, String luaClassName, String luaParentClassName, String[] methods);
+
+    static native void _preRegisterAll(String[] classNames, String[] luaClassNames, String[] luaParentClassNames, int[] types, int[] methodCounts, String[] methods);
     //</editor-fold>
 
     //<editor-fold desc="debug">
@@ -119,6 +123,8 @@ class LuaCApi {
 
     static native int _loadData(long L_state, String chunkName, byte[] data);
 
+    static native int _loadDirectData(long L_state, String chunkName, ByteBuffer data, int offset, int len);
+
     static native int _loadFile(long L_state, String path, String chunkName);
 
     static native int _loadAssetsFile(long L_state, String path, String chunkName);
@@ -127,10 +133,14 @@ class LuaCApi {
 
     static native LuaValue[] _doLoadedDataAndGetResult(long L_state);
 
+    static native int _dumpLoadedData(long L_state, String path);
+
     static native boolean _setMainEntryFromPreload(long L, String chunkname);
 
     static native void _preloadData(long L, String chunkName, byte[] data);
 
+    static native void _preloadDirectData(long L, String chunkName, ByteBuffer data, int offset, int len);
+
     static native void _preloadFile(long L, String chunkName, String path);
 
     static native void _preloadAssets(long L, String chunkName, String path);
@@ -183,6 +193,17 @@ class LuaCApi {
 
     static native void _setTableChild(long L, long table, String k, long child, int type);
 
+    static native void _setTableNumbers(long L, long table, int start, double[] values, int count);
+
+    static native void _setTableBooleans(long L, long table, int start, boolean[] values, int count);
+
+    static native void _setTableStrings(long L, long table, int start, String[] values, int count);
+
+    /**
+     * @see TableBatch
+     */
+    static native void _setTableBatch(long L, long table, int count, int[] indexKeys, String[] stringKeys, int[] types, double[] numbers, Object[] objects);
+
     static native void _setTableMethod(long L, long table, int k, String clz, String methodName);
 
     static native void _setTableMethod(long L, long table, String k, String clz, String methodName);
@@ -201,6 +222,26 @@ class LuaCApi {
     static native LuaValue[] _nextEntry(long L, boolean isGlobal);
 
     static native void _endTraverseTable(long L);
+
+    /**
+     * @see LuaTableReader
+     */
+    static native boolean _startReadTable(long L, long table, int[] info);
+
+    /**
+     * @see LuaTableReader
+     */
+    static native int _readTableNext(long L, boolean isGlobal, boolean seq, boolean descend, int[] types, double[] numbers, String[] strings);
+
+    /**
+     * @see LuaTableReader#skipTable()
+     */
+    static native void _skipReadTable(long L);
+
+    /**
+     * @see LuaTableReader#close()
+     */
+    static native void _endReadTable(long L, int depth);
     //</editor-fold>
 
     //<editor-fold desc="function">
@@ -19,6 +19,7 @@ import java.io.File;
  * <p>
  * Lua函数封装类
  * 可使用{@link #invoke(LuaValue[])} {@link #invoke(LuaValue[], int)}调用
+ * 频繁调用时可使用{@link InvokeFrame}配合{@link #invokeForDouble(InvokeFrame)}等方法，避免创建参数及返回值数组
  * <p>
  * 通过注册静态Bridge代替
  */
@@ -108,6 +109,7 @@ public class LuaFunction extends NLuaValue {
      * @see #fastInvoke(double)
      * @see #fastInvoke(String)
      * @see #fastInvoke(LuaValue)
+     * @see #fastInvoke(InvokeFrame)
      */
     public final void fastInvoke() {
         try {
@@ -258,6 +260,87 @@ public class LuaFunction extends NLuaValue {
         }
     }
 
+    /**
+     * 使用可复用参数缓存调用，无返回值
+     * 调用结束后会清空参数
+     * @see Globals#obtainInvokeFrame()
+     */
+    public final void fastInvoke(InvokeFrame frame) {
+        try {
+            if (!checkStatus())
+                return;
+            nativeInvokeFrame(globals.L_State, nativeGlobalKey, frame.count, frame.types, frame.numbers, frame.objects);
+            globals.calledFunction --;
+        } catch (InvokeError e) {
+            functionInvokeError(e);
+        } finally {
+            frame.onInvoked();
+        }
+    }
+
+    /**
+     * 使用可复用参数缓存调用，并获取第一个返回值
+     * 调用结束后会清空参数
+     * @return 第一个返回值不是number时返回0
+     * @see Globals#obtainInvokeFrame()
+     */
+    public final double invokeForDouble(InvokeFrame frame) {
+        try {
+            if (!checkStatus())
+                return 0;
+            double ret = nativeInvokeFrameForDouble(globals.L_State, nativeGlobalKey, frame.count, frame.types, frame.numbers, frame.objects);
+            globals.calledFunction --;
+            return ret;
+        } catch (InvokeError e) {
+            functionInvokeError(e);
+            return 0;
+        } finally {
+            frame.onInvoked();
+        }
+    }
+
+    /**
+     * 使用可复用参数缓存调用，并获取第一个返回值
+     * 调用结束后会清空参数
+     * @return 第一个返回值为nil或false时返回false
+     * @see Globals#obtainInvokeFrame()
+     */
+    public final boolean invokeForBoolean(InvokeFrame frame) {
+        try {
+            if (!checkStatus())
+                return false;
+            boolean ret = nativeInvokeFrameForBoolean(globals.L_State, nativeGlobalKey, frame.count, frame.types, frame.numbers, frame.objects);
+            globals.calledFunction --;
+            return ret;
+        } catch (InvokeError e) {
+            functionInvokeError(e);
+            return false;
+        } finally {
+            frame.onInvoked();
+        }
+    }
+
+    /**
+     * 使用可复用参数缓存调用，并获取第一个返回值
+     * 调用结束后会清空参数
+     * @return 第一个返回值不是string或number时返回空
+     * @see Globals#obtainInvokeFrame()
+     */
+    public final String invokeForString(InvokeFrame frame) {
+        try {
+            if (!checkStatus())
+                return null;
+            String ret = nativeInvokeFrameForString(globals.L_State, nativeGlobalKey, frame.count, frame.types, frame.numbers, frame.objects);
+            globals.calledFunction --;
+            return ret;
+        } catch (InvokeError e) {
+            functionInvokeError(e);
+            return null;
+        } finally {
+            frame.onInvoked();
+        }
+    }
+
     private void checkParams(LuaValue v) {
         if (v.isNil() || v.isTable() || v.isUserdata())
             return;
@@ -291,6 +374,10 @@ public class LuaFunction extends NLuaValue {
     protected native void nativeInvokeUUD(long L, long function, long u1, LuaUserdata<?> u2);
     protected native void nativeInvokeUDU(long L, long function, LuaUserdata<?> u1, long u2);
     protected native void nativeInvokeUDUD(long L, long function, LuaUserdata<?> u1, LuaUserdata<?> u2);
+    protected native void nativeInvokeFrame(long L, long function, int count, int[] types, double[] numbers, Object[] objects);
+    protected native double nativeInvokeFrameForDouble(long L, long function, int count, int[] types, double[] numbers, Object[] objects);
+    protected native boolean nativeInvokeFrameForBoolean(long L, long function, int count, int[] types, double[] numbers, Object[] objects);
+    protected native String nativeInvokeFrameForString(long L, long function, int count, int[] types, double[] numbers, Object[] objects);
     //</editor-fold>
 
     /**
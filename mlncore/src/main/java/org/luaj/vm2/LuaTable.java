@@ -225,6 +225,76 @@ public class LuaTable extends NLuaValue implements Iterable {
         LuaCApi._setTableMethod(globals.L_State, nativeGlobalKey, k, clzSig, method.getName());
     }
 
+    //<editor-fold desc="batch set">
+
+    /**
+     * table[startIndex + i] = values[i]
+     * 一次native调用写入全部数据
+     */
+    public void setAll(int startIndex, double[] values) {
+        if (values == null || values.length == 0 || !checkValid())
+            return;
+        LuaCApi._setTableNumbers(globals.L_State, nativeGlobalKey, startIndex, values, values.length);
+    }
+
+    /**
+     * table[startIndex + i] = values[i]
+     * 一次native调用写入全部数据
+     */
+    public void setAll(int startIndex, boolean[] values) {
+        if (values == null || values.length == 0 || !checkValid())
+            return;
+        LuaCApi._setTableBooleans(globals.L_State, nativeGlobalKey, startIndex, values, values.length);
+    }
+
+    /**
+     * table[startIndex + i] = values[i]
+     * 一次native调用写入全部数据，values中的null写入nil
+     */
+    public void setAll(int startIndex, String[] values) {
+        if (values == null || values.length == 0 || !checkValid())
+            return;
+        LuaCApi._setTableStrings(globals.L_State, nativeGlobalKey, startIndex, values, values.length);
+    }
+
+    /**
+     * table[keys[i]] = values[i]
+     * 一次native调用写入全部数据
+     * values中只能是null、Number、Boolean、String或LuaValue
+     *
+     * @throws IllegalArgumentException 长度不同，或value类型不支持
+     * @see TableBatch
+     */
+    public void setAll(String[] keys, Object[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("keys length " + keys.length + " != values length " + values.length);
+        if (keys.length == 0)
+            return;
+        TableBatch batch = new TableBatch(keys.length);
+        for (int i = 0; i < keys.length; i ++) {
+            batch.setObject(keys[i], values[i]);
+        }
+        setAll(batch);
+    }
+
+    /**
+     * 将batch中的数据一次写入table，写入后清空batch
+     *
+     * @see TableBatch
+     */
+    public void setAll(TableBatch batch) {
+        if (batch.count == 0)
+            return;
+        if (!checkValidForGetSet()) {
+            batch.clear();
+            return;
+        }
+        LuaCApi._setTableBatch(globals.L_State, nativeGlobalKey, batch.count, batch.indexKeys,
+                batch.stringKeys, batch.types, batch.numbers, batch.objects);
+        batch.clear();
+    }
+    //</editor-fold>
+
     /**
      * 获取table[index]
      */
@@ -404,6 +474,16 @@ public class LuaTable extends NLuaValue implements Iterable {
         }
     }
 
+    /**
+     * 流式读取此table，读取过程中不创建{@link LuaValue}
+     * 读取完成必须调用{@link LuaTableReader#close()}
+     *
+     * @see LuaTableReader
+     */
+    public final LuaTableReader newReader() {
+        return new LuaTableReader(this);
+    }
+
     /**
      * 使用迭代器遍历此table，可能返回null
      * 迭代完成必须调用{@link DisposableIterator#dispose()}
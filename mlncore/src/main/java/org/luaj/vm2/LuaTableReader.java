@@ -0,0 +1,259 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+/**
+ * table流式读取器
+ * 深度优先遍历table及子table，key和value以基本类型读出，读取过程中不创建{@link LuaValue}
+ * 适合将table直接转换成json等格式
+ *
+ * eg:
+ * <code>
+ *     LuaTableReader reader = table.newReader();
+ *     try {
+ *         int event;
+ *         while ((event = reader.next()) != LuaTableReader.END_DOCUMENT) {
+ *             switch (event) {
+ *                 case LuaTableReader.BEGIN_TABLE:
+ *                     ...
+ *                 case LuaTableReader.ENTRY:
+ *                     ...
+ *                 case LuaTableReader.END_TABLE:
+ *                     ...
+ *             }
+ *         }
+ *     } finally {
+ *         reader.close();
+ *     }
+ * </code>
+ *
+ * 注意：
+ * 1、读取完成或异常时，必须调用{@link #close()}，否则虚拟机栈不平衡
+ * 2、读取过程中不可修改table，不可调用其他table或lua函数相关方法
+ * 3、只能在虚拟机线程中使用
+ *
+ * @see LuaTable#newReader()
+ */
+public final class LuaTableReader {
+    /**
+     * 结束当前table
+     */
+    public static final int END_TABLE = 0;
+    /**
+     * 一对key value，value不为table，或超过最大深度、虚拟机栈空间不足
+     */
+    public static final int ENTRY = 1;
+    /**
+     * 进入table，第一次为根table，没有key；其他为子table，key为其在父table中的key
+     */
+    public static final int BEGIN_TABLE = 2;
+    /**
+     * 读取结束
+     */
+    public static final int END_DOCUMENT = -1;
+
+    /**
+     * 默认最大深度，超过此深度的子table将以{@link #ENTRY}返回，防止循环引用
+     */
+    public static final int DEFAULT_MAX_DEPTH = 32;
+
+    private static final int IDX_KEY = 0;
+    private static final int IDX_VALUE = 1;
+    private static final int IDX_SEQUENCE = 2;
+    private static final int IDX_LENGTH = 3;
+
+    private final LuaTable table;
+    private final Globals globals;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    /**
+     * 0: key类型 1: value类型 2: 当前table是否为数组 3: 当前table数组长度
+     */
+    private final int[] types = new int[4];
+    private final double[] numbers = new double[2];
+    private final String[] strings = new String[2];
+
+    /**
+     * 每层table是否为数组
+     */
+    private boolean[] sequences = new boolean[8];
+    /**
+     * 当前深度，即栈上打开的table个数
+     */
+    private int depth;
+    private boolean started;
+    private boolean finished;
+
+    LuaTableReader(LuaTable table) {
+        this.table = table;
+        this.globals = table.globals;
+    }
+
+    /**
+     * 设置最大深度
+     * 需要在第一次{@link #next()}前调用
+     */
+    public LuaTableReader setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(maxDepth, 1);
+        return this;
+    }
+
+    /**
+     * 读取下一个事件
+     *
+     * @return {@link #BEGIN_TABLE} {@link #ENTRY} {@link #END_TABLE} {@link #END_DOCUMENT}
+     */
+    public int next() {
+        if (finished)
+            return END_DOCUMENT;
+        globals.checkMainThread();
+        if (!started) {
+            started = true;
+            if (table.isDestroyed() || table.nativeGlobalKey == 0
+                    || !LuaCApi._startReadTable(globals.L_State, table.nativeGlobalKey, types)) {
+                finished = true;
+                return END_DOCUMENT;
+            }
+            types[IDX_KEY] = LuaValue.LUA_TNONE;
+            push();
+            return BEGIN_TABLE;
+        }
+        if (depth == 0) {
+            finished = true;
+            return END_DOCUMENT;
+        }
+        clearStrings();
+        int event = LuaCApi._readTableNext(globals.L_State, depth == 1 && table == globals,
+                sequences[depth - 1], depth < maxDepth, types, numbers, strings);
+        if (event == BEGIN_TABLE) {
+            push();
+        } else if (event == END_TABLE) {
+            depth--;
+        }
+        return event;
+    }
+
+    private void push() {
+        if (depth == sequences.length) {
+            boolean[] n = new boolean[depth << 1];
+            System.arraycopy(sequences, 0, n, 0, depth);
+            sequences = n;
+        }
+        sequences[depth++] = types[IDX_SEQUENCE] != 0;
+    }
+
+    private void clearStrings() {
+        strings[IDX_KEY] = null;
+        strings[IDX_VALUE] = null;
+    }
+
+    /**
+     * 在{@link #BEGIN_TABLE}后调用，跳过当前table剩余内容
+     * 下次{@link #next()}将不再返回此table的{@link #END_TABLE}
+     */
+    public void skipTable() {
+        if (depth <= 0 || finished)
+            return;
+        globals.checkMainThread();
+        LuaCApi._skipReadTable(globals.L_State);
+        depth--;
+    }
+
+    /**
+     * 结束读取，恢复虚拟机栈
+     * 可多次调用
+     */
+    public void close() {
+        if (depth > 0 && !globals.isDestroyed()) {
+            globals.checkMainThread();
+            LuaCApi._endReadTable(globals.L_State, depth);
+        }
+        depth = 0;
+        finished = true;
+        clearStrings();
+    }
+
+    /**
+     * 当前深度，根table为1
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 当前table是否是从1开始的连续数组
+     * 在{@link #BEGIN_TABLE}后表示新进入的table
+     */
+    public boolean isSequence() {
+        return depth > 0 && sequences[depth - 1];
+    }
+
+    /**
+     * {@link #BEGIN_TABLE}后，新进入的table的数组长度
+     */
+    public int getLength() {
+        return types[IDX_LENGTH];
+    }
+
+    //<editor-fold desc="key">
+
+    /**
+     * key类型
+     * 根table为{@link LuaValue#LUA_TNONE}
+     *
+     * @see LuaValue#LUA_TNUMBER
+     * @see LuaValue#LUA_TSTRING
+     * @see LuaValue#LUA_TBOOLEAN
+     */
+    public int keyType() {
+        return types[IDX_KEY];
+    }
+
+    /**
+     * key为number或boolean时有效
+     */
+    public double keyNumber() {
+        return numbers[IDX_KEY];
+    }
+
+    /**
+     * key为string时有效
+     */
+    public String keyString() {
+        return strings[IDX_KEY];
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="value">
+
+    /**
+     * {@link #ENTRY}时有效
+     *
+     * @see LuaValue#LUA_TNIL
+     * @see LuaValue#LUA_TNUMBER
+     * @see LuaValue#LUA_TSTRING
+     * @see LuaValue#LUA_TBOOLEAN
+     * 其他类型无值
+     */
+    public int valueType() {
+        return types[IDX_VALUE];
+    }
+
+    public double numberValue() {
+        return numbers[IDX_VALUE];
+    }
+
+    public boolean booleanValue() {
+        return numbers[IDX_VALUE] != 0;
+    }
+
+    public String stringValue() {
+        return strings[IDX_VALUE];
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,156 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import java.util.Arrays;
+
+/**
+ * Native虚拟机指针 -> Java对象的注册表
+ * <p>
+ * 读取（每次native回调java都会调用）不加锁；注册、删除（虚拟机创建、销毁）加锁并复制出新表，
+ * 读取的线程总是看到完整的某一版表
+ * 表使用开放寻址，指针经过散列后通常一次比较即可找到
+ *
+ * @see Globals#getGlobalsByLState(long)
+ */
+final class StateRegistry<V> {
+
+    /**
+     * 不可修改的一版表
+     */
+    private static final class Table {
+        /**
+         * 开放寻址表，key为0表示空位
+         */
+        final long[] slots;
+        final Object[] slotValues;
+        final int mask;
+        /**
+         * 按注册顺序排列，供遍历
+         */
+        final long[] keys;
+        final Object[] values;
+
+        Table(long[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+            int capacity = 2;
+            while (capacity < keys.length * 2)
+                capacity <<= 1;
+            slots = new long[capacity];
+            slotValues = new Object[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < keys.length; i++) {
+                int s = hash(keys[i]) & mask;
+                while (slots[s] != 0)
+                    s = (s + 1) & mask;
+                slots[s] = keys[i];
+                slotValues[s] = values[i];
+            }
+        }
+    }
+
+    private volatile Table table = new Table(new long[0], new Object[0]);
+
+    /**
+     * 无锁读取
+     *
+     * @return 未注册返回null
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (key == 0)
+            return null;
+        final Table t = table;
+        final long[] slots = t.slots;
+        int i = hash(key) & t.mask;
+        long k;
+        while ((k = slots[i]) != 0) {
+            if (k == key)
+                return (V) t.slotValues[i];
+            i = (i + 1) & t.mask;
+        }
+        return null;
+    }
+
+    synchronized void put(long key, V value) {
+        if (key == 0)
+            throw new IllegalArgumentException("key must not be 0");
+        final Table t = table;
+        int i = indexOf(t.keys, key);
+        long[] keys;
+        Object[] values;
+        if (i >= 0) {
+            keys = t.keys;
+            values = t.values.clone();
+            values[i] = value;
+        } else {
+            int n = t.keys.length;
+            keys = Arrays.copyOf(t.keys, n + 1);
+            values = Arrays.copyOf(t.values, n + 1);
+            keys[n] = key;
+            values[n] = value;
+        }
+        table = new Table(keys, values);
+    }
+
+    /**
+     * @return 被删除的值
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V remove(long key) {
+        final Table t = table;
+        int i = indexOf(t.keys, key);
+        if (i < 0)
+            return null;
+        int n = t.keys.length - 1;
+        long[] keys = new long[n];
+        Object[] values = new Object[n];
+        System.arraycopy(t.keys, 0, keys, 0, i);
+        System.arraycopy(t.keys, i + 1, keys, i, n - i);
+        System.arraycopy(t.values, 0, values, 0, i);
+        System.arraycopy(t.values, i + 1, values, i, n - i);
+        table = new Table(keys, values);
+        return (V) t.values[i];
+    }
+
+    int size() {
+        return table.keys.length;
+    }
+
+    /**
+     * 当前所有值，按注册顺序，返回的数组不可修改
+     * 遍历期间的注册、删除不影响返回的数组
+     */
+    Object[] values() {
+        return table.values;
+    }
+
+    /**
+     * 当前所有key，按注册顺序，返回的数组不可修改
+     */
+    long[] keys() {
+        return table.keys;
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 指针低位对齐为0，混合后再取低位
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,262 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+/**
+ * table批量写入缓存
+ * 按列保存key和value，通过{@link LuaTable#setAll(TableBatch)}一次native调用写入table
+ *
+ * eg:
+ * <code>
+ *     TableBatch batch = new TableBatch(list.size());
+ *     for (int i = 0; i < list.size(); i ++) {
+ *         batch.set(i + 1, list.get(i));
+ *     }
+ *     table.setAll(batch);
+ * </code>
+ *
+ * 写入后会清空，可重复使用
+ *
+ * @see LuaTable#setAll(TableBatch)
+ */
+public final class TableBatch {
+    /**
+     * 数字类型key
+     */
+    int[] indexKeys;
+    /**
+     * 字符串类型key，为空时使用{@link #indexKeys}
+     */
+    String[] stringKeys;
+    /**
+     * value类型
+     * @see LuaValue#LUA_TNIL
+     * @see LuaValue#LUA_TNUMBER
+     * @see LuaValue#LUA_TBOOLEAN
+     * @see LuaValue#LUA_TSTRING
+     * 其他类型通过{@link #objects}中的{@link LuaValue}写入
+     */
+    int[] types;
+    /**
+     * number或boolean
+     */
+    double[] numbers;
+    /**
+     * String或LuaValue
+     */
+    Object[] objects;
+    /**
+     * 当前个数
+     */
+    int count;
+
+    public TableBatch() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 预估个数
+     */
+    public TableBatch(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    private void allocate(int cap) {
+        int[] ik = new int[cap];
+        String[] sk = new String[cap];
+        int[] t = new int[cap];
+        double[] n = new double[cap];
+        Object[] o = new Object[cap];
+        if (count > 0) {
+            System.arraycopy(indexKeys, 0, ik, 0, count);
+            System.arraycopy(stringKeys, 0, sk, 0, count);
+            System.arraycopy(types, 0, t, 0, count);
+            System.arraycopy(numbers, 0, n, 0, count);
+            System.arraycopy(objects, 0, o, 0, count);
+        }
+        indexKeys = ik;
+        stringKeys = sk;
+        types = t;
+        numbers = n;
+        objects = o;
+    }
+
+    private int next(int index, String key) {
+        if (count == types.length)
+            allocate(count << 1);
+        int i = count++;
+        indexKeys[i] = index;
+        stringKeys[i] = key;
+        return i;
+    }
+
+    //<editor-fold desc="index key">
+
+    /**
+     * table[index] = num
+     */
+    public TableBatch set(int index, double num) {
+        putNumber(next(index, null), num);
+        return this;
+    }
+
+    /**
+     * table[index] = b
+     */
+    public TableBatch set(int index, boolean b) {
+        putBoolean(next(index, null), b);
+        return this;
+    }
+
+    /**
+     * table[index] = s
+     */
+    public TableBatch set(int index, String s) {
+        putString(next(index, null), s);
+        return this;
+    }
+
+    /**
+     * table[index] = value
+     */
+    public TableBatch set(int index, LuaValue value) {
+        putValue(next(index, null), value);
+        return this;
+    }
+
+    /**
+     * table[index] = value
+     * value只能是null、Number、Boolean、String或LuaValue
+     *
+     * @throws IllegalArgumentException 其他类型
+     */
+    public TableBatch setObject(int index, Object value) {
+        putObject(next(index, null), value);
+        return this;
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="string key">
+
+    /**
+     * table.name = num
+     */
+    public TableBatch set(String name, double num) {
+        putNumber(next(0, name), num);
+        return this;
+    }
+
+    /**
+     * table.name = b
+     */
+    public TableBatch set(String name, boolean b) {
+        putBoolean(next(0, name), b);
+        return this;
+    }
+
+    /**
+     * table.name = s
+     */
+    public TableBatch set(String name, String s) {
+        putString(next(0, name), s);
+        return this;
+    }
+
+    /**
+     * table.name = value
+     */
+    public TableBatch set(String name, LuaValue value) {
+        putValue(next(0, name), value);
+        return this;
+    }
+
+    /**
+     * table.name = value
+     * value只能是null、Number、Boolean、String或LuaValue
+     *
+     * @throws IllegalArgumentException 其他类型
+     */
+    public TableBatch setObject(String name, Object value) {
+        putObject(next(0, name), value);
+        return this;
+    }
+    //</editor-fold>
+
+    private void putNumber(int i, double num) {
+        types[i] = LuaValue.LUA_TNUMBER;
+        numbers[i] = num;
+    }
+
+    private void putBoolean(int i, boolean b) {
+        types[i] = LuaValue.LUA_TBOOLEAN;
+        numbers[i] = b ? 1 : 0;
+    }
+
+    private void putString(int i, String s) {
+        types[i] = s == null ? LuaValue.LUA_TNIL : LuaValue.LUA_TSTRING;
+        objects[i] = s;
+    }
+
+    private void putValue(int i, LuaValue v) {
+        if (v == null || v.isNil()) {
+            types[i] = LuaValue.LUA_TNIL;
+            return;
+        }
+        switch (v.type()) {
+            case LuaValue.LUA_TNUMBER:
+                putNumber(i, v.toDouble());
+                break;
+            case LuaValue.LUA_TBOOLEAN:
+                putBoolean(i, v.toBoolean());
+                break;
+            case LuaValue.LUA_TSTRING:
+                putString(i, v.toJavaString());
+                break;
+            default:
+                types[i] = LuaValue.LUA_TNONE;
+                objects[i] = v;
+                break;
+        }
+    }
+
+    private void putObject(int i, Object v) {
+        if (v == null) {
+            types[i] = LuaValue.LUA_TNIL;
+        } else if (v instanceof Number) {
+            putNumber(i, ((Number) v).doubleValue());
+        } else if (v instanceof Boolean) {
+            putBoolean(i, (Boolean) v);
+        } else if (v instanceof String) {
+            putString(i, (String) v);
+        } else if (v instanceof LuaValue) {
+            putValue(i, (LuaValue) v);
+        } else {
+            count--;
+            throw new IllegalArgumentException("unsupported value type: " + v.getClass().getName());
+        }
+    }
+
+    /**
+     * 当前个数
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 清空，可重复使用
+     */
+    public TableBatch clear() {
+        for (int i = 0; i < count; i++) {
+            stringKeys[i] = null;
+            objects[i] = null;
+        }
+        count = 0;
+        return this;
+    }
+}
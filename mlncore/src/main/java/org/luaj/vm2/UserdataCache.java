@@ -31,19 +31,32 @@ class UserdataCache {
     private volatile long cacheLong = 1;
     /**
      * 缓存userdata
+     * {@link MLNCore#USERDATA_STORE_SPARSE_ARRAY}时使用
      */
     private final LongSparseArray<LuaUserdata> cache;
     /**
      * 已被删除缓存的userdata
+     * {@link MLNCore#USERDATA_STORE_SPARSE_ARRAY}时使用
      */
     private LongSparseArray<SoftReference<LuaUserdata>> removedCache;
+    /**
+     * 缓存userdata及已被删除缓存的userdata
+     * {@link MLNCore#USERDATA_STORE_HASH}时使用
+     */
+    private final UserdataIdMap idMap;
     /**
      * 标记销毁状态
      */
     private boolean destroyed = false;
 
     UserdataCache() {
-        cache = new LongSparseArray<LuaUserdata>(100);
+        if (MLNCore.UserdataStoreType == MLNCore.USERDATA_STORE_HASH) {
+            idMap = new UserdataIdMap(128);
+            cache = null;
+        } else {
+            cache = new LongSparseArray<LuaUserdata>(100);
+            idMap = null;
+        }
     }
 
     /**
@@ -57,7 +70,10 @@ class UserdataCache {
         if (ud.id != 0)
             return;
         ud.id = cacheLong++;
-        cache.put(ud.id, ud);
+        if (idMap != null)
+            idMap.put(ud.id, ud);
+        else
+            cache.put(ud.id, ud);
     }
 
     /**
@@ -70,12 +86,16 @@ class UserdataCache {
      * @return 返回缓存的userdata
      */
     LuaUserdata get(long id) {
-        LuaUserdata ret = cache.get(id);
+        LuaUserdata ret = idMap != null ? idMap.get(id) : cache.get(id);
         if (ret != null)
             return ret;
         if (MLNCore.UserdataCacheType == MLNCore.TYPE_REMOVE_CACHE) {
-            SoftReference<LuaUserdata> ref = removedCache != null ? removedCache.get(id) : null;
-            ret = ref != null ? ref.get() : null;
+            if (idMap != null) {
+                ret = idMap.getRemoved(id);
+            } else {
+                SoftReference<LuaUserdata> ref = removedCache != null ? removedCache.get(id) : null;
+                ret = ref != null ? ref.get() : null;
+            }
             if (ret != null && MLNCore.DEBUG) {
                 return MLNCore.onNullGet(id, ret);
             }
@@ -89,6 +109,14 @@ class UserdataCache {
      * @param ud
      */
     void onUserdataGc(LuaUserdata ud, boolean finalized) {
+        if (idMap != null) {
+            if (finalized || MLNCore.UserdataCacheType == MLNCore.TYPE_REMOVE) {
+                idMap.remove(ud.id);
+            } else if (MLNCore.UserdataCacheType == MLNCore.TYPE_REMOVE_CACHE) {
+                idMap.moveToRemoved(ud.id);
+            }
+            return;
+        }
         if (finalized) {
             cache.remove(ud.id);
             return;
@@ -115,6 +143,15 @@ class UserdataCache {
      */
     void onDestroy() {
         destroyed = true;
+        if (idMap != null) {
+            for (int i = 0, l = idMap.capacity(); i < l; i ++) {
+                LuaUserdata ud = idMap.liveAt(i);
+                if (ud != null)
+                    ud.__onLuaGc();
+            }
+            idMap.clear();
+            return;
+        }
         for (int i = 0, l = cache.size(); i < l; i ++) {
             cache.valueAt(i).__onLuaGc();
         }
@@ -0,0 +1,254 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+
+/**
+ * long -> userdata 的开放寻址（线性探测）哈希表
+ *
+ * 每个槽位保存两种状态之一：
+ * 1、存活的userdata，直接保存{@link LuaUserdata}
+ * 2、已被删除的userdata，保存{@link SoftReference}，即{@link UserdataCache}中的removedCache
+ *
+ * 由存活转为删除时只替换槽位中的值，不需要重新探测；
+ * 扩容时会先清理已被回收的软引用，避免软引用堆积导致无意义的扩容
+ *
+ * id由{@link UserdataCache}分配，从1开始，0表示空槽位
+ *
+ * @see UserdataCache
+ * @see com.immomo.mlncore.MLNCore#UserdataStoreType
+ */
+final class UserdataIdMap {
+    /**
+     * 空槽位
+     */
+    private static final long EMPTY = 0;
+    /**
+     * 最大负载 3/4
+     */
+    private static final int LOAD_FACTOR_SHIFT = 2;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    /**
+     * 用于计算槽位的右移位数
+     */
+    private int shift;
+    /**
+     * 已占用槽位数（存活+已删除）
+     */
+    private int size;
+    /**
+     * 存活userdata个数
+     */
+    private int liveSize;
+    /**
+     * 超过此值需要扩容或清理
+     */
+    private int threshold;
+
+    UserdataIdMap(int initialCapacity) {
+        int cap = 16;
+        while (cap < initialCapacity)
+            cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(cap);
+        threshold = cap - (cap >> LOAD_FACTOR_SHIFT);
+    }
+
+    /**
+     * id基本是连续的，使用Fibonacci hashing打散
+     */
+    private int slotOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private int indexOf(long key) {
+        int i = slotOf(key);
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 获取存活的userdata
+     */
+    LuaUserdata get(long id) {
+        int i = indexOf(id);
+        if (i < 0)
+            return null;
+        Object v = values[i];
+        return v instanceof LuaUserdata ? (LuaUserdata) v : null;
+    }
+
+    /**
+     * 获取已被删除，但还未被回收的userdata
+     */
+    LuaUserdata getRemoved(long id) {
+        int i = indexOf(id);
+        if (i < 0)
+            return null;
+        Object v = values[i];
+        if (v instanceof SoftReference)
+            return (LuaUserdata) ((SoftReference) v).get();
+        return null;
+    }
+
+    /**
+     * 放入存活的userdata
+     */
+    void put(long id, LuaUserdata ud) {
+        int i = slotOf(id);
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == id) {
+                if (!(values[i] instanceof LuaUserdata))
+                    liveSize++;
+                values[i] = ud;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = ud;
+        size++;
+        liveSize++;
+        if (size >= threshold)
+            rehash();
+    }
+
+    /**
+     * 直接删除，不保存到删除缓存中
+     */
+    void remove(long id) {
+        int i = indexOf(id);
+        if (i < 0)
+            return;
+        if (values[i] instanceof LuaUserdata)
+            liveSize--;
+        removeAt(i);
+    }
+
+    /**
+     * 将存活的userdata转为删除状态，保存软引用
+     */
+    void moveToRemoved(long id) {
+        int i = indexOf(id);
+        if (i < 0)
+            return;
+        Object v = values[i];
+        if (v instanceof LuaUserdata) {
+            values[i] = new SoftReference<>((LuaUserdata) v);
+            liveSize--;
+        }
+    }
+
+    /**
+     * 删除后，将后续同一探测链上的元素前移，保证不需要墓碑标记
+     */
+    private void removeAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == EMPTY)
+                break;
+            int ideal = slotOf(k);
+            boolean canMove = j > i ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+            if (canMove) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        size--;
+    }
+
+    /**
+     * 清理已回收的软引用，若存活数量仍较多，则扩容
+     */
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY)
+                continue;
+            Object v = oldValues[i];
+            if (v instanceof SoftReference && ((SoftReference) v).get() == null) {
+                oldValues[i] = null;
+                continue;
+            }
+            live++;
+        }
+        int cap = oldKeys.length;
+        if (live >= (threshold >> 1))
+            cap <<= 1;
+        allocate(cap);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object v = oldValues[i];
+            if (v == null)
+                continue;
+            long key = oldKeys[i];
+            int j = slotOf(key);
+            while (keys[j] != EMPTY)
+                j = (j + 1) & mask;
+            keys[j] = key;
+            values[j] = v;
+            size++;
+        }
+    }
+
+    /**
+     * 存活userdata个数
+     */
+    int size() {
+        return liveSize;
+    }
+
+    /**
+     * 槽位个数，配合{@link #liveAt(int)}遍历
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * 获取槽位中存活的userdata，若为空或已删除，返回null
+     */
+    LuaUserdata liveAt(int index) {
+        Object v = values[index];
+        return v instanceof LuaUserdata ? (LuaUserdata) v : null;
+    }
+
+    /**
+     * 清除所有userdata，包括已删除的
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+        liveSize = 0;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * require模块查找结果的索引
+ * <p>
+ * 记录模块由第几个{@link ResourceFinder}找到（及找到的绝对路径），或所有finder都找不到（及错误信息），
+ * 再次查找时直接使用对应的finder，或直接返回路径、错误，不再逐个调用finder查找文件
+ * <p>
+ * 每个虚拟机默认有自己的索引；同一脚本包的虚拟机可通过{@link #forBundle(String)}共用，
+ * 每条结果记录了查找时各位置finder的类型，使用前检查当前虚拟机的finder类型是否一致，见{@link Entry#matches(Class[])}
+ * 脚本包文件变化（如热重载）后需调用{@link #invalidate()}或{@link #invalidateAll()}
+ *
+ * @see org.luaj.vm2.Globals#setRequireIndex(RequireIndex)
+ */
+public final class RequireIndex {
+    /**
+     * 最多共享的脚本包个数
+     */
+    private static final int MAX_SHARED = 8;
+
+    private static final LinkedHashMap<String, RequireIndex> shared = new LinkedHashMap<String, RequireIndex>(0, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RequireIndex> eldest) {
+            return size() > MAX_SHARED;
+        }
+    };
+
+    /**
+     * 获取脚本包共用的索引
+     *
+     * @param key 脚本包标识，需包含版本，版本变化后使用新的索引
+     */
+    public static RequireIndex forBundle(String key) {
+        synchronized (shared) {
+            RequireIndex index = shared.get(key);
+            if (index == null) {
+                index = new RequireIndex();
+                shared.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 清空所有共用的索引
+     */
+    public static void invalidateAll() {
+        synchronized (shared) {
+            for (RequireIndex index : shared.values()) {
+                index.invalidate();
+            }
+            shared.clear();
+        }
+    }
+
+    /**
+     * 查找结果
+     */
+    public static final class Entry {
+        /**
+         * 找到模块的finder位置，主finder为0，找不到为-1
+         */
+        public final int finder;
+        public final Class<?> finderClass;
+        /**
+         * 查找时各位置finder的类型
+         */
+        private final Class<?>[] chain;
+        /**
+         * finder找到的绝对路径，由finder读取数据时为null
+         */
+        public final String path;
+        /**
+         * 找不到时的错误信息
+         */
+        public final String error;
+
+        Entry(Class<?>[] chain, int finder, String path, String error) {
+            this.chain = chain;
+            this.finder = finder;
+            this.finderClass = finder >= 0 ? chain[finder] : null;
+            this.path = path;
+            this.error = error;
+        }
+
+        public boolean isNotFound() {
+            return finder < 0;
+        }
+
+        /**
+         * 结果是否适用于当前finder：
+         * 找到的，第0个到找到的finder类型需一致（之前的finder都找不到）；
+         * 找不到的，所有finder类型需一致
+         *
+         * @param chain 当前各位置finder的类型
+         */
+        public boolean matches(Class<?>[] chain) {
+            if (chain == this.chain)
+                return true;
+            if (isNotFound())
+                return Arrays.equals(this.chain, chain);
+            if (chain.length <= finder)
+                return false;
+            for (int i = 0; i <= finder; i++) {
+                if (chain[i] != this.chain[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * finder类名 -> {调用次数, 耗时ns}
+     */
+    private final LinkedHashMap<String, long[]> timing = new LinkedHashMap<>();
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    public Entry get(String name) {
+        Entry e = entries.get(name);
+        if (e != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return e;
+    }
+
+    /**
+     * @param chain  各位置finder的类型，之后不可修改
+     * @param finder 找到模块的finder位置
+     * @param path   finder找到的绝对路径，由finder读取数据时为null
+     */
+    public void putFound(String name, Class<?>[] chain, int finder, String path) {
+        entries.put(name, new Entry(chain, finder, path, null));
+    }
+
+    /**
+     * @param chain 各位置finder的类型，之后不可修改
+     */
+    public void putNotFound(String name, Class<?>[] chain, String error) {
+        entries.put(name, new Entry(chain, -1, null, error));
+    }
+
+    /**
+     * 索引的结果已不可用，如finder位置变化或数据已删除
+     */
+    public void remove(String name) {
+        entries.remove(name);
+    }
+
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * 记录finder一次查找的耗时
+     *
+     * @param start {@link System#nanoTime()}
+     */
+    public void time(ResourceFinder rf, long start) {
+        long cast = System.nanoTime() - start;
+        String name = rf.getClass().getName();
+        synchronized (timing) {
+            long[] t = timing.get(name);
+            if (t == null) {
+                t = new long[2];
+                timing.put(name, t);
+            }
+            t[0]++;
+            t[1] += cast;
+        }
+    }
+
+    //<editor-fold desc="statistics">
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * finder的查找次数
+     */
+    public long getFinderCalls(Class<? extends ResourceFinder> clz) {
+        synchronized (timing) {
+            long[] t = timing.get(clz.getName());
+            return t == null ? 0 : t[0];
+        }
+    }
+
+    /**
+     * finder的查找总耗时，ns
+     */
+    public long getFinderTime(Class<? extends ResourceFinder> clz) {
+        synchronized (timing) {
+            long[] t = timing.get(clz.getName());
+            return t == null ? 0 : t[1];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RequireIndex[size=").append(entries.size())
+                .append(",hits=").append(hitCount.get())
+                .append(",misses=").append(missCount.get()).append(']');
+        synchronized (timing) {
+            for (Map.Entry<String, long[]> e : timing.entrySet()) {
+                long[] t = e.getValue();
+                sb.append("\n\t").append(e.getKey()).append(": ").append(t[0])
+                        .append(" calls, ").append(t[1] / 1000).append("us");
+            }
+        }
+        return sb.toString();
+    }
+    //</editor-fold>
+}
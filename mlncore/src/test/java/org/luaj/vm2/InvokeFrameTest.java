@@ -0,0 +1,88 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link InvokeFrame} 参数保存及复用
+ */
+public class InvokeFrameTest {
+
+    @Test
+    public void pushTypes() {
+        LuaValue v = mock(LuaValue.class);
+        InvokeFrame f = new InvokeFrame()
+                .push(1.5)
+                .push(true)
+                .push(false)
+                .push("s")
+                .push((String) null)
+                .push(v)
+                .push((LuaValue) null);
+        assertEquals(7, f.size());
+        assertArrayEquals(new int[]{LuaValue.LUA_TNUMBER, LuaValue.LUA_TBOOLEAN, LuaValue.LUA_TBOOLEAN,
+                        LuaValue.LUA_TSTRING, LuaValue.LUA_TNIL, LuaValue.LUA_TNONE, LuaValue.LUA_TNIL},
+                Arrays.copyOf(f.types, 7));
+        assertEquals(1.5, f.numbers[0], 0);
+        assertEquals(1, f.numbers[1], 0);
+        assertEquals(0, f.numbers[2], 0);
+        assertEquals("s", f.objects[3]);
+        assertNull(f.objects[4]);
+        assertSame(v, f.objects[5]);
+        assertNull(f.objects[6]);
+    }
+
+    /**
+     * 超过容量时扩容，已压入的参数不变
+     */
+    @Test
+    public void grow() {
+        InvokeFrame f = new InvokeFrame();
+        assertEquals(1, f.getAllocCount());
+        for (int i = 0; i < 20; i++) {
+            f.push(i);
+        }
+        assertEquals(20, f.size());
+        assertEquals(3, f.getAllocCount());
+        assertTrue(f.types.length >= 20);
+        assertEquals(f.types.length, f.numbers.length);
+        assertEquals(f.types.length, f.objects.length);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(LuaValue.LUA_TNUMBER, f.types[i]);
+            assertEquals(i, f.numbers[i], 0);
+        }
+    }
+
+    /**
+     * 调用后清空参数及引用，再次使用不分配数组
+     */
+    @Test
+    public void reuseAfterInvoked() {
+        InvokeFrame f = new InvokeFrame();
+        f.push("a").push(mock(LuaValue.class));
+        f.onInvoked();
+        assertEquals(0, f.size());
+        assertEquals(1, f.getInvokeCount());
+        assertNull(f.objects[0]);
+        assertNull(f.objects[1]);
+
+        long alloc = f.getAllocCount();
+        for (int i = 0; i < 100; i++) {
+            f.push(i).push(true).push("s");
+            f.onInvoked();
+        }
+        assertEquals(alloc, f.getAllocCount());
+        assertEquals(101, f.getInvokeCount());
+    }
+}
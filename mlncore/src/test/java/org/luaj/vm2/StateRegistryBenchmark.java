@@ -0,0 +1,111 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import java.util.Arrays;
+
+import static org.luaj.vm2.StateRegistryTest.VM_COUNT;
+import static org.luaj.vm2.StateRegistryTest.pointer;
+
+/**
+ * {@link StateRegistry} 与加锁的有序数组（等同于加锁后的LongSparseArray）查找耗时对比
+ * 多线程回调查找时，另一线程不断创建销毁虚拟机
+ * 不在单元测试中执行，直接运行main
+ */
+public class StateRegistryBenchmark {
+    private static final int LOOKUPS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        final StateRegistry<Object> registry = new StateRegistry<>();
+        final LockedSortedArray locked = new LockedSortedArray();
+        for (int i = 0; i < VM_COUNT; i++) {
+            Object v = "vm" + i;
+            registry.put(pointer(i), v);
+            locked.put(pointer(i), v);
+        }
+        StateRegistryTest.Lookup registryLookup = new StateRegistryTest.Lookup() {
+            @Override
+            public Object get(long key) {
+                return registry.get(key);
+            }
+
+            @Override
+            public void churn(long key) {
+                registry.put(key, "tmp");
+                registry.remove(key);
+            }
+        };
+        StateRegistryTest.Lookup lockedLookup = new StateRegistryTest.Lookup() {
+            @Override
+            public Object get(long key) {
+                return locked.get(key);
+            }
+
+            @Override
+            public void churn(long key) {
+                locked.put(key, "tmp");
+                locked.remove(key);
+            }
+        };
+        /// 预热
+        StateRegistryTest.run(registryLookup, LOOKUPS);
+        StateRegistryTest.run(lockedLookup, LOOKUPS);
+        long registryNs = 0;
+        long lockedNs = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            registryNs += StateRegistryTest.run(registryLookup, LOOKUPS);
+            lockedNs += StateRegistryTest.run(lockedLookup, LOOKUPS);
+        }
+        System.out.println(StateRegistryTest.THREADS + " threads, StateRegistry: " + registryNs / ROUNDS
+                + "ns/op, locked array: " + lockedNs / ROUNDS + "ns/op");
+    }
+
+    private static final class LockedSortedArray {
+        long[] keys = new long[0];
+        Object[] values = new Object[0];
+
+        synchronized Object get(long key) {
+            int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? values[i] : null;
+        }
+
+        synchronized void put(long key, Object value) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                values[i] = value;
+                return;
+            }
+            i = ~i;
+            long[] nk = new long[keys.length + 1];
+            Object[] nv = new Object[keys.length + 1];
+            System.arraycopy(keys, 0, nk, 0, i);
+            System.arraycopy(values, 0, nv, 0, i);
+            nk[i] = key;
+            nv[i] = value;
+            System.arraycopy(keys, i, nk, i + 1, keys.length - i);
+            System.arraycopy(values, i, nv, i + 1, keys.length - i);
+            keys = nk;
+            values = nv;
+        }
+
+        synchronized void remove(long key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i < 0)
+                return;
+            long[] nk = new long[keys.length - 1];
+            Object[] nv = new Object[keys.length - 1];
+            System.arraycopy(keys, 0, nk, 0, i);
+            System.arraycopy(values, 0, nv, 0, i);
+            System.arraycopy(keys, i + 1, nk, i, nk.length - i);
+            System.arraycopy(values, i + 1, nv, i, nv.length - i);
+            keys = nk;
+            values = nv;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StateRegistry} 测试
+ */
+public class StateRegistryTest {
+    /**
+     * 模拟同时存在的虚拟机个数
+     */
+    static final int VM_COUNT = 20;
+    static final int THREADS = 4;
+    private static final int LOOKUPS = 200_000;
+
+    /**
+     * 模拟native指针，16字节对齐
+     */
+    static long pointer(int i) {
+        return 0x7f3a000000L + i * 0x1a0L;
+    }
+
+    @Test
+    public void putGetRemove() {
+        StateRegistry<String> registry = new StateRegistry<>();
+        for (int i = 0; i < VM_COUNT; i++) {
+            registry.put(pointer(i), "vm" + i);
+        }
+        assertEquals(VM_COUNT, registry.size());
+        for (int i = 0; i < VM_COUNT; i++) {
+            assertEquals("vm" + i, registry.get(pointer(i)));
+        }
+        assertNull(registry.get(0));
+        assertNull(registry.get(pointer(VM_COUNT)));
+
+        registry.put(pointer(3), "new");
+        assertEquals("new", registry.get(pointer(3)));
+        assertEquals(VM_COUNT, registry.size());
+
+        assertEquals("vm5", registry.remove(pointer(5)));
+        assertNull(registry.remove(pointer(5)));
+        assertNull(registry.get(pointer(5)));
+        assertEquals(VM_COUNT - 1, registry.size());
+        /// 遍历保持注册顺序
+        assertEquals(pointer(4), registry.keys()[4]);
+        assertEquals(pointer(6), registry.keys()[5]);
+        assertEquals("vm6", registry.values()[5]);
+    }
+
+    @Test
+    public void snapshotNotChangedByRemove() {
+        StateRegistry<String> registry = new StateRegistry<>();
+        registry.put(pointer(1), "a");
+        registry.put(pointer(2), "b");
+        Object[] values = registry.values();
+        registry.remove(pointer(1));
+        assertArrayEquals(new Object[]{"a", "b"}, values);
+        assertArrayEquals(new Object[]{"b"}, registry.values());
+    }
+
+    /**
+     * 多线程回调查找时，另一线程不断创建销毁虚拟机
+     * 已有的虚拟机总能找到，正在创建销毁的虚拟机只能找到null或它自己
+     */
+    @Test
+    public void contention() throws Exception {
+        final StateRegistry<Object> registry = new StateRegistry<>();
+        for (int i = 0; i < VM_COUNT; i++) {
+            registry.put(pointer(i), "vm" + i);
+        }
+        final String churned = "churned";
+        final AtomicInteger wrong = new AtomicInteger();
+        run(new Lookup() {
+            @Override
+            public Object get(long key) {
+                Object v = registry.get(pointer(VM_COUNT));
+                if (v != null && v != churned)
+                    wrong.incrementAndGet();
+                return registry.get(key);
+            }
+
+            @Override
+            public void churn(long key) {
+                registry.put(key, churned);
+                registry.remove(key);
+            }
+        }, LOOKUPS);
+        assertEquals(0, wrong.get());
+        assertEquals(VM_COUNT, registry.size());
+        assertNull(registry.get(pointer(VM_COUNT)));
+    }
+
+    interface Lookup {
+        Object get(long key);
+
+        void churn(long key);
+    }
+
+    /**
+     * {@link #THREADS}个线程各查找lookups次，同时另一线程对{@link #pointer}(VM_COUNT)不断调用{@link Lookup#churn}
+     *
+     * @return 平均每次查找耗时，ns
+     */
+    static long run(final Lookup lookup, final int lookups) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger missing = new AtomicInteger();
+        Thread churn = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long key = pointer(VM_COUNT);
+                while (!stop.get()) {
+                    lookup.churn(key);
+                }
+            }
+        });
+        for (int t = 0; t < THREADS; t++) {
+            final int seed = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    for (int i = 0; i < lookups; i++) {
+                        if (lookup.get(pointer((i + seed) % VM_COUNT)) == null)
+                            missing.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        churn.start();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long cast = System.nanoTime() - begin;
+        stop.set(true);
+        churn.join();
+        assertEquals(0, missing.get());
+        return cast / lookups;
+    }
+}
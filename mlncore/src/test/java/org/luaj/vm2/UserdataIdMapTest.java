@@ -0,0 +1,193 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link UserdataIdMap} 测试
+ */
+public class UserdataIdMapTest {
+    /**
+     * 初始容量16时的槽位，与{@link UserdataIdMap}中Fibonacci hashing一致
+     */
+    private static int slotOf16(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 60);
+    }
+
+    /**
+     * 找出初始容量16时落在同一槽位的id
+     */
+    private static long[] collide(int slot, int n) {
+        long[] ids = new long[n];
+        int found = 0;
+        for (long id = 1; found < n; id++) {
+            if (slotOf16(id) == slot)
+                ids[found++] = id;
+        }
+        return ids;
+    }
+
+    private static LuaUserdata ud() {
+        return mock(LuaUserdata.class);
+    }
+
+    @Test
+    public void putGetRemove() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        LuaUserdata a = ud();
+        LuaUserdata b = ud();
+        map.put(1, a);
+        map.put(2, b);
+        assertSame(a, map.get(1));
+        assertSame(b, map.get(2));
+        assertNull(map.get(3));
+        assertEquals(2, map.size());
+
+        map.put(1, b);
+        assertSame(b, map.get(1));
+        assertEquals(2, map.size());
+
+        map.remove(1);
+        assertNull(map.get(1));
+        assertEquals(1, map.size());
+        map.remove(1);
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removedTier() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        LuaUserdata a = ud();
+        map.put(7, a);
+        map.moveToRemoved(7);
+        assertNull(map.get(7));
+        assertSame(a, map.getRemoved(7));
+        assertEquals(0, map.size());
+
+        /// 重新放入后恢复存活
+        map.put(7, a);
+        assertSame(a, map.get(7));
+        assertNull(map.getRemoved(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void collisions() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        long[] ids = collide(3, 4);
+        LuaUserdata[] values = new LuaUserdata[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = ud();
+            map.put(ids[i], values[i]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            assertSame(values[i], map.get(ids[i]));
+        }
+    }
+
+    /**
+     * 删除探测链头部和中间的元素后，后续元素前移，仍能找到
+     */
+    @Test
+    public void removeShiftsBackward() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        long[] ids = collide(5, 4);
+        LuaUserdata[] values = new LuaUserdata[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = ud();
+            map.put(ids[i], values[i]);
+        }
+        map.remove(ids[0]);
+        assertNull(map.get(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertSame(values[i], map.get(ids[i]));
+        }
+        map.remove(ids[2]);
+        assertSame(values[1], map.get(ids[1]));
+        assertNull(map.get(ids[2]));
+        assertSame(values[3], map.get(ids[3]));
+        assertEquals(2, map.size());
+    }
+
+    /**
+     * 探测链跨过数组末尾时的删除
+     */
+    @Test
+    public void removeWrapsAround() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        long[] last = collide(15, 3);
+        long[] first = collide(0, 1);
+        LuaUserdata[] values = new LuaUserdata[3];
+        for (int i = 0; i < 3; i++) {
+            values[i] = ud();
+            map.put(last[i], values[i]);
+        }
+        LuaUserdata f = ud();
+        map.put(first[0], f);
+
+        map.remove(last[0]);
+        assertSame(values[1], map.get(last[1]));
+        assertSame(values[2], map.get(last[2]));
+        assertSame(f, map.get(first[0]));
+        map.remove(last[1]);
+        assertSame(values[2], map.get(last[2]));
+        assertSame(f, map.get(first[0]));
+    }
+
+    @Test
+    public void resize() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        final int n = 10_000;
+        List<LuaUserdata> values = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            LuaUserdata u = ud();
+            values.add(u);
+            map.put(i, u);
+        }
+        assertEquals(n, map.size());
+        assertTrue(map.capacity() > n);
+        for (int i = 1; i <= n; i++) {
+            assertSame(values.get(i - 1), map.get(i));
+        }
+        for (int i = 1; i <= n; i += 2) {
+            map.remove(i);
+        }
+        assertEquals(n / 2, map.size());
+        for (int i = 1; i <= n; i++) {
+            if ((i & 1) == 1)
+                assertNull(map.get(i));
+            else
+                assertSame(values.get(i - 1), map.get(i));
+        }
+        int live = 0;
+        for (int i = 0; i < map.capacity(); i++) {
+            if (map.liveAt(i) != null)
+                live++;
+        }
+        assertEquals(n / 2, live);
+    }
+
+    @Test
+    public void clear() {
+        UserdataIdMap map = new UserdataIdMap(16);
+        map.put(1, ud());
+        map.put(2, ud());
+        map.moveToRemoved(2);
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        assertNull(map.getRemoved(2));
+    }
+}
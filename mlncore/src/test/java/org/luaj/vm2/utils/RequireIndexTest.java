@@ -0,0 +1,69 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package org.luaj.vm2.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RequireIndex} 测试
+ * 共用索引的虚拟机finder不同时，结果不可用
+ */
+public class RequireIndexTest {
+    private static final Class<?>[] BASE = {String.class, Integer.class};
+    private static final Class<?>[] WITH_DEP = {String.class, Integer.class, Long.class};
+
+    @Test
+    public void foundMatchesPrefix() {
+        RequireIndex index = new RequireIndex();
+        index.putFound("a", WITH_DEP, 1, "/a.lua");
+        RequireIndex.Entry e = index.get("a");
+        assertEquals(Integer.class, e.finderClass);
+        /// 找到的finder及之前的finder一致即可
+        assertTrue(e.matches(WITH_DEP));
+        assertTrue(e.matches(BASE.clone()));
+        assertFalse(e.matches(new Class<?>[]{String.class}));
+        assertFalse(e.matches(new Class<?>[]{Long.class, Integer.class, Long.class}));
+    }
+
+    @Test
+    public void foundByLaterFinder() {
+        RequireIndex index = new RequireIndex();
+        /// 只有依赖finder能找到，没有依赖finder的虚拟机不能使用
+        index.putFound("dep", WITH_DEP, 2, null);
+        RequireIndex.Entry e = index.get("dep");
+        assertTrue(e.matches(WITH_DEP.clone()));
+        assertFalse(e.matches(BASE));
+    }
+
+    @Test
+    public void notFoundMatchesAll() {
+        RequireIndex index = new RequireIndex();
+        index.putNotFound("none", BASE, "error");
+        RequireIndex.Entry e = index.get("none");
+        assertTrue(e.isNotFound());
+        assertNull(e.finderClass);
+        assertTrue(e.matches(BASE.clone()));
+        /// 多了依赖finder，可能找到
+        assertFalse(e.matches(WITH_DEP));
+        assertFalse(e.matches(new Class<?>[]{String.class}));
+    }
+
+    @Test
+    public void statistics() {
+        RequireIndex index = new RequireIndex();
+        assertNull(index.get("a"));
+        index.putFound("a", BASE, 0, null);
+        assertNotNull(index.get("a"));
+        assertEquals(1, index.getHitCount());
+        assertEquals(1, index.getMissCount());
+        index.remove("a");
+        assertEquals(0, index.size());
+    }
+}
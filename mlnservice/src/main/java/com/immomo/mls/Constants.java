@@ -42,6 +42,10 @@ public interface Constants {
     String POSTFIX_LV_ZIP = ".zip";//lua的zip包
     String POSTFIX_SIGN = ".sign";
     String ASSETS_PREFIX = "file://android_asset/";
+    /**
+     * require("a.b") / require 'a/b' 中的模块名，预读脚本及热重载文件摘要使用同一规则
+     */
+    String REQUIRE_REGEX = "require\\s*\\(?\\s*[\"']([\\w./-]+)[\"']";
 
     /**
      * Load Type
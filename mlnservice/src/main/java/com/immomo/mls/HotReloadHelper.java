@@ -24,6 +24,7 @@ import com.immomo.mls.utils.MainThreadExecutor;
 import com.immomo.mls.wrapper.GlobalsContainer;
 
 import org.luaj.vm2.Globals;
+import org.luaj.vm2.utils.RequireIndex;
 import org.luaj.vm2.utils.StringReplaceUtils;
 
 import java.io.File;
@@ -206,6 +207,8 @@ public class HotReloadHelper {
                     }
                     while (changeFiles.get() > 0) ;
                     reloadState.set(RELOADING);
+                    /// 文件已变化，require索引中的结果不再可用
+                    RequireIndex.invalidateAll();
                     HashMap<String, String> p = parseParams(params);
                     Collection<Callback> cs = new ArrayList<>(callbacks);
                     String url;
@@ -511,6 +514,7 @@ public class HotReloadHelper {
         if (hotReload == null) {
             hotReload = new HotReloadImpl();
             HotReloadServer.getInstance().setListener(hotReload);
+            HotReloadServer.getInstance().setSyncRoot(getHotReloadPath());
         }
         connectState = CS_Connect;
         if (useUSB) {
@@ -33,11 +33,11 @@ import com.immomo.mls.adapter.impl.DefaultLoadViewAdapter;
 import com.immomo.mls.adapter.impl.DefaultMaybeWhiteScreenAdapter;
 import com.immomo.mls.adapter.impl.DefaultResourceFinderAdapterImpl;
 import com.immomo.mls.adapter.impl.DefaultScriptReaderCreatorImpl;
-import com.immomo.mls.adapter.impl.DefaultThreadAdapter;
 import com.immomo.mls.adapter.impl.DefaultToastAdapter;
 import com.immomo.mls.adapter.impl.DefaultTypeFaceAdapter;
 import com.immomo.mls.adapter.impl.FileCacheImpl;
 import com.immomo.mls.adapter.impl.MLSReloadButtonCreatorImpl;
+import com.immomo.mls.adapter.impl.PriorityThreadAdapter;
 import com.immomo.mls.adapter.impl.X64PathAdapterImpl;
 import com.immomo.mls.fun.ui.DefaultSafeAreaAdapter;
 import com.immomo.mls.fun.ui.MLNSafeAreaAdapter;
@@ -50,7 +50,7 @@ import androidx.annotation.NonNull;
  * Created by XiongFangyu on 2018/6/26.
  */
 public class MLSAdapterContainer {
-    private static MLSThreadAdapter threadAdapter = new DefaultThreadAdapter();
+    private static MLSThreadAdapter threadAdapter = new PriorityThreadAdapter();
     private static ConsoleLoggerAdapter consoleLoggerAdapter = new DefaultConsoleLoggerAdapter();
     private static MLSHttpAdapter httpAdapter = new DefaultHttpAdapter();
     private static MLSGlobalStateListener globalStateListener;
@@ -158,6 +158,10 @@ public class MLSBuilder {
         return this;
     }
 
+    /**
+     * kv缓存，默认{@link com.immomo.mls.adapter.impl.FileCacheImpl}
+     * 数据量较大或保存频繁时，可使用追加写的{@link com.immomo.mls.adapter.impl.LogFileCacheImpl}
+     */
     public MLSBuilder setFileCache(IFileCache iFileCache) {
         MLSAdapterContainer.setFileCache(iFileCache);
         return this;
@@ -504,6 +508,19 @@ public class MLSBuilder {
         return this;
     }
 
+    /**
+     * 设置userdata 缓存存储结构
+     * @see com.immomo.mlncore.MLNCore#UserdataStoreType
+     */
+    public MLSBuilder setUserdataStoreType(byte type) {
+        if (type != MLNCore.USERDATA_STORE_SPARSE_ARRAY
+        && type != MLNCore.USERDATA_STORE_HASH) {
+            throw new IllegalArgumentException("type is invalid!");
+        }
+        MLNCore.UserdataStoreType = type;
+        return this;
+    }
+
     /**
      * 设置容器默认切割模式
      * @param clipChildren 默认是否切割子视图
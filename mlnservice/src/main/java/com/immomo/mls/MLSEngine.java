@@ -16,6 +16,7 @@ import com.immomo.mlncore.MLNCore;
 import com.immomo.mls.adapter.ILoadLibAdapter;
 import com.immomo.mls.adapter.OnRemovedUserdataAdapter;
 import com.immomo.mls.adapter.impl.LoadLibAdapterImpl;
+import com.immomo.mls.cache.AppCache;
 import com.immomo.mls.fun.constants.BreakMode;
 import com.immomo.mls.fun.constants.ContentMode;
 import com.immomo.mls.fun.constants.CrossAxisAlignType;
@@ -129,6 +130,7 @@ import com.immomo.mls.fun.ud.view.recycler.UDWaterFallLayout;
 import com.immomo.mls.fun.ud.view.viewpager.UDViewPagerAdapter;
 import com.immomo.mls.global.LVConfig;
 import com.immomo.mls.global.LuaViewConfig;
+import com.immomo.mls.lite.data.ScriptPrefetchCache;
 import com.immomo.mls.util.DimenUtil;
 import com.immomo.mls.util.FileUtil;
 import com.immomo.mls.util.LogUtil;
@@ -607,6 +609,9 @@ public class MLSEngine {
      * 低内存时动态释放lua资源
      */
     public static void onTrimMemory(int level) {
+        ScriptPrefetchCache.getInstance().onTrimMemory(level);
+        AppCache.onTrimMemory(level);
+        PreGlobalInitUtils.trimToBaseSize();
         switch (level) {
             case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
             case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
@@ -621,4 +626,11 @@ public class MLSEngine {
                 break;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 系统内存不足时调用，同{@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}
+     */
+    public static void onLowMemory() {
+        onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+}
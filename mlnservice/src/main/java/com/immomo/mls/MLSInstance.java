@@ -84,6 +84,7 @@ import com.immomo.mls.wrapper.ScriptBundleResourceFinder;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.utils.MemoryMonitor;
 import org.luaj.vm2.utils.PathResourceFinder;
+import org.luaj.vm2.utils.RequireIndex;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -1403,6 +1404,11 @@ public class MLSInstance implements ScriptLoader.Callback, Callback, PrinterCont
                 if (dependenceInfo != null) {
                     g.addResourceFinder(new DepResourceFinder(dependenceInfo));
                 }
+                /// 同一版本的脚本包共用require索引，热重载时文件会变化，使用虚拟机自己的索引
+                if (!hasState(STATE_HOT_RELOADING)) {
+                    g.setRequireIndex(RequireIndex.forBundle(scriptBundle.getUrl() + '|' + getScriptVersion()
+                            + '|' + scriptBundle.getBasePath() + '|' + (dependenceInfo != null)));
+                }
 
                 final LuaViewManager lvm;
                 if (hasState(STATE_HOT_RELOADING) && !hasState(STATE_HOT_RELOAD_IMEDIATELY)) {
@@ -8,12 +8,14 @@
 package com.immomo.mls;
 
 import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.SystemClock;
 
 import androidx.annotation.Nullable;
 
 import com.immomo.mls.adapter.MLSThreadAdapter;
 import com.immomo.mls.global.LuaViewConfig;
+import com.immomo.mls.lite.data.UserdataType;
 import com.immomo.mls.lite.interceptor.DefaultUserDataInjectInterceptor;
 import com.immomo.mls.utils.AssertUtils;
 import com.immomo.mls.utils.MainThreadExecutor;
@@ -21,21 +23,32 @@ import com.immomo.mls.utils.MainThreadExecutor;
 import org.luaj.vm2.Globals;
 
 import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Created by Xiong.Fangyu on 2019-08-08
  * <p>
  * 提前初始化一些Globals以供使用
+ * <p>
+ * 全量注册和轻量级注册的虚拟机分别放在两个池中，见{@link #take(UserdataType)}
+ * 池的大小随取用频率调整：最近取用越频繁，保留越多，最多{@link #MAX_SIZE}个；
+ * 一段时间未取用后回落到{@link #initFewGlobals}设置的个数，多余的虚拟机被销毁；
+ * 取用后在主线程空闲时补充，虚拟机在主线程创建，bridge在工作线程中注册
  */
 public class PreGlobalInitUtils {
 
-    private final static Deque<Globals> preInitGlobals = new ArrayDeque<>(10);
+    private static final int MAX_SIZE = 10;
+    /**
+     * 按最近的取用间隔，保留这段时间内预计会取用的个数
+     * 超过这段时间未取用，只保留最小个数
+     */
+    private static final long DEMAND_WINDOW = 2000;
 
-    private final static Lock lock = new ReentrantLock(true);
+    private static final Pool FULL = new Pool(false);
+    private static final Pool LIGHT = new Pool(true);
 
     private static OnSetupGlobalsListener onSetupGlobalsListener;
 
@@ -47,36 +60,69 @@ public class PreGlobalInitUtils {
 
     /**
      * Call in Main Thread
+     * 取全量注册的虚拟机
      */
     public static @Nullable
     Globals take() {
+        return take(UserdataType.ONLY_FULL);
+    }
+
+    /**
+     * Call in Main Thread
+     * {@link UserdataType#ONLY_LIGHT}取轻量级注册的虚拟机，其他取全量注册的虚拟机
+     *
+     * @return 池中没有时返回null
+     */
+    public static @Nullable
+    Globals take(UserdataType type) {
         AssertUtils.assetTrue(MainThreadExecutor.isMainThread());
-        try {
-            lock.lock();
-            Globals g = preInitGlobals.pollFirst();
-            preInit();
-            return g;
-        } finally {
-            lock.unlock();
-        }
+        Pool pool = poolOf(type);
+        Globals g = pool.take(SystemClock.uptimeMillis());
+        scheduleRefill(pool);
+        scheduleDecay(pool);
+        return g;
+    }
+
+    /**
+     * Call in Main Thread
+     * 低内存时调用，销毁超过最小个数的虚拟机
+     */
+    public static void trimToBaseSize() {
+        destroy(FULL.trimToBaseSize());
+        destroy(LIGHT.trimToBaseSize());
     }
 
     /**
      * Call in Main Thread
-     * 提前初始化num个虚拟机
+     * 提前初始化num个全量注册的虚拟机
      */
     public static void initFewGlobals(int num) {
+        initFewGlobals(UserdataType.ONLY_FULL, num);
+    }
+
+    /**
+     * Call in Main Thread
+     * 提前初始化num个虚拟机，作为对应池的最小个数
+     */
+    public static void initFewGlobals(UserdataType type, int num) {
         AssertUtils.assetTrue(MainThreadExecutor.isMainThread());
-        if (num > 10) num = 10;
+        if (num > MAX_SIZE) num = MAX_SIZE;
         preInitSize += num;
+        Pool pool = poolOf(type);
+        synchronized (pool) {
+            pool.baseSize = Math.min(MAX_SIZE, pool.baseSize + num);
+            pool.target = Math.max(pool.target, pool.baseSize);
+        }
 
         if (!MLSEngine.isInit() || !Globals.isInit())
             return;
-        MLSEngine.singleRegister.preInstall();
-        if (!MLSEngine.singleRegister.isPreInstall())
-            return;
-        while (num-- > 0) {
-            preInit();
+        if (!pool.light) {
+            MLSEngine.singleRegister.preInstall();
+            if (!MLSEngine.singleRegister.isPreInstall())
+                return;
+        }
+        while (num-- > 0 && pool.needMore(SystemClock.uptimeMillis())) {
+            preInit(pool);
         }
     }
 
@@ -88,58 +134,217 @@ public class PreGlobalInitUtils {
     }
 
     public static int currentInitGlobals() {
-        return preInitGlobals.size();
+        return currentInitGlobals(UserdataType.ONLY_FULL);
+    }
+
+    public static int currentInitGlobals(UserdataType type) {
+        Pool pool = poolOf(type);
+        synchronized (pool) {
+            return pool.globals.size();
+        }
+    }
+
+    //<editor-fold desc="statistics">
+
+    /**
+     * 取用时池中有虚拟机的次数
+     */
+    public static int getHitCount(UserdataType type) {
+        Pool pool = poolOf(type);
+        synchronized (pool) {
+            return pool.hitCount;
+        }
+    }
+
+    /**
+     * 取用时池中没有虚拟机的次数
+     */
+    public static int getMissCount(UserdataType type) {
+        Pool pool = poolOf(type);
+        synchronized (pool) {
+            return pool.missCount;
+        }
+    }
+
+    /**
+     * 虚拟机从开始创建到放入池中的平均时间，ms
+     */
+    public static long getAverageReadyTime(UserdataType type) {
+        Pool pool = poolOf(type);
+        synchronized (pool) {
+            return pool.readyCount == 0 ? 0 : pool.readyTime / pool.readyCount;
+        }
+    }
+
+    public static String getStatistics() {
+        return "full: " + FULL + ", light: " + LIGHT;
+    }
+    //</editor-fold>
+
+    private static Pool poolOf(UserdataType type) {
+        return type == UserdataType.ONLY_LIGHT ? LIGHT : FULL;
+    }
+
+    /**
+     * Call in Main Thread
+     * 主线程空闲时逐个补充，不影响当前页面打开
+     */
+    private static void scheduleRefill(final Pool pool) {
+        if (!pool.needMore(SystemClock.uptimeMillis()) || !MLSEngine.isInit() || !Globals.isInit())
+            return;
+        synchronized (pool) {
+            if (pool.refillScheduled)
+                return;
+            pool.refillScheduled = true;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                boolean more = pool.needMore(SystemClock.uptimeMillis());
+                if (more && (pool.light || MLSEngine.singleRegister.isPreInstall())) {
+                    preInit(pool);
+                    more = pool.needMore(SystemClock.uptimeMillis());
+                }
+                if (!more) {
+                    synchronized (pool) {
+                        pool.refillScheduled = false;
+                    }
+                }
+                return more;
+            }
+        });
+    }
+
+    /**
+     * Call in Main Thread
+     * 需要保留的个数大于最小个数时，超过{@link #DEMAND_WINDOW}后检查，
+     * 期间没有取用则回落，销毁多余的虚拟机
+     */
+    private static void scheduleDecay(final Pool pool) {
+        synchronized (pool) {
+            if (pool.decayScheduled || pool.target <= pool.baseSize)
+                return;
+            pool.decayScheduled = true;
+        }
+        MainThreadExecutor.postDelayed(pool, new Runnable() {
+            @Override
+            public void run() {
+                destroy(pool.decay(SystemClock.uptimeMillis()));
+                synchronized (pool) {
+                    pool.decayScheduled = false;
+                }
+                scheduleDecay(pool);
+            }
+        }, DEMAND_WINDOW + 1);
     }
 
-    private static void preInit() {
-        if (preInitGlobals.size() == 10)
+    /**
+     * 虚拟机只能在创建的线程（主线程）中销毁
+     */
+    private static void destroy(final List<Globals> list) {
+        if (list == null || list.isEmpty())
             return;
+        if (!MainThreadExecutor.isMainThread()) {
+            MainThreadExecutor.post(new Runnable() {
+                @Override
+                public void run() {
+                    destroy(list);
+                }
+            });
+            return;
+        }
+        for (Globals g : list) {
+            g.destroy();
+        }
+    }
+
+    /**
+     * 虚拟机需在主线程中创建，注册bridge在工作线程中进行
+     */
+    private static void preInit(final Pool pool) {
+        final long start = SystemClock.uptimeMillis();
         final Globals globals = Globals.createLState(LuaViewConfig.isOpenDebugger());
+        synchronized (pool) {
+            pool.pending++;
+        }
         MLSAdapterContainer.getThreadAdapter().execute(MLSThreadAdapter.Priority.HIGH, new Runnable() {
             @Override
             public void run() {
-                setupGlobals(globals);
-                try {
-                    lock.lock();
-                    preInitGlobals.addLast(globals);
-                } finally {
-                    lock.unlock();
+                if (pool.light) {
+                    installLight(globals);
+                } else {
+                    installFull(globals);
                 }
+                if (onSetupGlobalsListener == null) {
+                    add(pool, globals, start);
+                    return;
+                }
+                MainThreadExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        notifySetup(globals);
+                        add(pool, globals, start);
+                    }
+                });
             }
         });
     }
 
+    /**
+     * 注册期间池已被缩小（低内存或长时间未取用）时，不再放入，直接销毁
+     */
+    private static void add(Pool pool, Globals globals, long start) {
+        long now = SystemClock.uptimeMillis();
+        if (!pool.add(globals, now, now - start))
+            destroy(Collections.singletonList(globals));
+    }
+
     /**
      * setup global values
+     * 在当前线程注册bridge，{@link OnSetupGlobalsListener}在主线程中回调，回调结束后返回
      *
      * @param globals
      */
     public static Globals setupGlobals(final Globals globals) {
         if (globals == null)
             return null;
+        installFull(globals);
         if (Looper.myLooper() == Looper.getMainLooper()) {
-            realSetupGlobals(globals);
-        } else {
-            final Lock lock = new ReentrantLock();
-            final Condition condition = lock.newCondition();
-            MainThreadExecutor.post(new LockRunnable(lock, condition) {
+            notifySetup(globals);
+        } else if (onSetupGlobalsListener != null) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            MainThreadExecutor.post(new Runnable() {
                 @Override
-                public void realRun() {
-                    realSetupGlobals(globals);
+                public void run() {
+                    try {
+                        notifySetup(globals);
+                    } finally {
+                        latch.countDown();
+                    }
                 }
             });
             try {
-                lock.lock();
-                condition.await();
+                latch.await();
             } catch (InterruptedException ignore) {
-            } finally {
-                lock.unlock();
             }
         }
         return globals;
     }
 
-    private static void realSetupGlobals(Globals globals) {
+    /**
+     * 针对luaclient 嵌入list中的样式 注册的轻量级userdata列表
+     *
+     * @param globals luaVM
+     */
+    public static void realSetupLightGlobals(Globals globals) {
+        installLight(globals);
+        notifySetup(globals);
+    }
+
+    /**
+     * 只调用native注册，新建的虚拟机未被其他线程使用，可在任意线程中调用
+     */
+    private static void installFull(Globals globals) {
         long t = SystemClock.uptimeMillis();
         MLSEngine.singleRegister.install(globals);
         t = SystemClock.uptimeMillis() - t;
@@ -148,16 +353,9 @@ public class PreGlobalInitUtils {
         }
         if (MLSEngine.isInit())
             NativeBridge.registerNativeBridge(globals);
-        if (onSetupGlobalsListener != null)
-            onSetupGlobalsListener.onSetup(globals);
     }
 
-    /**
-     * 针对luaclient 嵌入list中的样式 注册的轻量级userdata列表
-     *
-     * @param globals luaVM
-     */
-    public static void realSetupLightGlobals(Globals globals) {
+    private static void installLight(Globals globals) {
         long t = SystemClock.uptimeMillis();
         DefaultUserDataInjectInterceptor.register.preInstall();
         DefaultUserDataInjectInterceptor.register.install(globals);
@@ -168,34 +366,139 @@ public class PreGlobalInitUtils {
         }
         if (MLSEngine.isInit())
             NativeBridge.registerNativeBridge(globals);
+    }
+
+    private static void notifySetup(Globals globals) {
         if (onSetupGlobalsListener != null)
             onSetupGlobalsListener.onSetup(globals);
     }
 
-    private abstract static class LockRunnable implements Runnable {
-        final Lock lock;
-        final Condition condition;
+    /**
+     * 一种注册方式的虚拟机池
+     */
+    private static final class Pool {
+        final boolean light;
+        final ArrayDeque<Globals> globals = new ArrayDeque<>(MAX_SIZE);
+        /**
+         * 正在注册，还未放入池中的个数
+         */
+        int pending;
+        /**
+         * {@link #initFewGlobals}设置的最小个数
+         */
+        int baseSize;
+        /**
+         * 当前需要保留的个数
+         */
+        int target;
+        boolean refillScheduled;
+        boolean decayScheduled;
+
+        long lastTake;
+        /**
+         * 取用间隔的滑动平均，ms，小于0表示还没有
+         */
+        float takeInterval = -1;
+
+        int hitCount;
+        int missCount;
+        long readyTime;
+        int readyCount;
 
-        LockRunnable(Lock lock, Condition condition) {
-            this.lock = lock;
-            this.condition = condition;
+        Pool(boolean light) {
+            this.light = light;
         }
 
-        @Override
-        public void run() {
-            try {
-                lock.lock();
-                realRun();
-                condition.signal();
-            } finally {
-                lock.unlock();
+        synchronized Globals take(long now) {
+            if (lastTake > 0) {
+                long interval = now - lastTake;
+                takeInterval = takeInterval < 0 ? interval : takeInterval * 0.7f + interval * 0.3f;
             }
+            lastTake = now;
+            Globals g = globals.pollFirst();
+            if (g != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            updateTarget(now);
+            return g;
         }
 
-        protected abstract void realRun();
+        /**
+         * 距上次取用超过{@link #DEMAND_WINDOW}时回落到{@link #baseSize}；
+         * 否则取用间隔按平均间隔和距上次取用时间中较大的计算
+         */
+        private void updateTarget(long now) {
+            int demand = 0;
+            long idle = now - lastTake;
+            if (lastTake > 0 && idle <= DEMAND_WINDOW) {
+                float interval = Math.max(takeInterval, idle);
+                demand = interval > 0 ? (int) Math.ceil(DEMAND_WINDOW / interval) : 1;
+            }
+            target = Math.min(MAX_SIZE, Math.max(baseSize, demand));
+        }
+
+        synchronized boolean needMore(long now) {
+            updateTarget(now);
+            return globals.size() + pending < target;
+        }
+
+        /**
+         * @return false: 池中已足够，需销毁g
+         */
+        synchronized boolean add(Globals g, long now, long time) {
+            pending--;
+            readyTime += time;
+            readyCount++;
+            updateTarget(now);
+            if (globals.size() >= target)
+                return false;
+            globals.addLast(g);
+            return true;
+        }
+
+        /**
+         * 按当前时间更新需要保留的个数
+         *
+         * @return 多余的虚拟机，需在主线程中销毁
+         */
+        synchronized List<Globals> decay(long now) {
+            updateTarget(now);
+            return removeOver(target);
+        }
+
+        /**
+         * 清除取用记录，只保留{@link #baseSize}个
+         *
+         * @return 多余的虚拟机，需在主线程中销毁
+         */
+        synchronized List<Globals> trimToBaseSize() {
+            lastTake = 0;
+            takeInterval = -1;
+            target = baseSize;
+            return removeOver(baseSize);
+        }
+
+        private List<Globals> removeOver(int size) {
+            if (globals.size() <= size)
+                return null;
+            List<Globals> removed = new ArrayList<>(globals.size() - size);
+            while (globals.size() > size) {
+                removed.add(globals.pollLast());
+            }
+            return removed;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "size=" + globals.size() + ",pending=" + pending + ",target=" + target
+                    + ",hits=" + hitCount + ",misses=" + missCount
+                    + ",readyTime=" + (readyCount == 0 ? 0 : readyTime / readyCount) + "ms";
+        }
     }
 
     public static interface OnSetupGlobalsListener {
         void onSetup(Globals g);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,556 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.adapter.impl;
+
+import com.immomo.mls.adapter.IFileCache;
+import com.immomo.mls.util.FileUtil;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 追加写的kv缓存，可代替{@link FileCacheImpl}
+ * <p>
+ * {@link FileCacheImpl}每次保存都会重写整个文件，耗时随数据量增长，且写入中途崩溃会损坏全部数据；
+ * 这里每次保存只在mmap的日志文件末尾追加一条记录：
+ * <pre>
+ * | keyLength + 1 (int) | valueLength (int, -1为删除) | key | value | crc32 (int) |
+ * </pre>
+ * keyLength + 1 为0表示日志结束，crc不匹配的记录及之后的数据会被丢弃，所以写入中途崩溃只会丢失最后一条
+ * <p>
+ * 1、内存中保存全部key-value，读取不访问文件
+ * 2、日志按段存储，单段写满后新建下一段，加载时按顺序重放
+ * 3、新建段时，若无效数据超过一半，在后台将当前数据写成基准文件（.base），替换其id及之前的所有段
+ * 4、写入后延迟{@link #FSYNC_DELAY_MS}批量force，进程崩溃不丢数据（页缓存由系统写回），系统断电可能丢失最近的写入
+ * <p>
+ * 首次使用时会导入{@link FileCacheImpl}的数据
+ * 使用：{@link com.immomo.mls.MLSBuilder#setFileCache}
+ */
+public class LogFileCacheImpl implements IFileCache {
+    private static final String DIR_NAME = "lua-kv-log";
+    private static final String OLD_CACHE_NAME = "lua-kv-cache";
+    private static final String SUFFIX = ".seg";
+    private static final String BASE_SUFFIX = ".base";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /**
+     * 单段大小，记录大于此值时，单独一段
+     */
+    static final int SEGMENT_SIZE = 1024 * 1024;
+    /**
+     * 日志总大小小于此值时不压缩
+     */
+    private static final long COMPACT_MIN_BYTES = SEGMENT_SIZE;
+    private static final long FSYNC_DELAY_MS = 1000;
+    /**
+     * keyLength + valueLength + crc
+     */
+    private static final int RECORD_EXTRA = 12;
+    private static final int END_MARK = 4;
+
+    private static ScheduledExecutorService executor;
+
+    private File dir;
+    private boolean inited;
+    private final HashMap<String, Entry> index = new HashMap<>();
+    /**
+     * 段id -> 段中有效记录的字节数
+     */
+    private final TreeMap<Integer, Long> segments = new TreeMap<>();
+    /**
+     * 当前基准文件id，0表示没有；基准文件包含此id及之前所有段的数据
+     */
+    private int baseId;
+    private long totalBytes;
+    private long liveBytes;
+
+    private int activeId;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+
+    private boolean flushScheduled;
+    private boolean compacting;
+    private byte[] recordBuffer = new byte[256];
+    private final CRC32 crc = new CRC32();
+
+    private static final class Entry {
+        final String value;
+        final int recordSize;
+
+        Entry(String value, int recordSize) {
+            this.value = value;
+            this.recordSize = recordSize;
+        }
+    }
+
+    /**
+     * 使用缓存目录
+     */
+    public LogFileCacheImpl() {
+    }
+
+    public LogFileCacheImpl(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public synchronized void save(String key, String value) {
+        if (key == null)
+            return;
+        init();
+        Entry old = index.get(key);
+        if (old == null ? value == null : old.value.equals(value))
+            return;
+        int size = append(key, value);
+        if (size < 0)
+            return;
+        if (old != null)
+            liveBytes -= old.recordSize;
+        if (value == null) {
+            index.remove(key);
+        } else {
+            index.put(key, new Entry(value, size));
+            liveBytes += size;
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public synchronized String get(String key, String defaultValue) {
+        init();
+        Entry e = index.get(key);
+        return e != null ? e.value : defaultValue;
+    }
+
+    /**
+     * 立即将写入force到磁盘
+     */
+    public synchronized void flush() {
+        flushScheduled = false;
+        if (active != null)
+            active.force();
+    }
+
+    public synchronized int size() {
+        init();
+        return index.size();
+    }
+
+    /**
+     * 日志文件中所有记录的字节数，包括无效记录
+     */
+    synchronized long logBytes() {
+        return totalBytes;
+    }
+
+    //<editor-fold desc="load">
+
+    private void init() {
+        if (inited)
+            return;
+        inited = true;
+        if (dir == null)
+            dir = new File(FileUtil.getCacheDir(), DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs())
+            return;
+        List<Integer> bases = list(BASE_SUFFIX);
+        List<Integer> ids = list(SUFFIX);
+        if (!bases.isEmpty()) {
+            baseId = bases.get(bases.size() - 1);
+            /// 压缩后、删除旧文件前崩溃时，残留的旧文件已被基准文件替代
+            for (int i = 0, l = bases.size() - 1; i < l; i++) {
+                baseFile(bases.get(i)).delete();
+            }
+            Iterator<Integer> it = ids.iterator();
+            while (it.hasNext()) {
+                int id = it.next();
+                if (id > baseId)
+                    break;
+                segmentFile(id).delete();
+                it.remove();
+            }
+            replay(baseId, false);
+        }
+        for (int i = 0, l = ids.size(); i < l; i++) {
+            replay(ids.get(i), i == l - 1);
+        }
+        if (ids.isEmpty() && bases.isEmpty()) {
+            migrate();
+        }
+        if (shouldCompact())
+            roll(0);
+    }
+
+    private List<Integer> list(final String suffix) {
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.endsWith(suffix);
+            }
+        });
+        List<Integer> ids = new ArrayList<>();
+        if (names == null)
+            return ids;
+        for (String n : names) {
+            try {
+                ids.add(Integer.parseInt(n.substring(0, n.length() - suffix.length())));
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * 重放段中的记录，最后一段作为当前写入段
+     */
+    private void replay(int id, boolean last) {
+        RandomAccessFile raf = null;
+        boolean keep = false;
+        try {
+            raf = new RandomAccessFile(fileOf(id), last ? "rw" : "r");
+            FileChannel channel = raf.getChannel();
+            long len = channel.size();
+            if (len > Integer.MAX_VALUE)
+                return;
+            MappedByteBuffer buffer = channel.map(last ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, len);
+            int end = readRecords(buffer);
+            segments.put(id, (long) end);
+            totalBytes += end;
+            activeId = id;
+            if (last) {
+                buffer.position(end);
+                activeChannel = channel;
+                active = buffer;
+                keep = true;
+            }
+        } catch (IOException ignore) {
+        } finally {
+            if (!keep)
+                close(raf);
+        }
+    }
+
+    /**
+     * @return 有效记录结束的位置
+     */
+    private int readRecords(ByteBuffer buffer) {
+        int cap = buffer.capacity();
+        int pos = 0;
+        while (pos + RECORD_EXTRA <= cap) {
+            int k = buffer.getInt(pos) - 1;
+            int v = buffer.getInt(pos + 4);
+            if (k < 0 || v < -1)
+                break;
+            long size = (long) RECORD_EXTRA + k + Math.max(v, 0);
+            if (pos + size > cap)
+                break;
+            int s = (int) size;
+            byte[] data = ensureRecordBuffer(s);
+            buffer.position(pos);
+            buffer.get(data, 0, s);
+            crc.reset();
+            crc.update(data, 0, s - 4);
+            if ((int) crc.getValue() != buffer.getInt(pos + s - 4))
+                break;
+            String key = new String(data, 8, k, UTF8);
+            Entry old = index.remove(key);
+            if (old != null)
+                liveBytes -= old.recordSize;
+            if (v >= 0) {
+                index.put(key, new Entry(new String(data, 8 + k, v, UTF8), s));
+                liveBytes += s;
+            }
+            pos += s;
+        }
+        return pos;
+    }
+
+    /**
+     * 导入{@link FileCacheImpl}的数据
+     */
+    private void migrate() {
+        File old = new File(dir.getParentFile(), OLD_CACHE_NAME);
+        if (!old.isFile())
+            return;
+        byte[] data = FileUtil.fastReadBytes(old);
+        if (data == null || data.length == 0)
+            return;
+        try {
+            JSONObject json = new JSONObject(new String(data));
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String k = keys.next();
+                String v = json.optString(k, null);
+                if (v == null)
+                    continue;
+                int size = append(k, v);
+                if (size > 0) {
+                    index.put(k, new Entry(v, size));
+                    liveBytes += size;
+                }
+            }
+            flush();
+        } catch (JSONException ignore) {
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="write">
+
+    /**
+     * 在当前段末尾追加记录
+     *
+     * @return 记录大小，失败返回-1
+     */
+    private int append(String key, String value) {
+        byte[] k = key.getBytes(UTF8);
+        byte[] v = value != null ? value.getBytes(UTF8) : null;
+        int size = encode(k, v);
+        if (active == null || active.remaining() < size + END_MARK) {
+            if (!roll(size + END_MARK))
+                return -1;
+        }
+        int pos = active.position();
+        active.put(recordBuffer, 0, size);
+        /// 结束标记，覆盖可能残留的数据
+        if (active.remaining() >= END_MARK)
+            active.putInt(active.position(), 0);
+        segments.put(activeId, (long) pos + size);
+        totalBytes += size;
+        return size;
+    }
+
+    private int encode(byte[] k, byte[] v) {
+        int vl = v != null ? v.length : 0;
+        int size = RECORD_EXTRA + k.length + vl;
+        byte[] data = ensureRecordBuffer(size);
+        putInt(data, 0, k.length + 1);
+        putInt(data, 4, v != null ? v.length : -1);
+        System.arraycopy(k, 0, data, 8, k.length);
+        if (v != null)
+            System.arraycopy(v, 0, data, 8 + k.length, vl);
+        crc.reset();
+        crc.update(data, 0, size - 4);
+        putInt(data, size - 4, (int) crc.getValue());
+        return size;
+    }
+
+    /**
+     * 新建下一段作为当前写入段，并判断是否需要压缩
+     */
+    private boolean roll(int minSize) {
+        int sealedId = active != null ? activeId : 0;
+        int nextId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(segmentFile(nextId), "rw");
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(SEGMENT_SIZE, minSize));
+            closeActive();
+            activeChannel = channel;
+            active = buffer;
+            activeId = nextId;
+            segments.put(nextId, 0L);
+        } catch (IOException e) {
+            close(raf);
+            return false;
+        }
+        if (sealedId > 0 && shouldCompact())
+            startCompact(sealedId);
+        return true;
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            active.force();
+            active = null;
+        }
+        close(activeChannel);
+        activeChannel = null;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled)
+            return;
+        flushScheduled = true;
+        executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FSYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="compact">
+
+    private boolean shouldCompact() {
+        return !compacting && totalBytes > COMPACT_MIN_BYTES && liveBytes * 2 < totalBytes;
+    }
+
+    /**
+     * 在后台将封存段及之前的数据写成基准文件，再删除封存段及更早的段
+     * 基准文件不含删除记录，所以加载时忽略id不大于基准文件的段，而不是在其之上重放；
+     * 基准文件rename完成前崩溃，旧段完整；之后崩溃，旧段在下次加载时删除
+     *
+     * @param sealedId 刚写满的段，之后的写入都在新段中
+     */
+    private void startCompact(final int sealedId) {
+        final Map<String, String> snapshot = new HashMap<>(index.size());
+        for (Map.Entry<String, Entry> e : index.entrySet()) {
+            snapshot.put(e.getKey(), e.getValue().value);
+        }
+        compacting = true;
+        executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                compact(sealedId, snapshot);
+            }
+        });
+    }
+
+    private void compact(int sealedId, Map<String, String> snapshot) {
+        File tmp = new File(dir, sealedId + ".compact");
+        long written = writeSnapshot(tmp, snapshot);
+        synchronized (this) {
+            compacting = false;
+            if (written < 0 || !tmp.renameTo(baseFile(sealedId))) {
+                tmp.delete();
+                return;
+            }
+            Iterator<Map.Entry<Integer, Long>> it = segments.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Long> e = it.next();
+                if (e.getKey() > sealedId)
+                    break;
+                fileOf(e.getKey()).delete();
+                totalBytes -= e.getValue();
+                it.remove();
+            }
+            baseId = sealedId;
+            segments.put(sealedId, written);
+            totalBytes += written;
+        }
+    }
+
+    /**
+     * @return 写入的字节数，失败返回-1
+     */
+    private long writeSnapshot(File file, Map<String, String> snapshot) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            CRC32 c = new CRC32();
+            long written = 0;
+            for (Map.Entry<String, String> e : snapshot.entrySet()) {
+                byte[] k = e.getKey().getBytes(UTF8);
+                byte[] v = e.getValue().getBytes(UTF8);
+                int size = RECORD_EXTRA + k.length + v.length;
+                if (out.remaining() < size) {
+                    out.flip();
+                    while (out.hasRemaining())
+                        channel.write(out);
+                    if (out.capacity() < size)
+                        out = ByteBuffer.allocate(size);
+                    out.clear();
+                }
+                int start = out.position();
+                out.putInt(k.length + 1).putInt(v.length).put(k).put(v);
+                c.reset();
+                c.update(out.array(), start, size - 4);
+                out.putInt((int) c.getValue());
+                written += size;
+            }
+            out.flip();
+            while (out.hasRemaining())
+                channel.write(out);
+            channel.force(true);
+            return written;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            close(raf);
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="utils">
+
+    private File segmentFile(int id) {
+        return new File(dir, id + SUFFIX);
+    }
+
+    private File baseFile(int id) {
+        return new File(dir, id + BASE_SUFFIX);
+    }
+
+    private File fileOf(int id) {
+        return id == baseId ? baseFile(id) : segmentFile(id);
+    }
+
+    private byte[] ensureRecordBuffer(int size) {
+        if (recordBuffer.length < size)
+            recordBuffer = new byte[Math.max(size, recordBuffer.length << 1)];
+        return recordBuffer;
+    }
+
+    private static void putInt(byte[] data, int off, int v) {
+        data[off] = (byte) (v >>> 24);
+        data[off + 1] = (byte) (v >>> 16);
+        data[off + 2] = (byte) (v >>> 8);
+        data[off + 3] = (byte) v;
+    }
+
+    private static void close(java.io.Closeable c) {
+        if (c == null)
+            return;
+        try {
+            c.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "MLS-FileCache");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,383 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.adapter.impl;
+
+import com.immomo.mls.adapter.MLSThreadAdapter;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定线程数的优先级线程池，分为两条互不占用线程的通道
+ *
+ * 1、{@link Priority#HIGH}、{@link Priority#MEDIUM}在HIGH通道执行，按优先级排序，同优先级先进先出
+ * 2、{@link Priority#LOW}及{@link #executeTaskByTag}的任务（多为网络请求等阻塞任务，使用{@link Priority#LOW}）在IO通道执行，
+ *    阻塞任务再多也不会占用HIGH通道的线程
+ * 3、有tag的任务按tag -> runnable -> task索引（runnable按对象比较），取消单个任务或整个tag均不需要遍历其他tag
+ * 4、被取消的任务不从队列中删除，出队时直接跳过
+ * 5、提供队列长度、排队耗时、执行耗时等统计
+ *
+ * @see com.immomo.mls.MLSAdapterContainer#setThreadAdapter(MLSThreadAdapter)
+ */
+public class PriorityThreadAdapter implements MLSThreadAdapter {
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int FINISHED = 2;
+    private static final int CANCELLED = 3;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    /**
+     * IO通道默认线程数
+     */
+    private static final int DEFAULT_IO_THREAD_COUNT = 4;
+
+    private final ThreadPoolExecutor highExecutor;
+    private final ThreadPoolExecutor ioExecutor;
+    /**
+     * tag -> (runnable -> task)
+     */
+    private final ConcurrentHashMap<Object, TagTasks> tagIndex = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger[] queueSize;
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong finishedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    public PriorityThreadAdapter() {
+        this(defaultThreadCount());
+    }
+
+    /**
+     * @param threadCount HIGH通道最大线程数
+     */
+    public PriorityThreadAdapter(int threadCount) {
+        this(threadCount, DEFAULT_IO_THREAD_COUNT);
+    }
+
+    /**
+     * @param threadCount   HIGH通道最大线程数
+     * @param ioThreadCount IO通道最大线程数
+     */
+    public PriorityThreadAdapter(int threadCount, int ioThreadCount) {
+        highExecutor = newExecutor(threadCount, "MLS-Worker-");
+        ioExecutor = newExecutor(ioThreadCount, "MLS-IO-");
+        Priority[] ps = Priority.values();
+        queueSize = new AtomicInteger[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            queueSize[i] = new AtomicInteger();
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threadCount, String name) {
+        threadCount = Math.max(threadCount, 1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new WorkerFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static int defaultThreadCount() {
+        int cpu = Runtime.getRuntime().availableProcessors();
+        return Math.max(2, Math.min(cpu - 1, 4));
+    }
+
+    @Override
+    public void execute(Priority p, Runnable action) {
+        submit(new Task(p == null ? Priority.MEDIUM : p, null, action));
+    }
+
+    @Override
+    public void executeTaskByTag(Object tag, Runnable task) {
+        if (tag == null) {
+            execute(Priority.LOW, task);
+            return;
+        }
+        Task t = new Task(Priority.LOW, tag, task);
+        while (true) {
+            TagTasks tasks = tagIndex.get(tag);
+            if (tasks == null) {
+                tasks = new TagTasks();
+                TagTasks old = tagIndex.putIfAbsent(tag, tasks);
+                if (old != null)
+                    tasks = old;
+            }
+            synchronized (tasks) {
+                /// 已被删除，重新创建
+                if (tasks.removed)
+                    continue;
+                t.sameNext = tasks.put(task, t);
+            }
+            break;
+        }
+        submit(t);
+    }
+
+    @Override
+    public void cancelTask(Object tag, Runnable task) {
+        if (tag == null || task == null)
+            return;
+        TagTasks tasks = tagIndex.get(tag);
+        if (tasks == null)
+            return;
+        synchronized (tasks) {
+            cancelChain(tasks.remove(task));
+            removeIfEmpty(tag, tasks);
+        }
+    }
+
+    @Override
+    public void cancelTaskByTag(Object tag) {
+        if (tag == null)
+            return;
+        TagTasks tasks = tagIndex.remove(tag);
+        if (tasks == null)
+            return;
+        synchronized (tasks) {
+            tasks.removed = true;
+            for (Task t : tasks.values()) {
+                cancelChain(t);
+            }
+            tasks.clear();
+        }
+    }
+
+    /**
+     * 关闭线程池，之后不可再使用
+     */
+    public void shutdown() {
+        highExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+        tagIndex.clear();
+    }
+
+    //<editor-fold desc="metrics">
+
+    /**
+     * 某优先级排队中的任务个数，不包括已取消的
+     */
+    public int getQueueSize(Priority p) {
+        return queueSize[p.ordinal()].get();
+    }
+
+    /**
+     * 排队中的任务个数，不包括已取消的
+     */
+    public int getQueueSize() {
+        int s = 0;
+        for (AtomicInteger i : queueSize) {
+            s += i.get();
+        }
+        return s;
+    }
+
+    /**
+     * 正在执行的线程数
+     */
+    public int getActiveCount() {
+        return highExecutor.getActiveCount() + ioExecutor.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * 执行完成的任务个数，包括执行过程中抛出异常的
+     */
+    public long getFinishedCount() {
+        return finishedCount.get();
+    }
+
+    /**
+     * 执行前被取消的任务个数
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * 有tag的任务中，还未完成的tag个数
+     */
+    public int getTagCount() {
+        return tagIndex.size();
+    }
+
+    /**
+     * 平均排队耗时，单位纳秒
+     */
+    public long getAverageWaitNanos() {
+        long c = finishedCount.get();
+        return c == 0 ? 0 : totalWaitNanos.get() / c;
+    }
+
+    /**
+     * 平均执行耗时，单位纳秒
+     */
+    public long getAverageRunNanos() {
+        long c = finishedCount.get();
+        return c == 0 ? 0 : totalRunNanos.get() / c;
+    }
+    //</editor-fold>
+
+    private void submit(Task t) {
+        submittedCount.incrementAndGet();
+        queueSize[t.priority.ordinal()].incrementAndGet();
+        if (t.priority == Priority.LOW)
+            ioExecutor.execute(t);
+        else
+            highExecutor.execute(t);
+    }
+
+    /**
+     * 需要在{@link TagTasks}锁中调用
+     */
+    private void cancelChain(Task t) {
+        while (t != null) {
+            t.cancel();
+            t = t.sameNext;
+        }
+    }
+
+    /**
+     * 任务执行完成，从tag索引中删除
+     */
+    private void removeFromIndex(Task t) {
+        TagTasks tasks = tagIndex.get(t.tag);
+        if (tasks == null)
+            return;
+        synchronized (tasks) {
+            Task head = tasks.get(t.action);
+            if (head == t) {
+                if (t.sameNext == null)
+                    tasks.remove(t.action);
+                else
+                    tasks.put(t.action, t.sameNext);
+            } else {
+                while (head != null && head.sameNext != t) {
+                    head = head.sameNext;
+                }
+                if (head != null)
+                    head.sameNext = t.sameNext;
+            }
+            removeIfEmpty(t.tag, tasks);
+        }
+    }
+
+    /**
+     * 需要在tasks锁中调用
+     */
+    private void removeIfEmpty(Object tag, TagTasks tasks) {
+        if (tasks.isEmpty() && !tasks.removed) {
+            tasks.removed = true;
+            tagIndex.remove(tag, tasks);
+        }
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+        final Priority priority;
+        final Object tag;
+        final Runnable action;
+        final long seq;
+        final long createTime;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        /**
+         * 同一tag下相同runnable的上一个任务，只在{@link TagTasks}锁中修改
+         */
+        Task sameNext;
+        Thread runner;
+
+        Task(Priority priority, Object tag, Runnable action) {
+            this.priority = priority;
+            this.tag = tag;
+            this.action = action;
+            this.seq = sequence.getAndIncrement();
+            this.createTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(PENDING, RUNNING))
+                return;
+            queueSize[priority.ordinal()].decrementAndGet();
+            long start = System.nanoTime();
+            totalWaitNanos.addAndGet(start - createTime);
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                action.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    state.set(FINISHED);
+                }
+                /// 清除取消时设置的中断标记，避免影响后续任务
+                Thread.interrupted();
+                totalRunNanos.addAndGet(System.nanoTime() - start);
+                finishedCount.incrementAndGet();
+                if (tag != null)
+                    removeFromIndex(this);
+            }
+        }
+
+        void cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                queueSize[priority.ordinal()].decrementAndGet();
+                cancelledCount.incrementAndGet();
+                return;
+            }
+            synchronized (this) {
+                if (runner != null && state.get() == RUNNING)
+                    runner.interrupt();
+            }
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = priority.compareTo(o.priority);
+            if (c != 0)
+                return c;
+            return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+        }
+    }
+
+    /**
+     * 同一tag下的任务，通过自身加锁修改
+     * 被删除后不可再使用
+     */
+    private final class TagTasks extends IdentityHashMap<Runnable, Task> {
+        boolean removed;
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+
+        WorkerFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
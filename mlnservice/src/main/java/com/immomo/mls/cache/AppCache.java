@@ -12,10 +12,11 @@ import android.app.Application;
 import java.util.HashMap;
 import java.util.Map;
 
-import androidx.collection.LruCache;
-
 /**
  * App级别的引用cache，不会在退出的时候清空
+ * {@link #getCache(String, int)}创建的cache，lru部分按个数计算（putLru时传入size的按size计算）；
+ * {@link #getWeightedCache(String, int)}创建的cache，lru部分按字节数计算，共用一个总预算{@link #getBudget()}，
+ * 每个cache另有自己的上限；低内存时按级别逐步淘汰最久未使用的数据
  *
  * @author song
  * @date 16/1/27
@@ -23,6 +24,11 @@ import androidx.collection.LruCache;
 public class AppCache {
     public static final int DEFAULT_LRU_CACHE_PROTOTYPE_SIZE = (int) (1.5 * 1024 * 1024);//1.5M
     public static final int DEFAULT_LRU_CACHE_SIZE = 5;//5个
+    public static final int DEFAULT_LRU_CACHE_QUOTA = 512 * 1024;//512K
+    /**
+     * 所有cache总字节数上限，不超过最大内存的1/64
+     */
+    private static final int MAX_BUDGET = 8 * 1024 * 1024;//8M
     public static final String CACHE_METHODS = "cache_methods";//方法名称缓存
     public static final String CACHE_PUBLIC_KEY = "cache_public_key";//公钥
     public static final String CACHE_METATABLES = "cache_metatables";//metatable缓存
@@ -32,15 +38,24 @@ public class AppCache {
     //全局静态cache
     private static Map<String, AppCache> mCachePool;
 
+    //所有lru cache共用的预算
+    private static CacheBudget sBudget;
+
     //simple cache
     private Map<Object, Object> mCache;
 
     //lru cache
-    private LuaLruCache mLruCache;
+    private WeightedLruCache<Object, Object> mLruCache;
+
+    //lru部分是否按字节数计算
+    private final boolean mWeighted;
 
 
     /**
      * on received memory warning
+     * 级别越高，保留的数据越少：
+     * RUNNING_MODERATE、UI_HIDDEN保留3/4，RUNNING_LOW、BACKGROUND保留1/2，
+     * RUNNING_CRITICAL、MODERATE保留1/4，COMPLETE全部清空
      *
      * @param level
      */
@@ -50,32 +65,64 @@ public class AppCache {
                 clear();
                 break;
             case Application.TRIM_MEMORY_MODERATE:// = 60;
-                clear(CACHE_PROTOTYPE, CACHE_SCRIPTS);
-                break;
-            case Application.TRIM_MEMORY_BACKGROUND:// = 40;
-                clear(CACHE_SCRIPTS);
-                break;
-            case Application.TRIM_MEMORY_UI_HIDDEN:// = 20;
-                clear(CACHE_SCRIPTS);
-                break;
             case Application.TRIM_MEMORY_RUNNING_CRITICAL:// = 15;
+                trimBudget(1);
                 break;
+            case Application.TRIM_MEMORY_BACKGROUND:// = 40;
             case Application.TRIM_MEMORY_RUNNING_LOW:// = 10;
+                trimBudget(2);
                 break;
+            case Application.TRIM_MEMORY_UI_HIDDEN:// = 20;
             case Application.TRIM_MEMORY_RUNNING_MODERATE:// = 5;
+                trimBudget(3);
                 break;
         }
     }
 
+    /**
+     * 在所有cache中淘汰最久未使用的数据，直到总字节数不超过预算的quarters/4
+     * 按个数计算的cache各自保留quarters/4
+     */
+    private static synchronized void trimBudget(int quarters) {
+        CacheBudget budget = getBudget();
+        budget.trimToSize(budget.maxSize() / 4 * quarters);
+        if (mCachePool != null) {
+            for (AppCache appCache : mCachePool.values()) {
+                WeightedLruCache<Object, Object> lru = appCache.mLruCache;
+                if (lru != null && !appCache.mWeighted)
+                    lru.trimToSize(lru.maxSize() / 4 * quarters);
+            }
+        }
+    }
+
     private AppCache() {
-        this(DEFAULT_LRU_CACHE_SIZE);
+        this(DEFAULT_LRU_CACHE_SIZE, false);
     }
 
-    private AppCache(int size) {
+    private AppCache(int size, boolean weighted) {
         mCache = new HashMap<Object, Object>();
+        mWeighted = weighted;
         if (size > 0) {
-            mLruCache = new LuaLruCache(size);
+            mLruCache = weighted ? new WeightedLruCache<>(size, getBudget())
+                    : new WeightedLruCache<>(size);
+        }
+    }
+
+    /**
+     * 所有cache共用的预算
+     */
+    public static synchronized CacheBudget getBudget() {
+        if (sBudget == null) {
+            sBudget = new CacheBudget(Math.min(MAX_BUDGET, Runtime.getRuntime().maxMemory() / 64));
         }
+        return sBudget;
+    }
+
+    /**
+     * 设置所有cache的总字节数上限
+     */
+    public static void setMaxSize(long maxSize) {
+        getBudget().resize(maxSize);
     }
 
     /**
@@ -84,59 +131,112 @@ public class AppCache {
      * @return
      */
     public static AppCache getPrototpyeCache() {
-        return getCache(CACHE_PROTOTYPE, DEFAULT_LRU_CACHE_PROTOTYPE_SIZE);
+        return getWeightedCache(CACHE_PROTOTYPE, DEFAULT_LRU_CACHE_PROTOTYPE_SIZE);
     }
 
     public static AppCache getCache(String cacheName) {
         return getCache(cacheName, DEFAULT_LRU_CACHE_SIZE);
     }
 
+    /**
+     * @param size lru部分的个数上限，只在第一次创建时有效
+     *             putLru时传入size的数据按size计算
+     */
     public static AppCache getCache(String cacheName, int size) {
+        return getCache(cacheName, size, false);
+    }
+
+    /**
+     * lru部分按字节数计算，与其他此类cache共用总预算{@link #getBudget()}
+     *
+     * @param byteBudget lru部分的字节数上限，只在第一次创建时有效
+     */
+    public static AppCache getWeightedCache(String cacheName, int byteBudget) {
+        return getCache(cacheName, byteBudget, true);
+    }
+
+    public static AppCache getWeightedCache(String cacheName) {
+        return getWeightedCache(cacheName, DEFAULT_LRU_CACHE_QUOTA);
+    }
+
+    private static synchronized AppCache getCache(String cacheName, int size, boolean weighted) {
         if (mCachePool == null) {
             mCachePool = new HashMap<String, AppCache>();
         }
         if (!mCachePool.containsKey(cacheName)) {
-            final AppCache appCache = new AppCache(size);
+            final AppCache appCache = new AppCache(size, weighted);
             mCachePool.put(cacheName, appCache);
             return appCache;
         }
         return mCachePool.get(cacheName);
     }
 
+    /**
+     * 各cache的统计信息，如 cache_scripts: WeightedLruCache[size=...,hits=...]
+     */
+    public static synchronized String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("AppCache[size=").append(getBudget().size())
+                .append(",maxSize=").append(getBudget().maxSize()).append(']');
+        if (mCachePool != null) {
+            for (Map.Entry<String, AppCache> e : mCachePool.entrySet()) {
+                WeightedLruCache<Object, Object> lru = e.getValue().mLruCache;
+                if (lru != null)
+                    sb.append('\n').append(e.getKey()).append(": ").append(lru);
+            }
+        }
+        return sb.toString();
+    }
+
 
     /**
      * should call when LuaView is destroy
+     * 清空后之前获取的cache不再存入lru部分，需重新通过{@link #getCache(String)}等获取
      */
-    public static void clear() {
+    public static synchronized void clear() {
         if (mCachePool != null) {
+            for (AppCache appCache : mCachePool.values()) {
+                appCache.release();
+            }
             mCachePool.clear();
         }
     }
 
     /**
      * clear certain cache
+     * 同{@link #clear()}，之前获取的cache不再存入lru部分
      *
      * @param keys
      */
-    public static void clear(String... keys) {
+    public static synchronized void clear(String... keys) {
         if (mCachePool != null && keys != null) {
-            AppCache appCache = null;
             for (String key : keys) {
-                if (mCachePool.containsKey(key)) {
-                    appCache = mCachePool.remove(key);
-                    if (appCache != null) {
-                        if (appCache.mCache != null) {
-                            appCache.mCache.clear();
-                        }
-                        if (appCache.mLruCache != null) {
-                            appCache.mLruCache.evictAll();
-                        }
-                    }
+                AppCache appCache = mCachePool.remove(key);
+                if (appCache != null) {
+                    appCache.release();
                 }
             }
         }
     }
 
+    private void release() {
+        if (mCache != null) {
+            mCache.clear();
+        }
+        if (mLruCache != null) {
+            mLruCache.release();
+        }
+    }
+
+    /**
+     * lru部分，可获取hit/miss/eviction等统计信息
+     *
+     * @return 创建时size为0则返回null
+     */
+    public WeightedLruCache<Object, Object> getLruCache() {
+        return mLruCache;
+    }
+
     /**
      * get from cache
      *
@@ -159,8 +259,8 @@ public class AppCache {
      * @return
      */
     public <T> T getLru(final Object key) {
-        if (mLruCache != null && mLruCache.get(key) != null) {
-            return (T) mLruCache.getWrap(key);
+        if (mLruCache != null) {
+            return (T) mLruCache.get(key);
         }
         return null;
     }
@@ -185,21 +285,26 @@ public class AppCache {
      *
      * @param key
      * @param value
+     * @param size  占用的大小，null时按字节数计算的cache按{@link WeightedLruCache#estimateSize(Object)}估算，
+     *              按个数计算的cache计为1
      * @param <T>
      * @return
      */
     public <T> T putLru(final Object key, T value, Integer size) {
-        if (mLruCache != null) {
-            mLruCache.putWrap(key, value, size);
+        if (mLruCache != null && key != null && value != null) {
+            if (size != null) {
+                mLruCache.put(key, value, size);
+            } else if (mWeighted) {
+                mLruCache.put(key, value);
+            } else {
+                mLruCache.put(key, value, 1);
+            }
         }
         return value;
     }
 
     public <T> T putLru(final Object key, T value) {
-        if (mLruCache != null) {
-            mLruCache.putWrap(key, value, null);
-        }
-        return value;
+        return putLru(key, value, null);
     }
 
     public <T> T removeLru(final Object key) {
@@ -208,52 +313,4 @@ public class AppCache {
         }
         return null;
     }
-
-    //----------------------------------------extend lru object-------------------------------------
-    static class LuaLruCache extends LruCache<Object, Object> {
-        public LuaLruCache(int maxSize) {
-            super(maxSize);
-        }
-
-        public void putWrap(Object key, Object value, Integer size) {
-            if (key != null && value != null) {
-                if (size != null) {
-                    super.put(key, new WrapLruObject(value, size));
-                } else {
-                    super.put(key, value);
-                }
-            }
-        }
-
-        public Object getWrap(Object key) {
-            if (key != null) {
-                Object result = super.get(key);
-                if (result instanceof WrapLruObject) {
-                    return ((WrapLruObject) result).obj;
-                } else {
-                    return result;
-                }
-            } else {
-                return null;
-            }
-        }
-
-        @Override
-        protected int sizeOf(Object key, Object value) {
-            if (value instanceof WrapLruObject) {
-                return ((WrapLruObject) value).size;
-            }
-            return super.sizeOf(key, value);
-        }
-    }
-
-    static class WrapLruObject extends Object {
-        Object obj;
-        int size;
-
-        WrapLruObject(Object obj, int size) {
-            this.obj = obj;
-            this.size = size;
-        }
-    }
-}
\ No newline at end of file
+}
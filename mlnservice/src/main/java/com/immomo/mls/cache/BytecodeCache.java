@@ -0,0 +1,452 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import com.immomo.mls.util.FileUtil;
+import com.immomo.mls.util.HexUtil;
+import com.immomo.mls.util.IOUtil;
+
+import org.luaj.vm2.Globals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 磁盘上的Lua二进制码缓存，App重启、{@link AppCache#onTrimMemory}后依然有效
+ * 以源码内容及chunkname的hash、{@link Globals#LUAC_VERSION}及底层文件配置作为key，
+ * 源码不变时直接加载缓存的二进制码，省去编译
+ * 总大小超过上限时，按最近使用时间删除
+ *
+ * 文件脚本另以路径、大小、修改时间作为引用（{@link #fileKey}），记录对应的key，
+ * 文件未变化时不需要读取源码计算hash；
+ * 修改时间距今不足{@link #MTIME_GRANULARITY}的文件不使用引用，
+ * 避免同一时间精度内大小不变的再次修改（如热重载）读到旧的二进制码
+ *
+ * @see com.immomo.mls.util.CompileUtils
+ */
+public class BytecodeCache {
+    public static final long DEFAULT_MAX_SIZE = 20 * 1024 * 1024;//20M
+    private static final String DIR_NAME = "LuaBytecode";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String REF_DIR_NAME = "ref";
+    /**
+     * 引用文件数量上限，文件修改后旧的引用不再使用，超过时删除最久的一半
+     */
+    static final int MAX_REF_COUNT = 1024;
+    /**
+     * 文件修改时间的精度上限（FAT等为2秒），此时间内再次修改文件，修改时间可能不变
+     */
+    static final long MTIME_GRANULARITY = 2000;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    /**
+     * Lua二进制码文件头，已是二进制码的数据不需要缓存
+     */
+    private static final byte LUA_SIGNATURE = 0x1B;
+
+    private static boolean enable = true;
+    private static long defaultMaxSize = DEFAULT_MAX_SIZE;
+    private static BytecodeCache instance;
+
+    private final File dir;
+    private final File refDir;
+    private final long maxSize;
+    private final long createTime = System.currentTimeMillis();
+    /**
+     * 目录中缓存文件总大小，第一次写入时统计
+     */
+    private long size = -1;
+    /**
+     * 引用文件数量，第一次写入时统计
+     */
+    private int refCount = -1;
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    /**
+     * 是否使用缓存，默认使用
+     */
+    public static synchronized void setEnable(boolean e) {
+        enable = e;
+    }
+
+    /**
+     * 设置缓存大小上限，需在第一次使用前设置
+     */
+    public static synchronized void setMaxSize(long max) {
+        defaultMaxSize = max;
+    }
+
+    /**
+     * @return 未开启或没有缓存目录时返回null
+     */
+    public static synchronized BytecodeCache getInstance() {
+        if (!enable)
+            return null;
+        if (instance == null) {
+            File cacheDir = FileUtil.getCacheDir();
+            if (cacheDir == null)
+                return null;
+            instance = new BytecodeCache(new File(cacheDir, DIR_NAME), defaultMaxSize);
+        }
+        return instance;
+    }
+
+    public BytecodeCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.refDir = new File(dir, REF_DIR_NAME);
+        this.maxSize = maxSize;
+    }
+
+    //<editor-fold desc="key">
+
+    /**
+     * @param source    源码，position和limit不变
+     * @param chunkname 编译时的名称，会记录在二进制码中
+     * @return 已是二进制码时返回null
+     */
+    public static String key(ByteBuffer source, String chunkname) {
+        if (source == null || !source.hasRemaining() || source.get(source.position()) == LUA_SIGNATURE)
+            return null;
+        MessageDigest digest = sha1();
+        if (digest == null)
+            return null;
+        digest.update(source.duplicate());
+        return key(digest, chunkname, Globals.LUAC_VERSION, Globals.getNativeFileConfigs());
+    }
+
+    /**
+     * @param source    源码
+     * @param chunkname 编译时的名称，会记录在二进制码中
+     * @return 已是二进制码时返回null
+     */
+    public static String key(byte[] source, String chunkname) {
+        if (source == null || source.length == 0 || source[0] == LUA_SIGNATURE)
+            return null;
+        MessageDigest digest = sha1();
+        if (digest == null)
+            return null;
+        digest.update(source);
+        return key(digest, chunkname, Globals.LUAC_VERSION, Globals.getNativeFileConfigs());
+    }
+
+    /**
+     * 分段读取文件计算hash，不映射、不将整个文件读入java堆
+     *
+     * @param source    源码文件
+     * @param chunkname 编译时的名称，会记录在二进制码中
+     * @return 已是二进制码或读取失败时返回null
+     */
+    public static String key(File source, String chunkname) {
+        MessageDigest digest = digest(source);
+        if (digest == null)
+            return null;
+        return key(digest, chunkname, Globals.LUAC_VERSION, Globals.getNativeFileConfigs());
+    }
+
+    static MessageDigest digest(File source) {
+        MessageDigest digest = sha1();
+        if (digest == null)
+            return null;
+        InputStream is = null;
+        try {
+            is = new FileInputStream(source);
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            boolean empty = true;
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                if (empty && len > 0) {
+                    if (buffer[0] == LUA_SIGNATURE)
+                        return null;
+                    empty = false;
+                }
+                digest.update(buffer, 0, len);
+            }
+            return empty ? null : digest;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtil.closeQuietly(is);
+        }
+    }
+
+    /**
+     * 文件引用的key，通过{@link #getRef}找到文件内容对应的key
+     *
+     * @param length       文件大小
+     * @param lastModified 文件修改时间
+     * @return 无法获取，或文件刚修改过（{@link #isStable}）时返回null
+     */
+    public static String fileKey(File source, long length, long lastModified, String chunkname) {
+        if (!isStable(lastModified, System.currentTimeMillis()))
+            return null;
+        MessageDigest digest = digest(source, length, lastModified);
+        if (digest == null)
+            return null;
+        return key(digest, chunkname, Globals.LUAC_VERSION, Globals.getNativeFileConfigs());
+    }
+
+    /**
+     * 修改时间早于now超过{@link #MTIME_GRANULARITY}时，之后的修改一定会改变修改时间，引用才可靠
+     * 修改时间晚于now（时钟回拨）时不可靠
+     */
+    static boolean isStable(long lastModified, long now) {
+        return now - lastModified >= MTIME_GRANULARITY;
+    }
+
+    static MessageDigest digest(File source, long length, long lastModified) {
+        MessageDigest digest = sha1();
+        if (digest == null || lastModified == 0)
+            return null;
+        digest.update(toBytes(source.getAbsolutePath() + '|' + length + '|' + lastModified));
+        return digest;
+    }
+
+    /**
+     * chunkname会记录在二进制码中（报错信息、debug），
+     * 文件配置（如加密）会影响二进制码的格式，都作为key的一部分
+     */
+    static String key(MessageDigest digest, String chunkname, int luacVersion, int fileConfigs) {
+        digest.update((byte) 0);
+        if (chunkname != null)
+            digest.update(toBytes(chunkname));
+        return HexUtil.bytesToHex(digest.digest()) + '_' + luacVersion + '_' + fileConfigs;
+    }
+
+    private static byte[] toBytes(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return s.getBytes();
+        }
+    }
+
+    static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+    //</editor-fold>
+
+    /**
+     * 获取缓存的二进制码文件，并更新其使用时间
+     *
+     * @return 没有缓存时返回null
+     */
+    public synchronized File get(String key) {
+        File f = new File(dir, key);
+        if (!f.isFile()) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        f.setLastModified(System.currentTimeMillis());
+        hitCount.incrementAndGet();
+        return f;
+    }
+
+    /**
+     * 二进制码先写入此文件，写入成功后再通过{@link #commit}放入缓存，
+     * 避免写入中途退出时留下不完整的缓存
+     */
+    public File newTempFile(String key) {
+        return new File(dir, key + '.' + Thread.currentThread().getId() + TEMP_SUFFIX);
+    }
+
+    /**
+     * 将{@link #newTempFile}写入的文件放入缓存，超过大小上限时删除最久未使用的缓存
+     *
+     * @return false: 放入失败，临时文件会被删除
+     */
+    public synchronized boolean commit(String key, File temp) {
+        initSize();
+        File f = new File(dir, key);
+        long old = f.isFile() ? f.length() : 0;
+        if (!temp.isFile() || !temp.renameTo(f)) {
+            temp.delete();
+            return false;
+        }
+        size += f.length() - old;
+        trim();
+        return true;
+    }
+
+    /**
+     * 删除缓存，如缓存的二进制码加载失败时
+     */
+    public synchronized void remove(String key) {
+        File f = new File(dir, key);
+        if (!f.isFile())
+            return;
+        long len = f.length();
+        if (f.delete() && size >= 0)
+            size -= len;
+    }
+
+    public synchronized void clear() {
+        deleteFiles(refDir);
+        deleteFiles(dir);
+        size = 0;
+        refCount = 0;
+    }
+
+    //<editor-fold desc="ref">
+
+    /**
+     * 获取文件引用对应的key
+     *
+     * @param fileKey {@link #fileKey}
+     * @return 没有引用或对应的缓存已被删除时返回null
+     */
+    public synchronized String getRef(String fileKey) {
+        byte[] data = FileUtil.readBytes(new File(refDir, fileKey));
+        if (data == null)
+            return null;
+        String key = new String(data, 0, data.length);
+        return new File(dir, key).isFile() ? key : null;
+    }
+
+    /**
+     * 记录文件引用，之后文件未变化时可直接通过{@link #getRef}获取key
+     *
+     * @param fileKey {@link #fileKey}
+     * @param key     文件内容的key
+     */
+    public synchronized void putRef(String fileKey, String key) {
+        initRefCount();
+        if (!refDir.isDirectory() && !refDir.mkdirs())
+            return;
+        File f = new File(refDir, fileKey);
+        boolean exists = f.isFile();
+        if (FileUtil.save(f, toBytes(key)) && !exists)
+            refCount++;
+        trimRefs();
+    }
+
+    private void initRefCount() {
+        if (refCount >= 0)
+            return;
+        String[] names = refDir.list();
+        refCount = names != null ? names.length : 0;
+    }
+
+    private void trimRefs() {
+        if (refCount <= MAX_REF_COUNT)
+            return;
+        File[] files = refDir.listFiles();
+        if (files == null)
+            return;
+        refCount = files.length;
+        Integer[] order = sortByLastModified(files);
+        for (int i = 0, l = files.length / 2; i < l; i++) {
+            if (files[order[i]].delete())
+                refCount--;
+        }
+    }
+    //</editor-fold>
+
+    /**
+     * 命中次数，{@link #get}找到缓存的次数
+     */
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 未命中次数，{@link #get}未找到缓存的次数
+     */
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    public synchronized long getSize() {
+        initSize();
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    private void initSize() {
+        if (size >= 0)
+            return;
+        size = 0;
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory())
+                continue;
+            if (f.getName().endsWith(TEMP_SUFFIX)) {
+                /// 上次写入中途退出留下的临时文件
+                if (f.lastModified() < createTime)
+                    f.delete();
+                continue;
+            }
+            size += f.length();
+        }
+    }
+
+    private void trim() {
+        if (size <= maxSize)
+            return;
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        Integer[] order = sortByLastModified(files);
+        for (Integer i : order) {
+            if (size <= maxSize)
+                break;
+            File f = files[i];
+            if (f.isDirectory() || f.getName().endsWith(TEMP_SUFFIX))
+                continue;
+            long len = f.length();
+            if (f.delete())
+                size -= len;
+        }
+    }
+
+    /**
+     * @return 按修改时间从旧到新排列的下标
+     */
+    private static Integer[] sortByLastModified(File[] files) {
+        final long[] times = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            times[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(times[a], times[b]);
+            }
+        });
+        return order;
+    }
+
+    private static void deleteFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isFile())
+                f.delete();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多个{@link WeightedLruCache}共用的内存预算
+ * 总字节数超过预算时，在所有cache中淘汰最久未使用的数据
+ * 所有共用预算的cache都以此对象为锁
+ */
+public final class CacheBudget {
+    private long maxSize;
+    private long size;
+    /**
+     * 访问序号，每次读写加一，用于比较不同cache中数据的使用先后
+     */
+    private long tick;
+    private final List<WeightedLruCache<?, ?>> caches = new ArrayList<>();
+
+    /**
+     * @param maxSize 所有cache的总字节数上限
+     */
+    public CacheBudget(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 当前所有cache的总字节数
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 修改上限，超出时立即淘汰
+     */
+    public synchronized void resize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 按最近使用时间淘汰，直到总字节数不超过size
+     */
+    public synchronized void trimToSize(long size) {
+        while (this.size > size) {
+            WeightedLruCache<?, ?> victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (WeightedLruCache<?, ?> c : caches) {
+                long t = c.eldestAccess();
+                if (t < oldest) {
+                    oldest = t;
+                    victim = c;
+                }
+            }
+            if (victim == null)
+                break;
+            victim.evictEldest();
+        }
+    }
+
+    synchronized void register(WeightedLruCache<?, ?> cache) {
+        caches.add(cache);
+    }
+
+    synchronized void unregister(WeightedLruCache<?, ?> cache) {
+        caches.remove(cache);
+    }
+
+    long nextTick() {
+        return ++tick;
+    }
+
+    void add(long delta) {
+        size += delta;
+    }
+}
@@ -0,0 +1,294 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按字节数计算大小的LRU cache
+ * 每个cache有自己的上限，同时和共用{@link CacheBudget}的其他cache一起受总预算限制
+ * 统计方法与{@link androidx.collection.LruCache}一致
+ *
+ * 数据大小由put时传入，或由数据实现{@link Sized}提供，其他数据按{@link #estimateSize(Object)}估算
+ */
+public final class WeightedLruCache<K, V> {
+    /**
+     * 无法估算大小的数据，按此大小计算
+     */
+    public static final int DEFAULT_ENTRY_SIZE = 256;
+
+    /**
+     * 数据自己提供占用的字节数
+     */
+    public interface Sized {
+        int byteSize();
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final int size;
+        long access;
+
+        Node(V value, int size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private final CacheBudget budget;
+    /**
+     * 访问顺序，第一个为最久未使用的
+     */
+    private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(0, 0.75f, true);
+    private long maxSize;
+    private long size;
+    /**
+     * {@link #release()}后不再存入数据，避免仍持有此cache的调用方增加共用预算的大小，而预算又无法从此cache淘汰
+     */
+    private boolean released;
+
+    private int putCount;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * 单独使用，不与其他cache共用预算
+     */
+    public WeightedLruCache(long maxSize) {
+        this(maxSize, new CacheBudget(maxSize));
+    }
+
+    /**
+     * @param maxSize 此cache的字节数上限
+     * @param budget  共用的预算
+     */
+    public WeightedLruCache(long maxSize, CacheBudget budget) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize <= 0");
+        this.maxSize = maxSize;
+        this.budget = budget;
+        budget.register(this);
+    }
+
+    public V get(K key) {
+        if (key == null)
+            return null;
+        synchronized (budget) {
+            Node<V> n = map.get(key);
+            if (n == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            n.access = budget.nextTick();
+            return n.value;
+        }
+    }
+
+    /**
+     * 按估算的大小存入
+     *
+     * @see #put(Object, Object, int)
+     */
+    public V put(K key, V value) {
+        return put(key, value, estimateSize(value));
+    }
+
+    /**
+     * 存入数据，超过此cache或总预算的上限时淘汰最久未使用的数据
+     * 单个数据大于此cache上限时不存入，{@link #release()}后不存入
+     *
+     * @param size 数据占用的字节数
+     * @return 被替换的数据
+     */
+    public V put(K key, V value, int size) {
+        if (key == null || value == null)
+            throw new NullPointerException("key == null || value == null");
+        if (size < 0)
+            size = 0;
+        synchronized (budget) {
+            putCount++;
+            Node<V> old = map.remove(key);
+            if (old != null)
+                removed(old);
+            if (size > maxSize || released)
+                return old != null ? old.value : null;
+            Node<V> n = new Node<>(value, size);
+            n.access = budget.nextTick();
+            map.put(key, n);
+            this.size += size;
+            budget.add(size);
+            trimToSize(maxSize);
+            budget.trimToSize(budget.maxSize());
+            return old != null ? old.value : null;
+        }
+    }
+
+    public V remove(K key) {
+        if (key == null)
+            return null;
+        synchronized (budget) {
+            Node<V> n = map.remove(key);
+            if (n == null)
+                return null;
+            removed(n);
+            return n.value;
+        }
+    }
+
+    /**
+     * 淘汰最久未使用的数据，直到字节数不超过size
+     */
+    public void trimToSize(long size) {
+        synchronized (budget) {
+            while (this.size > size && !map.isEmpty()) {
+                evictEldest();
+            }
+        }
+    }
+
+    public void evictAll() {
+        trimToSize(-1);
+    }
+
+    /**
+     * 修改上限，超出时立即淘汰
+     */
+    public void resize(long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize <= 0");
+        synchronized (budget) {
+            this.maxSize = maxSize;
+            trimToSize(maxSize);
+        }
+    }
+
+    /**
+     * 清空并不再占用共用预算，之后的{@link #put}不再存入数据
+     */
+    public void release() {
+        synchronized (budget) {
+            released = true;
+            evictAll();
+            budget.unregister(this);
+        }
+    }
+
+    public boolean isReleased() {
+        synchronized (budget) {
+            return released;
+        }
+    }
+
+    //<editor-fold desc="statistics">
+
+    /**
+     * 当前字节数
+     */
+    public long size() {
+        synchronized (budget) {
+            return size;
+        }
+    }
+
+    public long maxSize() {
+        synchronized (budget) {
+            return maxSize;
+        }
+    }
+
+    public int count() {
+        synchronized (budget) {
+            return map.size();
+        }
+    }
+
+    public int putCount() {
+        synchronized (budget) {
+            return putCount;
+        }
+    }
+
+    public int hitCount() {
+        synchronized (budget) {
+            return hitCount;
+        }
+    }
+
+    public int missCount() {
+        synchronized (budget) {
+            return missCount;
+        }
+    }
+
+    /**
+     * 因超过上限或低内存被淘汰的数量，不包括{@link #remove}和替换
+     */
+    public int evictionCount() {
+        synchronized (budget) {
+            return evictionCount;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (budget) {
+            int accesses = hitCount + missCount;
+            int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+            return "WeightedLruCache[size=" + size + ",maxSize=" + maxSize + ",count=" + map.size()
+                    + ",hits=" + hitCount + ",misses=" + missCount + ",evictions=" + evictionCount
+                    + ",hitRate=" + hitPercent + "%]";
+        }
+    }
+    //</editor-fold>
+
+    /**
+     * 估算数据大小
+     * {@link Sized}、byte[]、字符串可以计算，其他数据按{@link #DEFAULT_ENTRY_SIZE}
+     */
+    public static int estimateSize(Object value) {
+        if (value instanceof Sized)
+            return ((Sized) value).byteSize();
+        if (value instanceof byte[])
+            return ((byte[]) value).length;
+        if (value instanceof CharSequence)
+            return ((CharSequence) value).length() << 1;
+        return DEFAULT_ENTRY_SIZE;
+    }
+
+    /**
+     * 最久未使用数据的访问序号，为空时返回Long.MAX_VALUE
+     * 需持有budget锁
+     */
+    long eldestAccess() {
+        if (map.isEmpty())
+            return Long.MAX_VALUE;
+        return map.values().iterator().next().access;
+    }
+
+    /**
+     * 需持有budget锁
+     */
+    void evictEldest() {
+        Iterator<Map.Entry<K, Node<V>>> it = map.entrySet().iterator();
+        if (!it.hasNext())
+            return;
+        Node<V> n = it.next().getValue();
+        it.remove();
+        removed(n);
+        evictionCount++;
+    }
+
+    private void removed(Node<V> n) {
+        size -= n.size;
+        budget.add(-n.size);
+    }
+}
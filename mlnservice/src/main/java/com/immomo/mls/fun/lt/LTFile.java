@@ -19,6 +19,7 @@ import com.immomo.mls.util.EncryptUtil;
 import com.immomo.mls.util.FileUtil;
 import com.immomo.mls.util.IOUtil;
 import com.immomo.mls.util.JsonUtil;
+import com.immomo.mls.util.LuaTableJsonWriter;
 import com.immomo.mls.util.RelativePathUtils;
 import com.immomo.mls.utils.ErrorUtils;
 import com.immomo.mls.utils.LVCallback;
@@ -261,6 +262,16 @@ public class LTFile {
                     @LuaBridge.Type(value = Function0.class, typeArgs = {Unit.class})
             })
     })
+    public static void asyncWriteMap(String path, LuaValue map, LVCallback callback) {
+        if (RelativePathUtils.isLocalUrl(path)) {
+            path = RelativePathUtils.getAbsoluteUrl(path);
+        }
+        MLSAdapterContainer.getThreadAdapter().execute(MLSThreadAdapter.Priority.HIGH, new WriteStringTask(path, callback, mapToJson(map)));
+    }
+
+    /**
+     * 供java调用，lua中使用{@link #asyncWriteMap(String, LuaValue, LVCallback)}
+     */
     public static void asyncWriteMap(String path, Map map, LVCallback callback) {
         if (RelativePathUtils.isLocalUrl(path)) {
             path = RelativePathUtils.getAbsoluteUrl(path);
@@ -275,6 +286,16 @@ public class LTFile {
                     @LuaBridge.Type(value = Function0.class, typeArgs = {Unit.class})
             })
     })
+    public static void asyncWriteArray(String path, LuaValue array, LVCallback callback) {
+        if (RelativePathUtils.isLocalUrl(path)) {
+            path = RelativePathUtils.getAbsoluteUrl(path);
+        }
+        MLSAdapterContainer.getThreadAdapter().execute(MLSThreadAdapter.Priority.HIGH, new WriteStringTask(path, callback, arrayToJson(array)));
+    }
+
+    /**
+     * 供java调用，lua中使用{@link #asyncWriteArray(String, LuaValue, LVCallback)}
+     */
     public static void asyncWriteArray(String path, List array, LVCallback callback) {
         if (RelativePathUtils.isLocalUrl(path)) {
             path = RelativePathUtils.getAbsoluteUrl(path);
@@ -337,6 +358,20 @@ public class LTFile {
     }
 
     @LuaBridge
+    public static int syncWriteMap(String path, LuaValue map) {
+        if (RelativePathUtils.isLocalUrl(path)) {
+            path = RelativePathUtils.getAbsoluteUrl(path);
+        }
+        int result = makeFile(path);
+        if (result != CODE_NO_ERROR) {
+            return result;
+        }
+        return writeFileByte(new File(path), mapToJson(map));
+    }
+
+    /**
+     * 供java调用，lua中使用{@link #syncWriteMap(String, LuaValue)}
+     */
     public static int syncWriteMap(String path, Map map) {
         if (RelativePathUtils.isLocalUrl(path)) {
             path = RelativePathUtils.getAbsoluteUrl(path);
@@ -349,6 +384,20 @@ public class LTFile {
     }
 
     @LuaBridge
+    public static int syncWriteArray(String path, LuaValue array) {
+        if (RelativePathUtils.isLocalUrl(path)) {
+            path = RelativePathUtils.getAbsoluteUrl(path);
+        }
+        int result = makeFile(path);
+        if (result != CODE_NO_ERROR) {
+            return result;
+        }
+        return writeFileByte(new File(path), arrayToJson(array));
+    }
+
+    /**
+     * 供java调用，lua中使用{@link #syncWriteArray(String, LuaValue)}
+     */
     public static int syncWriteArray(String path, List array) {
         if (RelativePathUtils.isLocalUrl(path)) {
             path = RelativePathUtils.getAbsoluteUrl(path);
@@ -360,6 +409,22 @@ public class LTFile {
         return writeFileByte(new File(path), new JSONArray(array).toString());
     }
 
+    /**
+     * 在虚拟机线程中直接将table写成json，不经过Map中转
+     */
+    private static String mapToJson(LuaValue map) {
+        String json = map != null && map.isTable() ? LuaTableJsonWriter.toJson(map.toLuaTable()) : null;
+        return json == null ? "{}" : json;
+    }
+
+    /**
+     * 在虚拟机线程中直接将table写成json数组，不经过List中转
+     */
+    private static String arrayToJson(LuaValue array) {
+        String json = array != null && array.isTable() ? LuaTableJsonWriter.toJsonArray(array.toLuaTable()) : null;
+        return json == null ? "[]" : json;
+    }
+
     @LuaBridge
     public static int syncUnzipFile(String sourcePath, String targetPath) {
         if (RelativePathUtils.isLocalUrl(sourcePath)) {
@@ -15,6 +15,7 @@ import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
 import com.immomo.mls.fun.constants.WrapType;
 import com.immomo.mls.fun.weight.ILimitSizeView;
@@ -59,6 +60,43 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
 
     private int mUsedLenght;
 
+    /**
+     * 关闭后每次都重新测量
+     */
+    public static boolean MeasureCacheEnable = true;
+    private static final int MEASURE_CACHE_SIZE = 4;
+    /**
+     * 测量结果缓存，每项为：widthMeasureSpec, heightMeasureSpec, measuredWidthAndState, measuredHeightAndState
+     * 嵌套的Stack中，一次测量内父布局会用相同的spec测量同一子布局多次（如weight两次测量），命中缓存时不再测量子View
+     * 缓存只在同一轮测量内使用，见{@link #measurePass}；轮内子View变化通过{@link #requestLayout()}使缓存失效
+     *
+     * @see #onMeasure(int, int)
+     */
+    private final int[] measureCache = new int[MEASURE_CACHE_SIZE * 4];
+    private int measureCacheCount;
+    private int measureCacheNext;
+    /**
+     * 子View变化次数，变化后缓存失效
+     */
+    private int childrenGeneration;
+    private int measureCacheGeneration;
+    /**
+     * 测量轮次：外层没有正在测量子View的Stack时，onMeasure开始新的一轮，内层Stack沿用外层的轮次
+     * 只测量不布局后（如离屏测量），自身仍处于layout请求状态，子View的requestLayout不会再传递上来，
+     * 所以缓存不能跨轮使用
+     */
+    private static int measurePassCounter;
+    private int measurePass;
+    private int measureCachePass;
+    private boolean measuringChildren;
+    /**
+     * 最近一次onMeasure的spec，及子View实际按哪次spec测量
+     */
+    private int lastWidthMeasureSpec;
+    private int lastHeightMeasureSpec;
+    private int measuredWidthSpec;
+    private int measuredHeightSpec;
+
     public BaseRowColumn(Context context) {
         super(context);
         init();
@@ -96,6 +134,7 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
 
     public void setWrap(int wrap) {
         this.wrap = wrap;
+        invalidateMeasureCache();
     }
 
     public int getWrap() {
@@ -105,6 +144,7 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
     public void ellipsize(boolean enable, View ellipsizeView) {
         this.ellipsize = enable;
         this.ellipsizeView = ellipsizeView;
+        invalidateMeasureCache();
     }
 
     public boolean isEllipsize() {
@@ -130,11 +170,13 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
     @Override
     public void setMaxWidth(int mMaxWidth) {
         this.mMaxWidth = mMaxWidth;
+        invalidateMeasureCache();
     }
 
     @Override
     public void setMaxHeight(int mMaxHeight) {
         this.mMaxHeight = mMaxHeight;
+        invalidateMeasureCache();
     }
 
     @Override
@@ -188,6 +230,7 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
         if (oldIndex == -1) {
             throw new IllegalStateException("Is the child added in this layout?");
         }
+        invalidateMeasureCache();
         if (newPriority > oldPriority) {
             if (oldIndex == 0)
                 return;
@@ -280,11 +323,82 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         widthMeasureSpec = getSpec(widthMeasureSpec, (int) mMaxWidth);
         heightMeasureSpec = getSpec(heightMeasureSpec, (int) mMaxHeight);
-        if (mOrientation == VERTICAL) {
-            flexLayoutHelper.measureVertical(widthMeasureSpec, heightMeasureSpec);
-        } else {
-            flexLayoutHelper.measureHorizontal(widthMeasureSpec, heightMeasureSpec);
+        lastWidthMeasureSpec = widthMeasureSpec;
+        lastHeightMeasureSpec = heightMeasureSpec;
+        measurePass = currentMeasurePass();
+        if (MeasureCacheEnable && measureCacheGeneration == childrenGeneration && measureCachePass == measurePass) {
+            final int[] cache = measureCache;
+            for (int i = 0, l = measureCacheCount * 4; i < l; i += 4) {
+                if (cache[i] == widthMeasureSpec && cache[i + 1] == heightMeasureSpec) {
+                    super.setMeasuredDimension(cache[i + 2], cache[i + 3]);
+                    return;
+                }
+            }
         }
+        measureWithHelper(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * 实际测量子View，并缓存结果
+     */
+    private void measureWithHelper(int widthMeasureSpec, int heightMeasureSpec) {
+        measuringChildren = true;
+        try {
+            if (mOrientation == VERTICAL) {
+                flexLayoutHelper.measureVertical(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                flexLayoutHelper.measureHorizontal(widthMeasureSpec, heightMeasureSpec);
+            }
+        } finally {
+            measuringChildren = false;
+        }
+        measuredWidthSpec = widthMeasureSpec;
+        measuredHeightSpec = heightMeasureSpec;
+        if (!MeasureCacheEnable)
+            return;
+        if (measureCacheGeneration != childrenGeneration || measureCachePass != measurePass) {
+            measureCacheGeneration = childrenGeneration;
+            measureCachePass = measurePass;
+            measureCacheCount = 0;
+            measureCacheNext = 0;
+        }
+        final int i = measureCacheNext * 4;
+        measureCache[i] = widthMeasureSpec;
+        measureCache[i + 1] = heightMeasureSpec;
+        measureCache[i + 2] = getMeasuredWidthAndState();
+        measureCache[i + 3] = getMeasuredHeightAndState();
+        measureCacheNext = (measureCacheNext + 1) % MEASURE_CACHE_SIZE;
+        if (measureCacheCount < MEASURE_CACHE_SIZE)
+            measureCacheCount++;
+    }
+
+    /**
+     * 最近的Stack祖先正在测量子View时，沿用其轮次，否则开始新的一轮
+     */
+    private int currentMeasurePass() {
+        for (ViewParent p = getParent(); p instanceof View; p = p.getParent()) {
+            if (p instanceof BaseRowColumn) {
+                BaseRowColumn s = (BaseRowColumn) p;
+                if (s.measuringChildren)
+                    return s.measurePass;
+                break;
+            }
+        }
+        return ++measurePassCounter;
+    }
+
+    /**
+     * 子View或自身布局属性变化，测量缓存失效
+     * 子View的{@link View#requestLayout()}会传递到{@link #requestLayout()}
+     */
+    public void invalidateMeasureCache() {
+        childrenGeneration++;
+    }
+
+    @Override
+    public void requestLayout() {
+        invalidateMeasureCache();
+        super.requestLayout();
     }
 
     public void measureChildBeforeLayout(View child, int childIndex,
@@ -321,11 +435,18 @@ public abstract class BaseRowColumn extends ViewGroup implements ILimitSizeView,
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        /// 命中的缓存不是子View最后一次测量的spec，布局前按最后的spec重新测量子View
+        if (measuredWidthSpec != lastWidthMeasureSpec || measuredHeightSpec != lastHeightMeasureSpec) {
+            measurePass = ++measurePassCounter;
+            measureWithHelper(lastWidthMeasureSpec, lastHeightMeasureSpec);
+        }
         if (mOrientation == VERTICAL) {
             flexLayoutHelper.layoutVertical(l, t, r, b);
         } else {
             flexLayoutHelper.layoutHorizontal(l, t, r, b);
         }
+        /// 布局完成后子View的requestLayout会再传递上来，缓存只在一次布局流程内使用
+        invalidateMeasureCache();
     }
 
     //<editor-fold desc="LayoutParams">
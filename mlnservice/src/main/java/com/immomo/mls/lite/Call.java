@@ -11,10 +11,26 @@ public interface Call {
     WeakReference<LuaView> window();
     ScriptResult execute();
 
+    /**
+     * 异步执行：预处理、资源加载拦截器及主脚本读取在工作线程中执行，
+     * 之后切换到主线程创建虚拟机、视图并执行脚本，在主线程中回调
+     * 请求被取消（如LifecycleOwner销毁）后不回调
+     * 注意：预处理、资源加载拦截器因此运行在工作线程中，不能在其中创建View或访问主线程状态；
+     * 准备期间{@link #window()}为空
+     */
+    void enqueue(Callback callback);
+
     /**
      * 回收
      */
     void recycle();
+    interface Callback {
+        /**
+         * 主线程回调
+         */
+        void onResult(Call call, ScriptResult result);
+    }
+
     interface Factory {
         Call newCall(ScriptBundle request);
     }
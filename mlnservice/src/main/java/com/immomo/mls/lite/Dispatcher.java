@@ -11,91 +11,260 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author jidongdong
  * @date 2022-01-07 18:48:32
  * 请求分发器 管理请求
+ * <p>
+ * 请求按tag（默认为LifecycleOwner）索引，executed/finished为O(1)，
+ * pause/resume/cancelAll(tag)只遍历对应tag下的请求，均不加锁
  */
 public class Dispatcher {
     private static final String TAG = "LUA_Dispatcher";
-    List<Call> runningSyncCalls = new ArrayList<>();
+    /**
+     * 没有tag的请求
+     */
+    private static final Object NO_TAG = new Object();
 
-    synchronized void executed(RealCall call) {
-        runningSyncCalls.add(call);
+    /**
+     * 正在运行的请求 -> 记录
+     * 请求recycle后tag会被清除，所以在executed时记录
+     */
+    private final ConcurrentHashMap<Call, Running> runningSyncCalls = new ConcurrentHashMap<>();
+    /**
+     * tag -> 该tag下正在运行的请求
+     */
+    private final ConcurrentHashMap<Object, TagCalls> tagCalls = new ConcurrentHashMap<>();
+
+    void executed(RealCall call) {
+        Object tag = tagOf(call);
+        Running running = new Running(tag, call.eventListener());
+        if (runningSyncCalls.putIfAbsent(call, running) != null)
+            throw new IllegalStateException("Already Executed");
+        int count = addToTag(tag, call);
+        running.listener.dispatcherExecuted(call, tag, count);
+        /// 加入tag索引前已被cancelAll()取消
+        if (!runningSyncCalls.containsKey(call))
+            removeFromTag(tag, call);
     }
 
-    public synchronized void finished(Call call) {
+    public void finished(Call call) {
         call.recycle();
-        finished(runningSyncCalls, call);
+        Running running = runningSyncCalls.remove(call);
+        if (running == null) throw new AssertionError("Call wasn't in-flight!");
+        int count = removeFromTag(running.tag, call);
+        running.listener.dispatcherFinished(call, running.tag, count, System.nanoTime() - running.startNanos);
     }
 
-    private <T> void finished(List<T> calls, T call) {
-        synchronized (this) {
-            if (!calls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
-        }
+    /**
+     * @return false: 请求已结束或被取消
+     */
+    boolean isRunning(Call call) {
+        return runningSyncCalls.containsKey(call);
     }
 
-    public synchronized void cancelAll() {
-        for (Call call : runningSyncCalls) {
-            call.recycle();
+    /**
+     * 取消所有请求，和{@link #cancelAll(Object)}一样关闭tag集合并回调dispatcherFinished，但不销毁视图
+     */
+    public void cancelAll() {
+        for (Map.Entry<Object, TagCalls> e : tagCalls.entrySet()) {
+            cancel(e.getKey(), e.getValue(), false);
+        }
+        /// 并发加入的请求：先移除记录再移除索引，与executed中先加入索引再检查记录对应，索引不会残留
+        Iterator<Map.Entry<Call, Running>> it = runningSyncCalls.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Call, Running> e = it.next();
+            if (!runningSyncCalls.remove(e.getKey(), e.getValue()))
+                continue;
+            Running running = e.getValue();
+            removeFromTag(running.tag, e.getKey());
+            e.getKey().recycle();
+            running.listener.dispatcherFinished(e.getKey(), running.tag, 0, System.nanoTime() - running.startNanos);
         }
-        runningSyncCalls.clear();
     }
 
+    public List<Call> runningCalls() {
+        return Collections.unmodifiableList(new ArrayList<>(runningSyncCalls.keySet()));
+    }
 
-    public synchronized List<Call> runningCalls() {
-        List<Call> result = new ArrayList<>();
-        result.addAll(runningSyncCalls);
-        return Collections.unmodifiableList(result);
+    /**
+     * tag下正在运行的请求
+     */
+    public List<Call> runningCalls(@NonNull Object tag) {
+        TagCalls tc = tagCalls.get(tag);
+        if (tc == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(new ArrayList<>(tc.calls));
     }
 
-    public synchronized int runningCallsCount() {
+    public int runningCallsCount() {
         return runningSyncCalls.size();
     }
 
-    public synchronized void cancelAll(@NonNull Object tag) {
-        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, String.valueOf(runningCallsCount()));
-        final Iterator<Call> each = runningSyncCalls.iterator();
-        while (each.hasNext()) {
-            MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, runningCallsCount() + "cancelAll");
-            Call call = each.next();
-            if (call.request() != null && tag.equals(call.request().tag())) {
+    public int runningCallsCount(@NonNull Object tag) {
+        TagCalls tc = tagCalls.get(tag);
+        return tc == null ? 0 : Math.max(0, tc.count.get());
+    }
+
+    public void cancelAll(@NonNull Object tag) {
+        TagCalls tc = tagCalls.get(tag);
+        if (tc == null)
+            return;
+        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, tc.calls.size() + "cancelAll");
+        cancel(tag, tc, true);
+    }
+
+    public void resume(Object tag) {
+        TagCalls tc = tagCalls.get(tag);
+        if (tc == null)
+            return;
+        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, tc.calls.size() + "call.resume()");
+        for (Call call : tc.calls) {
+            LuaView view = window(call);
+            if (view != null) {
+                view.viewAppear(VisibilityType.LifeCycle);
+            }
+        }
+    }
+
+    public void pause(Object tag) {
+        TagCalls tc = tagCalls.get(tag);
+        if (tc == null)
+            return;
+        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, tc.calls.size() + "call.pause()");
+        for (Call call : tc.calls) {
+            LuaView view = window(call);
+            if (view != null) {
+                view.viewDisappear(VisibilityType.LifeCycle);
+            }
+        }
+    }
+
+    //<editor-fold desc="tag index">
+    private static final int CLOSED = -1;
+
+    /**
+     * 同一tag下的请求
+     * count为请求数，变为{@link #CLOSED}后不能再加入，需从map中移除并新建
+     */
+    private static final class TagCalls {
+        final Set<Call> calls = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    private static final class Running {
+        final Object tag;
+        final EventListener listener;
+        final long startNanos = System.nanoTime();
+
+        Running(Object tag, EventListener listener) {
+            this.tag = tag;
+            this.listener = listener != null ? listener : EventListener.NONE;
+        }
+    }
+
+    /**
+     * 先关闭集合，之后的请求会加入新的集合，再从map中移除
+     * 集合中的请求由先移除它的一方处理：这里取消，或{@link #addToTag}发现集合已关闭后重新加入
+     *
+     * @param destroyView 是否销毁请求的视图
+     */
+    private void cancel(Object tag, TagCalls tc, boolean destroyView) {
+        while (true) {
+            int c = tc.count.get();
+            if (c == CLOSED || tc.count.compareAndSet(c, CLOSED))
+                break;
+        }
+        tagCalls.remove(tag, tc);
+        for (Call call : tc.calls) {
+            if (!tc.calls.remove(call))
+                continue;
+            Running running = runningSyncCalls.remove(call);
+            /// 已被finished
+            if (running == null)
+                continue;
+            if (destroyView) {
+                LuaView view = window(call);
                 try {
-                    if (call.window() != null && call.window().get() != null) {
-                        call.window().get().onDestroy();
+                    if (view != null) {
+                        view.onDestroy();
                     }
                 } catch (Exception e) {
                     try {
-                        Environment.hook(e, call.window().get().getUserdata().getGlobals());
+                        Environment.hook(e, view.getUserdata().getGlobals());
                     } catch (Exception ignore) {
                     }
                 }
-                call.recycle();
-                each.remove();
             }
+            call.recycle();
+            running.listener.dispatcherFinished(call, tag, 0, System.nanoTime() - running.startNanos);
         }
     }
 
-    public synchronized void resume(Object tag) {
-        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, runningCallsCount() + "call.resume()");
-        for (Call call : runningCalls()) {
-            if (call.request() != null && tag.equals(call.request().tag())) {
-                if (call.window() != null && call.window().get() != null) {
-                    call.window().get().viewAppear(VisibilityType.LifeCycle);
+    /**
+     * @return 加入后tag下的请求数
+     */
+    private int addToTag(Object tag, Call call) {
+        while (true) {
+            TagCalls tc = tagCalls.get(tag);
+            if (tc == null) {
+                TagCalls n = new TagCalls();
+                tc = tagCalls.putIfAbsent(tag, n);
+                if (tc == null)
+                    tc = n;
+            }
+            int c = tc.count.get();
+            if (c == CLOSED) {
+                tagCalls.remove(tag, tc);
+                continue;
+            }
+            if (tc.count.compareAndSet(c, c + 1)) {
+                tc.calls.add(call);
+                /// 加入集合前集合被关闭，且请求未被cancel取走时，加入新的集合
+                if (tc.count.get() == CLOSED && tc.calls.remove(call)) {
+                    tagCalls.remove(tag, tc);
+                    continue;
                 }
+                return c + 1;
             }
         }
     }
 
-    public synchronized void pause(Object tag) {
-        MLSAdapterContainer.getConsoleLoggerAdapter().i(TAG, runningCallsCount() + "call.pause()");
-        for (Call call : runningCalls()) {
-            if (call.request() != null && tag.equals(call.request().tag())) {
-                if (call.window() != null && call.window().get() != null) {
-                    call.window().get().viewDisappear(VisibilityType.LifeCycle);
+    /**
+     * @return 移除后tag下的请求数
+     */
+    private int removeFromTag(Object tag, Call call) {
+        TagCalls tc = tagCalls.get(tag);
+        if (tc == null || !tc.calls.remove(call))
+            return 0;
+        while (true) {
+            int c = tc.count.get();
+            if (c <= 0)
+                return 0;
+            if (c == 1) {
+                /// 最后一个请求，关闭并移除集合
+                if (tc.count.compareAndSet(1, CLOSED)) {
+                    tagCalls.remove(tag, tc);
+                    return 0;
                 }
+            } else if (tc.count.compareAndSet(c, c - 1)) {
+                return c - 1;
             }
         }
     }
+
+    private static Object tagOf(Call call) {
+        Object tag = call.request() != null ? call.request().tag() : null;
+        return tag != null ? tag : NO_TAG;
+    }
+
+    private static LuaView window(Call call) {
+        return call.window() != null ? call.window().get() : null;
+    }
+    //</editor-fold>
 }
@@ -34,6 +34,30 @@ public abstract class EventListener {
     public void callStart(Call call) {
     }
 
+    /**
+     * 异步请求：工作线程中预处理、资源加载开始，在工作线程中回调
+     *
+     * @param call 请求
+     */
+    public void prepareStart(Call call) {
+    }
+
+    /**
+     * 异步请求：工作线程中预处理、资源加载结束，在工作线程中回调
+     *
+     * @param call 请求
+     */
+    public void prepareEnd(Call call) {
+    }
+
+    /**
+     * 异步请求：切换到主线程，开始执行剩余的拦截器
+     *
+     * @param call 请求
+     */
+    public void mainThreadStart(Call call) {
+    }
+
     /**
      * 资源处理开始 默认没有被调用 需要具体业务拦截器自己调用 可能会多次调用
      *
@@ -104,6 +128,27 @@ public abstract class EventListener {
     public void callEnd(Call call) {
     }
 
+    /**
+     * 请求加入{@link Dispatcher}
+     *
+     * @param call         请求
+     * @param tag          请求的tag，默认为LifecycleOwner
+     * @param runningCount 加入后该tag下正在运行的请求数
+     */
+    public void dispatcherExecuted(Call call, Object tag, int runningCount) {
+    }
+
+    /**
+     * 请求从{@link Dispatcher}中移除（finished或cancelAll）
+     *
+     * @param call          请求
+     * @param tag           请求的tag
+     * @param runningCount  移除后该tag下正在运行的请求数
+     * @param inFlightNanos 请求从加入到移除的时长
+     */
+    public void dispatcherFinished(Call call, Object tag, int runningCount, long inFlightNanos) {
+    }
+
     /**
      * 脚本执行报错 触发降级策略时触发
      * @param call
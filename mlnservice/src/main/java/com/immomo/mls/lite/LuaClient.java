@@ -1,6 +1,9 @@
 package com.immomo.mls.lite;
 
+import com.immomo.mls.MLSAdapterContainer;
+import com.immomo.mls.adapter.MLSThreadAdapter;
 import com.immomo.mls.lite.data.LuaClientRecyclerViewPool;
+import com.immomo.mls.lite.data.ScriptPrefetchCache;
 import com.immomo.mls.lite.data.UserdataType;
 import com.immomo.mls.lite.interceptor.EngineInitCheckInterceptor;
 import com.immomo.mls.lite.interceptor.ExceptionInterceptor;
@@ -41,10 +44,11 @@ public class LuaClient implements Call.Factory, LifecycleEventObserver {
 
     /**
      * preProcessorInterceptors 预处理 参数配置等处理
+     * {@link Call#enqueue}时在工作线程中执行
      */
     final List<Interceptor> preProcessorInterceptors;
     /*
-     *resourceProcessorInterceptors 资源加载的拦截器
+     *resourceProcessorInterceptors 资源加载的拦截器 {@link Call#enqueue}时在工作线程中执行
      */
     final List<Interceptor> resourceProcessorInterceptors;
 
@@ -115,6 +119,24 @@ public class LuaClient implements Call.Factory, LifecycleEventObserver {
         return userdataType;
     }
 
+    /**
+     * 预读脚本，在工作线程中读取入口文件及其require的文件，执行请求时优先使用
+     * 可在RecyclerView预加载时调用
+     *
+     * @param request 需包含url和本地文件路径
+     * @see ScriptPrefetchCache
+     */
+    public void prefetch(final ScriptBundle request) {
+        if (request == null || request.getLocalFile() == null)
+            return;
+        MLSAdapterContainer.getThreadAdapter().execute(MLSThreadAdapter.Priority.MEDIUM, new Runnable() {
+            @Override
+            public void run() {
+                ScriptPrefetchCache.getInstance().prefetch(request);
+            }
+        });
+    }
+
     @Override
     public Call newCall(ScriptBundle request) {
         request.setTag(lifecycleOwner);
@@ -206,6 +228,9 @@ public class LuaClient implements Call.Factory, LifecycleEventObserver {
             return this;
         }
 
+        /**
+         * 使用{@link Call#enqueue}时，预处理拦截器在工作线程中执行，不能创建View或访问主线程状态
+         */
         public Builder addPreProcessorInterceptor(Interceptor interceptor) {
             if (interceptor == null) throw new IllegalArgumentException("interceptor == null");
             preProcessorInterceptors.add(interceptor);
@@ -218,6 +243,9 @@ public class LuaClient implements Call.Factory, LifecycleEventObserver {
             return this;
         }
 
+        /**
+         * 使用{@link Call#enqueue}时，资源加载拦截器在工作线程中执行，不能创建View或访问主线程状态
+         */
         public Builder addResourceProcessorInterceptor(Interceptor interceptor) {
             if (interceptor == null) throw new IllegalArgumentException("interceptor == null");
             resourceProcessorInterceptors.add(interceptor);
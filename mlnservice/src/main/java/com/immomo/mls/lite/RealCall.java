@@ -1,15 +1,20 @@
 package com.immomo.mls.lite;
 
+import com.immomo.mls.MLSAdapterContainer;
+import com.immomo.mls.adapter.MLSThreadAdapter;
 import com.immomo.mls.fun.globals.LuaView;
 import com.immomo.mls.lite.data.ScriptResult;
 import com.immomo.mls.lite.interceptor.DefaultUserDataInjectInterceptor;
 import com.immomo.mls.lite.interceptor.ExecuteLuaInterceptor;
 import com.immomo.mls.lite.interceptor.Interceptor;
+import com.immomo.mls.utils.MainThreadExecutor;
 import com.immomo.mls.wrapper.ScriptBundle;
+import com.immomo.mls.wrapper.ScriptFile;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 真实的一次加载lua视图请求
@@ -19,6 +24,15 @@ public final class RealCall implements Call {
     final ScriptBundle originalRequest;
     private Transmitter transmitter;
     private WeakReference<LuaView> window;
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PREPARING = 1;
+    private static final int STATE_CANCELED = 2;
+    private static final int STATE_RECYCLED = 3;
+    /**
+     * 工作线程准备期间被取消时，不能同时回收，由工作线程在准备结束后回收
+     * 回收前CAS为{@link #STATE_RECYCLED}，多次recycle（如调用方回收后{@link Dispatcher#finished}再回收）只回收一次
+     */
+    private final AtomicInteger state = new AtomicInteger(STATE_IDLE);
 
     public RealCall(LuaClient client, ScriptBundle originalRequest) {
         this.client = client;
@@ -44,11 +58,80 @@ public final class RealCall implements Call {
         return window;
     }
 
+    EventListener eventListener() {
+        return transmitter.eventListener();
+    }
+
     @Override
     public ScriptResult execute() {
         transmitter.callStart();
         client.dispatcher().executed(this);
         ScriptResult response = getResultWithInterceptorChain();
+        return onResponse(response);
+    }
+
+    @Override
+    public void enqueue(final Callback callback) {
+        startPrepare();
+        MLSAdapterContainer.getThreadAdapter().execute(MLSThreadAdapter.Priority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                Prepared prepared = null;
+                try {
+                    prepared = prepare();
+                } finally {
+                    prepareFinished();
+                    final Prepared result = prepared;
+                    MainThreadExecutor.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPrepared(result, callback);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    void startPrepare() {
+        transmitter.callStart();
+        state.set(STATE_PREPARING);
+        client.dispatcher().executed(this);
+    }
+
+    /**
+     * 工作线程中，准备结束后执行；准备期间被取消，此时才能回收
+     */
+    void prepareFinished() {
+        if (state.compareAndSet(STATE_PREPARING, STATE_IDLE))
+            return;
+        if (state.compareAndSet(STATE_CANCELED, STATE_RECYCLED))
+            recycleNow();
+    }
+
+    /**
+     * 主线程中执行
+     *
+     * @param prepared 为空时工作线程异常退出，结束请求并回调空结果
+     */
+    void onPrepared(Prepared prepared, Callback callback) {
+        /// 准备期间已被取消
+        if (!client.dispatcher().isRunning(this))
+            return;
+        ScriptResult response;
+        if (prepared == null) {
+            response = new ScriptResult.Builder().request(originalRequest).build();
+            transmitter.callEnd();
+            client.dispatcher().finished(this);
+        } else {
+            transmitter.mainThreadStart();
+            response = onResponse(getResultWithInterceptorChain(prepared));
+        }
+        if (callback != null)
+            callback.onResult(this, response);
+    }
+
+    private ScriptResult onResponse(ScriptResult response) {
         if (response != null && response.luaRootView() instanceof LuaView) {
             window = new WeakReference<LuaView>((LuaView) response.luaRootView());
             LuaViewAttachListener listener = new LuaViewAttachListener();
@@ -59,17 +142,46 @@ public final class RealCall implements Call {
         return response;
     }
 
+    /**
+     * 工作线程准备中时只标记取消，准备结束后回收；已回收或已标记取消时不处理
+     */
     @Override
     public void recycle() {
+        while (true) {
+            int s = state.get();
+            if (s == STATE_RECYCLED || s == STATE_CANCELED)
+                return;
+            if (s == STATE_PREPARING) {
+                if (state.compareAndSet(STATE_PREPARING, STATE_CANCELED))
+                    return;
+            } else if (state.compareAndSet(STATE_IDLE, STATE_RECYCLED)) {
+                recycleNow();
+                return;
+            }
+        }
+    }
+
+    private void recycleNow() {
         transmitter.recycle();
         originalRequest.clear();//避免内存泄露
     }
 
     ScriptResult getResultWithInterceptorChain() {
+        return getResultWithInterceptorChain(null);
+    }
+
+    /**
+     * @param prepared 不为空时，预处理、资源加载拦截器已在工作线程中执行
+     */
+    private ScriptResult getResultWithInterceptorChain(Prepared prepared) {
         // Build a full stack of interceptors.
         List<Interceptor> interceptors = new ArrayList<>();
         interceptors.add(client.errorViewInterceptor());
         interceptors.addAll(client.errorCatchInterceptors());
+        if (prepared != null) {
+            interceptors.add(new PreparedInterceptor(prepared,
+                    client.preProcessorInterceptors().size() + client.resourceProcessorInterceptors().size()));
+        }
         interceptors.addAll(client.preProcessorInterceptors());
         interceptors.addAll(client.resourceProcessorInterceptors());
         interceptors.addAll(client.middlewareInterceptors());
@@ -85,4 +197,78 @@ public final class RealCall implements Call {
             return new ScriptResult.Builder().request(originalRequest).build();
         }
     }
+
+    //<editor-fold desc="enqueue">
+
+    /**
+     * 工作线程中的执行结果
+     */
+    static final class Prepared {
+        final ScriptBundle original;
+        ScriptBundle request;
+        Exception error;
+
+        Prepared(ScriptBundle original) {
+            this.original = original;
+        }
+    }
+
+    /**
+     * 工作线程中执行预处理、资源加载拦截器，并将主脚本读入内存（Lua目录下的文件为映射）
+     * 虚拟机和视图只能在主线程中创建，编译及执行仍在主线程
+     */
+    Prepared prepare() {
+        final Prepared prepared = new Prepared(originalRequest);
+        transmitter.prepareStart();
+        try {
+            List<Interceptor> interceptors = new ArrayList<>();
+            interceptors.addAll(client.preProcessorInterceptors());
+            interceptors.addAll(client.resourceProcessorInterceptors());
+            interceptors.add(new Interceptor() {
+                @Override
+                public ScriptResult intercept(Chain chain) {
+                    prepared.request = chain.request();
+                    return new ScriptResult.Builder().request(chain.request()).build();
+                }
+            });
+            new RealInterceptorChain(interceptors, 0, transmitter, null, originalRequest, this, true)
+                    .proceed(originalRequest);
+            ScriptFile main = prepared.request != null ? prepared.request.getMain() : null;
+            if (main != null && main.pathType && !main.hasSourceData() && !main.hasSourceBuffer()) {
+                main.toSourceDataType(prepared.request.getContext());
+            }
+        } catch (Exception e) {
+            prepared.error = e;
+        }
+        transmitter.prepareEnd();
+        return prepared;
+    }
+
+    /**
+     * 使用工作线程中的结果，跳过预处理、资源加载拦截器
+     * 请求被替换（如脚本加载失败后重试）时，在主线程中重新执行
+     */
+    static final class PreparedInterceptor implements Interceptor {
+        private final Prepared prepared;
+        private final int skipCount;
+        private boolean used;
+
+        PreparedInterceptor(Prepared prepared, int skipCount) {
+            this.prepared = prepared;
+            this.skipCount = skipCount;
+        }
+
+        @Override
+        public ScriptResult intercept(Chain chain) throws Exception {
+            RealInterceptorChain realChain = (RealInterceptorChain) chain;
+            if (used || chain.request() != prepared.original
+                    || (prepared.error == null && prepared.request == null))
+                return realChain.proceed(chain.request());
+            used = true;
+            if (prepared.error != null)
+                throw prepared.error;
+            return realChain.skip(skipCount, prepared.request);
+        }
+    }
+    //</editor-fold>
 }
@@ -16,8 +16,17 @@ public class RealInterceptorChain implements Interceptor.Chain {
     private final Call call;
     private final Transmitter transmitter;
     private final Exchange exchange;
+    /**
+     * 只执行预处理、资源加载拦截器，结果没有RootView
+     */
+    private final boolean prepareOnly;
 
     public RealInterceptorChain(List<Interceptor> interceptors, int index, Transmitter transmitter, Exchange exchange, ScriptBundle request, Call call) {
+        this(interceptors, index, transmitter, exchange, request, call, false);
+    }
+
+    RealInterceptorChain(List<Interceptor> interceptors, int index, Transmitter transmitter, Exchange exchange, ScriptBundle request, Call call, boolean prepareOnly) {
+        this.prepareOnly = prepareOnly;
         this.interceptors = interceptors;
         this.index = index;
         this.transmitter = transmitter;
@@ -53,7 +62,7 @@ public class RealInterceptorChain implements Interceptor.Chain {
         if (index >= interceptors.size()) throw new AssertionError();
         // Call the next interceptor in the chain.
         RealInterceptorChain next = new RealInterceptorChain(interceptors,
-                index + 1, transmitter, exchange, request, call);
+                index + 1, transmitter, exchange, request, call, prepareOnly);
         Interceptor interceptor = interceptors.get(index);
         ScriptResult response = interceptor.intercept(next);
 
@@ -62,11 +71,20 @@ public class RealInterceptorChain implements Interceptor.Chain {
             throw new NullPointerException("interceptor " + interceptor + " returned null");
         }
 
-        if (response.luaRootView() == null) {
+        if (!prepareOnly && response.luaRootView() == null) {
             throw new IllegalStateException(
                     "interceptor " + interceptor + " returned a LuaScriptResult with no RootView");
         }
         return response;
     }
 
+    /**
+     * 跳过之后的count个拦截器
+     */
+    ScriptResult skip(int count, ScriptBundle request) throws Exception {
+        RealInterceptorChain chain = new RealInterceptorChain(interceptors,
+                index + count, transmitter, exchange, request, call, prepareOnly);
+        return chain.proceed(request);
+    }
+
 }
@@ -7,6 +7,7 @@ import com.immomo.mls.PreGlobalInitUtils;
 import com.immomo.mls.adapter.dependence.DepInfo;
 import com.immomo.mls.lite.data.UserdataType;
 import com.immomo.mls.lite.interceptor.Interceptor;
+import com.immomo.mls.utils.ParsedUrl;
 import com.immomo.mls.wrapper.AssetsResourceFinder;
 import com.immomo.mls.wrapper.CacheResourceFinder;
 import com.immomo.mls.wrapper.DepResourceFinder;
@@ -14,6 +15,7 @@ import com.immomo.mls.wrapper.ScriptBundle;
 
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.utils.PathResourceFinder;
+import org.luaj.vm2.utils.RequireIndex;
 
 /**
  * client 和 exchange 的桥接层
@@ -31,6 +33,10 @@ public class Transmitter {
         this.eventListener = client.eventListenerFactory().create(call);
     }
 
+    EventListener eventListener() {
+        return eventListener;
+    }
+
     public void callStart() {
         eventListener.callStart(call);
     }
@@ -47,6 +53,18 @@ public class Transmitter {
         eventListener.callFailed(call, e);
     }
 
+    void prepareStart() {
+        eventListener.prepareStart(call);
+    }
+
+    void prepareEnd() {
+        eventListener.prepareEnd(call);
+    }
+
+    void mainThreadStart() {
+        eventListener.mainThreadStart(call);
+    }
+
     public void resourceProcessStart() {
         eventListener.resourceProcessStart(call);
     }
@@ -64,12 +82,14 @@ public class Transmitter {
     Globals newGlobal(ScriptBundle request) {
         eventListener.engineInitStart(call);
         Globals globals = null;
-        if (client != null && client.userdataType() != UserdataType.ONLY_LIGHT) {
+        if (client != null) {
             if (MLSEngine.DEBUG && client.userdataType() == UserdataType.FULL_THEN_LIGHT) {
                 //测试模式下优先轻量注册 避免遗漏桥注册
                 globals = null;
             } else {
-                globals = PreGlobalInitUtils.take();
+                globals = PreGlobalInitUtils.take(client.userdataType());
+                if (globals != null && client.userdataType() == UserdataType.ONLY_LIGHT)
+                    globals.setRegisterLightUserdata(true);
             }
         }
         if (globals == null) {
@@ -91,6 +111,10 @@ public class Transmitter {
         if (dependenceInfo != null) {
             globals.addResourceFinder(new DepResourceFinder(dependenceInfo));
         }
+        ParsedUrl url = request.getParsedUrl();
+        /// finder不同（如有无依赖）的虚拟机使用不同的索引
+        globals.setRequireIndex(RequireIndex.forBundle((url != null ? url.toString() : request.getUrl())
+                + '|' + request.getBasePath() + '|' + (dependenceInfo != null)));
 
         eventListener.engineInitEnd(call);
         return globals;
@@ -6,6 +6,7 @@ import android.view.ViewGroup;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.immomo.mls.MLSAdapterContainer;
+import com.immomo.mls.fun.globals.LuaView;
 import com.immomo.mls.lite.Call;
 import com.immomo.mls.lite.LuaClient;
 import com.immomo.mls.utils.sparse.SparseIntArray;
@@ -34,8 +35,12 @@ public class LuaClientRecyclerViewPool extends RecyclerView.RecycledViewPool {
             if (viewTypeMaxCount.get(viewType) <= getRecycledViewCount(viewType)) {
                 Call scrapCall = null;
                 for (Call call : client.dispatcher().runningCalls()) {
+                    /// enqueue的请求准备期间还没有视图
+                    LuaView window = call.window() != null ? call.window().get() : null;
+                    if (window == null)
+                        continue;
                     ViewGroup itemView = (ViewGroup) scrap.itemView;
-                    if (itemView.findViewWithTag(VIEW_TAG) == call.window().get()) {
+                    if (itemView.findViewWithTag(VIEW_TAG) == window) {
                         scrapCall = call;
                         call.recycle();
                         break;
@@ -0,0 +1,304 @@
+package com.immomo.mls.lite.data;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.immomo.mls.Constants;
+import com.immomo.mls.util.FileUtil;
+import com.immomo.mls.utils.ParsedUrl;
+import com.immomo.mls.utils.ScriptBundleParseUtils;
+import com.immomo.mls.utils.ScriptLoadException;
+import com.immomo.mls.wrapper.ScriptBundle;
+import com.immomo.mls.wrapper.ScriptFile;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LuaClient预读脚本的缓存
+ * <p>
+ * {@link com.immomo.mls.lite.LuaClient#prefetch}在工作线程中读取入口文件，以及入口文件require的同目录下的lua文件，
+ * {@link com.immomo.mls.lite.interceptor.CacheInterceptor}优先从这里取
+ * <p>
+ * key为不含参数的url（与{@link com.immomo.mls.lite.interceptor.CacheInterceptor}读取文件时一致）+本地路径，
+ * 命中时检查入口文件及子文件的修改时间和大小，任一变化后失效
+ * 按字节数淘汰，默认最多占用最大内存的1/64，低内存时清空
+ */
+public final class ScriptPrefetchCache {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Pattern REQUIRE = Pattern.compile(Constants.REQUIRE_REGEX);
+    /**
+     * 单个入口最多预读的子文件数
+     */
+    private static final int MAX_CHILDREN = 64;
+    private static final int MAX_SIZE = 16 * 1024 * 1024;
+
+    private static volatile ScriptPrefetchCache instance;
+
+    public static ScriptPrefetchCache getInstance() {
+        if (instance == null) {
+            synchronized (ScriptPrefetchCache.class) {
+                if (instance == null) {
+                    instance = new ScriptPrefetchCache((int) Math.min(MAX_SIZE, Runtime.getRuntime().maxMemory() / 64));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 预读的入口文件及子文件
+     * 数据不可修改，使用时创建新的{@link ScriptFile}
+     */
+    static final class Entry {
+        final String chunkName;
+        final String basePath;
+        final byte[] main;
+        final long lastModified;
+        final long length;
+        /**
+         * 相对路径(a/b.lua) -> 数据
+         */
+        final Map<String, Child> children;
+        final int bytes;
+
+        Entry(String chunkName, String basePath, byte[] main, long lastModified, long length, Map<String, Child> children) {
+            this.chunkName = chunkName;
+            this.basePath = basePath;
+            this.main = main;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.children = children;
+            int b = main.length;
+            for (Child c : children.values()) {
+                b += c.data.length;
+            }
+            this.bytes = b;
+        }
+    }
+
+    /**
+     * 子文件数据，及读取前的修改时间和大小
+     */
+    static final class Child {
+        final byte[] data;
+        final long lastModified;
+        final long length;
+
+        Child(byte[] data, long lastModified, long length) {
+            this.data = data;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private final LruCache<String, Entry> cache;
+    private final HashSet<String> loading = new HashSet<>();
+
+    private ScriptPrefetchCache(int maxBytes) {
+        cache = new LruCache<String, Entry>(Math.max(1, maxBytes)) {
+            @Override
+            protected int sizeOf(String key, Entry value) {
+                return Math.max(1, value.bytes);
+            }
+        };
+    }
+
+    /**
+     * 预读，工作线程中调用
+     *
+     * @return false: 不是本地文件，或读取失败
+     */
+    public boolean prefetch(ScriptBundle request) {
+        final String key = keyOf(request);
+        if (key == null)
+            return false;
+        File file = new File(request.getLocalFile());
+        if (valid(cache.get(key), file))
+            return true;
+        synchronized (loading) {
+            if (!loading.add(key))
+                return true;
+        }
+        try {
+            Entry e = load(file);
+            if (e == null)
+                return false;
+            cache.put(key, e);
+            return true;
+        } finally {
+            synchronized (loading) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 取预读的结果，每次返回新的{@link ScriptBundle}，不修改request
+     *
+     * @return 未预读或文件已变化时返回null
+     */
+    @Nullable
+    public ScriptBundle get(ScriptBundle request) {
+        final String key = keyOf(request);
+        if (key == null)
+            return null;
+        Entry e = cache.get(key);
+        if (e == null)
+            return null;
+        if (!valid(e, new File(request.getLocalFile()))) {
+            cache.remove(key);
+            return null;
+        }
+        ScriptBundle ret = new ScriptBundle(urlOf(request), e.basePath);
+        ret.setMain(new ScriptFile(e.chunkName, e.main, true));
+        for (Map.Entry<String, Child> c : e.children.entrySet()) {
+            ret.addChild(c.getKey(), new ScriptFile(chunkNameOf(c.getKey()), c.getValue().data, false));
+        }
+        ret.addFlag(ScriptBundle.TYPE_FILE | ScriptBundle.SINGLE_FILE);
+        return ret;
+    }
+
+    public void remove(ScriptBundle request) {
+        String key = keyOf(request);
+        if (key != null)
+            cache.remove(key);
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * 当前占用字节数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    //<editor-fold desc="private">
+
+    @Nullable
+    private static String keyOf(ScriptBundle request) {
+        if (request == null || request.getLocalFile() == null)
+            return null;
+        return urlOf(request) + '|' + request.getLocalFile();
+    }
+
+    /**
+     * 不含参数的url，与读取磁盘文件时一致
+     */
+    private static String urlOf(ScriptBundle request) {
+        ParsedUrl url = request.getParsedUrl();
+        return url != null ? url.getUrlWithoutParams() : request.getUrl();
+    }
+
+    /**
+     * 入口文件及所有子文件的修改时间和大小都未变化
+     */
+    static boolean valid(Entry e, File file) {
+        if (e == null || !unchanged(file, e.lastModified, e.length))
+            return false;
+        for (Map.Entry<String, Child> c : e.children.entrySet()) {
+            Child child = c.getValue();
+            if (!unchanged(new File(e.basePath, c.getKey()), child.lastModified, child.length))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean unchanged(File file, long lastModified, long length) {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    @Nullable
+    static Entry load(File file) {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        byte[] data = FileUtil.readBytes(file);
+        if (data == null)
+            return null;
+        String chunkName;
+        try {
+            chunkName = ScriptBundleParseUtils.getInstance()
+                    .parseCacheToBundle(data, file.getPath()).getMain().getChunkName();
+        } catch (ScriptLoadException e) {
+            return null;
+        }
+        Map<String, Child> children = new LinkedHashMap<>();
+        File dir = file.getParentFile();
+        if (dir != null)
+            loadRequires(dir, data, children);
+        return new Entry(chunkName, file.getParent(), data, lastModified, length, children);
+    }
+
+    /**
+     * 广度优先读取require的同目录下的lua源码文件，二进制码不解析
+     */
+    private static void loadRequires(File dir, byte[] main, Map<String, Child> children) {
+        ArrayDeque<byte[]> queue = new ArrayDeque<>();
+        HashSet<String> visited = new HashSet<>();
+        queue.add(main);
+        while (!queue.isEmpty() && children.size() < MAX_CHILDREN) {
+            byte[] src = queue.poll();
+            if (isBinary(src))
+                continue;
+            Matcher m = REQUIRE.matcher(new String(src, UTF8));
+            while (m.find() && children.size() < MAX_CHILDREN) {
+                String path = pathOf(m.group(1));
+                if (path == null || !visited.add(path))
+                    continue;
+                File f = new File(dir, path);
+                if (!f.isFile())
+                    continue;
+                long lastModified = f.lastModified();
+                long length = f.length();
+                byte[] data = FileUtil.readBytes(f);
+                if (data == null)
+                    continue;
+                children.put(path, new Child(data, lastModified, length));
+                queue.add(data);
+            }
+        }
+    }
+
+    /**
+     * a.b -> a/b.lua
+     */
+    @Nullable
+    private static String pathOf(String module) {
+        if (module.contains(".."))
+            return null;
+        if (module.endsWith(Constants.POSTFIX_LUA))
+            module = module.substring(0, module.length() - Constants.POSTFIX_LUA.length());
+        return module.replace('.', File.separatorChar) + Constants.POSTFIX_LUA;
+    }
+
+    private static String chunkNameOf(String path) {
+        return path.substring(0, path.length() - Constants.POSTFIX_LUA.length()).replace(File.separatorChar, '.');
+    }
+
+    /**
+     * lua二进制码以ESC开头
+     */
+    private static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == 0x1B;
+    }
+    //</editor-fold>
+}
@@ -2,8 +2,13 @@ package com.immomo.mls.lite.interceptor;
 
 import com.immomo.mls.lite.LightScriptReader;
 import com.immomo.mls.lite.RealInterceptorChain;
+import com.immomo.mls.lite.data.ScriptPrefetchCache;
 import com.immomo.mls.lite.data.ScriptResult;
 import com.immomo.mls.wrapper.ScriptBundle;
+import com.immomo.mls.wrapper.ScriptFile;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class CacheInterceptor implements Interceptor {
     @Override
@@ -15,7 +20,19 @@ public class CacheInterceptor implements Interceptor {
         LightScriptReader reader = new LightScriptReader();
         realChain.transmitter().resourceProcessStart();
 
-        if (request.hasChildren()) {
+        bundle = ScriptPrefetchCache.getInstance().get(request);//预读缓存
+        if (bundle != null) {
+            /// 使用新的请求，不修改原请求：重试时原请求仍按原来的方式读取
+            ScriptBundle newRequest = request.newBuilder()
+                    .childrenScriptFile(mergeChildren(request, bundle))
+                    .build();
+            newRequest.setMain(bundle.getMain());
+            newRequest.setBasePath(bundle.getBasePath());
+
+            realChain.transmitter().resourceProcessEnd();
+
+            return realChain.proceed(newRequest);
+        } else if (request.hasChildren()) {
             bundle = reader.loadScriptByCache(request.getMain().getSourceData(), request.getParsedUrl().getUrlWithoutParams());//内存缓存
         } else {
             bundle = reader.loadScript(request.getParsedUrl(), request.getLocalFile());//磁盘文件
@@ -27,4 +44,16 @@ public class CacheInterceptor implements Interceptor {
 
         return realChain.proceed(request);
     }
+
+    /**
+     * 原请求的子文件及预读的子文件，预读的优先
+     */
+    private static Map<String, ScriptFile> mergeChildren(ScriptBundle request, ScriptBundle prefetched) {
+        Map<String, ScriptFile> children = new HashMap<>();
+        if (request.hasChildren())
+            children.putAll(request.getChildren());
+        if (prefetched.hasChildren())
+            children.putAll(prefetched.getChildren());
+        return children;
+    }
 }
@@ -10,6 +10,7 @@ package com.immomo.mls.util;
 import androidx.annotation.NonNull;
 
 import com.immomo.mls.LuaViewManager;
+import com.immomo.mls.cache.BytecodeCache;
 import com.immomo.mls.utils.ERROR;
 import com.immomo.mls.utils.ScriptLoadException;
 import com.immomo.mls.wrapper.ScriptBundle;
@@ -17,11 +18,19 @@ import com.immomo.mls.wrapper.ScriptFile;
 
 import org.luaj.vm2.Globals;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+
 /**
  * Created by Xiong.Fangyu on 2019/4/19
  */
 public class CompileUtils {
 
+    /**
+     * 编译主脚本，使用{@link BytecodeCache}
+     * 注意：只缓存主脚本；子脚本（{@link PreloadUtils#preload}预加载、Lua中require由native按路径查找）
+     * 由native直接读取编译，不经过缓存
+     */
     public static void compile(@NonNull final ScriptBundle scriptBundle,
                                @NonNull final Globals globals) throws ScriptLoadException {
         compile(scriptBundle.getMain(), globals);
@@ -40,32 +49,139 @@ public class CompileUtils {
             throw new ScriptLoadException(ERROR.COMPILE_FAILED, null);
         }
         String chunkname = scriptFile.getChunkName();
-        if (scriptFile.pathType) {
+        final BytecodeCache cache = BytecodeCache.getInstance();
+        /// 文件未变化时直接加载上次缓存的二进制码，不读取源码
+        String fileKey = cache != null ? fileKey(scriptFile, chunkname) : null;
+        if (fileKey != null) {
+            String key = cache.getRef(fileKey);
+            if (key != null && loadFromCache(cache, key, chunkname, globals))
+                scriptFile.setCompiled(true);
+        }
+        /// 已读入内存（如异步请求在工作线程中读取）时直接编译内存中的数据
+        if (!scriptFile.isCompiled() && scriptFile.pathType && !scriptFile.hasSourceData() && !scriptFile.hasSourceBuffer()) {
             if (scriptFile.isAssetsPath()) {
-                    scriptFile.setCompiled(globals.loadAssetsFile(scriptFile.getAssetsPath(), chunkname));
-            } else if (globals.loadFile(scriptFile.path, chunkname)) {
+                scriptFile.setCompiled(globals.loadAssetsFile(scriptFile.getAssetsPath(), chunkname));
+            } else if (fileKey != null ? loadFile(cache, fileKey, scriptFile, chunkname, globals)
+                    : globals.loadFile(scriptFile.path, chunkname)) {
                 scriptFile.setCompiled(true);
             } else if ((Globals.getNativeFileConfigs() & Globals.LUA_FILE_CINFIG_SOURCE_FILE) != Globals.LUA_FILE_CINFIG_SOURCE_FILE){
                 //尝试在java层读取代码
                 LuaViewManager vm = (LuaViewManager) globals.getJavaUserdata();
                 scriptFile.toSourceDataType(vm != null ? vm.context : null);
+                fileKey = cache != null ? fileKey(scriptFile, chunkname) : null;
             } else {
                 scriptFile.setCompiled(false);
             }
         }
+        /// 映射后文件被改写（如离线包更新、热重载）时，读取映射的数据可能SIGBUS，改为按路径读取
+        if (!scriptFile.isCompiled() && scriptFile.hasSourceBuffer() && !scriptFile.isSourceBufferValid()) {
+            scriptFile.setSourceBuffer(null);
+            fileKey = cache != null ? fileKey(scriptFile, chunkname) : null;
+            scriptFile.setCompiled(fileKey != null ? loadFile(cache, fileKey, scriptFile, chunkname, globals)
+                    : globals.loadFile(scriptFile.path, chunkname));
+        }
         if (!scriptFile.isCompiled()) {
+            final ByteBuffer buffer = scriptFile.getSourceBuffer();
             final byte[] data = scriptFile.getSourceData();
-            if (data != null) {
-                scriptFile.setCompiled(globals.loadData(chunkname, data));
+            String key = null;
+            if (cache != null) {
+                key = buffer != null ? BytecodeCache.key(buffer, chunkname) : BytecodeCache.key(data, chunkname);
+            }
+            if (key != null && loadFromCache(cache, key, chunkname, globals)) {
+                scriptFile.setCompiled(true);
+                if (fileKey != null)
+                    cache.putRef(fileKey, key);
+            } else {
+                if (buffer != null) {
+                    scriptFile.setCompiled(globals.loadData(chunkname, buffer));
+                } else if (data != null) {
+                    scriptFile.setCompiled(globals.loadData(chunkname, data));
+                }
+                if (key != null && scriptFile.isCompiled() && saveToCache(cache, key, globals) && fileKey != null) {
+                    cache.putRef(fileKey, key);
+                }
             }
         }
         scriptFile.setSourceData(null);
+        scriptFile.setSourceBuffer(null);
 
         if (!scriptFile.isCompiled()) {
             throw new ScriptLoadException(ERROR.COMPILE_FAILED, globals.getError());
         }
     }
 
+    /**
+     * 文件脚本（非assets）的引用key，文件未变化时key不变
+     * 数据已读入内存时，读取后文件又被修改的，返回null
+     *
+     * @return 不是文件脚本或无法获取文件信息时返回null
+     */
+    private static String fileKey(ScriptFile scriptFile, String chunkname) {
+        if (!scriptFile.pathType || scriptFile.isAssetsPath())
+            return null;
+        File file = new File(scriptFile.path);
+        long lastModified = file.lastModified();
+        if (scriptFile.hasSourceData() || scriptFile.hasSourceBuffer()) {
+            if (lastModified != scriptFile.getSourceLastModified())
+                return null;
+        }
+        return BytecodeCache.fileKey(file, file.length(), lastModified, chunkname);
+    }
+
+    /**
+     * 文件有变化时，分段读取源码计算hash（不映射、不读入java堆），内容未变时仍使用缓存；
+     * 否则由native按路径读取编译；期间文件未被修改时才记录引用、存入缓存
+     */
+    private static boolean loadFile(BytecodeCache cache, String fileKey, ScriptFile scriptFile, String chunkname, Globals globals) {
+        File file = new File(scriptFile.path);
+        String key = BytecodeCache.key(file, chunkname);
+        if (key != null && loadFromCache(cache, key, chunkname, globals)) {
+            if (fileKey.equals(fileKey(scriptFile, chunkname)))
+                cache.putRef(fileKey, key);
+            return true;
+        }
+        if (!globals.loadFile(scriptFile.path, chunkname))
+            return false;
+        if (key != null && fileKey.equals(fileKey(scriptFile, chunkname)) && saveToCache(cache, key, globals))
+            cache.putRef(fileKey, key);
+        return true;
+    }
+
+    /**
+     * 加载缓存的二进制码，加载失败的缓存会被删除
+     */
+    private static boolean loadFromCache(BytecodeCache cache, String key, String chunkname, Globals globals) {
+        File f = cache.get(key);
+        if (f == null)
+            return false;
+        boolean ret;
+        /// 缓存文件只通过重命名替换，不会被原地改写，可以映射
+        ByteBuffer buffer = FileUtil.mapFile(f);
+        if (buffer != null) {
+            ret = globals.loadData(chunkname, buffer);
+        } else {
+            byte[] data = FileUtil.fastReadBytes(f);
+            ret = data != null && globals.loadData(chunkname, data);
+        }
+        if (!ret)
+            cache.remove(key);
+        return ret;
+    }
+
+    /**
+     * 将刚编译的代码存入缓存，不影响之后执行
+     *
+     * @return 是否存入成功
+     */
+    private static boolean saveToCache(BytecodeCache cache, String key, Globals globals) {
+        File temp = cache.newTempFile(key);
+        if (globals.dumpLoadedData(temp.getAbsolutePath()) == Globals.LUA_OK) {
+            return cache.commit(key, temp);
+        }
+        temp.delete();
+        return false;
+    }
+
     private static void checkGlobalsIsValid(@NonNull Globals globals) throws ScriptLoadException {
         if (globals.isDestroyed()) {
             throw new ScriptLoadException(ERROR.GLOBALS_DESTROY, null);
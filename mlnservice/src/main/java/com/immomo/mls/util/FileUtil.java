@@ -629,6 +629,44 @@ public class FileUtil {
         return null;
     }
 
+    /**
+     * 只读映射文件，数据不读入java堆
+     * 映射在buffer被回收前一直有效，期间文件被截断后读取会触发SIGBUS，
+     * 只映射不会被原地改写的文件，或读取前检查文件大小和修改时间（{@link com.immomo.mls.wrapper.ScriptFile#isSourceBufferValid()}）
+     *
+     * @return 未开启内存映射或映射失败，返回null
+     */
+    public static MappedByteBuffer mapFile(File f) {
+        if (!useMemoryMap || f == null || !f.isFile())
+            return null;
+        long fl = f.length();
+        if (fl == 0 || fl > Integer.MAX_VALUE)
+            return null;
+        RandomAccessFile raf = null;
+        FileChannel channel = null;
+        try {
+            raf = new RandomAccessFile(f, "r");
+            channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fl);
+        } catch (IOException e) {
+            logError(e);
+        } finally {
+            IOUtil.closeQuietly(channel);
+            IOUtil.closeQuietly(raf);
+        }
+        return null;
+    }
+
+    /**
+     * 文件是否在{@link #getLuaDir()}下
+     */
+    public static boolean isInLuaDir(File f) {
+        if (f == null || LuaViewConfig.getLvConfig() == null || getRootDir() == null)
+            return false;
+        String dir = getLuaDir().getAbsolutePath() + File.separator;
+        return f.getAbsolutePath().startsWith(dir);
+    }
+
     public static boolean fastSave(File file, byte[] data) {
         if (!useMemoryMap) {
             return save(file, data);
@@ -15,6 +15,7 @@ import org.json.JSONObject;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.TableBatch;
 import org.luaj.vm2.utils.DisposableIterator;
 
 import java.util.ArrayList;
@@ -78,18 +79,20 @@ public class JsonUtil {
      */
     public static LuaValue toLuaTable(Globals g, JSONObject obj) {
         LuaTable table = LuaTable.create(g);
+        TableBatch batch = new TableBatch(obj.length());
         Iterator<String> iter = obj.keys();
         while (iter.hasNext()) {
             String key = iter.next();
             Object value = obj.opt(key);
             if (value instanceof JSONObject) {
-                table.set(key, toLuaTable(g, (JSONObject) value));
+                batch.set(key, toLuaTable(g, (JSONObject) value));
             } else if (value instanceof JSONArray) {
-                table.set(key, toLuaTable(g, (JSONArray) value));
+                batch.set(key, toLuaTable(g, (JSONArray) value));
             } else {
-                table.set(key, ConvertUtils.toLuaValue(g, value));
+                batch.set(key, ConvertUtils.toLuaValue(g, value));
             }
         }
+        table.setAll(batch);
         return table;
     }
 
@@ -122,17 +125,19 @@ public class JsonUtil {
     public static LuaValue toLuaTable(Globals g, JSONArray obj) {
         LuaTable table = LuaTable.create(g);
         final int len = obj.length();
+        TableBatch batch = new TableBatch(len);
         for (int i = 0; i < len; i++) {
             int key = i + 1;
             Object value = obj.opt(i);
             if (value instanceof JSONObject) {
-                table.set(key, toLuaTable(g, (JSONObject) value));
+                batch.set(key, toLuaTable(g, (JSONObject) value));
             } else if (value instanceof JSONArray) {
-                table.set(key, toLuaTable(g, (JSONArray) value));
+                batch.set(key, toLuaTable(g, (JSONArray) value));
             } else {
-                table.set(key, ConvertUtils.toLuaValue(g, value));
+                batch.set(key, ConvertUtils.toLuaValue(g, value));
             }
         }
+        table.setAll(batch);
         return table;
     }
 
@@ -0,0 +1,159 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.util;
+
+import org.json.JSONObject;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaTableReader;
+import org.luaj.vm2.LuaValue;
+
+/**
+ * 通过{@link LuaTableReader}将table直接写成json字符串
+ * 不经过Map、List及JSONObject中转，不创建{@link LuaValue}
+ *
+ * 转换规则：
+ * 1、从1开始的连续数组转成json数组，其他table转成json对象
+ * 2、number或boolean类型的key转成字符串，其他类型的key忽略
+ * 3、整数不带小数点，NaN、Infinity、function、userdata转成null
+ * 4、超过{@link LuaTableReader#DEFAULT_MAX_DEPTH}层的table转成null
+ *
+ * 需要在虚拟机线程中调用
+ *
+ * @see LuaTableReader
+ */
+public class LuaTableJsonWriter {
+
+    /**
+     * 将table转成json字符串
+     *
+     * @return table不存在时返回null
+     */
+    public static String toJson(LuaTable table) {
+        return write(table, false);
+    }
+
+    /**
+     * 将table转成json数组字符串，根table不是数组时，按遍历顺序取出value
+     *
+     * @return table不存在时返回null
+     */
+    public static String toJsonArray(LuaTable table) {
+        return write(table, true);
+    }
+
+    private static String write(LuaTable table, boolean rootArray) {
+        if (table == null || table.isDestroyed())
+            return null;
+        LuaTableReader reader = table.newReader();
+        try {
+            StringBuilder sb = null;
+            /// 每层是否为数组，以及是否需要写入逗号
+            boolean[] arrays = new boolean[8];
+            boolean[] hasValue = new boolean[8];
+            int depth = 0;
+            int event;
+            while ((event = reader.next()) != LuaTableReader.END_DOCUMENT) {
+                if (event == LuaTableReader.END_TABLE) {
+                    depth--;
+                    sb.append(arrays[depth] ? ']' : '}');
+                    continue;
+                }
+                if (depth == 0) {
+                    sb = new StringBuilder();
+                } else if (!writeKey(sb, reader, arrays[depth - 1], hasValue[depth - 1])) {
+                    if (event == LuaTableReader.BEGIN_TABLE)
+                        reader.skipTable();
+                    continue;
+                } else {
+                    hasValue[depth - 1] = true;
+                }
+                if (event == LuaTableReader.ENTRY) {
+                    writeValue(sb, reader);
+                    continue;
+                }
+                if (depth == arrays.length) {
+                    arrays = grow(arrays);
+                    hasValue = grow(hasValue);
+                }
+                boolean array = reader.isSequence() || (depth == 0 && rootArray);
+                arrays[depth] = array;
+                hasValue[depth] = false;
+                depth++;
+                sb.append(array ? '[' : '{');
+            }
+            return sb == null ? null : sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean[] grow(boolean[] src) {
+        boolean[] n = new boolean[src.length << 1];
+        System.arraycopy(src, 0, n, 0, src.length);
+        return n;
+    }
+
+    /**
+     * 写入逗号及key
+     *
+     * @return false: key不能转成json key，需要忽略此value
+     */
+    private static boolean writeKey(StringBuilder sb, LuaTableReader reader, boolean array, boolean hasValue) {
+        if (array) {
+            if (hasValue)
+                sb.append(',');
+            return true;
+        }
+        String key;
+        switch (reader.keyType()) {
+            case LuaValue.LUA_TSTRING:
+                key = reader.keyString();
+                break;
+            case LuaValue.LUA_TNUMBER:
+                key = numberToString(reader.keyNumber());
+                break;
+            case LuaValue.LUA_TBOOLEAN:
+                key = reader.keyNumber() != 0 ? "true" : "false";
+                break;
+            default:
+                return false;
+        }
+        if (hasValue)
+            sb.append(',');
+        sb.append(JSONObject.quote(key)).append(':');
+        return true;
+    }
+
+    private static void writeValue(StringBuilder sb, LuaTableReader reader) {
+        switch (reader.valueType()) {
+            case LuaValue.LUA_TSTRING:
+                sb.append(JSONObject.quote(reader.stringValue()));
+                break;
+            case LuaValue.LUA_TNUMBER:
+                double d = reader.numberValue();
+                if (Double.isNaN(d) || Double.isInfinite(d))
+                    sb.append("null");
+                else
+                    sb.append(numberToString(d));
+                break;
+            case LuaValue.LUA_TBOOLEAN:
+                sb.append(reader.booleanValue());
+                break;
+            default:
+                sb.append("null");
+                break;
+        }
+    }
+
+    private static String numberToString(double d) {
+        long l = (long) d;
+        if (l == d)
+            return Long.toString(l);
+        return Double.toString(d);
+    }
+}
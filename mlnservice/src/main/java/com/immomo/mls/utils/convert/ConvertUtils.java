@@ -15,6 +15,7 @@ import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaUserdata;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.TableBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -180,51 +181,61 @@ public class ConvertUtils {
         return ArrayUtils.toList(arr, arrMax);
     }
 
+    /**
+     * 将map转换为table，通过{@link TableBatch}一次写入
+     */
     public static @NonNull
     LuaTable toTable(@NonNull Globals g, @NonNull Map<String, Object> map) {
         LuaTable ret = LuaTable.create(g);
+        TableBatch batch = new TableBatch(map.size());
         Set<Map.Entry<String, Object>> entrys = map.entrySet();
         for (Map.Entry<String, Object> e : entrys) {
             String i = e.getKey();
             Object v = e.getValue();
             if (v == null)
-                ret.set(i, LuaValue.Nil());
+                batch.set(i, LuaValue.Nil());
             else if (v instanceof Number)
-                ret.set(i, ((Number) v).doubleValue());
+                batch.set(i, ((Number) v).doubleValue());
             else if (v instanceof String)
-                ret.set(i, v.toString());
+                batch.set(i, v.toString());
             else if (v instanceof Boolean)
-                ret.set(i, ((Boolean) v));
+                batch.set(i, ((Boolean) v));
             else if (v instanceof Map)
-                ret.set(i, toTable(g, (Map) v));
+                batch.set(i, toTable(g, (Map) v));
             else if (v instanceof List)
-                ret.set(i, toTable(g, (List) v));
+                batch.set(i, toTable(g, (List) v));
             else
-                ret.set(i, toLuaValue(g, v));
+                batch.set(i, toLuaValue(g, v));
         }
+        ret.setAll(batch);
         return ret;
     }
 
+    /**
+     * 将list转换为table，通过{@link TableBatch}一次写入
+     */
     public static @NonNull
     LuaTable toTable(@NonNull Globals g, @NonNull List list) {
         LuaTable ret = LuaTable.create(g);
+        TableBatch batch = new TableBatch(list.size());
         for (int i = 0, l = list.size(); i < l; i++) {
             Object v = list.get(i);
             if (v == null)
-                ret.set(i, LuaValue.Nil());
+                batch.set(i, LuaValue.Nil());
             else if (v instanceof Number)
-                ret.set(i, ((Number) v).doubleValue());
+                batch.set(i, ((Number) v).doubleValue());
             else if (v instanceof String)
-                ret.set(i, v.toString());
+                batch.set(i, v.toString());
             else if (v instanceof Boolean)
-                ret.set(i, ((Boolean) v));
+                batch.set(i, ((Boolean) v));
             else if (v instanceof Map)
-                ret.set(i, toTable(g, (Map) v));
+                batch.set(i, toTable(g, (Map) v));
             else if (v instanceof List)
-                ret.set(i, toTable(g, (List) v));
+                batch.set(i, toTable(g, (List) v));
             else
-                ret.set(i, toLuaValue(g, v));
+                batch.set(i, toLuaValue(g, v));
         }
+        ret.setAll(batch);
         return ret;
     }
 
@@ -27,6 +27,7 @@ import org.luaj.vm2.exception.LuaTypeError;
  *
  * java ---> lua
  *  转换为lua的table，且下标从1开始
+ *  通过{@link LuaTable#setAll(int, double[])}一次写入
  *  不在虚拟机线程中调用，发生异常{@link IllegalStateException}
  *
  * 非基本数据类型可通过
@@ -181,9 +182,7 @@ public class PrimitiveArrayUtils {
         if (len == 0) return null;
 
         LuaTable table = LuaTable.create(g);
-        for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
-        }
+        table.setAll(1, ba);
         return table;
     }
 
@@ -203,10 +202,12 @@ public class PrimitiveArrayUtils {
         int len = ba == null ? 0 : ba.length;
         if (len == 0) return null;
 
-        LuaTable table = LuaTable.create(g);
+        double[] da = new double[len];
         for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
+            da[i] = ba[i];
         }
+        LuaTable table = LuaTable.create(g);
+        table.setAll(1, da);
         return table;
     }
 
@@ -226,10 +227,12 @@ public class PrimitiveArrayUtils {
         int len = ba == null ? 0 : ba.length;
         if (len == 0) return null;
 
-        LuaTable table = LuaTable.create(g);
+        double[] da = new double[len];
         for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
+            da[i] = ba[i];
         }
+        LuaTable table = LuaTable.create(g);
+        table.setAll(1, da);
         return table;
     }
 
@@ -249,10 +252,12 @@ public class PrimitiveArrayUtils {
         int len = ba == null ? 0 : ba.length;
         if (len == 0) return null;
 
-        LuaTable table = LuaTable.create(g);
+        double[] da = new double[len];
         for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
+            da[i] = ba[i];
         }
+        LuaTable table = LuaTable.create(g);
+        table.setAll(1, da);
         return table;
     }
 
@@ -272,10 +277,12 @@ public class PrimitiveArrayUtils {
         int len = ba == null ? 0 : ba.length;
         if (len == 0) return null;
 
-        LuaTable table = LuaTable.create(g);
+        double[] da = new double[len];
         for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
+            da[i] = ba[i];
         }
+        LuaTable table = LuaTable.create(g);
+        table.setAll(1, da);
         return table;
     }
 
@@ -295,10 +302,12 @@ public class PrimitiveArrayUtils {
         int len = ba == null ? 0 : ba.length;
         if (len == 0) return null;
 
-        LuaTable table = LuaTable.create(g);
+        double[] da = new double[len];
         for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
+            da[i] = ba[i];
         }
+        LuaTable table = LuaTable.create(g);
+        table.setAll(1, da);
         return table;
     }
 
@@ -319,9 +328,7 @@ public class PrimitiveArrayUtils {
         if (len == 0) return null;
 
         LuaTable table = LuaTable.create(g);
-        for (int i = 0; i < len ; i ++) {
-            table.set(i + 1, ba[i]);
-        }
+        table.setAll(1, ba);
         return table;
     }
     //</editor-fold>
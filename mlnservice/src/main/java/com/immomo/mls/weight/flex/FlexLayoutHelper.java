@@ -38,6 +38,10 @@ public abstract class FlexLayoutHelper implements IFlexLayoutHelper {
 
     @Override
     public void measureVertical(int widthMeasureSpec, int heightMeasureSpec) {
+        if (canMeasureWeightOnce(widthMeasureSpec, heightMeasureSpec, true)
+            && measureVerticalWeightOnce(widthMeasureSpec, heightMeasureSpec)) {
+            return;
+        }
         mUsedLenght = 0;
         final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         final int mPaddingTop = view.getPaddingTop();
@@ -94,24 +98,7 @@ public abstract class FlexLayoutHelper implements IFlexLayoutHelper {
         if (weightViewLen > 0) {
             int mh = view.getMeasuredHeight() - nonWeightViewHeight - mPaddingTop - mPaddingBottom;
             if (mh > 0) {
-                float piece = ((float) mh) / totalWeight;
-                for (int i = 0; i < count; i++) {
-                    final View child = view.getPriorityChildAt(i);
-                    if (child == null || child.getVisibility() == View.GONE) {
-                        continue;
-                    }
-                    final LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                    if (lp.weight > 0 && lp.height < 0) {
-                        int h = (int) (piece * lp.weight);
-                        h = Math.max(h, child.getMinimumHeight());
-                        if (child instanceof ILimitSizeView) {
-                            h = Math.min(h, ((ILimitSizeView) child).getMaxHeight());
-                        }
-                        child.measure(ViewGroup.getChildMeasureSpec(widthMeasureSpec, mPaddingLeft + mPaddingRight + lp.leftMargin + lp.rightMargin, lp.width),
-                            MeasureSpec.makeMeasureSpec(h, MeasureSpec.EXACTLY));
-                        maxChildWidth = Math.max(maxChildWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
-                    }
-                }
+                maxChildWidth = measureWeightVertical(widthMeasureSpec, ((float) mh) / totalWeight, maxChildWidth);
                 maxChildWidth += mPaddingLeft + mPaddingRight;
                 view.setMeasuredDimensionX(View.resolveSizeAndState(maxChildWidth, widthMeasureSpec, 0), measuredHeight);
             }
@@ -121,6 +108,10 @@ public abstract class FlexLayoutHelper implements IFlexLayoutHelper {
 
     @Override
     public void measureHorizontal(int widthMeasureSpec, int heightMeasureSpec) {
+        if (canMeasureWeightOnce(widthMeasureSpec, heightMeasureSpec, false)
+            && measureHorizontalWeightOnce(widthMeasureSpec, heightMeasureSpec)) {
+            return;
+        }
         mUsedLenght = 0;
         final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         final int mPaddingTop = view.getPaddingTop();
@@ -175,25 +166,7 @@ public abstract class FlexLayoutHelper implements IFlexLayoutHelper {
         if (weightViewLen > 0) {
             int mw = view.getMeasuredWidth() - nonWeightViewWidth - mPaddingLeft - mPaddingRight;
             if (mw > 0) {
-                float piece = ((float) mw) / totalWeight;
-                for (int i = 0; i < count; i++) {
-                    final View child = view.getPriorityChildAt(i);
-                    if (child == null || child.getVisibility() == View.GONE) {
-                        continue;
-                    }
-                    final LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                    if (lp.weight > 0 && lp.width < 0) {
-                        int w = (int) (piece * lp.weight);
-                        w = Math.max(w, child.getMinimumWidth());
-                        if (child instanceof ILimitSizeView) {
-                            w = Math.min(w, ((ILimitSizeView) child).getMaxWidth());
-                        }
-                        child.measure(MeasureSpec.makeMeasureSpec(w, MeasureSpec.EXACTLY),
-                            ViewGroup.getChildMeasureSpec(heightMeasureSpec,
-                                mPaddingTop + mPaddingBottom + lp.topMargin + lp.bottomMargin, lp.height));
-                        maxChildHeight = Math.max(maxChildHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
-                    }
-                }
+                maxChildHeight = measureWeightHorizontal(heightMeasureSpec, ((float) mw) / totalWeight, maxChildHeight);
                 maxChildHeight += mPaddingTop + mPaddingBottom;
                 view.setMeasuredDimensionX(measuredWidth, View.resolveSizeAndState(maxChildHeight, heightMeasureSpec, 0));
             }
@@ -201,6 +174,202 @@ public abstract class FlexLayoutHelper implements IFlexLayoutHelper {
 
     }
 
+    //<editor-fold desc="weight measure">
+
+    /**
+     * 是否可以只测量一次weight子View
+     * <p>
+     * 宽高都为EXACTLY时，自身尺寸与weight子View的wrap尺寸无关；主轴为START或SPACE_*时，布局不使用{@link #mUsedLenght}；
+     * 第一个weight子View之后的非weight子View主轴为固定尺寸时，其测量不受前面weight子View影响
+     * 满足以上条件时，先测量非weight子View，再按剩余空间测量weight子View，结果与两次测量相同
+     */
+    private boolean canMeasureWeightOnce(int widthMeasureSpec, int heightMeasureSpec, boolean vertical) {
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY
+            || MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY) {
+            return false;
+        }
+        final int mainAxisAlignment = view.getMainAxisAlignment();
+        if (mainAxisAlignment == MainAxisAlignment.END || mainAxisAlignment == MainAxisAlignment.CENTER) {
+            return false;
+        }
+        boolean hasWeight = false;
+        final int count = view.getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = view.getPriorityChildAt(i);
+            if (skipMeasure(child, vertical)) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int size = vertical ? lp.height : lp.width;
+            if (lp.weight > 0 && size < 0) {
+                hasWeight = true;
+            } else if (hasWeight && size < 0) {
+                return false;
+            }
+        }
+        return hasWeight;
+    }
+
+    /**
+     * 只测量一次weight子View
+     *
+     * @return 没有剩余空间时返回false，需按原流程测量
+     */
+    private boolean measureVerticalWeightOnce(int widthMeasureSpec, int heightMeasureSpec) {
+        final int mPaddingTop = view.getPaddingTop();
+        final int mPaddingBottom = view.getPaddingBottom();
+        final int mPaddingLeft = view.getPaddingLeft();
+        final int mPaddingRight = view.getPaddingRight();
+        int usedHeight = 0;
+        int totalWeight = 0;
+        int nonWeightViewHeight = 0;
+        int maxChildWidth = 0;
+
+        final int count = view.getChildCount();
+        for (int i = 0; i < count; ++i) {
+            final View child = view.getPriorityChildAt(i);
+            if (skipMeasure(child, true)) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            nonWeightViewHeight += lp.topMargin + lp.bottomMargin;
+            if (lp.weight > 0 && lp.height < 0) {
+                totalWeight += lp.weight;
+                continue;
+            }
+            view.measureChildBeforeLayout(child, i, widthMeasureSpec, 0,
+                heightMeasureSpec, usedHeight);
+            final int childHeight = child.getMeasuredHeight();
+            usedHeight = Math.max(usedHeight, childHeight + usedHeight + lp.topMargin + lp.bottomMargin);
+            nonWeightViewHeight += childHeight;
+            maxChildWidth = Math.max(maxChildWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+        }
+
+        int mh = MeasureSpec.getSize(heightMeasureSpec) - nonWeightViewHeight - mPaddingTop - mPaddingBottom;
+        if (mh <= 0) {
+            return false;
+        }
+        mUsedLenght = Math.max(usedHeight + mPaddingTop + mPaddingBottom, view.getSuggestedMinimumHeight());
+        int measuredHeight = View.resolveSizeAndState(mUsedLenght, heightMeasureSpec, 0);
+
+        maxChildWidth = measureWeightVertical(widthMeasureSpec, ((float) mh) / totalWeight, maxChildWidth);
+        maxChildWidth += mPaddingLeft + mPaddingRight;
+        view.setMeasuredDimensionX(View.resolveSizeAndState(maxChildWidth, widthMeasureSpec, 0), measuredHeight);
+        return true;
+    }
+
+    /**
+     * @see #measureVerticalWeightOnce(int, int)
+     */
+    private boolean measureHorizontalWeightOnce(int widthMeasureSpec, int heightMeasureSpec) {
+        final int mPaddingTop = view.getPaddingTop();
+        final int mPaddingBottom = view.getPaddingBottom();
+        final int mPaddingLeft = view.getPaddingLeft();
+        final int mPaddingRight = view.getPaddingRight();
+        int usedWidth = 0;
+        int totalWeight = 0;
+        int nonWeightViewWidth = 0;
+        int maxChildHeight = 0;
+
+        final int count = view.getChildCount();
+        for (int i = 0; i < count; ++i) {
+            final View child = view.getPriorityChildAt(i);
+            if (skipMeasure(child, false)) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            nonWeightViewWidth += lp.leftMargin + lp.rightMargin;
+            if (lp.weight > 0 && lp.width < 0) {
+                totalWeight += lp.weight;
+                continue;
+            }
+            view.measureChildBeforeLayout(child, i, widthMeasureSpec, usedWidth,
+                heightMeasureSpec, 0);
+            final int childWidth = child.getMeasuredWidth();
+            usedWidth = Math.max(usedWidth, childWidth + usedWidth + lp.leftMargin + lp.rightMargin);
+            nonWeightViewWidth += childWidth;
+            maxChildHeight = Math.max(maxChildHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+        }
+
+        int mw = MeasureSpec.getSize(widthMeasureSpec) - nonWeightViewWidth - mPaddingLeft - mPaddingRight;
+        if (mw <= 0) {
+            return false;
+        }
+        mUsedLenght = Math.max(usedWidth + mPaddingLeft + mPaddingRight, view.getSuggestedMinimumWidth());
+        int measuredWidth = View.resolveSizeAndState(mUsedLenght, widthMeasureSpec, 0);
+
+        maxChildHeight = measureWeightHorizontal(heightMeasureSpec, ((float) mw) / totalWeight, maxChildHeight);
+        maxChildHeight += mPaddingTop + mPaddingBottom;
+        view.setMeasuredDimensionX(measuredWidth, View.resolveSizeAndState(maxChildHeight, heightMeasureSpec, 0));
+        return true;
+    }
+
+    /**
+     * 按剩余空间测量weight子View
+     *
+     * @param piece          每份weight的高度
+     * @param maxChildWidth  非weight子View的最大宽度
+     * @return 所有子View的最大宽度
+     */
+    private int measureWeightVertical(int widthMeasureSpec, float piece, int maxChildWidth) {
+        final int paddingLR = view.getPaddingLeft() + view.getPaddingRight();
+        final int count = view.getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = view.getPriorityChildAt(i);
+            if (child == null || child.getVisibility() == View.GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (lp.weight > 0 && lp.height < 0) {
+                int h = (int) (piece * lp.weight);
+                h = Math.max(h, child.getMinimumHeight());
+                if (child instanceof ILimitSizeView) {
+                    h = Math.min(h, ((ILimitSizeView) child).getMaxHeight());
+                }
+                child.measure(ViewGroup.getChildMeasureSpec(widthMeasureSpec, paddingLR + lp.leftMargin + lp.rightMargin, lp.width),
+                    MeasureSpec.makeMeasureSpec(h, MeasureSpec.EXACTLY));
+                maxChildWidth = Math.max(maxChildWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            }
+        }
+        return maxChildWidth;
+    }
+
+    /**
+     * @see #measureWeightVertical(int, float, int)
+     */
+    private int measureWeightHorizontal(int heightMeasureSpec, float piece, int maxChildHeight) {
+        final int paddingTB = view.getPaddingTop() + view.getPaddingBottom();
+        final int count = view.getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = view.getPriorityChildAt(i);
+            if (child == null || child.getVisibility() == View.GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (lp.weight > 0 && lp.width < 0) {
+                int w = (int) (piece * lp.weight);
+                w = Math.max(w, child.getMinimumWidth());
+                if (child instanceof ILimitSizeView) {
+                    w = Math.min(w, ((ILimitSizeView) child).getMaxWidth());
+                }
+                child.measure(MeasureSpec.makeMeasureSpec(w, MeasureSpec.EXACTLY),
+                    ViewGroup.getChildMeasureSpec(heightMeasureSpec,
+                        paddingTB + lp.topMargin + lp.bottomMargin, lp.height));
+                maxChildHeight = Math.max(maxChildHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            }
+        }
+        return maxChildHeight;
+    }
+
+    /**
+     * 不参与测量的子View，同{@link #measureVertical}、{@link #measureHorizontal}第一次循环
+     */
+    private static boolean skipMeasure(View child, boolean vertical) {
+        return child == null || child.getVisibility() == View.GONE
+            || (child instanceof ISpacer && (vertical ? ((ISpacer) child).isVerExpand() : ((ISpacer) child).isHorExpand()));//扩展Spacer，不参与测量
+    }
+    //</editor-fold>
+
     @Override
     public void layoutVertical(int left, int top, int right, int bottom) {
         final int paddingLeft = view.getPaddingLeft();
@@ -49,12 +49,29 @@ import kotlin.collections.CollectionsKt;
  */
 public class Register {
     public static boolean SupportEmptyMethod = true;
+    /**
+     * 预注册时是否通过一次native调用预注册所有类
+     * false时逐个类调用，用于对比耗时
+     *
+     * @see RegisterSnapshot
+     */
+    public static boolean BulkPreInstall = true;
     private static final String UD_CLASS_SUFFIX = "_udwrapper";
     private static final String SB_CLASS_SUFFIX = "_sbwrapper";
     private static final String METHODS_FIELD = "methods";
+    /**
+     * 编译期生成的java对象转lua对象工厂
+     */
+    private static final String J2L_FIELD = "J2L";
     private static final String NEW_UD_INIT = "_init";
     private static final String NEW_UD_REGISTER = "_register";
     private static final Map<Class, Class<? extends LuaUserdata>> udClassMap = new HashMap<>(20);
+    /**
+     * 普通类 -> 编译期生成的转换工厂
+     *
+     * @see #getJ2LGetter(Class)
+     */
+    private static final Map<Class, ILuaValueGetter> j2lMap = new HashMap<>(20);
 
     public static enum CheckType {
         /**
@@ -135,6 +152,14 @@ public class Register {
     private final HashSet<String> allSiHolderKeys = new HashSet<>(10);//包含__的名字
 
     private volatile boolean preInstall = false;
+    /**
+     * 上次预注册耗时，ns
+     */
+    private long preInstallTime;
+    /**
+     * 上次预注册的类个数
+     */
+    private int preInstallCount;
 
     public void setAllowDuplicateRegister(boolean allowDuplicateRegister) {
         this.allowDuplicateRegister = allowDuplicateRegister;
@@ -151,6 +176,9 @@ public class Register {
         allSiHolders.clear();
         allSiHolderKeys.clear();
         udClassMap.clear();
+        synchronized (j2lMap) {
+            j2lMap.clear();
+        }
         luaClassNameMap.clear();
         allUserdataHolder.clear();
         lvUserdataHolder.clear();
@@ -292,6 +320,7 @@ public class Register {
                 registerUserdata(h);
             }
             udClassMap.put(clz, udClz);
+            putJ2L(clz, readJ2L(udClz));
         } catch (Throwable e) {
             throw new RegisterError(e);
         }
@@ -343,7 +372,7 @@ public class Register {
         }
         preInstall = false;
         holder.init();
-        luaClassNameMap.put(holder.clz, holder.lcn);
+        putLuaClassName(holder.clz, holder.lcn);
         newUDHolders.add(holder);
     }
 
@@ -408,6 +437,7 @@ public class Register {
             Field f = udClz.getDeclaredField(METHODS_FIELD);
             String[] ms = (String[]) f.get(null);
             udClassMap.put(clz, udClz);
+            putJ2L(clz, readJ2L(udClz));
             UDHolder h = new UDHolder(lcn, udClz, lazy, isView, ms);
             h.needCheck = false;
             return h;
@@ -415,6 +445,27 @@ public class Register {
             throw new RegisterError(e);
         }
     }
+
+    /**
+     * 创建包裹userdata信息的对象
+     * 由编译期生成的注册类调用，直接传入生成的wrapper类、方法表及转换工厂，不使用反射
+     *
+     * @param lcn     lua类名
+     * @param clz     java类
+     * @param udClz   生成的wrapper类
+     * @param lazy    是否懒注册
+     * @param methods wrapper类中的方法表
+     * @param j2l     wrapper类中的转换工厂，nullable
+     * @see Translator#registerJ2LAuto(Class)
+     */
+    public static UDHolder newUDHolderWithWrapper(String lcn, Class clz, Class<? extends LuaUserdata> udClz,
+                                                  boolean lazy, String[] methods, ILuaValueGetter j2l) {
+        udClassMap.put(clz, udClz);
+        putJ2L(clz, j2l);
+        UDHolder h = new UDHolder(lcn, udClz, lazy, false, methods);
+        h.needCheck = false;
+        return h;
+    }
     //</editor-fold>
 
     //<editor-fold desc="Static bridge">
@@ -502,6 +553,20 @@ public class Register {
         }
     }
 
+    /**
+     * 创建包裹静态bridge信息的对象
+     * 由编译期生成的注册类调用，直接传入生成的wrapper类及方法表，不使用反射
+     *
+     * @param lcn     lua类名
+     * @param sbClz   生成的wrapper类
+     * @param methods wrapper类中的方法表
+     */
+    public static SHolder newSHolderWithWrapper(String lcn, Class sbClz, String[] methods) {
+        SHolder s = new SHolder(lcn, sbClz, methods);
+        s.needCheck = false;
+        return s;
+    }
+
     /**
      * 注册高性能，新版static bridge
      * 其中必须有两个native函数:
@@ -528,7 +593,7 @@ public class Register {
             return;
         preInstall = false;
         holder.init();
-        luaClassNameMap.put(holder.clz, holder.lcn);
+        putLuaClassName(holder.clz, holder.lcn);
         newStaticHolders.add(holder);
     }
     //</editor-fold>
@@ -692,6 +757,44 @@ public class Register {
         return udClassMap.get(clz);
     }
 
+    /**
+     * 获取普通类对应的编译期生成的转换工厂
+     *
+     * @param clz 普通类
+     * @return 旧版本生成的wrapper类中没有时返回null
+     * @see Translator#registerJ2LAuto
+     */
+    public static ILuaValueGetter getJ2LGetter(Class clz) {
+        synchronized (j2lMap) {
+            return j2lMap.get(clz);
+        }
+    }
+
+    private static void putJ2L(Class clz, ILuaValueGetter j2l) {
+        if (j2l == null)
+            return;
+        synchronized (j2lMap) {
+            j2lMap.put(clz, j2l);
+        }
+    }
+
+    /**
+     * 读取wrapper类中生成的转换工厂
+     *
+     * @return 没有时返回null
+     */
+    static ILuaValueGetter readJ2L(Class<? extends LuaUserdata> udClz) {
+        try {
+            Field f = udClz.getDeclaredField(J2L_FIELD);
+            if (!Modifier.isStatic(f.getModifiers()))
+                return null;
+            Object o = f.get(null);
+            return o instanceof ILuaValueGetter ? (ILuaValueGetter) o : null;
+        } catch (Throwable ignore) {
+            return null;
+        }
+    }
+
     /**
      * 创建Globals后，将提前注册的库注册进虚拟机中
      * 默认注册view
@@ -858,17 +961,51 @@ public class Register {
     public synchronized void preInstall() {
         if (preInstall) return;
 
+        final long start = System.nanoTime();
+        int count;
         try {
-            allUserdataHolder.preInstall();
-            lvUserdataHolder.preInstall();
-            allStaticBridgeHolder.preInstall();
+            count = allUserdataHolder.preInstall();
+            count += lvUserdataHolder.preInstall();
+            count += allStaticBridgeHolder.preInstall();
         } catch (Throwable t) {
             if (MLSAdapterContainer.getPreinstallError() != null) {
                 MLSAdapterContainer.getPreinstallError().onError(t);
             }
             return;
         }
+        preInstallTime = System.nanoTime() - start;
+        preInstallCount = count;
         preInstall = true;
+        if (MLSEngine.DEBUG) {
+            MLSAdapterContainer.getConsoleLoggerAdapter().d("Register",
+                    "preInstall %d classes cast: %fms", count, preInstallTime / 1e6f);
+        }
+    }
+
+    /**
+     * 上次{@link #preInstall()}的耗时，ns
+     */
+    public long getPreInstallTime() {
+        return preInstallTime;
+    }
+
+    /**
+     * 上次{@link #preInstall()}预注册的类个数，已预注册的类未变化时只计算新增的类
+     */
+    public int getPreInstallCount() {
+        return preInstallCount;
+    }
+
+    /**
+     * 记录java类对应的lua类名
+     * 新增的类是已预注册类的父类时，废弃对应快照，下次预注册时重新查找lua父类名
+     */
+    private void putLuaClassName(Class clz, String lcn) {
+        if (lcn.equals(luaClassNameMap.put(clz, lcn)))
+            return;
+        allUserdataHolder.invalidateSnapshot(clz);
+        lvUserdataHolder.invalidateSnapshot(clz);
+        allStaticBridgeHolder.invalidateSnapshot(clz);
     }
 
     //<editor-fold desc="统一注册类">
@@ -881,6 +1018,10 @@ public class Register {
         final List<String> methods = new ArrayList<>(INIT * 10);
         int[] mc = new int[INIT];
         int index = 0;
+        /**
+         * 已预注册部分的快照
+         */
+        RegisterSnapshot snapshot;
 
         void add(T h) {
             if (!allowDuplicateRegister) {
@@ -896,7 +1037,7 @@ public class Register {
             mc = set(mc, index, m);
             index++;
             methods.addAll(Arrays.asList(h.methods));
-            luaClassNameMap.put(h.clz, h.luaClassName);
+            putLuaClassName(h.clz, h.luaClassName);
         }
 
         void install(Globals g) {
@@ -908,40 +1049,60 @@ public class Register {
 
         protected abstract void install(Globals g, String[] lcns, String[] lpcns, String[] jcns);
 
-        void preInstall() {
+        /**
+         * 已预注册的类中有parent的子类时，废弃快照
+         */
+        void invalidateSnapshot(Class parent) {
+            if (snapshot != null && snapshot.hasSubclassOf(parent))
+                snapshot = null;
+        }
+
+        /**
+         * 预注册还未预注册的类
+         * 已预注册的类未变化时，只预注册新增的类
+         *
+         * @return 本次预注册的类个数
+         */
+        int preInstall() {
             mc = get(mc, index);
-            String[] ams = methods.toArray(new String[0]);
-            int use = 0;
-            if (!classes.isEmpty())
-                for (int i = 0; i < index; i++) {
-                    Class c = classes.get(i);
-                    String parentName = Globals.findLuaParentClass(c, luaClassNameMap);
-                    if (lcns.get(i).equals(parentName))
-                        parentName = null;
-                    lpcns.add(parentName);
-
-                    String[] ms = new String[mc[i]];
-                    System.arraycopy(ams, use, ms, 0, mc[i]);
-                    int type = 0;
-                    if (allSiHolderKeys.contains(lcns.get(i))) {
-                        type = 1;
-                    }
-                    preInstall(jcns.get(i), lcns.get(i), parentName, type, ms);
-                    use += mc[i];
-                }
-            else
-                for (int i = 0; i < index; i++) {
-                    String[] ms = new String[mc[i]];
-                    System.arraycopy(ams, use, ms, 0, mc[i]);
-                    preInstall(jcns.get(i), lcns.get(i), null, 0, ms);
-                    use += mc[i];
+            int[] types = new int[index];
+            for (int i = 0; i < index; i++) {
+                types[i] = classType(lcns.get(i));
+            }
+            RegisterSnapshot last = snapshot;
+            if (last != null && !last.isValidFor(classes, lcns, types))
+                last = null;
+            if (last != null && last.end == index)
+                return 0;
+            RegisterSnapshot s = new RegisterSnapshot(last, classes, lcns, jcns, mc, methods, types, luaClassNameMap);
+            if (BulkPreInstall) {
+                Globals.preRegisterAll(s.jcns, s.lcns, s.lpcns, s.types, s.methodCounts, s.methods);
+            } else {
+                int use = 0;
+                for (int i = 0, l = s.size(); i < l; i++) {
+                    String[] ms = new String[s.methodCounts[i]];
+                    System.arraycopy(s.methods, use, ms, 0, ms.length);
+                    preInstall(s.jcns[i], s.lcns[i], s.lpcns[i], s.types[i], ms);
+                    use += ms.length;
                 }
-            classes.clear();
+            }
+            /// 预注册抛出异常时不记录，下次重新预注册
+            if (last == null)
+                lpcns.clear();
+            lpcns.addAll(Arrays.asList(s.lpcns));
+            snapshot = s;
+            return s.size();
         }
 
+        /**
+         * @return 0 普通userdata 1 单例 2 静态
+         */
+        protected abstract int classType(String luaClassName);
+
         protected abstract void preInstall(String jcn, String luaClassName, String parentName, int type, String[] ms);
 
         void clear() {
+            snapshot = null;
             classes.clear();
             lcns.clear();
             lpcns.clear();
@@ -1010,6 +1171,11 @@ public class Register {
             g.registerAllUserdata(lcns, lpcns, jcns, lazy);
         }
 
+        @Override
+        protected int classType(String luaClassName) {
+            return allSiHolderKeys.contains(luaClassName) ? 1 : 0;
+        }
+
         @Override
         protected void preInstall(String jcn, String luaClassName, String parentName, int type, String[] ms) {
             Globals.preRegisterUserdata(jcn, luaClassName, parentName, type, ms);
@@ -1023,6 +1189,11 @@ public class Register {
             g.registerAllStaticClass(lcns, lpcns, jcns);
         }
 
+        @Override
+        protected int classType(String luaClassName) {
+            return 2;
+        }
+
         /**
          * @param type 0 普通userdata 1 单例 2 静态
          */
@@ -0,0 +1,143 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.wrapper;
+
+import org.luaj.vm2.Globals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预注册快照
+ * <p>
+ * 将一组bridge的java类名、lua类名、lua父类名、类型及方法表展开成连续数组，
+ * 通过{@link Globals#preRegisterAll}一次native调用全部预注册
+ * lua父类名按java类解析一次，同一java类注册了多个lua类名时不重复查找
+ * <p>
+ * 快照记录已预注册的java类，再次预注册时用{@link #isValidFor(List, List, int[])}检查，
+ * 注册的类未变化时只预注册新增的部分
+ * 快照中的lua父类名不会重新查找，之后注册的类是已预注册类的父类时，
+ * 需通过{@link #hasSubclassOf(Class)}检查并废弃快照
+ *
+ * @see Register#preInstall()
+ */
+final class RegisterSnapshot {
+    /**
+     * 已预注册的java类、lua类名、类型，[0, {@link #end})
+     */
+    private final Class[] registeredClasses;
+    private final String[] registeredLcns;
+    private final int[] registeredTypes;
+    /**
+     * 已预注册的类个数
+     */
+    final int end;
+    /**
+     * 已预注册的方法个数
+     */
+    final int methodEnd;
+
+    /**
+     * 本次需要预注册的类，[from, end)
+     */
+    final String[] jcns;
+    final String[] lcns;
+    final String[] lpcns;
+    final int[] types;
+    final int[] methodCounts;
+    final String[] methods;
+
+    /**
+     * @param last    上一次的快照，无效时传null
+     * @param classes 所有注册的java类
+     * @param lcns    对应的lua类名
+     * @param jcns    对应的jni类名
+     * @param mc      每个类的方法个数
+     * @param methods 所有类的方法，按顺序排列
+     * @param types   每个类的类型，见{@link Globals#preRegisterAll}
+     * @param luaClassNameMap 查找lua父类名
+     */
+    RegisterSnapshot(RegisterSnapshot last, List<Class> classes, List<String> lcns, List<String> jcns,
+                     int[] mc, List<String> methods, int[] types, Map<Class, String> luaClassNameMap) {
+        final int from = last != null ? last.end : 0;
+        final int methodFrom = last != null ? last.methodEnd : 0;
+        end = classes.size();
+        registeredClasses = classes.toArray(new Class[end]);
+        registeredLcns = lcns.toArray(new String[end]);
+        registeredTypes = types;
+
+        final int n = end - from;
+        this.jcns = new String[n];
+        this.lcns = new String[n];
+        this.lpcns = new String[n];
+        this.types = new int[n];
+        this.methodCounts = new int[n];
+        int methodCount = 0;
+        for (int i = from; i < end; i++) {
+            methodCount += mc[i];
+        }
+        methodEnd = methodFrom + methodCount;
+        this.methods = methods.subList(methodFrom, methodEnd).toArray(new String[methodCount]);
+
+        Map<Class, String> parents = new HashMap<>(n);
+        for (int i = from; i < end; i++) {
+            final int j = i - from;
+            final Class c = registeredClasses[i];
+            String parentName;
+            if (parents.containsKey(c)) {
+                parentName = parents.get(c);
+            } else {
+                parentName = Globals.findLuaParentClass(c, luaClassNameMap);
+                parents.put(c, parentName);
+            }
+            if (registeredLcns[i].equals(parentName))
+                parentName = null;
+            this.jcns[j] = jcns.get(i);
+            this.lcns[j] = registeredLcns[i];
+            this.lpcns[j] = parentName;
+            this.types[j] = types[i];
+            this.methodCounts[j] = mc[i];
+        }
+    }
+
+    /**
+     * 已预注册的类是否仍按相同顺序、相同类型注册
+     * 注册的类被清除、替换或改为单例后，需要重新创建快照
+     */
+    boolean isValidFor(List<Class> classes, List<String> lcns, int[] types) {
+        if (classes.size() < end || lcns.size() < end || types.length < end)
+            return false;
+        for (int i = 0; i < end; i++) {
+            if (classes.get(i) != registeredClasses[i]
+                    || types[i] != registeredTypes[i]
+                    || !lcns.get(i).equals(registeredLcns[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 已预注册的类中是否有parent的子类
+     */
+    boolean hasSubclassOf(Class parent) {
+        for (int i = 0; i < end; i++) {
+            final Class c = registeredClasses[i];
+            if (c != parent && parent.isAssignableFrom(c))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 本次需要预注册的类个数
+     */
+    int size() {
+        return jcns.length;
+    }
+}
@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.immomo.mls.Constants;
+import com.immomo.mls.util.FileUtil;
 
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.utils.StringReplaceUtils;
@@ -20,6 +21,7 @@ import org.luaj.vm2.utils.StringReplaceUtils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created by Xiong.Fangyu on 2019/3/20
@@ -33,6 +35,19 @@ public class ScriptFile {
     public final String path;
 
     private byte[] sourceData;
+    /**
+     * 映射到内存的文件数据，不占用java堆
+     * 只用于入口文件（{@link com.immomo.mls.lite.RealCall}工作线程预读及{@link com.immomo.mls.util.CompileUtils}）；
+     * require的子文件和预加载的文件由native按路径读取，本身不经过java堆
+     * 映射后文件可能被改写（离线包更新、热重载），读取前需通过{@link #isSourceBufferValid()}检查
+     * @see #setMappedFilePath(File)
+     */
+    private ByteBuffer sourceBuffer;
+    /**
+     * 从{@link #path}读入数据时文件的修改时间，数据不是从文件读取时为0
+     * @see com.immomo.mls.cache.BytecodeCache#fileKey
+     */
+    private long sourceLastModified;
     private boolean compiled = false;
     private final boolean isAssetsPath;
     /**
@@ -92,6 +107,36 @@ public class ScriptFile {
      */
     public void setSourceData(byte[] sourceData) {
         this.sourceData = sourceData;
+        sourceLastModified = 0;
+    }
+
+    /**
+     * 判断是否持有映射的文件数据
+     */
+    public boolean hasSourceBuffer() {
+        return sourceBuffer != null;
+    }
+
+    /**
+     * 返回映射的文件数据，可通过{@link Globals#loadData(String, ByteBuffer)}编译
+     */
+    public ByteBuffer getSourceBuffer() {
+        return sourceBuffer;
+    }
+
+    /**
+     * @param sourceBuffer nullable，必须是DirectByteBuffer
+     */
+    public void setSourceBuffer(ByteBuffer sourceBuffer) {
+        this.sourceBuffer = sourceBuffer;
+        sourceLastModified = 0;
+    }
+
+    /**
+     * 内存中的数据从文件读入时，读取时文件的修改时间，否则返回0
+     */
+    public long getSourceLastModified() {
+        return sourceLastModified;
     }
 
     public boolean isCompiled() {
@@ -110,21 +155,53 @@ public class ScriptFile {
         if (!f.isFile())
             return false;
         try {
+            long lastModified = f.lastModified();
             InputStream is = new FileInputStream(f);
             byte[] sourceData = new byte[is.available()];
             boolean ret = is.read(sourceData) == sourceData.length;
-            if (ret)
+            if (ret) {
                 setSourceData(sourceData);
+                sourceLastModified = lastModified;
+            }
             return ret;
         } catch (Throwable ignore) {
             return false;
         }
     }
 
+    /**
+     * 设置文件，并只读映射到内存中，不复制到java堆
+     * @return true 映射成功
+     */
+    public boolean setMappedFilePath(File f) {
+        long lastModified = f.lastModified();
+        ByteBuffer buffer = FileUtil.mapFile(f);
+        if (buffer == null)
+            return false;
+        setSourceBuffer(buffer);
+        sourceLastModified = lastModified;
+        return true;
+    }
+
+    /**
+     * 映射的文件是否未被改写：大小与映射的数据一致，修改时间与映射时一致
+     * 文件被截断后读取映射的数据会触发SIGBUS，不一致时应改为按路径读取
+     */
+    public boolean isSourceBufferValid() {
+        if (sourceBuffer == null || path == null)
+            return false;
+        File f = new File(path);
+        return f.lastModified() == sourceLastModified && f.length() == sourceBuffer.limit();
+    }
+
     public boolean isAssetsPath() {
         return isAssetsPath;
     }
 
+    /**
+     * 将脚本读入内存
+     * Lua目录下的文件由框架管理，使用映射的方式，其他文件读入java堆
+     */
     public boolean toSourceDataType(@Nullable Context context) {
         if (!pathType)
             return false;
@@ -133,7 +210,10 @@ public class ScriptFile {
                 return false;
             return setAssetsPath(context, getAssetsPath());
         }
-        return setFilePath(new File(path));
+        File f = new File(path);
+        if (FileUtil.isInLuaDir(f) && setMappedFilePath(f))
+            return true;
+        return setFilePath(f);
     }
 
     public String getAssetsPath() {
@@ -212,6 +292,7 @@ public class ScriptFile {
         return "ScriptFile{" +
                 "chunkName='" + chunkName + '\'' +
                 ", has sourceData=" + (sourceData != null) +
+                ", has sourceBuffer=" + (sourceBuffer != null) +
                 ", compiled=" + compiled +
                 ", isMain=" + isMain +
                 '}';
@@ -27,9 +27,9 @@ import org.luaj.vm2.LuaUserdata;
 import org.luaj.vm2.LuaValue;
 
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Xiong.Fangyu on 2019/3/15
@@ -45,8 +45,64 @@ import java.util.Map;
  *  @see #registerL2J(Class, IJavaObjectGetter)
  */
 public class Translator {
-    private final Map<Class, ILuaValueGetter> javaToLuaMap = new HashMap<>(20);
-    private final Map<Class, IJavaObjectGetter> luaToJavaMap = new HashMap<>(20);
+    /**
+     * 解析结果为空的占位符，用于缓存未找到转换方式的类型
+     */
+    private static final ILuaValueGetter NO_J2L = new ILuaValueGetter() {
+        @Override
+        public LuaValue newInstance(Globals g, Object obj) {
+            return null;
+        }
+    };
+    /**
+     * 解析结果为空的占位符，用于缓存未找到转换方式的类型
+     */
+    private static final IJavaObjectGetter NO_L2J = new IJavaObjectGetter() {
+        @Override
+        public Object getJavaObject(LuaValue lv) {
+            return null;
+        }
+    };
+    /**
+     * 接收类型为LuaValue子类，直接返回lua数据
+     */
+    private static final IJavaObjectGetter LUA_VALUE_L2J = new IJavaObjectGetter() {
+        @Override
+        public Object getJavaObject(LuaValue lv) {
+            return lv;
+        }
+    };
+    /**
+     * 默认从userdata中取出java对象，无状态，所有类型共用
+     */
+    private static final IJavaObjectGetter DEFAULT_L2J = new DefaultUserdataGetter();
+
+    /**
+     * 注册的转换方式，只在持有锁时修改
+     */
+    private final Map<Class, ILuaValueGetter> javaToLuaMap = new ConcurrentHashMap<>(20);
+    private final Map<Class, IJavaObjectGetter> luaToJavaMap = new ConcurrentHashMap<>(20);
+    /**
+     * 具体类型 -> 解析后的转换方式
+     * 包括Map、List的父类型查找结果及未找到的结果{@link #NO_J2L}
+     * 注册新的转换方式时清空；未命中时和注册使用同一个锁解析并写入，不会在清空后写入旧的结果
+     *
+     * @see #resolveJ2L(Class)
+     */
+    private final Map<Class, ILuaValueGetter> resolvedJ2L = new ConcurrentHashMap<>(32);
+    /**
+     * 接收类型 -> 解析后的转换方式
+     * 包括LuaValue类型、Map、List的父类型查找结果及未找到的结果{@link #NO_L2J}
+     * 注册新的转换方式时清空；未命中时和注册使用同一个锁解析并写入
+     *
+     * @see #resolveL2J(Class)
+     */
+    private final Map<Class, IJavaObjectGetter> resolvedL2J = new ConcurrentHashMap<>(32);
+    /**
+     * 解析缓存统计，只做参考，不保证多线程下准确
+     */
+    private long resolveHit;
+    private long resolveMiss;
 
     public static Translator fromGlobals(Globals g) {
         LuaViewManager lm = (LuaViewManager) g.getJavaUserdata();
@@ -64,7 +120,7 @@ public class Translator {
     /**
      * 清除所有注册的转换逻辑
      */
-    public void clearAll() {
+    public synchronized void clearAll() {
         javaToLuaMap.clear();
         luaToJavaMap.clear();
         luaToJavaMap.put(IVoidCallback.class, DefaultVoidCallback.G);
@@ -72,6 +128,7 @@ public class Translator {
         luaToJavaMap.put(IBoolCallback.class, DefaultBoolCallback.G);
         luaToJavaMap.put(IStringCallback.class, DefaultStringCallback.G);
         luaToJavaMap.put(LVCallback.class, SimpleLVCallback.G);
+        invalidateResolved();
     }
 
     //<editor-fold desc="translate methods">
@@ -84,17 +141,8 @@ public class Translator {
      * @return nullable
      */
     public <T> T translateLuaToJava(LuaValue lv, Class<T> clz) {
-        if (LuaValue.class.isAssignableFrom(clz))
-            return (T) lv;
-        IJavaObjectGetter getter = luaToJavaMap.get(clz);
-        if (getter == null) {
-            if (Map.class.isAssignableFrom(clz)) {
-                getter = luaToJavaMap.get(Map.class);
-            } else if (List.class.isAssignableFrom(clz)) {
-                getter = luaToJavaMap.get(List.class);
-            }
-        }
-        if (getter != null)
+        IJavaObjectGetter getter = resolveL2J(clz);
+        if (getter != NO_L2J)
             return (T) getter.getJavaObject(lv);
         if (lv.isUserdata()) {
             Object u = lv.toUserdata().getJavaUserdata();
@@ -118,15 +166,8 @@ public class Translator {
             return ((ILView) o).getUserdata();
         }
 
-        ILuaValueGetter con = javaToLuaMap.get(o.getClass());
-        if (con == null) {
-            if (o instanceof Map) {
-                con = javaToLuaMap.get(Map.class);
-            } else if (o instanceof List) {
-                con = javaToLuaMap.get(List.class);
-            }
-        }
-        if (con != null) {
+        ILuaValueGetter con = resolveJ2L(o.getClass());
+        if (con != NO_J2L) {
             LuaValue v = con.newInstance(g, o);
             if (v == null)
                 throw new NullPointerException();
@@ -135,6 +176,98 @@ public class Translator {
         return LuaValue.Nil();
     }
 
+    /**
+     * 查找java类型对应的转换方式，并缓存结果
+     * 先查找注册的类型，再根据是否是Map、List查找
+     * @return 未找到返回{@link #NO_J2L}
+     */
+    private ILuaValueGetter resolveJ2L(Class clz) {
+        ILuaValueGetter con = resolvedJ2L.get(clz);
+        if (con != null) {
+            resolveHit ++;
+            return con;
+        }
+        return resolveJ2LLocked(clz);
+    }
+
+    private synchronized ILuaValueGetter resolveJ2LLocked(Class clz) {
+        ILuaValueGetter con = resolvedJ2L.get(clz);
+        if (con != null)
+            return con;
+        resolveMiss ++;
+        con = javaToLuaMap.get(clz);
+        if (con == null) {
+            if (Map.class.isAssignableFrom(clz)) {
+                con = javaToLuaMap.get(Map.class);
+            } else if (List.class.isAssignableFrom(clz)) {
+                con = javaToLuaMap.get(List.class);
+            }
+        }
+        if (con == null)
+            con = NO_J2L;
+        resolvedJ2L.put(clz, con);
+        return con;
+    }
+
+    /**
+     * 查找java接收类型对应的转换方式，并缓存结果
+     * LuaValue类型直接返回，其次查找注册的类型，再根据是否是Map、List查找
+     * @return 未找到返回{@link #NO_L2J}
+     */
+    private IJavaObjectGetter resolveL2J(Class clz) {
+        IJavaObjectGetter getter = resolvedL2J.get(clz);
+        if (getter != null) {
+            resolveHit ++;
+            return getter;
+        }
+        return resolveL2JLocked(clz);
+    }
+
+    private synchronized IJavaObjectGetter resolveL2JLocked(Class clz) {
+        IJavaObjectGetter getter = resolvedL2J.get(clz);
+        if (getter != null)
+            return getter;
+        resolveMiss ++;
+        if (LuaValue.class.isAssignableFrom(clz)) {
+            getter = LUA_VALUE_L2J;
+        } else {
+            getter = luaToJavaMap.get(clz);
+            if (getter == null) {
+                if (Map.class.isAssignableFrom(clz)) {
+                    getter = luaToJavaMap.get(Map.class);
+                } else if (List.class.isAssignableFrom(clz)) {
+                    getter = luaToJavaMap.get(List.class);
+                }
+            }
+        }
+        if (getter == null)
+            getter = NO_L2J;
+        resolvedL2J.put(clz, getter);
+        return getter;
+    }
+
+    /**
+     * 注册的转换方式改变后，清空解析缓存
+     */
+    private void invalidateResolved() {
+        resolvedJ2L.clear();
+        resolvedL2J.clear();
+    }
+
+    /**
+     * 类型解析缓存命中次数
+     */
+    public long getResolveHitCount() {
+        return resolveHit;
+    }
+
+    /**
+     * 类型解析缓存未命中次数，包括首次解析及注册后重新解析
+     */
+    public long getResolveMissCount() {
+        return resolveMiss;
+    }
+
     /**
      * 将java数据类型转成Lua数据类型
      * @param g 虚拟机
@@ -202,7 +335,7 @@ public class Translator {
 
     /**
      * 注册java对象转换成lua对象的转换方式
-     * 为此类创建默认构建lua对象的方式{@link DefaultGetter}
+     * 优先使用编译期生成的转换工厂，旧版本生成的类中没有时，创建使用反射的{@link DefaultGetter}
      *
      * 此对象必须在{@link Register}中注册过
      *
@@ -210,17 +343,23 @@ public class Translator {
      * @see #registerJ2L(Class, ILuaValueGetter)
      */
     public synchronized void registerJ2LAuto(Class clz) {
-        registerJ2LAuto(clz, Register.getUDClass(clz));
+        ILuaValueGetter getter = Register.getJ2LGetter(clz);
+        if (getter != null) {
+            registerJ2L(clz, getter);
+        } else {
+            registerJ2LAuto(clz, Register.getUDClass(clz));
+        }
     }
 
     /**
      * 注册java对象转换成lua对象的转换方式
-     * 为此类创建默认构建lua对象的方式{@link DefaultGetter}
+     * 优先使用udClz中编译期生成的转换工厂，没有时创建使用反射的{@link DefaultGetter}
      *
      * @see #registerJ2L(Class, ILuaValueGetter)
      */
     public void registerJ2LAuto(Class clz, Class<? extends LuaUserdata> udClz) {
-        registerJ2L(clz, new DefaultGetter(udClz));
+        ILuaValueGetter getter = Register.readJ2L(udClz);
+        registerJ2L(clz, getter != null ? getter : new DefaultGetter(udClz));
     }
 
     /**
@@ -229,7 +368,11 @@ public class Translator {
      * @param con LuaUserdata生成方式
      */
     public synchronized void registerJ2L(Class clz, ILuaValueGetter con) {
-        javaToLuaMap.put(clz, con);
+        if (con != null)
+            javaToLuaMap.put(clz, con);
+        else
+            javaToLuaMap.remove(clz);
+        resolvedJ2L.clear();
     }
     //</editor-fold>
 
@@ -243,7 +386,7 @@ public class Translator {
      * @see #registerL2J(Class, IJavaObjectGetter)
      */
     public synchronized void registerL2JAuto(Class clz) {
-        registerL2J(clz, new DefaultUserdataGetter());
+        registerL2J(clz, DEFAULT_L2J);
     }
 
     /**
@@ -252,12 +395,17 @@ public class Translator {
      * @param getter 从LuaUserdata转换成java对象的转换方式
      */
     public synchronized void registerL2J(Class clz, IJavaObjectGetter getter) {
-        luaToJavaMap.put(clz, getter);
+        if (getter != null)
+            luaToJavaMap.put(clz, getter);
+        else
+            luaToJavaMap.remove(clz);
+        resolvedL2J.clear();
     }
     //</editor-fold>
 
     /**
      * 默认构造器，使用反射
+     * 只在wrapper类中没有编译期生成的转换工厂时使用
      */
     private static final class DefaultGetter implements ILuaValueGetter<LuaUserdata, Object> {
         Constructor<? extends LuaUserdata> con;
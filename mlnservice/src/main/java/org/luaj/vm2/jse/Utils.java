@@ -17,6 +17,7 @@ import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaUserdata;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.TableBatch;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -55,9 +56,11 @@ public class Utils {
         int len = arr == null ? 0 : Array.getLength(arr);
         if (len == 0) return null;
         LuaTable table = LuaTable.create(g);
+        TableBatch batch = new TableBatch(len);
         for (int i = 0; i < len; i ++) {
-            table.set(i + 1, toLuaValue(g, Array.get(arr, i)));
+            batch.set(i + 1, toLuaValue(g, Array.get(arr, i)));
         }
+        table.setAll(batch);
         return table;
     }
 
@@ -0,0 +1,124 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.adapter;
+
+import com.immomo.mls.adapter.impl.LogFileCacheImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.immomo.mls.adapter.LogFileCacheImplTest.repeat;
+import static com.immomo.mls.adapter.LogFileCacheImplTest.tempDir;
+
+/**
+ * {@link LogFileCacheImpl} 写入及冷启动加载耗时
+ * 对比基准为{@link com.immomo.mls.adapter.impl.FileCacheImpl}的方式：每次保存序列化全部数据并重写文件
+ * （没有org.json实现，使用等价的字符串拼接）
+ * 不作为单元测试运行，直接执行main
+ */
+public class LogFileCacheImplBenchmark {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int SAVE_COUNT = 10000;
+    private static final int LOAD_BYTES = 5 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        String value = repeat('x', 64);
+
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        long start = System.nanoTime();
+        for (int i = 0; i < SAVE_COUNT; i++) {
+            cache.save("key" + i, value + i);
+        }
+        cache.flush();
+        long logSave = System.nanoTime() - start;
+
+        File file = new File(tempDir(), "lua-kv-cache");
+        Map<String, String> mem = new HashMap<>();
+        start = System.nanoTime();
+        for (int i = 0; i < SAVE_COUNT; i++) {
+            mem.put("key" + i, value + i);
+            rewrite(file, serialize(mem));
+        }
+        long rewriteSave = System.nanoTime() - start;
+
+        /// 约5MB数据冷启动加载
+        File bigDir = tempDir();
+        LogFileCacheImpl big = new LogFileCacheImpl(bigDir);
+        String bigValue = repeat('y', 500);
+        int bigCount = LOAD_BYTES / (bigValue.length() + 20);
+        for (int i = 0; i < bigCount; i++) {
+            big.save("key" + i, bigValue + i);
+        }
+        big.flush();
+        mem.clear();
+        for (int i = 0; i < bigCount; i++) {
+            mem.put("key" + i, bigValue + i);
+        }
+        rewrite(file, serialize(mem));
+
+        start = System.nanoTime();
+        int logLoaded = new LogFileCacheImpl(bigDir).size();
+        long logLoad = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int rewriteLoaded = parse(readAll(file)).size();
+        long rewriteLoad = System.nanoTime() - start;
+
+        if (logLoaded != bigCount || rewriteLoaded != bigCount)
+            throw new IllegalStateException("load " + logLoaded + "/" + rewriteLoaded + ", expect " + bigCount);
+        System.out.println(SAVE_COUNT + " saves: log " + logSave / 1000000 + "ms, rewrite " + rewriteSave / 1000000 + "ms; "
+                + "5MB cold load: log " + logLoad / 1000000 + "ms, rewrite " + rewriteLoad / 1000000 + "ms");
+    }
+
+    private static String serialize(Map<String, String> map) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            if (sb.length() > 1)
+                sb.append(',');
+            sb.append('"').append(e.getKey()).append("\":\"").append(e.getValue()).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static Map<String, String> parse(String json) {
+        Map<String, String> map = new HashMap<>();
+        int i = 1;
+        while (i < json.length() - 1) {
+            int ke = json.indexOf('"', i + 1);
+            int vs = ke + 3;
+            int ve = json.indexOf('"', vs + 1);
+            map.put(json.substring(i + 1, ke), json.substring(vs + 1, ve));
+            i = ve + 2;
+        }
+        return map;
+    }
+
+    private static String readAll(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return new String(data, UTF8);
+        }
+    }
+
+    private static void rewrite(File file, String content) throws IOException {
+        byte[] data = content.getBytes(UTF8);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, data.length);
+            map.put(data);
+            map.force();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.adapter;
+
+import com.immomo.mls.adapter.impl.LogFileCacheImpl;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LogFileCacheImpl} 测试
+ */
+public class LogFileCacheImplTest {
+    @Test
+    public void reloadAfterSave() throws Exception {
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        cache.save("ip", "192.168.0.1");
+        cache.save("port", "8176");
+        cache.save("中文", "值");
+        cache.save("port", "8177");
+        cache.save("ip", null);
+        cache.flush();
+
+        LogFileCacheImpl reload = new LogFileCacheImpl(dir);
+        assertEquals("def", reload.get("ip", "def"));
+        assertEquals("8177", reload.get("port", null));
+        assertEquals("值", reload.get("中文", null));
+        assertEquals(2, reload.size());
+    }
+
+    @Test
+    public void dropTornRecord() throws Exception {
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        cache.save("a", "1");
+        cache.save("b", "2");
+        cache.flush();
+        /// 模拟写入中途崩溃：破坏最后一条记录的最后一个字节
+        File seg = new File(dir, "1.seg");
+        int recordSize = 12 + 1 + 1;
+        try (RandomAccessFile raf = new RandomAccessFile(seg, "rw")) {
+            raf.seek(recordSize * 2 - 1);
+            int b = raf.read();
+            raf.seek(recordSize * 2 - 1);
+            raf.write(b ^ 0xFF);
+        }
+        LogFileCacheImpl reload = new LogFileCacheImpl(dir);
+        assertEquals("1", reload.get("a", null));
+        assertNull(reload.get("b", null));
+        /// 继续写入覆盖损坏的记录
+        reload.save("c", "3");
+        reload.flush();
+        LogFileCacheImpl again = new LogFileCacheImpl(dir);
+        assertEquals("1", again.get("a", null));
+        assertEquals("3", again.get("c", null));
+    }
+
+    @Test
+    public void compactOverwrittenKeys() throws Exception {
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        String value = repeat('v', 1000);
+        for (int i = 0; i < 5000; i++) {
+            cache.save("key" + (i % 10), value + i);
+        }
+        /// 等待后台压缩
+        for (int i = 0; i < 100 && segmentCount(dir) > 3; i++) {
+            Thread.sleep(20);
+        }
+        cache.flush();
+        assertTrue(segmentCount(dir) <= 3);
+        LogFileCacheImpl reload = new LogFileCacheImpl(dir);
+        assertEquals(10, reload.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(value + (4990 + i), reload.get("key" + i, null));
+        }
+    }
+
+    /**
+     * 模拟压缩rename基准文件后、删除旧段前崩溃：旧段残留，其中被删除的key不能恢复
+     */
+    @Test
+    public void compactCrashBeforeDelete() throws Exception {
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        cache.save("x", "1");
+        cache.flush();
+        byte[] first = Files.readAllBytes(new File(dir, "1.seg").toPath());
+
+        String value = repeat('v', 1000);
+        int i = 0;
+        for (; maxId(dir, ".seg") < 3; i++) {
+            cache.save("key" + (i % 10), value + i);
+        }
+        /// 删除记录在当前段中，之后的压缩产生的基准文件不再包含x
+        int deletedIn = maxId(dir, ".seg");
+        cache.save("x", null);
+        for (int n = 0; maxId(dir, ".base") < deletedIn && n < 200; n++) {
+            for (int j = 0; j < 1000; j++, i++) {
+                cache.save("key" + (i % 10), value + i);
+            }
+            Thread.sleep(10);
+        }
+        assertTrue(maxId(dir, ".base") >= deletedIn);
+        cache.flush();
+
+        File seg = new File(dir, "1.seg");
+        assertFalse(seg.exists());
+        Files.write(seg.toPath(), first);
+
+        LogFileCacheImpl reload = new LogFileCacheImpl(dir);
+        assertNull(reload.get("x", null));
+        assertEquals(10, reload.size());
+        assertFalse(seg.exists());
+    }
+
+    /**
+     * 大量key写入后冷启动加载，数据完整
+     * 耗时对比见{@link LogFileCacheImplBenchmark}
+     */
+    @Test
+    public void bulkSaveAndColdLoad() throws Exception {
+        final int count = 10000;
+        String value = repeat('x', 64);
+        File dir = tempDir();
+        LogFileCacheImpl cache = new LogFileCacheImpl(dir);
+        for (int i = 0; i < count; i++) {
+            cache.save("key" + i, value + i);
+        }
+        cache.flush();
+
+        LogFileCacheImpl load = new LogFileCacheImpl(dir);
+        assertEquals(count, load.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(value + i, load.get("key" + i, null));
+        }
+    }
+
+    private static int maxId(File dir, String suffix) {
+        int max = 0;
+        for (String n : dir.list()) {
+            if (n.endsWith(suffix))
+                max = Math.max(max, Integer.parseInt(n.substring(0, n.length() - suffix.length())));
+        }
+        return max;
+    }
+
+    private static int segmentCount(File dir) {
+        String[] names = dir.list();
+        int c = 0;
+        for (String n : names) {
+            if (n.endsWith(".seg"))
+                c++;
+        }
+        return c;
+    }
+
+    static String repeat(char c, int n) {
+        char[] cs = new char[n];
+        java.util.Arrays.fill(cs, c);
+        return new String(cs);
+    }
+
+    static File tempDir() throws IOException {
+        File f = File.createTempFile("lua-kv", "");
+        f.delete();
+        f.mkdirs();
+        f.deleteOnExit();
+        return f;
+    }
+}
@@ -0,0 +1,220 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.adapter;
+
+import com.immomo.mls.adapter.impl.PriorityThreadAdapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PriorityThreadAdapter} 优先级及并发取消测试
+ */
+public class PriorityThreadAdapterTest {
+    private static final int TAGS = 64;
+    private static final int TASKS_PER_TAG = 100;
+
+    @Test
+    public void highPriorityRunsFirst() throws Exception {
+        PriorityThreadAdapter adapter = new PriorityThreadAdapter(1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch block = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        adapter.execute(MLSThreadAdapter.Priority.HIGH, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        adapter.execute(MLSThreadAdapter.Priority.MEDIUM, record(order, "medium1", done));
+        adapter.execute(MLSThreadAdapter.Priority.MEDIUM, record(order, "medium2", done));
+        adapter.execute(MLSThreadAdapter.Priority.HIGH, record(order, "high", done));
+        assertEquals(3, adapter.getQueueSize());
+        block.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals("high", order.get(0));
+        assertEquals("medium1", order.get(1));
+        assertEquals("medium2", order.get(2));
+        adapter.shutdown();
+    }
+
+    /**
+     * IO通道的阻塞任务占满线程时，HIGH任务仍可执行
+     */
+    @Test
+    public void blockingIoDoesNotStarveHigh() throws Exception {
+        PriorityThreadAdapter adapter = new PriorityThreadAdapter(1, 2);
+        final CountDownLatch block = new CountDownLatch(1);
+        final CountDownLatch ioStarted = new CountDownLatch(2);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                ioStarted.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        adapter.executeTaskByTag("http", blocking);
+        adapter.execute(MLSThreadAdapter.Priority.LOW, blocking);
+        assertTrue(ioStarted.await(5, TimeUnit.SECONDS));
+        adapter.executeTaskByTag("http", blocking);
+
+        final CountDownLatch high = new CountDownLatch(2);
+        adapter.execute(MLSThreadAdapter.Priority.HIGH, record(new ArrayList<String>(), "high", high));
+        adapter.execute(MLSThreadAdapter.Priority.MEDIUM, record(new ArrayList<String>(), "medium", high));
+        assertTrue(high.await(5, TimeUnit.SECONDS));
+        assertEquals(1, adapter.getQueueSize(MLSThreadAdapter.Priority.LOW));
+        block.countDown();
+        adapter.shutdown();
+    }
+
+    @Test
+    public void cancelTaskByTagConcurrently() throws Exception {
+        final PriorityThreadAdapter adapter = new PriorityThreadAdapter(4);
+        final AtomicInteger ran = new AtomicInteger();
+        final int total = TAGS * TASKS_PER_TAG;
+        final CountDownLatch submitted = new CountDownLatch(2);
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < TASKS_PER_TAG; i++) {
+                    for (int t = 0; t < TAGS; t++) {
+                        adapter.executeTaskByTag(t, new Runnable() {
+                            @Override
+                            public void run() {
+                                ran.incrementAndGet();
+                            }
+                        });
+                    }
+                }
+                submitted.countDown();
+            }
+        });
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < TASKS_PER_TAG; i++) {
+                    adapter.cancelTaskByTag(i % TAGS);
+                }
+                submitted.countDown();
+            }
+        });
+        producer.start();
+        canceller.start();
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        for (int t = 0; t < TAGS; t++) {
+            adapter.cancelTaskByTag(t);
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((adapter.getFinishedCount() + adapter.getCancelledCount() < total || adapter.getTagCount() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(total, adapter.getSubmittedCount());
+        assertEquals(total, adapter.getFinishedCount() + adapter.getCancelledCount());
+        assertEquals(ran.get(), adapter.getFinishedCount());
+        assertEquals(0, adapter.getQueueSize());
+        assertEquals(0, adapter.getTagCount());
+        adapter.shutdown();
+    }
+
+    @Test
+    public void cancelSingleTask() throws Exception {
+        PriorityThreadAdapter adapter = new PriorityThreadAdapter(1, 1);
+        final CountDownLatch block = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        Object tag = new Object();
+        adapter.execute(MLSThreadAdapter.Priority.LOW, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    block.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        Runnable keep = new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+        Runnable drop = new EqualsRunnable(ran, 100);
+        /// 与drop equals，但不是同一个对象，不会被取消
+        Runnable equalsDrop = new EqualsRunnable(ran, 1);
+        adapter.executeTaskByTag(tag, keep);
+        adapter.executeTaskByTag(tag, equalsDrop);
+        adapter.executeTaskByTag(tag, drop);
+        adapter.cancelTask(tag, drop);
+        assertEquals(1, adapter.getCancelledCount());
+        block.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((adapter.getFinishedCount() < 3 || adapter.getTagCount() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, ran.get());
+        assertEquals(0, adapter.getTagCount());
+        adapter.shutdown();
+    }
+
+    private static final class EqualsRunnable implements Runnable {
+        final AtomicInteger ran;
+        final int delta;
+
+        EqualsRunnable(AtomicInteger ran, int delta) {
+            this.ran = ran;
+            this.delta = delta;
+        }
+
+        @Override
+        public void run() {
+            ran.addAndGet(delta);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EqualsRunnable;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    private static Runnable record(final List<String> order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+}
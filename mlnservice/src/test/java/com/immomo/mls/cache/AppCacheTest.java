@@ -0,0 +1,94 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import android.app.Application;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link AppCache} 测试
+ */
+public class AppCacheTest {
+
+    @After
+    public void tearDown() {
+        AppCache.clear();
+    }
+
+    /**
+     * 按个数计算，不受数据大小影响，也不占用共用预算
+     */
+    @Test
+    public void countBased() {
+        AppCache cache = AppCache.getCache("count");
+        for (int i = 0; i < AppCache.DEFAULT_LRU_CACHE_SIZE + 1; i++) {
+            cache.putLru(i, new byte[AppCache.DEFAULT_LRU_CACHE_QUOTA]);
+        }
+        assertNull(cache.getLru(0));
+        for (int i = 1; i <= AppCache.DEFAULT_LRU_CACHE_SIZE; i++) {
+            assertNotNull(cache.getLru(i));
+        }
+        assertEquals(AppCache.DEFAULT_LRU_CACHE_SIZE, cache.getLruCache().size());
+        assertEquals(0, AppCache.getBudget().size());
+
+        /// 传入size时按size计算
+        cache.putLru("big", "v", AppCache.DEFAULT_LRU_CACHE_SIZE);
+        assertEquals(1, cache.getLruCache().count());
+    }
+
+    @Test
+    public void weighted() {
+        AppCache cache = AppCache.getWeightedCache("weighted", 1000);
+        cache.putLru("a", new byte[600]);
+        cache.putLru("b", new byte[600]);
+        assertNull(cache.getLru("a"));
+        assertNotNull(cache.getLru("b"));
+        assertEquals(600, AppCache.getBudget().size());
+        /// 只在第一次创建时有效
+        assertSame(cache, AppCache.getCache("weighted", 1));
+    }
+
+    /**
+     * clear后仍持有旧cache时，putLru不增加共用预算，新获取的cache仍可被淘汰
+     */
+    @Test
+    public void putAfterClear() {
+        AppCache stale = AppCache.getWeightedCache("weighted", 1000);
+        stale.putLru("a", new byte[600]);
+        AppCache.clear();
+        assertEquals(0, AppCache.getBudget().size());
+        for (int i = 0; i < 10; i++) {
+            stale.putLru(i, new byte[600]);
+        }
+        assertNull(stale.getLru(0));
+        assertEquals(0, AppCache.getBudget().size());
+
+        AppCache fresh = AppCache.getWeightedCache("weighted", 1000);
+        assertNotSame(stale, fresh);
+        fresh.putLru("b", new byte[600]);
+        assertEquals(600, AppCache.getBudget().size());
+        AppCache.onTrimMemory(Application.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, AppCache.getBudget().size());
+    }
+
+    @Test
+    public void trimMemory() {
+        AppCache count = AppCache.getCache("count", 8);
+        for (int i = 0; i < 8; i++) {
+            count.putLru(i, "v");
+        }
+        AppCache.onTrimMemory(Application.TRIM_MEMORY_BACKGROUND);
+        assertEquals(4, count.getLruCache().size());
+        assertNotNull(count.getLru(7));
+        assertNull(count.getLru(0));
+    }
+}
@@ -0,0 +1,210 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BytecodeCache} 测试
+ * 二进制码的生成和加载需要native库，这里用普通文件代替
+ */
+public class BytecodeCacheTest {
+
+    @Test
+    public void hitAndMiss() throws Exception {
+        BytecodeCache cache = new BytecodeCache(tempDir(), 1024);
+        assertNull(cache.get("a"));
+        assertTrue(cache.commit("a", write(cache.newTempFile("a"), 100)));
+        File f = cache.get("a");
+        assertNotNull(f);
+        assertEquals(100, f.length());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getSize());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        File dir = tempDir();
+        BytecodeCache cache = new BytecodeCache(dir, 250);
+        cache.commit("a", write(cache.newTempFile("a"), 100));
+        cache.commit("b", write(cache.newTempFile("b"), 100));
+        new File(dir, "a").setLastModified(1000);
+        new File(dir, "b").setLastModified(2000);
+        /// 使用a后，b成为最久未使用的
+        assertNotNull(cache.get("a"));
+        cache.commit("c", write(cache.newTempFile("c"), 100));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(200, cache.getSize());
+    }
+
+    @Test
+    public void sizeFromExistingFiles() throws Exception {
+        File dir = tempDir();
+        write(new File(dir, "a"), 100);
+        File torn = write(new File(dir, "b.1.tmp"), 50);
+        torn.setLastModified(1000);
+        BytecodeCache cache = new BytecodeCache(dir, 1024);
+        assertEquals(100, cache.getSize());
+        assertFalse(torn.exists());
+    }
+
+    @Test
+    public void key() throws Exception {
+        byte[] source = "return 1".getBytes("UTF-8");
+        String k = BytecodeCache.key(digest(source), "a", 83, 0);
+        assertEquals(k, BytecodeCache.key(digest(source), "a", 83, 0));
+        assertNotEquals(k, BytecodeCache.key(digest(source), "a", 84, 0));
+        assertNotEquals(k, BytecodeCache.key(digest(source), "a", 83, 1));
+        assertNotEquals(k, BytecodeCache.key(digest("return 2".getBytes("UTF-8")), "a", 83, 0));
+        /// 相同源码，chunkname不同
+        assertNotEquals(k, BytecodeCache.key(digest(source), "b", 83, 0));
+        assertNotEquals(k, BytecodeCache.key(digest(source), null, 83, 0));
+        /// 已是二进制码
+        assertNull(BytecodeCache.key(new byte[]{0x1B, 'L', 'u', 'a'}, "a"));
+        assertNull(BytecodeCache.key(new byte[0], "a"));
+    }
+
+    /**
+     * 分段读取文件计算的hash与读入内存计算的一致
+     */
+    @Test
+    public void fileContentDigest() throws Exception {
+        byte[] source = new byte[20000];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (byte) ('a' + i % 26);
+        }
+        File dir = tempDir();
+        File f = new File(dir, "a.lua");
+        FileOutputStream os = new FileOutputStream(f);
+        try {
+            os.write(source);
+        } finally {
+            os.close();
+        }
+        assertEquals(BytecodeCache.key(digest(source), "a", 83, 0),
+                BytecodeCache.key(BytecodeCache.digest(f), "a", 83, 0));
+        assertNull(BytecodeCache.digest(write(new File(dir, "empty"), 0)));
+        assertNull(BytecodeCache.digest(new File(dir, "none")));
+        f = new File(dir, "a.luab");
+        os = new FileOutputStream(f);
+        try {
+            os.write(new byte[]{0x1B, 'L', 'u', 'a'});
+        } finally {
+            os.close();
+        }
+        assertNull(BytecodeCache.digest(f));
+    }
+
+    @Test
+    public void fileDigest() throws Exception {
+        File f = new File("/a/b.lua");
+        String k = fileKey(f, 10, 1000, "b");
+        assertEquals(k, fileKey(f, 10, 1000, "b"));
+        assertNotEquals(k, fileKey(f, 11, 1000, "b"));
+        assertNotEquals(k, fileKey(f, 10, 1001, "b"));
+        assertNotEquals(k, fileKey(f, 10, 1000, "c"));
+        assertNotEquals(k, fileKey(new File("/a/c.lua"), 10, 1000, "b"));
+        /// 文件不存在
+        assertNull(BytecodeCache.digest(f, 0, 0));
+    }
+
+    /**
+     * 刚修改的文件可能在同一时间精度内再次修改且大小不变，不使用引用
+     */
+    @Test
+    public void recentlyModifiedNotStable() {
+        long now = 100000;
+        assertTrue(BytecodeCache.isStable(now - BytecodeCache.MTIME_GRANULARITY, now));
+        assertFalse(BytecodeCache.isStable(now - BytecodeCache.MTIME_GRANULARITY + 1, now));
+        assertFalse(BytecodeCache.isStable(now, now));
+        /// 时钟回拨
+        assertFalse(BytecodeCache.isStable(now + 1000, now));
+    }
+
+    private static String fileKey(File f, long length, long lastModified, String chunkname) {
+        return BytecodeCache.key(BytecodeCache.digest(f, length, lastModified), chunkname, 83, 0);
+    }
+
+    @Test
+    public void ref() throws Exception {
+        File dir = tempDir();
+        BytecodeCache cache = new BytecodeCache(dir, 1024);
+        assertNull(cache.getRef("f"));
+        /// 引用的缓存不存在
+        cache.putRef("f", "a");
+        assertNull(cache.getRef("f"));
+
+        cache.commit("a", write(cache.newTempFile("a"), 100));
+        assertEquals("a", cache.getRef("f"));
+        assertEquals(100, cache.getSize());
+        /// 缓存被删除后引用失效
+        cache.remove("a");
+        assertNull(cache.getRef("f"));
+
+        cache.commit("a", write(cache.newTempFile("a"), 100));
+        cache.clear();
+        cache.commit("a", write(cache.newTempFile("a"), 100));
+        assertNull(cache.getRef("f"));
+        assertEquals(100, new BytecodeCache(dir, 1024).getSize());
+    }
+
+    @Test
+    public void trimRefs() throws Exception {
+        BytecodeCache cache = new BytecodeCache(tempDir(), 1024);
+        cache.commit("a", write(cache.newTempFile("a"), 10));
+        for (int i = 0; i <= BytecodeCache.MAX_REF_COUNT; i++) {
+            cache.putRef("f" + i, "a");
+        }
+        int count = 0;
+        for (int i = 0; i <= BytecodeCache.MAX_REF_COUNT; i++) {
+            if (cache.getRef("f" + i) != null)
+                count++;
+        }
+        assertTrue(count <= BytecodeCache.MAX_REF_COUNT);
+        assertTrue(count > 0);
+    }
+
+    private static MessageDigest digest(byte[] data) {
+        MessageDigest d = BytecodeCache.sha1();
+        d.update(data);
+        return d;
+    }
+
+    private static File write(File f, int len) throws IOException {
+        FileOutputStream os = new FileOutputStream(f);
+        try {
+            os.write(new byte[len]);
+        } finally {
+            os.close();
+        }
+        return f;
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = File.createTempFile("bytecode", "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WeightedLruCache}、{@link CacheBudget} 测试
+ */
+public class WeightedLruCacheTest {
+
+    @Test
+    public void largeEntryNotEvictedBySmallOnes() {
+        WeightedLruCache<String, Object> cache = new WeightedLruCache<>(1000);
+        cache.put("big", new byte[600]);
+        for (int i = 0; i < 5; i++) {
+            cache.put("small" + i, new byte[10]);
+        }
+        assertNotNull(cache.get("big"));
+        assertEquals(650, cache.size());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void evictByBytes() {
+        WeightedLruCache<String, Object> cache = new WeightedLruCache<>(1000);
+        cache.put("a", "a", 400);
+        cache.put("b", "b", 400);
+        assertNotNull(cache.get("a"));
+        cache.put("c", "c", 400);
+        /// b最久未使用
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(800, cache.size());
+        assertEquals(1, cache.evictionCount());
+        /// 大于上限的数据不存入
+        cache.put("d", "d", 2000);
+        assertNull(cache.get("d"));
+        assertEquals(800, cache.size());
+    }
+
+    @Test
+    public void sharedBudget() {
+        CacheBudget budget = new CacheBudget(1000);
+        WeightedLruCache<String, Object> scripts = new WeightedLruCache<>(800, budget);
+        WeightedLruCache<String, Object> prototypes = new WeightedLruCache<>(800, budget);
+        scripts.put("s1", "s1", 300);
+        prototypes.put("p1", "p1", 300);
+        scripts.put("s2", "s2", 300);
+        assertNotNull(scripts.get("s1"));
+        /// 总预算不足，淘汰所有cache中最久未使用的p1
+        prototypes.put("p2", "p2", 300);
+        assertNull(prototypes.get("p1"));
+        assertEquals(900, budget.size());
+        assertEquals(600, scripts.size());
+        assertEquals(300, prototypes.size());
+
+        /// 低内存时按比例淘汰
+        budget.trimToSize(budget.maxSize() / 2);
+        assertEquals(300, budget.size());
+        assertEquals(1, scripts.count() + prototypes.count());
+        assertNotNull(prototypes.get("p2"));
+
+        prototypes.release();
+        assertEquals(0, budget.size());
+        scripts.put("s3", "s3", 700);
+        assertEquals(700, budget.size());
+    }
+
+    /**
+     * release后仍持有cache的调用方不再占用共用预算
+     */
+    @Test
+    public void putAfterRelease() {
+        CacheBudget budget = new CacheBudget(1000);
+        WeightedLruCache<String, Object> released = new WeightedLruCache<>(800, budget);
+        WeightedLruCache<String, Object> other = new WeightedLruCache<>(800, budget);
+        released.put("a", "a", 300);
+        released.release();
+        assertTrue(released.isReleased());
+        for (int i = 0; i < 10; i++) {
+            released.put("r" + i, "r", 300);
+        }
+        assertNull(released.get("r0"));
+        assertEquals(0, released.size());
+        assertEquals(0, budget.size());
+
+        /// 其他cache不受影响
+        other.put("o1", "o1", 500);
+        other.put("o2", "o2", 300);
+        assertNotNull(other.get("o1"));
+        assertEquals(800, budget.size());
+    }
+
+    @Test
+    public void statistics() {
+        WeightedLruCache<String, Object> cache = new WeightedLruCache<>(100);
+        cache.put("a", "aaaa");
+        assertEquals(8, cache.size());
+        cache.get("a");
+        cache.get("b");
+        cache.put("a", "aa");
+        assertEquals(4, cache.size());
+        cache.remove("a");
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(2, cache.putCount());
+        assertEquals(0, cache.evictionCount());
+        assertEquals(WeightedLruCache.DEFAULT_ENTRY_SIZE, WeightedLruCache.estimateSize(new Object()));
+        assertEquals(3, WeightedLruCache.estimateSize(new WeightedLruCache.Sized() {
+            @Override
+            public int byteSize() {
+                return 3;
+            }
+        }));
+    }
+}
@@ -0,0 +1,186 @@
+package com.immomo.mls.lite;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.immomo.mls.wrapper.ScriptBundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link Dispatcher} tag索引
+ */
+public class DispatcherTest {
+
+    private final CountListener listener = new CountListener();
+    private final LuaClient client;
+
+    public DispatcherTest() {
+        LifecycleOwner owner = mock(LifecycleOwner.class);
+        when(owner.getLifecycle()).thenReturn(mock(Lifecycle.class));
+        client = new LuaClient.Builder()
+                .eventListenerFactory(EventListener.factory(listener))
+                .build(owner);
+    }
+
+    private RealCall newCall(Object tag) {
+        ScriptBundle request = mock(ScriptBundle.class);
+        when(request.tag()).thenReturn(tag);
+        return RealCall.newRealCall(client, request);
+    }
+
+    @Test
+    public void executedAndFinished() {
+        Dispatcher d = client.dispatcher();
+        Object tag = new Object();
+        RealCall a = newCall(tag);
+        RealCall b = newCall(tag);
+        d.executed(a);
+        d.executed(b);
+        assertEquals(2, d.runningCallsCount(tag));
+        d.finished(a);
+        assertEquals(1, d.runningCallsCount(tag));
+        assertEquals(1, d.runningCalls(tag).size());
+        assertSame(b, d.runningCalls(tag).get(0));
+        d.finished(b);
+        assertEquals(0, d.runningCallsCount(tag));
+        assertEquals(0, d.runningCallsCount());
+        assertEquals(2, listener.finished.get());
+    }
+
+    @Test
+    public void cancelTag() {
+        Dispatcher d = client.dispatcher();
+        Object tag = new Object();
+        Object other = new Object();
+        d.executed(newCall(tag));
+        d.executed(newCall(tag));
+        RealCall keep = newCall(other);
+        d.executed(keep);
+
+        d.cancelAll(tag);
+        assertEquals(0, d.runningCallsCount(tag));
+        assertEquals(1, d.runningCallsCount());
+        assertEquals(2, listener.finished.get());
+
+        /// 取消后同一tag的新请求加入新的集合
+        RealCall next = newCall(tag);
+        d.executed(next);
+        assertEquals(1, d.runningCallsCount(tag));
+        assertSame(next, d.runningCalls(tag).get(0));
+    }
+
+    @Test
+    public void cancelAllClosesTags() {
+        Dispatcher d = client.dispatcher();
+        Object tag = new Object();
+        d.executed(newCall(tag));
+        d.executed(newCall(null));
+        d.cancelAll();
+        assertEquals(0, d.runningCallsCount());
+        assertEquals(0, d.runningCallsCount(tag));
+        assertEquals(2, listener.finished.get());
+
+        RealCall next = newCall(tag);
+        d.executed(next);
+        assertEquals(1, d.runningCallsCount(tag));
+        assertSame(next, d.runningCalls(tag).get(0));
+    }
+
+    /**
+     * 多线程加入、结束请求时不断cancelAll(tag)、cancelAll()：结束后每个未被取消的请求都能通过tag找到，
+     * 每个请求都回调了dispatcherFinished
+     */
+    @Test
+    public void concurrentCancel() throws Exception {
+        final Dispatcher d = client.dispatcher();
+        final Object tag = new Object();
+        final int threads = 4;
+        final int perThread = 2000;
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        RealCall call = newCall(tag);
+                        d.executed(call);
+                        /// 一半请求保持运行
+                        if ((i & 1) == 0 && d.isRunning(call)) {
+                            try {
+                                d.finished(call);
+                            } catch (AssertionError ignore) {
+                                /// 已被cancelAll取消
+                            }
+                        }
+                    }
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        Thread canceler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 1; !stop.get(); n++) {
+                    d.cancelAll(tag);
+                    if (n % 50 == 0)
+                        d.cancelAll();
+                }
+            }
+        });
+        canceler.start();
+        start.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+        stop.set(true);
+        canceler.join();
+
+        List<Call> running = d.runningCalls();
+        List<Call> byTag = d.runningCalls(tag);
+        assertEquals(running.size(), byTag.size());
+        assertTrue(byTag.containsAll(running));
+        assertEquals(running.size(), d.runningCallsCount(tag));
+
+        d.cancelAll(tag);
+        assertEquals(0, d.runningCallsCount());
+        assertEquals(listener.executed.get(), listener.finished.get());
+    }
+
+    private static final class CountListener extends EventListener {
+        final AtomicInteger executed = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+
+        @Override
+        public void dispatcherExecuted(Call call, Object tag, int runningCount) {
+            executed.incrementAndGet();
+        }
+
+        @Override
+        public void dispatcherFinished(Call call, Object tag, int runningCount, long inFlightNanos) {
+            finished.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.immomo.mls.lite;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.immomo.mls.lite.data.ScriptResult;
+import com.immomo.mls.lite.interceptor.Interceptor;
+import com.immomo.mls.wrapper.ScriptBundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link RealCall#enqueue}的准备、取消、回收，及{@link RealCall.PreparedInterceptor}
+ * 工作线程和主线程的部分直接调用，不经过线程池和Handler
+ */
+public class RealCallTest {
+
+    private static LuaClient client(LuaClient.Builder builder) {
+        LifecycleOwner owner = mock(LifecycleOwner.class);
+        when(owner.getLifecycle()).thenReturn(mock(Lifecycle.class));
+        return builder.build(owner);
+    }
+
+    private static RealCall newCall(LuaClient client, ScriptBundle request) {
+        return RealCall.newRealCall(client, request);
+    }
+
+    @Test
+    public void cancelDuringPrepare() {
+        LuaClient client = client(new LuaClient.Builder());
+        ScriptBundle request = mock(ScriptBundle.class);
+        RealCall call = newCall(client, request);
+        call.startPrepare();
+        assertTrue(client.dispatcher().isRunning(call));
+
+        /// 准备期间取消：只标记，不回收
+        client.dispatcher().cancelAll();
+        verify(request, never()).clear();
+        assertFalse(client.dispatcher().isRunning(call));
+
+        /// 工作线程准备结束后回收
+        call.prepareFinished();
+        verify(request, times(1)).clear();
+
+        /// 主线程不再继续，也不回调
+        Call.Callback callback = mock(Call.Callback.class);
+        call.onPrepared(null, callback);
+        verify(callback, never()).onResult(any(Call.class), any(ScriptResult.class));
+    }
+
+    @Test
+    public void doubleRecycle() {
+        LuaClient client = client(new LuaClient.Builder());
+        ScriptBundle request = mock(ScriptBundle.class);
+        RealCall call = newCall(client, request);
+        call.startPrepare();
+
+        /// 调用方回收后Dispatcher.finished再次回收，准备结束时只回收一次
+        call.recycle();
+        client.dispatcher().finished(call);
+        call.recycle();
+        verify(request, never()).clear();
+        call.prepareFinished();
+        call.recycle();
+        verify(request, times(1)).clear();
+    }
+
+    @Test
+    public void doubleRecycleAfterPrepare() {
+        LuaClient client = client(new LuaClient.Builder());
+        ScriptBundle request = mock(ScriptBundle.class);
+        RealCall call = newCall(client, request);
+        call.startPrepare();
+        call.prepareFinished();
+        verify(request, never()).clear();
+
+        call.recycle();
+        client.dispatcher().finished(call);
+        verify(request, times(1)).clear();
+    }
+
+    @Test
+    public void prepareFailure() {
+        final Exception error = new Exception("prepare");
+        RecordListener listener = new RecordListener();
+        LuaClient client = client(new LuaClient.Builder()
+                .eventListenerFactory(EventListener.factory(listener))
+                .addPreProcessorInterceptor(new Interceptor() {
+                    @Override
+                    public ScriptResult intercept(Chain chain) throws Exception {
+                        throw error;
+                    }
+                }));
+        ScriptBundle request = mock(ScriptBundle.class);
+        RealCall call = newCall(client, request);
+        call.startPrepare();
+        RealCall.Prepared prepared = call.prepare();
+        call.prepareFinished();
+        assertSame(error, prepared.error);
+        assertNull(prepared.request);
+        assertEquals(Arrays.asList("callStart", "prepareStart", "prepareEnd"), listener.events);
+        verify(request, never()).clear();
+
+        /// 主线程中抛出准备时的异常，由外层拦截器处理
+        try {
+            runPrepared(prepared, request, new ArrayList<String>());
+            fail();
+        } catch (Exception e) {
+            assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void workerCrash() {
+        LuaClient client = client(new LuaClient.Builder());
+        ScriptBundle request = mock(ScriptBundle.class);
+        RealCall call = newCall(client, request);
+        call.startPrepare();
+        call.prepareFinished();
+
+        /// 工作线程异常退出：结束请求并回调空结果
+        Call.Callback callback = mock(Call.Callback.class);
+        call.onPrepared(null, callback);
+        verify(callback).onResult(same(call), any(ScriptResult.class));
+        assertFalse(client.dispatcher().isRunning(call));
+        verify(request, times(1)).clear();
+    }
+
+    @Test
+    public void preparedSkipsInterceptors() throws Exception {
+        ScriptBundle original = mock(ScriptBundle.class);
+        ScriptBundle processed = mock(ScriptBundle.class);
+        RealCall.Prepared prepared = new RealCall.Prepared(original);
+        prepared.request = processed;
+        List<String> trace = new ArrayList<>();
+        ScriptResult result = runPrepared(prepared, original, trace);
+        assertEquals(Arrays.asList("end"), trace);
+        assertSame(processed, result.request());
+    }
+
+    /**
+     * 请求被替换（如加载失败后重试）时，在主线程中重新执行预处理、资源加载拦截器
+     */
+    @Test
+    public void replacedRequestFallsThrough() throws Exception {
+        ScriptBundle original = mock(ScriptBundle.class);
+        ScriptBundle retry = mock(ScriptBundle.class);
+        RealCall.Prepared prepared = new RealCall.Prepared(original);
+        prepared.request = mock(ScriptBundle.class);
+        List<String> trace = new ArrayList<>();
+        ScriptResult result = runPrepared(prepared, retry, trace);
+        assertEquals(Arrays.asList("pre", "resource", "end"), trace);
+        assertSame(retry, result.request());
+    }
+
+    /**
+     * 同一个请求重试时，结果只使用一次
+     */
+    @Test
+    public void preparedUsedOnce() throws Exception {
+        ScriptBundle original = mock(ScriptBundle.class);
+        RealCall.Prepared prepared = new RealCall.Prepared(original);
+        prepared.request = mock(ScriptBundle.class);
+        RealCall.PreparedInterceptor interceptor = new RealCall.PreparedInterceptor(prepared, 2);
+        List<String> trace = new ArrayList<>();
+        run(interceptor, original, trace);
+        trace.clear();
+        ScriptResult result = run(interceptor, original, trace);
+        assertEquals(Arrays.asList("pre", "resource", "end"), trace);
+        assertSame(original, result.request());
+    }
+
+    private static ScriptResult runPrepared(RealCall.Prepared prepared, ScriptBundle request, List<String> trace) throws Exception {
+        return run(new RealCall.PreparedInterceptor(prepared, 2), request, trace);
+    }
+
+    /**
+     * PreparedInterceptor, 预处理, 资源加载, 结束
+     */
+    private static ScriptResult run(Interceptor prepared, ScriptBundle request, List<String> trace) throws Exception {
+        List<Interceptor> interceptors = Arrays.asList(prepared,
+                RealInterceptorChainTest.record("pre", trace),
+                RealInterceptorChainTest.record("resource", trace),
+                RealInterceptorChainTest.end(trace));
+        return new RealInterceptorChain(interceptors, 0, null, null, request, null, true).proceed(request);
+    }
+
+    private static final class RecordListener extends EventListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void callStart(Call call) {
+            events.add("callStart");
+        }
+
+        @Override
+        public void prepareStart(Call call) {
+            events.add("prepareStart");
+        }
+
+        @Override
+        public void prepareEnd(Call call) {
+            events.add("prepareEnd");
+        }
+
+        @Override
+        public void mainThreadStart(Call call) {
+            events.add("mainThreadStart");
+        }
+    }
+}
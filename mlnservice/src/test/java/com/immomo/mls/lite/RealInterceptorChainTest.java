@@ -0,0 +1,88 @@
+package com.immomo.mls.lite;
+
+import com.immomo.mls.lite.data.ScriptResult;
+import com.immomo.mls.lite.interceptor.Interceptor;
+import com.immomo.mls.wrapper.ScriptBundle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link RealInterceptorChain#skip}
+ */
+public class RealInterceptorChainTest {
+
+    @Test
+    public void skip() throws Exception {
+        final List<String> trace = new ArrayList<>();
+        final ScriptBundle request = mock(ScriptBundle.class);
+        final ScriptBundle replaced = mock(ScriptBundle.class);
+        Interceptor skip = new Interceptor() {
+            @Override
+            public ScriptResult intercept(Chain chain) throws Exception {
+                trace.add("skip");
+                return ((RealInterceptorChain) chain).skip(2, replaced);
+            }
+        };
+        List<Interceptor> interceptors = Arrays.asList(record("a", trace), skip,
+                record("b", trace), record("c", trace), record("d", trace), end(trace));
+        ScriptResult result = new RealInterceptorChain(interceptors, 0, null, null, request, null, true)
+                .proceed(request);
+        assertEquals(Arrays.asList("a", "skip", "d", "end"), trace);
+        assertSame(replaced, result.request());
+    }
+
+    @Test
+    public void skipNone() throws Exception {
+        final List<String> trace = new ArrayList<>();
+        final ScriptBundle request = mock(ScriptBundle.class);
+        Interceptor skip = new Interceptor() {
+            @Override
+            public ScriptResult intercept(Chain chain) throws Exception {
+                return ((RealInterceptorChain) chain).skip(0, chain.request());
+            }
+        };
+        List<Interceptor> interceptors = Arrays.asList(skip, record("a", trace), end(trace));
+        new RealInterceptorChain(interceptors, 0, null, null, request, null, true).proceed(request);
+        assertEquals(Arrays.asList("a", "end"), trace);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void skipPastEnd() throws Exception {
+        final ScriptBundle request = mock(ScriptBundle.class);
+        Interceptor skip = new Interceptor() {
+            @Override
+            public ScriptResult intercept(Chain chain) throws Exception {
+                return ((RealInterceptorChain) chain).skip(2, chain.request());
+            }
+        };
+        List<Interceptor> interceptors = Arrays.asList(skip, end(new ArrayList<String>()));
+        new RealInterceptorChain(interceptors, 0, null, null, request, null, true).proceed(request);
+    }
+
+    static Interceptor record(final String name, final List<String> trace) {
+        return new Interceptor() {
+            @Override
+            public ScriptResult intercept(Chain chain) throws Exception {
+                trace.add(name);
+                return chain.proceed(chain.request());
+            }
+        };
+    }
+
+    static Interceptor end(final List<String> trace) {
+        return new Interceptor() {
+            @Override
+            public ScriptResult intercept(Chain chain) {
+                trace.add("end");
+                return new ScriptResult.Builder().request(chain.request()).build();
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.lite.data;
+
+import com.immomo.luanative.hotreload.sync.FileManifest;
+import com.immomo.mls.Constants;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ScriptPrefetchCache} 预读结果的失效检查
+ */
+public class ScriptPrefetchCacheTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void loadRequires() throws Exception {
+        File dir = tempDir();
+        File main = write(new File(dir, "main.lua"), "require('child')\nrequire \"sub.other\"");
+        write(new File(dir, "child.lua"), "return 1");
+        write(new File(new File(dir, "sub"), "other.lua"), "return 2");
+
+        ScriptPrefetchCache.Entry e = ScriptPrefetchCache.load(main);
+        assertNotNull(e);
+        assertEquals(2, e.children.size());
+        assertTrue(e.children.containsKey("child.lua"));
+        assertTrue(e.children.containsKey("sub" + File.separator + "other.lua"));
+        assertTrue(ScriptPrefetchCache.valid(e, main));
+    }
+
+    /**
+     * 与热重载文件摘要的require规则一致
+     */
+    @Test
+    public void requireRegexMatchesHotReload() {
+        assertEquals(FileManifest.REQUIRE_REGEX, Constants.REQUIRE_REGEX);
+    }
+
+    @Test
+    public void childChanged() throws Exception {
+        File dir = tempDir();
+        File main = write(new File(dir, "main.lua"), "require('child')");
+        File child = write(new File(dir, "child.lua"), "return 1");
+        ScriptPrefetchCache.Entry e = ScriptPrefetchCache.load(main);
+        assertTrue(ScriptPrefetchCache.valid(e, main));
+
+        /// 大小不变，只有修改时间变化
+        write(child, "return 2");
+        child.setLastModified(child.lastModified() + 2000);
+        assertFalse(ScriptPrefetchCache.valid(e, main));
+
+        e = ScriptPrefetchCache.load(main);
+        assertTrue(ScriptPrefetchCache.valid(e, main));
+        /// 大小变化
+        long time = child.lastModified();
+        write(child, "return 100");
+        child.setLastModified(time);
+        assertFalse(ScriptPrefetchCache.valid(e, main));
+    }
+
+    @Test
+    public void entryChanged() throws Exception {
+        File dir = tempDir();
+        File main = write(new File(dir, "main.lua"), "require('child')");
+        write(new File(dir, "child.lua"), "return 1");
+        ScriptPrefetchCache.Entry e = ScriptPrefetchCache.load(main);
+
+        long time = main.lastModified();
+        write(main, "require('child')\nprint(1)");
+        main.setLastModified(time);
+        assertFalse(ScriptPrefetchCache.valid(e, main));
+
+        e = ScriptPrefetchCache.load(main);
+        main.setLastModified(main.lastModified() + 2000);
+        assertFalse(ScriptPrefetchCache.valid(e, main));
+    }
+
+    private static File write(File f, String content) throws IOException {
+        f.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(content.getBytes(UTF8));
+        }
+        return f;
+    }
+
+    private static File tempDir() throws IOException {
+        File f = File.createTempFile("prefetch", "");
+        f.delete();
+        f.mkdirs();
+        f.deleteOnExit();
+        return f;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.wrapper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RegisterSnapshot} 只预注册新增的类
+ */
+public class RegisterSnapshotTest {
+    private static class Base {
+    }
+
+    private static class Child extends Base {
+    }
+
+    private static class Other {
+    }
+
+    private final List<Class> classes = new ArrayList<>();
+    private final List<String> lcns = new ArrayList<>();
+    private final List<String> jcns = new ArrayList<>();
+    private final List<String> methods = new ArrayList<>();
+    private int[] mc = new int[0];
+    private final Map<Class, String> luaClassNameMap = new HashMap<>();
+
+    private void add(Class c, String lcn, String... ms) {
+        classes.add(c);
+        lcns.add(lcn);
+        jcns.add(c.getName().replace('.', '/'));
+        methods.addAll(Arrays.asList(ms));
+        mc = Arrays.copyOf(mc, mc.length + 1);
+        mc[mc.length - 1] = ms.length;
+        luaClassNameMap.put(c, lcn);
+    }
+
+    private RegisterSnapshot snapshot(RegisterSnapshot last) {
+        return new RegisterSnapshot(last, classes, lcns, jcns, mc, methods, new int[classes.size()], luaClassNameMap);
+    }
+
+    @Test
+    public void onlyNewClasses() {
+        add(Base.class, "Base", "a", "b");
+        add(Child.class, "Child", "c");
+        RegisterSnapshot first = snapshot(null);
+        assertEquals(2, first.size());
+        assertEquals(3, first.methods.length);
+        assertEquals("Base", first.lpcns[1]);
+
+        add(Other.class, "Other", "d");
+        int[] types = new int[classes.size()];
+        assertTrue(first.isValidFor(classes, lcns, types));
+        RegisterSnapshot second = snapshot(first);
+        assertEquals(1, second.size());
+        assertArrayEquals(new String[]{"Other"}, second.lcns);
+        assertArrayEquals(new String[]{"d"}, second.methods);
+        assertNull(second.lpcns[0]);
+    }
+
+    @Test
+    public void changedTypeInvalid() {
+        add(Base.class, "Base");
+        RegisterSnapshot first = snapshot(null);
+        assertFalse(first.isValidFor(classes, lcns, new int[]{1}));
+    }
+
+    /**
+     * 子类先预注册，之后注册的父类需要废弃快照
+     */
+    @Test
+    public void parentRegisteredLater() {
+        add(Child.class, "Child");
+        RegisterSnapshot first = snapshot(null);
+        assertNull(first.lpcns[0]);
+        assertTrue(first.hasSubclassOf(Base.class));
+        assertFalse(first.hasSubclassOf(Child.class));
+        assertFalse(first.hasSubclassOf(Other.class));
+
+        add(Base.class, "Base");
+        RegisterSnapshot all = snapshot(null);
+        assertEquals(2, all.size());
+        assertEquals("Base", all.lpcns[0]);
+    }
+}
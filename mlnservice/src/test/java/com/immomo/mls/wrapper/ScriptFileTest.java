@@ -0,0 +1,75 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.wrapper;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ScriptFile} 映射的数据在文件被改写后失效
+ */
+public class ScriptFileTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void truncated() throws Exception {
+        File f = write(tempFile(), "return 'hello world'");
+        ScriptFile sf = new ScriptFile("main", f.getAbsolutePath(), true);
+        assertTrue(sf.setMappedFilePath(f));
+        assertTrue(sf.isSourceBufferValid());
+
+        /// 截断并保持修改时间
+        long time = f.lastModified();
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        raf.setLength(4);
+        raf.close();
+        f.setLastModified(time);
+        assertFalse(sf.isSourceBufferValid());
+    }
+
+    @Test
+    public void rewrittenSameLength() throws Exception {
+        File f = write(tempFile(), "return 1");
+        ScriptFile sf = new ScriptFile("main", f.getAbsolutePath(), true);
+        assertTrue(sf.setMappedFilePath(f));
+
+        write(f, "return 2");
+        f.setLastModified(f.lastModified() + 2000);
+        assertFalse(sf.isSourceBufferValid());
+    }
+
+    @Test
+    public void noBuffer() throws Exception {
+        File f = write(tempFile(), "return 1");
+        ScriptFile sf = new ScriptFile("main", f.getAbsolutePath(), true);
+        assertFalse(sf.isSourceBufferValid());
+        assertTrue(sf.setMappedFilePath(f));
+        sf.setSourceBuffer(null);
+        assertFalse(sf.isSourceBufferValid());
+    }
+
+    private static File write(File f, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(content.getBytes(UTF8));
+        }
+        return f;
+    }
+
+    private static File tempFile() throws IOException {
+        File f = File.createTempFile("script", ".lua");
+        f.deleteOnExit();
+        return f;
+    }
+}
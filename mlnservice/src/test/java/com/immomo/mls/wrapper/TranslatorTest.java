@@ -0,0 +1,71 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.wrapper;
+
+import org.junit.Test;
+import org.luaj.vm2.LuaValue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link Translator} 解析缓存
+ */
+public class TranslatorTest {
+    private static final class Foo {
+    }
+
+    private static final IJavaObjectGetter<LuaValue, Object> CONVERTED = new IJavaObjectGetter<LuaValue, Object>() {
+        @Override
+        public Object getJavaObject(LuaValue lv) {
+            return "converted";
+        }
+    };
+
+    @Test
+    public void registerAfterCachedMiss() {
+        Translator t = new Translator();
+        LuaValue lv = mock(LuaValue.class);
+        assertNull(t.translateLuaToJava(lv, Foo.class));
+        assertNull(t.translateLuaToJava(lv, Foo.class));
+        t.registerL2J(Foo.class, CONVERTED);
+        assertEquals("converted", t.translateLuaToJava(lv, Foo.class));
+    }
+
+    /**
+     * 其他线程不断解析未注册的类型时注册，注册完成后一定能转换
+     */
+    @Test
+    public void registerWhileResolving() throws Exception {
+        final LuaValue lv = mock(LuaValue.class);
+        for (int round = 0; round < 200; round++) {
+            final Translator t = new Translator();
+            final AtomicBoolean stop = new AtomicBoolean();
+            final CountDownLatch started = new CountDownLatch(1);
+            Thread resolver = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    while (!stop.get()) {
+                        t.translateLuaToJava(lv, Foo.class);
+                    }
+                }
+            });
+            resolver.start();
+            started.await();
+            t.registerL2J(Foo.class, CONVERTED);
+            Object result = t.translateLuaToJava(lv, Foo.class);
+            stop.set(true);
+            resolver.join();
+            assertEquals("round " + round, "converted", result);
+        }
+    }
+}
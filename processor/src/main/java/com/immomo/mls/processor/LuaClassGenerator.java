@@ -37,8 +37,8 @@ import javax.lang.model.type.TypeKind;
  * Created by Xiong.Fangyu on 2019/3/15
  */
 class LuaClassGenerator {
-    private static final String UD_CLASS_SUFFIX = "_udwrapper";
-    private static final String SB_CLASS_SUFFIX = "_sbwrapper";
+    static final String UD_CLASS_SUFFIX = "_udwrapper";
+    static final String SB_CLASS_SUFFIX = "_sbwrapper";
 
     private static final String PACKAGE_NAME = "org.luaj.vm2";
     private static final ClassName LuaUserdata = ClassName.get(PACKAGE_NAME, "LuaUserdata");
@@ -53,6 +53,11 @@ class LuaClassGenerator {
 
 
     private static final TypeName UserdataTranslator = ClassName.get("com.immomo.mls.wrapper", "Translator");
+    private static final ClassName ILuaValueGetter = ClassName.get("com.immomo.mls.wrapper", "ILuaValueGetter");
+    /**
+     * 生成的java对象转lua对象的工厂，Translator及Register通过此名称查找
+     */
+    static final String J2L_FIELD = "J2L";
     private static final TypeName PrimitiveArrayUtils = ClassName.get("com.immomo.mls.utils.convert", "PrimitiveArrayUtils");
     private static final TypeName ObjectArrayUtils = ClassName.get("org.luaj.vm2.jse", "Utils");
 
@@ -203,6 +208,7 @@ class LuaClassGenerator {
             con.addStatement("(($T) javaUserdata).__setUserdata(this)", typeElement);
         }
         builder.addMethod(con.build());
+        addJ2LField(builder);
         /**
          * 增加protected Object newUserdata(LuaValue[] v) 方法
          * 初始化javaUserdata，减少userdata创建次数
@@ -305,6 +311,29 @@ class LuaClassGenerator {
         }
     }
 
+    /**
+     * 增加 public static final ILuaValueGetter J2L 字段
+     * java对象转成lua对象时直接调用java层构造方法，不使用反射
+     */
+    private void addJ2LField(TypeSpec.Builder builder) {
+        TypeName getterType = ParameterizedTypeName.get(ILuaValueGetter, thisClassName, TypeName.OBJECT);
+        TypeSpec getter = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(getterType)
+                .addMethod(MethodSpec.methodBuilder("newInstance")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(thisClassName)
+                        .addParameter(Globals, "g")
+                        .addParameter(Object.class, "obj")
+                        .addStatement("return new $T(g, obj)", thisClassName)
+                        .build())
+                .build();
+        builder.addField(FieldSpec
+                .builder(getterType, J2L_FIELD, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", getter)
+                .build());
+    }
+
     private void addMethodNamesField(TypeSpec.Builder builder, List<String> methods) {
         FieldSpec.Builder fb = FieldSpec
                 .builder(String[].class, "methods", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
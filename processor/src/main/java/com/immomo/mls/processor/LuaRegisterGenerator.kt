@@ -76,11 +76,22 @@ class LuaRegisterGenerator(builder: Builder) {
             }
             MLN.Type.Static -> {
                 val classFullName = env.elementUtils.getBinaryName(type).toString()
-                staticUDCodeBlock.add(
-                    "Register.newSHolderWithLuaClass(\$L.LUA_CLASS_NAME,\$L.class),\n",
-                    classFullName,
-                    classFullName
-                )
+                if (type.getAnnotation(LuaClass::class.java)?.isStatic == true) {
+                    /// 直接使用生成的方法表，不通过反射查找wrapper类
+                    val wrapper = wrapperClassName(type, LuaClassGenerator.SB_CLASS_SUFFIX)
+                    staticUDCodeBlock.add(
+                        "Register.newSHolderWithWrapper(\$L.LUA_CLASS_NAME,\$T.class,\$T.methods),\n",
+                        classFullName,
+                        wrapper,
+                        wrapper
+                    )
+                } else {
+                    staticUDCodeBlock.add(
+                        "Register.newSHolderWithLuaClass(\$L.LUA_CLASS_NAME,\$L.class),\n",
+                        classFullName,
+                        classFullName
+                    )
+                }
             }
             MLN.Type.Singleton -> {
                 val classFullName = env.elementUtils.getBinaryName(type).toString()
@@ -120,7 +131,21 @@ class LuaRegisterGenerator(builder: Builder) {
         type: TypeElement,
         env: ProcessingEnvironment
     ) {
-        if (type.getAnnotation(LuaClass::class.java) != null) {
+        val luaClass = type.getAnnotation(LuaClass::class.java)
+        if (luaClass != null && !luaClass.isStatic) {
+            /// 直接使用生成的方法表和J2L工厂，不通过反射查找wrapper类
+            val classFullName = env.elementUtils.getBinaryName(type).toString()
+            val wrapper = wrapperClassName(type, LuaClassGenerator.UD_CLASS_SUFFIX)
+            normalUDCodeBlock.add(
+                "Register.newUDHolderWithWrapper(\$L.LUA_CLASS_NAME,\$L.class,\$T.class,false,\$T.methods,\$T.\$L),\n",
+                classFullName,
+                classFullName,
+                wrapper,
+                wrapper,
+                wrapper,
+                LuaClassGenerator.J2L_FIELD
+            )
+        } else if (luaClass != null) {
             val classFullName = env.elementUtils.getBinaryName(type).toString()
             normalUDCodeBlock.add(
                 "Register.newUDHolderWithLuaClass(\$L.LUA_CLASS_NAME,\$L.class,false),\n",
@@ -138,6 +163,14 @@ class LuaRegisterGenerator(builder: Builder) {
         }
     }
 
+    /**
+     * 与[LuaClassGenerator]生成的wrapper类名一致
+     */
+    private fun wrapperClassName(type: TypeElement, suffix: String): ClassName {
+        val pkg = MoreElements.getPackage(type).qualifiedName.toString()
+        return ClassName.get(pkg, type.simpleName.toString() + suffix)
+    }
+
     fun build(): JavaFile {
         val forImport = FieldSpec.builder(registerClass, "mRegister").build()
         val forImport2 = FieldSpec.builder(mlsBuilderClass, "mRegister2").build()
@@ -0,0 +1,162 @@
+/**
+  * Created by MomoLuaNative.
+  * Copyright (c) 2019, Momo Group. All rights reserved.
+  *
+  * This source code is licensed under the MIT.
+  * For the full copyright and license information,please view the LICENSE file in the root directory of this source tree.
+  */
+package com.immomo.mls.processor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LuaClassGenerator} 生成代码测试
+ * 生成的注册类将方法表直接传给Register，方法表中必须只有{@link com.immomo.mls.annotation.LuaBridge}方法
+ */
+public class LuaClassGeneratorTest {
+    private static final Pattern METHODS = Pattern.compile("String\\[\\] methods = new String\\[\\] \\{([^}]*)\\}");
+    private static final Pattern NAME = Pattern.compile("\"([^\"]*)\"");
+
+    private File out;
+
+    @Before
+    public void setUp() throws IOException {
+        out = Files.createTempDirectory("apt").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(out);
+    }
+
+    @Test
+    public void userdataWrapper() throws IOException {
+        String code = process("sample.Sample",
+                "package sample;\n" +
+                "import com.immomo.mls.annotation.*;\n" +
+                "@LuaClass\n" +
+                "public class Sample {\n" +
+                "    public Sample() {}\n" +
+                "    @LuaBridge public void call(int a) {}\n" +
+                "    @LuaBridge public String name() { return null; }\n" +
+                "    public void notBridge() {}\n" +
+                "}\n",
+                "sample/Sample_udwrapper.java");
+
+        assertTrue(code.contains("@CreatedByApt"));
+        assertTrue(code.contains("public static final ILuaValueGetter<Sample_udwrapper, Object> J2L = new ILuaValueGetter<Sample_udwrapper, Object>()"));
+        assertTrue(code.contains("return new Sample_udwrapper(g, obj);"));
+        assertEquals(Arrays.asList("call", "name"), methods(code));
+    }
+
+    @Test
+    public void staticWrapper() throws IOException {
+        String code = process("sample.StaticSample",
+                "package sample;\n" +
+                "import com.immomo.mls.annotation.*;\n" +
+                "@LuaClass(isStatic = true)\n" +
+                "public class StaticSample {\n" +
+                "    @LuaBridge public static int add(int a, int b) { return a + b; }\n" +
+                "    public static void notBridge() {}\n" +
+                "}\n",
+                "sample/StaticSample_sbwrapper.java");
+
+        assertTrue(code.contains("@CreatedByApt"));
+        assertFalse(code.contains("ILuaValueGetter"));
+        assertEquals(Collections.singletonList("add"), methods(code));
+    }
+
+    /**
+     * 只运行{@link Main}，不编译生成的代码（生成的代码依赖mlncore）
+     *
+     * @return 生成的文件内容
+     */
+    private String process(String className, String source, String generated) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fm = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try {
+            fm.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(out));
+            fm.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(out));
+            List<String> options = Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fm, diagnostics, options, null,
+                    Collections.singletonList(new Source(className, source)));
+            task.setProcessors(Collections.singletonList(new Main()));
+            assertTrue(String.valueOf(errors(diagnostics)), task.call());
+        } finally {
+            fm.close();
+        }
+        File f = new File(out, generated);
+        assertTrue(generated, f.isFile());
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> methods(String code) {
+        Matcher m = METHODS.matcher(code);
+        assertTrue(m.find());
+        List<String> ret = new ArrayList<>();
+        Matcher n = NAME.matcher(m.group(1));
+        while (n.find()) {
+            ret.add(n.group(1));
+        }
+        return ret;
+    }
+
+    private static List<String> errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        List<String> ret = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR)
+                ret.add(d.getMessage(null));
+        }
+        return ret;
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        Source(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+}
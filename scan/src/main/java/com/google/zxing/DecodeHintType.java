@@ -98,6 +98,31 @@ public enum DecodeHintType {
      */
     ALLOWED_EAN_EXTENSIONS(int[].class),
 
+    /**
+     * Also try the luminance-inverted image (light barcode on a dark background) when the normal
+     * image does not decode. Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+     */
+    ALSO_INVERTED(Void.class),
+
+    /**
+     * Also try {@link com.google.zxing.common.GlobalHistogramBinarizer} besides
+     * {@link com.google.zxing.common.HybridBinarizer}. Doesn't matter what it maps to;
+     * use {@link Boolean#TRUE}.
+     */
+    ALSO_GLOBAL_HISTOGRAM(Void.class),
+
+    /**
+     * Also try the image rotated by 90 degrees, if the {@link LuminanceSource} supports it.
+     * Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+     */
+    ALSO_ROTATED(Void.class),
+
+    /**
+     * Number of threads the decode attempts are spread across, including the decode thread.
+     * Maps to an {@link Integer}; 1 or less runs them one after another on the decode thread.
+     */
+    DECODE_THREADS(Integer.class),
+
     // End of enumeration values.
     ;
 
@@ -0,0 +1,191 @@
+package com.google.zxing;
+
+/**
+ * A {@link LuminanceSource} over the Y plane of a camera frame, rotated 90 degrees clockwise and
+ * cropped to a rectangle in rotated coordinates. The frame itself is never copied or rotated:
+ * rows are gathered from the original data on demand, and {@link #getMatrix()} rotates only the
+ * cropped rectangle, once, into a buffer that the caller may reuse across frames.
+ *
+ * Equivalent to rotating the whole frame with
+ * {@code rotated[x * dataHeight + dataHeight - y - 1] = yuv[x + y * dataWidth]} and building a
+ * {@link PlanarYUVLuminanceSource} over it.
+ */
+public final class RotatedYUVLuminanceSource extends LuminanceSource {
+
+    private static final int THUMBNAIL_SCALE_FACTOR = 2;
+
+    private final byte[] yuvData;
+    /**
+     * Size of the frame before rotation.
+     */
+    private final int dataWidth;
+    private final int dataHeight;
+    /**
+     * Crop rectangle origin in rotated coordinates.
+     */
+    private final int left;
+    private final int top;
+
+    private byte[] buffer;
+    private boolean rotated;
+
+    /**
+     * @param yuvData    The camera frame, Y plane first.
+     * @param dataWidth  The width of the frame before rotation.
+     * @param dataHeight The height of the frame before rotation.
+     * @param left       Crop left in rotated coordinates, within [0, dataHeight).
+     * @param top        Crop top in rotated coordinates, within [0, dataWidth).
+     * @param buffer     An optional buffer from a previous frame for {@link #getMatrix()}.
+     *                   If null or too small, it will be ignored.
+     */
+    public RotatedYUVLuminanceSource(byte[] yuvData,
+                                     int dataWidth,
+                                     int dataHeight,
+                                     int left,
+                                     int top,
+                                     int width,
+                                     int height,
+                                     byte[] buffer) {
+        super(width, height);
+
+        if (left < 0 || top < 0 || left + width > dataHeight || top + height > dataWidth) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        if (rotated) {
+            System.arraycopy(buffer, y * width, row, 0, width);
+            return row;
+        }
+        // A rotated row is a column of the frame, read bottom to top.
+        byte[] yuv = yuvData;
+        int offset = (dataHeight - 1 - left) * dataWidth + top + y;
+        for (int x = 0; x < width; x++) {
+            row[x] = yuv[offset];
+            offset -= dataWidth;
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        if (rotated) {
+            return buffer;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        int area = width * height;
+        byte[] matrix = buffer;
+        if (matrix == null || matrix.length < area) {
+            matrix = new byte[area];
+        }
+        // Walk the frame row by row so reads stay sequential; each frame row fills one column.
+        byte[] yuv = yuvData;
+        for (int x = 0; x < width; x++) {
+            int inputOffset = (dataHeight - 1 - left - x) * dataWidth + top;
+            int outputOffset = x;
+            for (int y = 0; y < height; y++) {
+                matrix[outputOffset] = yuv[inputOffset + y];
+                outputOffset += width;
+            }
+        }
+        buffer = matrix;
+        rotated = true;
+        return matrix;
+    }
+
+    /**
+     * @return The buffer used by {@link #getMatrix()}, to pass to the source of the next frame once
+     * this one is no longer used. Null if the matrix was never requested.
+     */
+    public byte[] getBuffer() {
+        return rotated ? buffer : null;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new RotatedYUVLuminanceSource(yuvData,
+                dataWidth,
+                dataHeight,
+                this.left + left,
+                this.top + top,
+                width,
+                height,
+                null);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    /**
+     * Rotating back counter-clockwise gives the crop rectangle in the original frame orientation,
+     * so this is a plain view over the frame with no copy.
+     */
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        int width = getWidth();
+        int height = getHeight();
+        return new PlanarYUVLuminanceSource(yuvData,
+                dataWidth,
+                dataHeight,
+                top,
+                dataHeight - left - width,
+                height,
+                width,
+                false);
+    }
+
+    public int[] renderThumbnail() {
+        int width = getWidth() / THUMBNAIL_SCALE_FACTOR;
+        int height = getHeight() / THUMBNAIL_SCALE_FACTOR;
+        int[] pixels = new int[width * height];
+        byte[] row = null;
+        for (int y = 0; y < height; y++) {
+            row = getRow(y * THUMBNAIL_SCALE_FACTOR, row);
+            int outputOffset = y * width;
+            for (int x = 0; x < width; x++) {
+                int grey = row[x * THUMBNAIL_SCALE_FACTOR] & 0xff;
+                pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return width of image from {@link #renderThumbnail()}
+     */
+    public int getThumbnailWidth() {
+        return getWidth() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+    /**
+     * @return height of image from {@link #renderThumbnail()}
+     */
+    public int getThumbnailHeight() {
+        return getHeight() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+}
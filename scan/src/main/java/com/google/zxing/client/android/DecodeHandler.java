@@ -23,14 +23,10 @@ import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.RotatedYUVLuminanceSource;
 import com.google.zxing.R;
-import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
 import java.io.ByteArrayOutputStream;
 import java.util.Map;
@@ -40,12 +36,15 @@ final class DecodeHandler extends Handler {
     private static final String TAG = DecodeHandler.class.getSimpleName();
 
     private final CaptureActivity activity;
-    private final MultiFormatReader multiFormatReader;
+    private final ParallelDecoder decoder;
     private boolean running = true;
+    /**
+     * Matrix buffer of the previous frame, reused by the next one.
+     */
+    private byte[] matrixBuffer;
 
     DecodeHandler(CaptureActivity activity, Map<DecodeHintType, Object> hints) {
-        multiFormatReader = new MultiFormatReader();
-        multiFormatReader.setHints(hints);
+        decoder = new ParallelDecoder(hints);
         this.activity = activity;
     }
 
@@ -59,6 +58,7 @@ final class DecodeHandler extends Handler {
 
         } else if (message.what == R.id.quit) {
             running = false;
+            decoder.shutdown();
             Looper.myLooper().quit();
 
         }
@@ -75,27 +75,12 @@ final class DecodeHandler extends Handler {
     private void decode(byte[] data, int width, int height) {
         long start = System.currentTimeMillis();
         Result rawResult = null;
-//    PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
-
-        byte[] rotatedData = new byte[data.length];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++)
-                rotatedData[x * height + height - y - 1] = data[x + y * width];
-        }
-        int tmp = width;
-        width = height;
-        height = tmp;
-        PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(rotatedData, width, height);
+        // The preview is portrait: view the frame rotated instead of rotating a copy of it.
+        RotatedYUVLuminanceSource source = activity.getCameraManager()
+                .buildRotatedLuminanceSource(data, width, height, matrixBuffer);
 
         if (source != null) {
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            try {
-                rawResult = multiFormatReader.decodeWithState(bitmap);
-            } catch (ReaderException re) {
-                // continue
-            } finally {
-                multiFormatReader.reset();
-            }
+            rawResult = decoder.decode(source);
         }
 
         Handler handler = activity.getHandler();
@@ -116,9 +101,12 @@ final class DecodeHandler extends Handler {
                 message.sendToTarget();
             }
         }
+        if (source != null && source.getBuffer() != null) {
+            matrixBuffer = source.getBuffer();
+        }
     }
 
-    private static void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
+    private static void bundleThumbnail(RotatedYUVLuminanceSource source, Bundle bundle) {
         int[] pixels = source.renderThumbnail();
         int width = source.getThumbnailWidth();
         int height = source.getThumbnailHeight();
@@ -170,6 +170,14 @@ final class DecodeHintManager {
 
                 continue;
             }
+            if (hintType.getValueType().equals(Integer.class)) {
+                try {
+                    hints.put(hintType, Integer.valueOf(parameterText));
+                } catch (NumberFormatException ignored) {
+                    Log.w(TAG, "Skipping integer hint " + hintType + " due to invalid numeric value: '" + parameterText + '\'');
+                }
+                continue;
+            }
             if (hintType.getValueType().equals(int[].class)) {
                 // An integer array. Used to specify valid lengths.
                 // Strip a trailing comma as in Java style array initialisers.
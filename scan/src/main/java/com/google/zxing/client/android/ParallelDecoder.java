@@ -0,0 +1,297 @@
+package com.google.zxing.client.android;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BinarizerContext;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes one frame with several binarizer / orientation combinations. With more than one thread
+ * the first combination runs on the calling thread and the others on a small worker pool; the
+ * first successful result wins, combinations
+ * that have not started yet are skipped. Running ones cannot be interrupted, the next frame waits
+ * for them before it touches the frame buffers.
+ *
+ * The combinations are configured with {@link DecodeHintType#ALSO_GLOBAL_HISTOGRAM},
+ * {@link DecodeHintType#ALSO_INVERTED}, {@link DecodeHintType#ALSO_ROTATED} and
+ * {@link DecodeHintType#DECODE_THREADS}, see {@link DecodeHintManager}. Without them this is a
+ * single {@link HybridBinarizer} decode on the calling thread.
+ *
+ * Not thread safe: {@link #decode(LuminanceSource)} is called from the decode thread only.
+ */
+final class ParallelDecoder {
+
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * One binarizer / orientation combination.
+     */
+    static final class Attempt {
+        final boolean globalHistogram;
+        final boolean inverted;
+        final boolean rotated;
+
+        Attempt(boolean globalHistogram, boolean inverted, boolean rotated) {
+            this.globalHistogram = globalHistogram;
+            this.inverted = inverted;
+            this.rotated = rotated;
+        }
+
+        @Override
+        public String toString() {
+            return (globalHistogram ? "GlobalHistogram" : "Hybrid")
+                    + (inverted ? "+inverted" : "")
+                    + (rotated ? "+rotated" : "");
+        }
+    }
+
+    private final List<Attempt> attempts;
+    private final Map<DecodeHintType, Object> hints;
+    /**
+     * Rotated images report points in rotated coordinates, don't forward them.
+     */
+    private final Map<DecodeHintType, Object> rotatedHints;
+    private final int threads;
+    /**
+     * Readers are not thread safe, each worker keeps its own.
+     */
+    private final ThreadLocal<MultiFormatReader[]> readers = new ThreadLocal<MultiFormatReader[]>() {
+        @Override
+        protected MultiFormatReader[] initialValue() {
+            return new MultiFormatReader[2];
+        }
+    };
+    /**
+     * Binarizer arrays are reused frame after frame on each thread.
+     */
+    private final ThreadLocal<BinarizerContext> contexts = new ThreadLocal<BinarizerContext>() {
+        @Override
+        protected BinarizerContext initialValue() {
+            return new BinarizerContext();
+        }
+    };
+    private ExecutorService executor;
+    /**
+     * Counts down as the attempts of the previous frame finish; some may still be running after
+     * the frame was decoded.
+     */
+    private CountDownLatch pending;
+
+    ParallelDecoder(Map<DecodeHintType, ?> hints) {
+        this.hints = new EnumMap<>(DecodeHintType.class);
+        if (hints != null) {
+            this.hints.putAll(hints);
+        }
+        rotatedHints = new EnumMap<>(this.hints);
+        rotatedHints.remove(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+
+        boolean globalHistogram = this.hints.containsKey(DecodeHintType.ALSO_GLOBAL_HISTOGRAM);
+        boolean inverted = this.hints.containsKey(DecodeHintType.ALSO_INVERTED);
+        boolean rotated = this.hints.containsKey(DecodeHintType.ALSO_ROTATED);
+        // Cheapest and most likely first: they are also the ones run first when sequential.
+        List<Attempt> list = new ArrayList<>();
+        list.add(new Attempt(false, false, false));
+        if (globalHistogram) {
+            list.add(new Attempt(true, false, false));
+        }
+        if (inverted) {
+            list.add(new Attempt(false, true, false));
+        }
+        if (rotated) {
+            list.add(new Attempt(false, false, true));
+        }
+        if (globalHistogram && inverted) {
+            list.add(new Attempt(true, true, false));
+        }
+        attempts = Collections.unmodifiableList(list);
+
+        Object t = this.hints.get(DecodeHintType.DECODE_THREADS);
+        int n = t instanceof Integer ? (Integer) t : 1;
+        threads = Math.max(1, Math.min(Math.min(n, MAX_THREADS), list.size()));
+    }
+
+    List<Attempt> getAttempts() {
+        return attempts;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return The first successful result, or null if no attempt found a barcode.
+     */
+    Result decode(LuminanceSource source) {
+        // Lazily built sources (like RotatedYUVLuminanceSource) must be complete before they are
+        // shared between workers, and must not be rebuilt while the previous frame is still read.
+        awaitIdle();
+        source.getMatrix();
+        if (threads == 1) {
+            for (Attempt attempt : attempts) {
+                Result result = decode(source, attempt);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        // The first attempt runs here while the others run on the workers.
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor());
+        final AtomicBoolean done = new AtomicBoolean();
+        final int others = attempts.size() - 1;
+        final CountDownLatch latch = new CountDownLatch(others);
+        final LuminanceSource s = source;
+        pending = latch;
+        for (int i = 1; i <= others; i++) {
+            final Attempt attempt = attempts.get(i);
+            completion.submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    try {
+                        // Another attempt already succeeded.
+                        if (done.get()) {
+                            return null;
+                        }
+                        return decode(s, attempt);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        Result found = decode(source, attempts.get(0));
+        try {
+            for (int i = 0; i < others && found == null; i++) {
+                try {
+                    found = completion.take().get();
+                } catch (ExecutionException e) {
+                    // continue
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        done.set(true);
+        return found;
+    }
+
+    /**
+     * Stops the workers, called when the decode thread quits.
+     */
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pending = null;
+    }
+
+    private Result decode(LuminanceSource source, Attempt attempt) {
+        if (attempt.rotated && !source.isRotateSupported()) {
+            return null;
+        }
+        if (attempt.rotated) {
+            source = source.rotateCounterClockwise();
+        }
+        if (attempt.inverted) {
+            source = source.invert();
+        }
+        BinarizerContext context = contexts.get();
+        Binarizer binarizer = attempt.globalHistogram
+                ? new GlobalHistogramBinarizer(source, context)
+                : new HybridBinarizer(source, context);
+        MultiFormatReader reader = reader(attempt.rotated);
+        try {
+            Result result = reader.decodeWithState(new BinaryBitmap(binarizer));
+            if (attempt.rotated) {
+                rotatePointsBack(result, source.getHeight());
+            }
+            return result;
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private MultiFormatReader reader(boolean rotated) {
+        MultiFormatReader[] rs = readers.get();
+        int i = rotated ? 1 : 0;
+        if (rs[i] == null) {
+            rs[i] = new MultiFormatReader();
+            rs[i].setHints(rotated ? rotatedHints : hints);
+        }
+        return rs[i];
+    }
+
+    /**
+     * Maps points of a counter-clockwise rotated image back, as OneDReader does for TRY_HARDER.
+     */
+    private static void rotatePointsBack(Result result, int rotatedHeight) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return;
+        }
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                points[i] = new ResultPoint(rotatedHeight - points[i].getY() - 1, points[i].getX());
+            }
+        }
+    }
+
+    /**
+     * Waits for attempts of the previous frame that were still running when it returned.
+     */
+    void awaitIdle() {
+        CountDownLatch latch = pending;
+        pending = null;
+        if (latch == null) {
+            return;
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "DecodeWorker-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+}
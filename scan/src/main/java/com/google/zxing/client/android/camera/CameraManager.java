@@ -25,6 +25,7 @@ import android.util.Log;
 import android.view.SurfaceHolder;
 
 import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.RotatedYUVLuminanceSource;
 import com.google.zxing.client.android.camera.open.OpenCamera;
 import com.google.zxing.client.android.camera.open.OpenCameraInterface;
 
@@ -335,4 +336,23 @@ public final class CameraManager {
                 rect.width(), rect.height(), false);
     }
 
+    /**
+     * Like {@link #buildLuminanceSource}, for a portrait preview: the frame is viewed rotated 90
+     * degrees clockwise, and only the framing rectangle is rotated when the matrix is requested.
+     *
+     * @param data A preview frame.
+     * @param width The width of the frame before rotation.
+     * @param height The height of the frame before rotation.
+     * @param buffer An optional buffer from the previous frame, see {@link RotatedYUVLuminanceSource#getBuffer()}.
+     * @return A RotatedYUVLuminanceSource instance.
+     */
+    public RotatedYUVLuminanceSource buildRotatedLuminanceSource(byte[] data, int width, int height, byte[] buffer) {
+        Rect rect = getFramingRectInPreview();
+        if (rect == null) {
+            return null;
+        }
+        return new RotatedYUVLuminanceSource(data, width, height, rect.left, rect.top,
+                rect.width(), rect.height(), buffer);
+    }
+
 }
@@ -0,0 +1,78 @@
+package com.google.zxing.common;
+
+/**
+ * Working memory for {@link HybridBinarizer} and {@link GlobalHistogramBinarizer} that is kept
+ * from one frame to the next, so that continuous scanning at a fixed preview size allocates
+ * nothing per frame once the arrays have grown to the frame size.
+ *
+ * The {@link BitMatrix} returned by a binarizer built with a context belongs to the context: it
+ * is cleared and refilled by the next binarizer of the same kind using this context. A context
+ * must therefore be used by one thread, for one frame at a time.
+ */
+public final class BinarizerContext {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private int[] blackPoints = new int[0];
+    private byte[] luminances = EMPTY;
+    private final int[] buckets;
+    private BitMatrix hybridMatrix;
+    private BitMatrix globalMatrix;
+
+    public BinarizerContext() {
+        buckets = new int[GlobalHistogramBinarizer.LUMINANCE_BUCKETS];
+    }
+
+    /**
+     * Creates a context already sized for frames of the given size.
+     */
+    public BinarizerContext(int width, int height) {
+        this();
+        luminances = new byte[width];
+        blackPoints = new int[subSize(width) * subSize(height)];
+        hybridMatrix = new BitMatrix(width, height);
+    }
+
+    /**
+     * @return A black point array of at least subWidth * subHeight, row-major.
+     */
+    int[] blackPoints(int size) {
+        if (blackPoints.length < size) {
+            blackPoints = new int[size];
+        }
+        return blackPoints;
+    }
+
+    byte[] luminances(int size) {
+        if (luminances.length < size) {
+            luminances = new byte[size];
+        }
+        return luminances;
+    }
+
+    int[] buckets() {
+        return buckets;
+    }
+
+    BitMatrix hybridMatrix(int width, int height) {
+        hybridMatrix = reuse(hybridMatrix, width, height);
+        return hybridMatrix;
+    }
+
+    BitMatrix globalMatrix(int width, int height) {
+        globalMatrix = reuse(globalMatrix, width, height);
+        return globalMatrix;
+    }
+
+    private static BitMatrix reuse(BitMatrix matrix, int width, int height) {
+        if (matrix != null && matrix.getWidth() == width && matrix.getHeight() == height) {
+            matrix.clear();
+            return matrix;
+        }
+        return new BitMatrix(width, height);
+    }
+
+    private static int subSize(int size) {
+        return (size + HybridBinarizer.BLOCK_SIZE - 1) / HybridBinarizer.BLOCK_SIZE;
+    }
+}
@@ -35,16 +35,29 @@ public class GlobalHistogramBinarizer extends Binarizer {
 
     private static final int LUMINANCE_BITS = 5;
     private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
-    private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+    static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
     private static final byte[] EMPTY = new byte[0];
 
     private byte[] luminances;
     private final int[] buckets;
+    private final BinarizerContext context;
 
     public GlobalHistogramBinarizer(LuminanceSource source) {
+        this(source, null);
+    }
+
+    /**
+     * @param context Arrays kept across frames, see {@link BinarizerContext}. May be null.
+     */
+    public GlobalHistogramBinarizer(LuminanceSource source, BinarizerContext context) {
         super(source);
+        this.context = context;
         luminances = EMPTY;
-        buckets = new int[LUMINANCE_BUCKETS];
+        buckets = context != null ? context.buckets() : new int[LUMINANCE_BUCKETS];
+    }
+
+    final BinarizerContext getContext() {
+        return context;
     }
 
     // Applies simple sharpening to the row data to improve performance of the 1D Readers.
@@ -88,7 +101,7 @@ public class GlobalHistogramBinarizer extends Binarizer {
         LuminanceSource source = getLuminanceSource();
         int width = source.getWidth();
         int height = source.getHeight();
-        BitMatrix matrix = new BitMatrix(width, height);
+        BitMatrix matrix = context != null ? context.globalMatrix(width, height) : new BitMatrix(width, height);
 
         // Quickly calculates the histogram by sampling four rows from the image. This proved to be
         // more robust on the blackbox tests than sampling a diagonal as we used to do.
@@ -128,7 +141,9 @@ public class GlobalHistogramBinarizer extends Binarizer {
     }
 
     private void initArrays(int luminanceSize) {
-        if (luminances.length < luminanceSize) {
+        if (context != null) {
+            luminances = context.luminances(luminanceSize);
+        } else if (luminances.length < luminanceSize) {
             luminances = new byte[luminanceSize];
         }
         for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
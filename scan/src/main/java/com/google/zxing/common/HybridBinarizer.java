@@ -42,7 +42,7 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
     // This class uses 5x5 blocks to compute local luminance, where each block is 8x8 pixels.
     // So this is the smallest dimension in each axis we can accept.
     private static final int BLOCK_SIZE_POWER = 3;
-    private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
+    static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
     private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
     private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
     private static final int MIN_DYNAMIC_RANGE = 24;
@@ -53,6 +53,13 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
         super(source);
     }
 
+    /**
+     * @param context Arrays and matrix kept across frames, see {@link BinarizerContext}. May be null.
+     */
+    public HybridBinarizer(LuminanceSource source, BinarizerContext context) {
+        super(source, context);
+    }
+
     /**
      * Calculates the final BitMatrix once for all requests. This could be called once from the
      * constructor instead, but there are some advantages to doing it lazily, such as making
@@ -76,9 +83,15 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
             if ((height & BLOCK_SIZE_MASK) != 0) {
                 subHeight++;
             }
-            int[][] blackPoints = calculateBlackPoints(luminances, subWidth, subHeight, width, height);
-
-            BitMatrix newMatrix = new BitMatrix(width, height);
+            BinarizerContext context = getContext();
+            int[] blackPoints = context != null
+                    ? context.blackPoints(subWidth * subHeight)
+                    : new int[subWidth * subHeight];
+            calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+
+            BitMatrix newMatrix = context != null
+                    ? context.hybridMatrix(width, height)
+                    : new BitMatrix(width, height);
             calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, newMatrix);
             matrix = newMatrix;
         } else {
@@ -103,7 +116,7 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
                                                    int subHeight,
                                                    int width,
                                                    int height,
-                                                   int[][] blackPoints,
+                                                   int[] blackPoints,
                                                    BitMatrix matrix) {
         for (int y = 0; y < subHeight; y++) {
             int yoffset = y << BLOCK_SIZE_POWER;
@@ -121,8 +134,8 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
                 int top = cap(y, 2, subHeight - 3);
                 int sum = 0;
                 for (int z = -2; z <= 2; z++) {
-                    int[] blackRow = blackPoints[top + z];
-                    sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1] + blackRow[left + 2];
+                    int row = (top + z) * subWidth + left;
+                    sum += blackPoints[row - 2] + blackPoints[row - 1] + blackPoints[row] + blackPoints[row + 1] + blackPoints[row + 2];
                 }
                 int average = sum / 25;
                 thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
@@ -154,16 +167,17 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
     }
 
     /**
-     * Calculates a single black point for each block of pixels and saves it away.
+     * Calculates a single black point for each block of pixels and saves it away, row-major,
+     * into blackPoints.
      * See the following thread for a discussion of this algorithm:
      *  http://groups.google.com/group/zxing/browse_thread/thread/d06efa2c35a7ddc0
      */
-    private static int[][] calculateBlackPoints(byte[] luminances,
-                                                int subWidth,
-                                                int subHeight,
-                                                int width,
-                                                int height) {
-        int[][] blackPoints = new int[subHeight][subWidth];
+    private static void calculateBlackPoints(byte[] luminances,
+                                             int subWidth,
+                                             int subHeight,
+                                             int width,
+                                             int height,
+                                             int[] blackPoints) {
         for (int y = 0; y < subHeight; y++) {
             int yoffset = y << BLOCK_SIZE_POWER;
             int maxYOffset = height - BLOCK_SIZE;
@@ -221,17 +235,17 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
                         // the boundaries is used for the interior.
 
                         // The (min < bp) is arbitrary but works better than other heuristics that were tried.
+                        int above = (y - 1) * subWidth + x;
                         int averageNeighborBlackPoint =
-                                (blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) + blackPoints[y - 1][x - 1]) / 4;
+                                (blackPoints[above] + (2 * blackPoints[above + subWidth - 1]) + blackPoints[above - 1]) / 4;
                         if (min < averageNeighborBlackPoint) {
                             average = averageNeighborBlackPoint;
                         }
                     }
                 }
-                blackPoints[y][x] = average;
+                blackPoints[y * subWidth + x] = average;
             }
         }
-        return blackPoints;
     }
 
 }
@@ -0,0 +1,73 @@
+package com.google.zxing;
+
+import com.google.zxing.common.HybridBinarizer;
+
+import java.lang.management.ManagementFactory;
+
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.HEIGHT;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.LEFT;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.SIZE;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.TOP;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.WIDTH;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.frames;
+import static com.google.zxing.RotatedYUVLuminanceSourceTest.rotateAndCrop;
+
+/**
+ * Per-frame time and allocation of {@link RotatedYUVLuminanceSource} against rotating the whole
+ * frame and cropping with {@link PlanarYUVLuminanceSource}. Not a unit test, run {@link #main}.
+ */
+public class RotatedYUVLuminanceSourceBenchmark {
+    private static final int COUNT = 60;
+
+    public static void main(String[] args) throws Exception {
+        byte[][] frames = frames(8, WIDTH, HEIGHT);
+        // Warm up.
+        for (int i = 0; i < COUNT; i++) {
+            decodeCopy(frames[i % frames.length]);
+            decodeView(frames[i % frames.length], null);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            decodeCopy(frames[i % frames.length]);
+        }
+        long copyTime = (System.nanoTime() - start) / COUNT;
+        long copyBytes = (allocatedBytes() - bytes) / COUNT;
+
+        byte[] buffer = null;
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            buffer = decodeView(frames[i % frames.length], buffer);
+        }
+        long viewTime = (System.nanoTime() - start) / COUNT;
+        long viewBytes = (allocatedBytes() - bytes) / COUNT;
+
+        System.out.println(WIDTH + "x" + HEIGHT + " NV21, " + SIZE + "px framing rect, per frame: "
+                + "copy " + copyTime / 1000 + "us " + copyBytes / 1024 + "KB, "
+                + "view " + viewTime / 1000 + "us " + viewBytes / 1024 + "KB");
+    }
+
+    private static void decodeCopy(byte[] frame) throws NotFoundException {
+        PlanarYUVLuminanceSource source = rotateAndCrop(frame, WIDTH, HEIGHT, LEFT, TOP, SIZE, SIZE);
+        new BinaryBitmap(new HybridBinarizer(source)).getBlackMatrix();
+    }
+
+    private static byte[] decodeView(byte[] frame, byte[] buffer) throws NotFoundException {
+        RotatedYUVLuminanceSource source = new RotatedYUVLuminanceSource(frame, WIDTH, HEIGHT, LEFT, TOP, SIZE, SIZE, buffer);
+        new BinaryBitmap(new HybridBinarizer(source)).getBlackMatrix();
+        return source.getBuffer();
+    }
+
+    /**
+     * Bytes allocated by the current thread, 0 when the JVM does not report it.
+     */
+    private static long allocatedBytes() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.google.zxing;
+
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link RotatedYUVLuminanceSource} against the previous DecodeHandler path:
+ * rotate the whole frame into a new array, then crop with {@link PlanarYUVLuminanceSource}.
+ */
+public class RotatedYUVLuminanceSourceTest {
+    static final int WIDTH = 1920;
+    static final int HEIGHT = 1080;
+    /**
+     * Framing rect in rotated (portrait) coordinates.
+     */
+    static final int LEFT = 140;
+    static final int TOP = 560;
+    static final int SIZE = 800;
+
+    @Test
+    public void sameAsRotatedCopy() {
+        byte[] frame = frames(1, 160, 90)[0];
+        PlanarYUVLuminanceSource expected = rotateAndCrop(frame, 160, 90, 10, 20, 50, 60);
+        RotatedYUVLuminanceSource source = new RotatedYUVLuminanceSource(frame, 160, 90, 10, 20, 50, 60, null);
+        byte[] row = null;
+        for (int y = 0; y < 60; y++) {
+            row = source.getRow(y, row);
+            assertArrayEquals(expected.getRow(y, null), Arrays.copyOf(row, 50));
+        }
+        byte[] matrix = source.getMatrix();
+        assertArrayEquals(expected.getMatrix(), Arrays.copyOf(matrix, 50 * 60));
+        assertArrayEquals(expected.getRow(7, null), source.getRow(7, null));
+        assertArrayEquals(expected.renderThumbnail(), source.renderThumbnail());
+
+        LuminanceSource crop = source.crop(5, 6, 20, 30);
+        LuminanceSource expectedCrop = expected.crop(5, 6, 20, 30);
+        assertArrayEquals(expectedCrop.getMatrix(), crop.getMatrix());
+    }
+
+    @Test
+    public void reuseBuffer() {
+        byte[][] frames = frames(2, 160, 90);
+        RotatedYUVLuminanceSource first = new RotatedYUVLuminanceSource(frames[0], 160, 90, 0, 0, 90, 160, null);
+        assertNull(first.getBuffer());
+        byte[] buffer = first.getMatrix();
+        assertSame(buffer, first.getBuffer());
+        RotatedYUVLuminanceSource second = new RotatedYUVLuminanceSource(frames[1], 160, 90, 0, 0, 90, 160, buffer);
+        assertSame(buffer, second.getMatrix());
+        assertArrayEquals(Arrays.copyOf(rotateAndCrop(frames[1], 160, 90, 0, 0, 90, 160).getMatrix(), 90 * 160),
+                second.getMatrix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cropOutOfFrame() {
+        new RotatedYUVLuminanceSource(new byte[160 * 90 * 3 / 2], 160, 90, 0, 0, 91, 160, null);
+    }
+
+    /**
+     * A full-size frame binarizes to the same matrix through both paths, reusing the buffer.
+     * Timings are in {@link RotatedYUVLuminanceSourceBenchmark}.
+     */
+    @Test
+    public void sameBlackMatrixAtFullSize() throws Exception {
+        byte[][] frames = frames(2, WIDTH, HEIGHT);
+        byte[] buffer = null;
+        for (byte[] frame : frames) {
+            PlanarYUVLuminanceSource copy = rotateAndCrop(frame, WIDTH, HEIGHT, LEFT, TOP, SIZE, SIZE);
+            RotatedYUVLuminanceSource view = new RotatedYUVLuminanceSource(frame, WIDTH, HEIGHT, LEFT, TOP, SIZE, SIZE, buffer);
+            assertEquals(new BinaryBitmap(new HybridBinarizer(copy)).getBlackMatrix(),
+                    new BinaryBitmap(new HybridBinarizer(view)).getBlackMatrix());
+            if (buffer != null)
+                assertSame(buffer, view.getBuffer());
+            buffer = view.getBuffer();
+        }
+    }
+
+    /**
+     * The rotation previously done in DecodeHandler.
+     */
+    static PlanarYUVLuminanceSource rotateAndCrop(byte[] data, int width, int height,
+                                                  int left, int top, int w, int h) {
+        byte[] rotatedData = new byte[data.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                rotatedData[x * height + height - y - 1] = data[x + y * width];
+        }
+        return new PlanarYUVLuminanceSource(rotatedData, height, width, left, top, w, h, false);
+    }
+
+    /**
+     * Synthetic NV21 preview frames: a block pattern with noise in the Y plane.
+     */
+    static byte[][] frames(int count, int width, int height) {
+        Random random = new Random(42);
+        byte[][] frames = new byte[count][width * height * 3 / 2];
+        for (byte[] f : frames) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean dark = ((x / 12) ^ (y / 12) ^ random.nextInt(2)) % 2 == 0;
+                    f[y * width + x] = (byte) ((dark ? 40 : 210) + random.nextInt(20));
+                }
+            }
+            for (int i = width * height; i < f.length; i++) {
+                f[i] = (byte) 128;
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,61 @@
+package com.google.zxing.client.android;
+
+import com.google.zxing.Result;
+import com.google.zxing.client.android.ParallelDecoderTest.Sample;
+
+import java.util.List;
+
+import static com.google.zxing.client.android.ParallelDecoderTest.SIZE;
+import static com.google.zxing.client.android.ParallelDecoderTest.corpus;
+import static com.google.zxing.client.android.ParallelDecoderTest.hints;
+
+/**
+ * Per-frame latency of {@link ParallelDecoder}: hybrid binarizer only, all attempts on one thread,
+ * and all attempts on four threads. Not a unit test, run {@link #main}.
+ */
+public class ParallelDecoderBenchmark {
+
+    public static void main(String[] args) {
+        List<Sample> corpus = corpus();
+        ParallelDecoder single = new ParallelDecoder(null);
+        ParallelDecoder sequential = new ParallelDecoder(hints(1));
+        ParallelDecoder parallel = new ParallelDecoder(hints(4));
+        try {
+            // Warm up.
+            for (int i = 0; i < 3; i++) {
+                run(single, corpus);
+                run(sequential, corpus);
+                run(parallel, corpus);
+            }
+            long[] s = run(single, corpus);
+            long[] q = run(sequential, corpus);
+            long[] p = run(parallel, corpus);
+            System.out.println(corpus.size() + " frames " + SIZE + "x" + SIZE + ": "
+                    + "hybrid only " + s[0] + " decoded " + s[1] / 1000 + "us/frame, "
+                    + "all attempts sequential " + q[0] + " decoded " + q[1] / 1000 + "us/frame, "
+                    + "all attempts on " + parallel.getThreads() + " threads " + p[0] + " decoded " + p[1] / 1000 + "us/frame");
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Latency until a result, as seen by the decode thread. Leftover attempts of the previous frame
+     * are waited for first, as the camera leaves time between frames.
+     *
+     * @return decoded count, mean nanos per frame
+     */
+    private static long[] run(ParallelDecoder decoder, List<Sample> corpus) {
+        int decoded = 0;
+        long total = 0;
+        for (Sample s : corpus) {
+            decoder.awaitIdle();
+            long start = System.nanoTime();
+            Result r = decoder.decode(s.source());
+            total += System.nanoTime() - start;
+            if (r != null && s.text.equals(r.getText()))
+                decoded++;
+        }
+        return new long[]{decoded, total / corpus.size()};
+    }
+}
@@ -0,0 +1,168 @@
+package com.google.zxing.client.android;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.RotatedYUVLuminanceSource;
+import com.google.zxing.Writer;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ParallelDecoder} on synthetic preview frames made with the module's own encoders.
+ */
+public class ParallelDecoderTest {
+    static final int SIZE = 480;
+
+    static final class Sample {
+        final String name;
+        final String text;
+        final byte[] frame;
+
+        Sample(String name, String text, byte[] frame) {
+            this.name = name;
+            this.text = text;
+            this.frame = frame;
+        }
+
+        LuminanceSource source() {
+            return new RotatedYUVLuminanceSource(frame, SIZE, SIZE, 0, 0, SIZE, SIZE, null);
+        }
+    }
+
+    @Test
+    public void attemptsFromHints() {
+        assertEquals(1, new ParallelDecoder(null).getAttempts().size());
+        assertEquals(1, new ParallelDecoder(null).getThreads());
+        ParallelDecoder decoder = new ParallelDecoder(hints(8));
+        assertEquals(5, decoder.getAttempts().size());
+        assertEquals(4, decoder.getThreads());
+    }
+
+    @Test
+    public void decodeInvertedAndRotated() {
+        ParallelDecoder single = new ParallelDecoder(null);
+        ParallelDecoder parallel = new ParallelDecoder(hints(4));
+        try {
+            for (Sample s : corpus()) {
+                Result result = parallel.decode(s.source());
+                assertNotNull(s.name, result);
+                assertEquals(s.name, s.text, result.getText());
+            }
+            Sample inverted = sample("qr-inverted", BarcodeFormat.QR_CODE, new QRCodeWriter(), "inverted", true, false);
+            assertNull(single.decode(inverted.source()));
+            Sample rotated = sample("code128-rotated", BarcodeFormat.CODE_128, new Code128Writer(), "rotated", false, true);
+            assertNull(single.decode(rotated.source()));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Every attempt, sequential or on threads, decodes the whole corpus; hybrid only does not.
+     * Timings are in {@link ParallelDecoderBenchmark}.
+     */
+    @Test
+    public void allAttemptsDecodeMore() {
+        List<Sample> corpus = corpus();
+        ParallelDecoder single = new ParallelDecoder(null);
+        ParallelDecoder sequential = new ParallelDecoder(hints(1));
+        ParallelDecoder parallel = new ParallelDecoder(hints(4));
+        try {
+            int s = decoded(single, corpus);
+            assertEquals(corpus.size(), decoded(sequential, corpus));
+            assertEquals(corpus.size(), decoded(parallel, corpus));
+            assertTrue(s < corpus.size());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    private static int decoded(ParallelDecoder decoder, List<Sample> corpus) {
+        int decoded = 0;
+        for (Sample s : corpus) {
+            Result r = decoder.decode(s.source());
+            if (r != null && s.text.equals(r.getText()))
+                decoded++;
+        }
+        return decoded;
+    }
+
+    static Map<DecodeHintType, Object> hints(int threads) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.ALSO_GLOBAL_HISTOGRAM, Boolean.TRUE);
+        hints.put(DecodeHintType.ALSO_INVERTED, Boolean.TRUE);
+        hints.put(DecodeHintType.ALSO_ROTATED, Boolean.TRUE);
+        hints.put(DecodeHintType.DECODE_THREADS, threads);
+        return hints;
+    }
+
+    static List<Sample> corpus() {
+        List<Sample> list = new ArrayList<>();
+        String[] texts = {"https://example.com/a", "MLN-12345", "scan me"};
+        for (String t : texts) {
+            list.add(sample("qr", BarcodeFormat.QR_CODE, new QRCodeWriter(), t, false, false));
+            list.add(sample("qr-inverted", BarcodeFormat.QR_CODE, new QRCodeWriter(), t, true, false));
+            list.add(sample("code128", BarcodeFormat.CODE_128, new Code128Writer(), t, false, false));
+            list.add(sample("code128-rotated", BarcodeFormat.CODE_128, new Code128Writer(), t, false, true));
+        }
+        list.add(sample("ean13", BarcodeFormat.EAN_13, new EAN13Writer(), "5901234123457", false, false));
+        list.add(sample("ean13-rotated", BarcodeFormat.EAN_13, new EAN13Writer(), "5901234123457", false, true));
+        return list;
+    }
+
+    /**
+     * Renders the barcode into the Y plane of an NV21 frame, laid out so that the rotated view
+     * used by the decode thread shows it upright (or turned by 90 degrees when rotated is set).
+     */
+    private static Sample sample(String name, BarcodeFormat format, Writer writer, String text,
+                                 boolean inverted, boolean rotated) {
+        BitMatrix m;
+        try {
+            boolean oneD = format != BarcodeFormat.QR_CODE;
+            m = writer.encode(text, format, oneD ? 360 : 300, oneD ? 160 : 300);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        Random random = new Random(text.hashCode());
+        byte[] frame = new byte[SIZE * SIZE * 3 / 2];
+        int mw = m.getWidth();
+        int mh = m.getHeight();
+        int dw = rotated ? mh : mw;
+        int dh = rotated ? mw : mh;
+        int ox = (SIZE - dw) / 2;
+        int oy = (SIZE - dh) / 2;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                boolean black = false;
+                int bx = x - ox;
+                int by = y - oy;
+                if (bx >= 0 && by >= 0 && bx < dw && by < dh) {
+                    black = rotated ? m.get(by, dw - 1 - bx) : m.get(bx, by);
+                }
+                if (inverted)
+                    black = !black;
+                int v = (black ? 30 : 220) + random.nextInt(16);
+                // View (x, y) is frame (y, SIZE - 1 - x).
+                frame[(SIZE - 1 - x) * SIZE + y] = (byte) v;
+            }
+        }
+        for (int i = SIZE * SIZE; i < frame.length; i++) {
+            frame[i] = (byte) 128;
+        }
+        return new Sample(name, text, frame);
+    }
+}
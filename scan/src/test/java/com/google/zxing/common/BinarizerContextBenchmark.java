@@ -0,0 +1,62 @@
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+
+import java.lang.management.ManagementFactory;
+
+import static com.google.zxing.common.BinarizerContextTest.frames;
+import static com.google.zxing.common.BinarizerContextTest.source;
+
+/**
+ * ns/frame and bytes allocated/frame of {@link HybridBinarizer} with and without a
+ * {@link BinarizerContext}, over 720p and 1080p frames. Not a unit test, run {@link #main}.
+ */
+public class BinarizerContextBenchmark {
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws NotFoundException {
+        for (int[] size : new int[][]{{1280, 720}, {1920, 1080}}) {
+            int w = size[0];
+            int h = size[1];
+            byte[][] frames = frames(4, w, h);
+            long[] fresh = measure(frames, w, h, null);
+            long[] reused = measure(frames, w, h, new BinarizerContext(w, h));
+            System.out.println(w + "x" + h + ": "
+                    + "new arrays " + fresh[0] + " ns/frame " + fresh[1] + " B/frame, "
+                    + "context " + reused[0] + " ns/frame " + reused[1] + " B/frame");
+        }
+    }
+
+    /**
+     * @return ns/frame, bytes allocated/frame
+     */
+    private static long[] measure(byte[][] frames, int w, int h, BinarizerContext context) throws NotFoundException {
+        LuminanceSource[] sources = new LuminanceSource[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            sources[i] = source(frames[i], w, h);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            new HybridBinarizer(sources[i % sources.length], context).getBlackMatrix();
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            new HybridBinarizer(sources[i % sources.length], context).getBlackMatrix();
+        }
+        long time = (System.nanoTime() - start) / ITERATIONS;
+        return new long[]{time, (allocatedBytes() - bytes) / ITERATIONS};
+    }
+
+    /**
+     * Bytes allocated by the current thread, 0 when the JVM does not report it.
+     */
+    private static long allocatedBytes() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BinarizerContext} gives the same bits as fresh binarizers.
+ */
+public class BinarizerContextTest {
+    @Test
+    public void sameAsWithoutContext() throws NotFoundException {
+        BinarizerContext context = new BinarizerContext();
+        byte[][] frames = frames(3, 200, 120);
+        for (byte[] frame : frames) {
+            LuminanceSource source = source(frame, 200, 120);
+            assertEquals(new HybridBinarizer(source).getBlackMatrix(),
+                    new HybridBinarizer(source, context).getBlackMatrix());
+            assertEquals(new GlobalHistogramBinarizer(source).getBlackMatrix(),
+                    new GlobalHistogramBinarizer(source, context).getBlackMatrix());
+            assertEquals(new GlobalHistogramBinarizer(source).getBlackRow(60, null),
+                    new GlobalHistogramBinarizer(source, context).getBlackRow(60, null));
+        }
+        // A smaller frame after larger ones.
+        LuminanceSource small = source(frames(1, 64, 48)[0], 64, 48);
+        BitMatrix m = new HybridBinarizer(small, context).getBlackMatrix();
+        assertEquals(64, m.getWidth());
+        assertEquals(new HybridBinarizer(small).getBlackMatrix(), m);
+    }
+
+    @Test
+    public void reuseMatrix() throws NotFoundException {
+        BinarizerContext context = new BinarizerContext(200, 120);
+        byte[][] frames = frames(2, 200, 120);
+        BitMatrix first = new HybridBinarizer(source(frames[0], 200, 120), context).getBlackMatrix();
+        BitMatrix second = new HybridBinarizer(source(frames[1], 200, 120), context).getBlackMatrix();
+        assertSame(first, second);
+    }
+
+    /**
+     * At preview sizes the context gives the same bits and keeps one matrix across frames.
+     * Timings are in {@link BinarizerContextBenchmark}.
+     */
+    @Test
+    public void sameAtPreviewSize() throws NotFoundException {
+        BinarizerContext context = new BinarizerContext(1280, 720);
+        BitMatrix reused = null;
+        for (byte[] frame : frames(2, 1280, 720)) {
+            LuminanceSource source = source(frame, 1280, 720);
+            BitMatrix m = new HybridBinarizer(source, context).getBlackMatrix();
+            assertEquals(new HybridBinarizer(source).getBlackMatrix(), m);
+            if (reused != null)
+                assertSame(reused, m);
+            reused = m;
+        }
+    }
+
+    static LuminanceSource source(byte[] frame, int w, int h) {
+        return new PlanarYUVLuminanceSource(frame, w, h, 0, 0, w, h, false);
+    }
+
+    static byte[][] frames(int count, int width, int height) {
+        Random random = new Random(7);
+        byte[][] frames = new byte[count][width * height * 3 / 2];
+        for (byte[] f : frames) {
+            int cell = 6 + random.nextInt(6);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean dark = ((x / cell) ^ (y / cell) ^ random.nextInt(2)) % 2 == 0;
+                    // Horizontal gradient, as from uneven lighting.
+                    int light = 120 + 100 * x / width;
+                    f[y * width + x] = (byte) ((dark ? 30 : light) + random.nextInt(16));
+                }
+            }
+        }
+        return frames;
+    }
+}